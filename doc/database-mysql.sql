@@ -53,6 +53,32 @@ CREATE TABLE wf_task_actor (
     actor_Id          VARCHAR(100) not null comment '参与者ID'
 )comment='任务参与者表';
 
+/**合并计数器表*/
+CREATE TABLE wf_counter (
+    order_Id          VARCHAR(100) NOT NULL comment '流程实例ID',
+    node_Name         VARCHAR(100) NOT NULL comment '节点名称',
+    total             INT NOT NULL comment '计数总数',
+    remain            INT NOT NULL comment '剩余计数',
+    PRIMARY KEY (order_Id, node_Name)
+)comment='合并计数器表';
+
+/**异步作业表*/
+CREATE TABLE wf_job (
+    id                VARCHAR(100) NOT NULL PRIMARY KEY comment '主键ID',
+    order_Id          VARCHAR(100) NOT NULL comment '流程实例ID',
+    task_Id           VARCHAR(100) comment '自定义任务ID',
+    node_Name         VARCHAR(100) NOT NULL comment '节点名称',
+    operator          VARCHAR(100) comment '操作人',
+    job_State         TINYINT(1) NOT NULL comment '作业状态',
+    owner             VARCHAR(100) comment '领取标识',
+    lock_Time         VARCHAR(50) comment '领取时间',
+    next_Time         VARCHAR(50) NOT NULL comment '下次执行时间',
+    retries           INT NOT NULL comment '已重试次数',
+    create_Time       VARCHAR(50) NOT NULL comment '创建时间',
+    error_Msg         VARCHAR(500) comment '异常信息',
+    variable          VARCHAR(2000) comment '执行参数'
+)comment='异步作业表';
+
 /**历史流程实例表*/
 create table wf_hist_order (
     id                VARCHAR(100) not null primary key comment '主键ID',
@@ -96,15 +122,21 @@ create table wf_hist_task_actor (
 create index IDX_PROCESS_NAME on wf_process (name);
 create index IDX_ORDER_PROCESSID on wf_order (process_Id);
 create index IDX_ORDER_NO on wf_order (order_No);
+create index IDX_ORDER_EXPIRETIME on wf_order (expire_Time);
 create index IDX_TASK_ORDER on wf_task (order_Id);
 create index IDX_TASK_TASKNAME on wf_task (task_Name);
 create index IDX_TASK_PARENTTASK on wf_task (parent_Task_Id);
+create index IDX_TASK_CREATETIME on wf_task (create_Time, id);
+create index IDX_TASK_EXPIRETIME on wf_task (expire_Time);
+create index IDX_JOB_NEXTTIME on wf_job (next_Time);
+create index IDX_JOB_OWNER on wf_job (owner);
 create index IDX_TASKACTOR_TASK on wf_task_actor (task_Id);
 create index IDX_HIST_ORDER_PROCESSID on wf_hist_order (process_Id);
 create index IDX_HIST_ORDER_NO on wf_hist_order (order_No);
 create index IDX_HIST_TASK_ORDER on wf_hist_task (order_Id);
 create index IDX_HIST_TASK_TASKNAME on wf_hist_task (task_Name);
 create index IDX_HIST_TASK_PARENTTASK on wf_hist_task (parent_Task_Id);
+create index IDX_HIST_TASK_CREATETIME on wf_hist_task (create_Time, id);
 create index IDX_HIST_TASKACTOR_TASK on wf_hist_task_actor (task_Id);
 
 /**增加外键关联约束*/
@@ -131,4 +163,7 @@ alter table WF_HIST_ORDER
   references WF_HIST_ORDER (ID);
 alter table WF_HIST_ORDER
   add constraint FK_HIST_ORDER_PROCESSID foreign key (PROCESS_ID)
-  references WF_PROCESS (ID);
\ No newline at end of file
+  references WF_PROCESS (ID);
+alter table WF_COUNTER
+  add constraint FK_COUNTER_ORDERID foreign key (ORDER_ID)
+  references WF_ORDER (ID);
@@ -96,6 +96,51 @@ comment on table wf_task_actor is '任务参与者表';
 comment on column wf_task_actor.task_Id is '任务ID';
 comment on column wf_task_actor.actor_Id is '参与者ID';
 
+/**合并计数器表*/
+create table wf_counter (
+    order_Id         varchar2(100) not null,
+    node_Name        varchar2(100) not null,
+    total            number(10) not null,
+    remain           number(10) not null,
+    primary key (order_Id, node_Name)
+);
+comment on table wf_counter is '合并计数器表';
+comment on column wf_counter.order_Id is '流程实例ID';
+comment on column wf_counter.node_Name is '节点名称';
+comment on column wf_counter.total is '计数总数';
+comment on column wf_counter.remain is '剩余计数';
+
+/**异步作业表*/
+create table wf_job (
+    id               varchar2(100) not null primary key,
+    order_Id         varchar2(100) not null,
+    task_Id          varchar2(100),
+    node_Name        varchar2(100) not null,
+    operator         varchar2(100),
+    job_State        number(1) not null,
+    owner            varchar2(100),
+    lock_Time        varchar2(50),
+    next_Time        varchar2(50) not null,
+    retries          number(10) not null,
+    create_Time      varchar2(50) not null,
+    error_Msg        varchar2(500),
+    variable         varchar2(2000)
+);
+comment on table wf_job is '异步作业表';
+comment on column wf_job.id is '主键ID';
+comment on column wf_job.order_Id is '流程实例ID';
+comment on column wf_job.task_Id is '自定义任务ID';
+comment on column wf_job.node_Name is '节点名称';
+comment on column wf_job.operator is '操作人';
+comment on column wf_job.job_State is '作业状态';
+comment on column wf_job.owner is '领取标识';
+comment on column wf_job.lock_Time is '领取时间';
+comment on column wf_job.next_Time is '下次执行时间';
+comment on column wf_job.retries is '已重试次数';
+comment on column wf_job.create_Time is '创建时间';
+comment on column wf_job.error_Msg is '异常信息';
+comment on column wf_job.variable is '执行参数';
+
 
 /**历史流程实例表*/
 create table wf_hist_order (
@@ -170,15 +215,21 @@ comment on column wf_hist_task_actor.actor_Id is '参与者ID';
 create index IDX_PROCESS_NAME on wf_process (name);
 create index IDX_ORDER_PROCESSID on wf_order (process_Id);
 create index IDX_ORDER_NO on wf_order (order_No);
+create index IDX_ORDER_EXPIRETIME on wf_order (expire_Time);
 create index IDX_TASK_ORDER on wf_task (order_Id);
 create index IDX_TASK_TASKNAME on wf_task (task_Name);
 create index IDX_TASK_PARENTTASK on wf_task (parent_Task_Id);
+create index IDX_TASK_CREATETIME on wf_task (create_Time, id);
+create index IDX_TASK_EXPIRETIME on wf_task (expire_Time);
+create index IDX_JOB_NEXTTIME on wf_job (next_Time);
+create index IDX_JOB_OWNER on wf_job (owner);
 create index IDX_TASKACTOR_TASK on wf_task_actor (task_Id);
 create index IDX_HIST_ORDER_PROCESSID on wf_hist_order (process_Id);
 create index IDX_HIST_ORDER_NO on wf_hist_order (order_No);
 create index IDX_HIST_TASK_ORDER on wf_hist_task (order_Id);
 create index IDX_HIST_TASK_TASKNAME on wf_hist_task (task_Name);
 create index IDX_HIST_TASK_PARENTTASK on wf_hist_task (parent_Task_Id);
+create index IDX_HIST_TASK_CREATETIME on wf_hist_task (create_Time, id);
 create index IDX_HIST_TASKACTOR_TASK on wf_hist_task_actor (task_Id);
 
 /**增加外键关联*/
@@ -205,4 +256,7 @@ alter table WF_HIST_ORDER
   references WF_HIST_ORDER (ID);
 alter table WF_HIST_ORDER
   add constraint FK_HIST_ORDER_PROCESSID foreign key (PROCESS_ID)
-  references WF_PROCESS (ID);
\ No newline at end of file
+  references WF_PROCESS (ID);
+alter table WF_COUNTER
+  add constraint FK_COUNTER_ORDERID foreign key (ORDER_ID)
+  references WF_ORDER (ID);
@@ -53,6 +53,32 @@ create table wf_task_actor (
     actor_Id         nvarchar(100) not null
 );
 
+/**合并计数器表*/
+create table wf_counter (
+    order_Id         nvarchar(100) not null,
+    node_Name        nvarchar(100) not null,
+    total            int not null,
+    remain           int not null,
+    primary key (order_Id, node_Name)
+);
+
+/**异步作业表*/
+create table wf_job (
+    id               nvarchar(100) not null primary key,
+    order_Id         nvarchar(100) not null,
+    task_Id          nvarchar(100),
+    node_Name        nvarchar(100) not null,
+    operator         nvarchar(100),
+    job_State        tinyint not null,
+    owner            nvarchar(100),
+    lock_Time        nvarchar(50),
+    next_Time        nvarchar(50) not null,
+    retries          int not null,
+    create_Time      nvarchar(50) not null,
+    error_Msg        nvarchar(500),
+    variable         nvarchar(2000)
+);
+
 /**历史流程实例表*/
 create table wf_hist_order (
     id               nvarchar(100) not null primary key,
@@ -96,15 +122,21 @@ create table wf_hist_task_actor (
 create index IDX_PROCESS_NAME on wf_process (name);
 create index IDX_ORDER_PROCESSID on wf_order (process_Id);
 create index IDX_ORDER_NO on wf_order (order_No);
+create index IDX_ORDER_EXPIRETIME on wf_order (expire_Time);
 create index IDX_TASK_ORDER on wf_task (order_Id);
 create index IDX_TASK_TASKNAME on wf_task (task_Name);
 create index IDX_TASK_PARENTTASK on wf_task (parent_Task_Id);
+create index IDX_TASK_CREATETIME on wf_task (create_Time, id);
+create index IDX_TASK_EXPIRETIME on wf_task (expire_Time);
+create index IDX_JOB_NEXTTIME on wf_job (next_Time);
+create index IDX_JOB_OWNER on wf_job (owner);
 create index IDX_TASKACTOR_TASK on wf_task_actor (task_Id);
 create index IDX_HIST_ORDER_PROCESSID on wf_hist_order (process_Id);
 create index IDX_HIST_ORDER_NO on wf_hist_order (order_No);
 create index IDX_HIST_TASK_ORDER on wf_hist_task (order_Id);
 create index IDX_HIST_TASK_TASKNAME on wf_hist_task (task_Name);
 create index IDX_HIST_TASK_PARENTTASK on wf_hist_task (parent_Task_Id);
+create index IDX_HIST_TASK_CREATETIME on wf_hist_task (create_Time, id);
 create index IDX_HIST_TASKACTOR_TASK on wf_hist_task_actor (task_Id);
 
 /**增加外键关联*/
@@ -131,4 +163,7 @@ alter table WF_HIST_ORDER
   references WF_HIST_ORDER (ID);
 alter table WF_HIST_ORDER
   add constraint FK_HIST_ORDER_PROCESSID foreign key (PROCESS_ID)
-  references WF_PROCESS (ID);
\ No newline at end of file
+  references WF_PROCESS (ID);
+alter table WF_COUNTER
+  add constraint FK_COUNTER_ORDERID foreign key (ORDER_ID)
+  references WF_ORDER (ID);
@@ -14,16 +14,22 @@
  */
 package org.snaker.engine;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.snaker.engine.access.Page;
+import org.snaker.engine.access.RowCallback;
+import org.snaker.engine.entity.Counter;
 import org.snaker.engine.entity.HistoryOrder;
 import org.snaker.engine.entity.HistoryTask;
 import org.snaker.engine.entity.HistoryTaskActor;
+import org.snaker.engine.entity.Job;
 import org.snaker.engine.entity.Order;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.entity.Task;
 import org.snaker.engine.entity.TaskActor;
+import org.snaker.engine.entity.TaskContext;
 import org.snaker.engine.entity.WorkItem;
 
 /**
@@ -44,6 +50,12 @@ public interface DBAccess {
 	 */
 	public void saveTask(Task task);
 	
+	/**
+	 * 批量保存任务对象
+	 * @param tasks
+	 */
+	public void saveTasks(List<Task> tasks);
+	
 	/**
 	 * 保存流程实例对象
 	 * @param order
@@ -62,6 +74,12 @@ public interface DBAccess {
 	 */
 	public void saveTaskActor(TaskActor taskActor);
 	
+	/**
+	 * 批量保存任务参与者对象
+	 * @param taskActors
+	 */
+	public void saveTaskActors(List<TaskActor> taskActors);
+	
 	/**
 	 * 更新任务对象
 	 * @param task
@@ -86,6 +104,12 @@ public interface DBAccess {
 	 */
 	public void deleteTask(Task task);
 	
+	/**
+	 * 批量删除任务、任务参与者对象
+	 * @param tasks
+	 */
+	public void deleteTasks(List<Task> tasks);
+	
 	/**
 	 * 删除流程实例对象
 	 * @param orderId
@@ -99,6 +123,74 @@ public interface DBAccess {
 	 */
 	public void removeTaskActor(String taskId, String... actors);
 	
+	/**
+	 * 保存合并计数器对象
+	 * @param counter
+	 */
+	public void saveCounter(Counter counter);
+	
+	/**
+	 * 对指定流程实例、节点名称的计数器做原子递减
+	 * @param orderId
+	 * @param nodeName
+	 * @return 递减后的剩余数（可能小于0），计数器不存在时返回null
+	 */
+	public Integer decreaseCounter(String orderId, String nodeName);
+	
+	/**
+	 * 对指定流程实例、节点名称的计数器按增量做原子更新
+	 * @param orderId
+	 * @param nodeName
+	 * @param total 总数的增量
+	 * @param remain 剩余数的增量
+	 */
+	public void increaseCounter(String orderId, String nodeName, int total, int remain);
+	
+	/**
+	 * 根据流程实例ID、节点名称获取计数器对象
+	 * @param orderId
+	 * @param nodeName
+	 * @return
+	 */
+	public Counter getCounter(String orderId, String nodeName);
+	
+	/**
+	 * 删除流程实例的计数器，nodeNames为空时删除该实例的所有计数器
+	 * @param orderId
+	 * @param nodeNames
+	 */
+	public void deleteCounter(String orderId, String... nodeNames);
+	
+	/**
+	 * 保存异步作业对象
+	 * @param job
+	 */
+	public void saveJob(Job job);
+	
+	/**
+	 * 更新异步作业的状态、领取标识、重试次数、下次执行时间及异常信息
+	 * @param job
+	 */
+	public void updateJob(Job job);
+	
+	/**
+	 * 按领取标识删除异步作业
+	 * @param id
+	 * @param owner 领取标识
+	 * @return 没有删除任何记录(作业已被其它执行器重新领取或不存在)时返回false
+	 */
+	public boolean deleteJob(String id, String owner);
+	
+	/**
+	 * 领取一批到达执行时间的作业（等待中或领取超时的），按下次执行时间排序
+	 * @param owner 本次领取的唯一标识
+	 * @param time 当前时间，同时作为领取时间
+	 * @param staleTime 领取时间早于该时间的执行中作业视为超时，可被重新领取
+	 * @param limit 最多领取的数量
+	 * @return 实际领取到的作业
+	 */
+	public List<Job> takeJobs(String owner, String time, String staleTime, int limit);
+	
 	/**
 	 * 迁移活动任务
 	 * @param task
@@ -117,6 +209,12 @@ public interface DBAccess {
 	 */
 	public void saveHistory(HistoryTask task);
 	
+	/**
+	 * 批量迁移活动任务及其参与者
+	 * @param tasks
+	 */
+	public void saveHistory(List<HistoryTask> tasks);
+	
 	/**
 	 * 根据任务id查询任务对象
 	 * @param taskId
@@ -154,6 +252,13 @@ public interface DBAccess {
 	 */
 	public List<TaskActor> getTaskActorsByTaskId(String taskId);
 	
+	/**
+	 * 根据任务id一次查询任务、所属流程实例及任务参与者
+	 * @param taskId
+	 * @return TaskContext 任务不存在时返回null
+	 */
+	public TaskContext loadTaskContext(String taskId);
+	
 	/**
 	 * 根据任务id查询所有历史任务参与者集合
 	 * @param taskId
@@ -175,6 +280,42 @@ public interface DBAccess {
 	 */
 	HistoryOrder getHistOrder(String orderId);
 	
+	/**
+	 * 根据任务id集合批量查询任务，返回任务id->任务对象，不存在的任务不包含在结果中
+	 * id数量超出方言的in列表限制时分批查询
+	 * @param taskIds
+	 * @return
+	 */
+	public Map<String, Task> getTasks(Collection<String> taskIds);
+	
+	/**
+	 * 根据任务id集合批量查询历史任务，返回任务id->历史任务对象
+	 * @param taskIds
+	 * @return
+	 */
+	public Map<String, HistoryTask> getHistTasks(Collection<String> taskIds);
+	
+	/**
+	 * 根据流程实例id集合批量查询流程实例，返回实例id->实例对象
+	 * @param orderIds
+	 * @return
+	 */
+	public Map<String, Order> getOrders(Collection<String> orderIds);
+	
+	/**
+	 * 根据任务id集合批量查询任务参与者，返回任务id->参与者集合，每个任务id都有对应的集合（可能为空）
+	 * @param taskIds
+	 * @return
+	 */
+	public Map<String, List<TaskActor>> getTaskActors(Collection<String> taskIds);
+	
+	/**
+	 * 根据任务id集合批量查询历史任务参与者，返回任务id->参与者集合
+	 * @param taskIds
+	 * @return
+	 */
+	public Map<String, List<HistoryTaskActor>> getHistTaskActors(Collection<String> taskIds);
+	
 	/**
 	 * 根据流程定义id、或name查询流程定义对象
 	 * @param processId
@@ -227,6 +368,22 @@ public interface DBAccess {
 	 */
 	public List<Task> getActiveTasks(String orderId, String excludedTaskId, String... taskNames);
 	
+	/**
+	 * 根据期望完成时间范围查询活动任务，按expire_Time的索引范围扫描
+	 * @param startTime 起始时间(包含)，为空时不限制
+	 * @param endTime 截止时间(不包含)
+	 * @return
+	 */
+	public List<Task> getExpiringTasks(String startTime, String endTime);
+	
+	/**
+	 * 根据期望完成时间范围查询活动流程实例，按expire_Time的索引范围扫描
+	 * @param startTime 起始时间(包含)，为空时不限制
+	 * @param endTime 截止时间(不包含)
+	 * @return
+	 */
+	public List<Order> getExpiringOrders(String startTime, String endTime);
+	
 	/**
 	 * 根据查询的参数，分页对象，返回分页后的查询结果
 	 * @param page
@@ -273,4 +430,26 @@ public interface DBAccess {
 	 * @return
 	 */
 	List<WorkItem> getHistoryWorkItems(Page<WorkItem> page, String processId, String... actorIds);
+	
+	/**
+	 * 流式查询流程实例，逐行回调，不保证顺序
+	 * 使用独立的只读连接及配置的fetch size(jdbc.fetchSize)，适用于导出等大数据量读取
+	 * @param callback 行回调
+	 * @param processIds 流程定义ID，为空时查询所有
+	 */
+	void streamActiveOrders(RowCallback<Order> callback, String... processIds);
+	
+	/**
+	 * 流式查询历史流程实例，逐行回调，不保证顺序
+	 * @param callback 行回调
+	 * @param processIds 流程定义ID，为空时查询所有
+	 */
+	void streamHistoryOrders(RowCallback<HistoryOrder> callback, String... processIds);
+	
+	/**
+	 * 流式查询流程实例的所有已完成任务，按创建时间倒序逐行回调
+	 * @param orderId 流程实例ID
+	 * @param callback 行回调
+	 */
+	void streamHistoryTasks(String orderId, RowCallback<HistoryTask> callback);
 }
@@ -0,0 +1,40 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine;
+
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Task;
+
+/**
+ * 到期处理器，由到期调度器在任务或流程实例到达期望完成时间时调用
+ * 可实现提醒、自动完成、升级等处理，在配置文件中注册后生效
+ * @author yuqs
+ * @version 1.0
+ */
+public interface ExpireHandler {
+	/**
+	 * 任务到期
+	 * @param engine 流程引擎
+	 * @param task 到期的活动任务
+	 */
+	public void expire(SnakerEngine engine, Task task);
+	
+	/**
+	 * 流程实例到期
+	 * @param engine 流程引擎
+	 * @param order 到期的活动流程实例
+	 */
+	public void expire(SnakerEngine engine, Order order);
+}
@@ -0,0 +1,33 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine;
+
+import java.util.Map;
+
+/**
+ * 编译后的表达式接口
+ * 表达式在流程部署时编译一次，执行时根据参数集合计算结果，实现类需要保证线程安全
+ * @author yuqs
+ * @version 1.0
+ */
+public interface Expression {
+	/**
+	 * 根据给定的参数集合计算表达式，并返回指定类型的结果
+	 * @param T
+	 * @param args
+	 * @return
+	 */
+	<T> T eval(Class<T> T, Map<String, Object> args);
+}
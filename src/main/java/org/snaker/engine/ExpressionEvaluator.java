@@ -0,0 +1,31 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine;
+
+/**
+ * 表达式引擎接口
+ * 在ServiceContext中注册后，流程部署时由该引擎编译decision、transition的表达式；
+ * 引擎不支持的表达式返回null，由默认的bsh引擎编译执行
+ * @author yuqs
+ * @version 1.0
+ */
+public interface ExpressionEvaluator {
+	/**
+	 * 编译表达式，不支持的表达式返回null
+	 * @param expr
+	 * @return
+	 */
+	Expression compile(String expr);
+}
@@ -14,9 +14,12 @@
  */
 package org.snaker.engine;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.snaker.engine.access.Page;
+import org.snaker.engine.access.RowCallback;
 import org.snaker.engine.entity.HistoryOrder;
 import org.snaker.engine.entity.HistoryTask;
 import org.snaker.engine.entity.Order;
@@ -65,6 +68,36 @@ public interface IQueryService {
 	 * @return
 	 */
 	String[] getHistoryTaskActorsByTaskId(String taskId);
+	/**
+	 * 根据任务ID集合批量获取任务对象，用于列表展示时避免逐条查询
+	 * @param taskIds
+	 * @return 任务ID->任务对象
+	 */
+	Map<String, Task> getTasks(Collection<String> taskIds);
+	/**
+	 * 根据任务ID集合批量获取历史任务对象
+	 * @param taskIds
+	 * @return 任务ID->历史任务对象
+	 */
+	Map<String, HistoryTask> getHistTasks(Collection<String> taskIds);
+	/**
+	 * 根据流程实例ID集合批量获取流程实例对象
+	 * @param orderIds
+	 * @return 流程实例ID->流程实例对象
+	 */
+	Map<String, Order> getOrders(Collection<String> orderIds);
+	/**
+	 * 根据任务ID集合批量获取任务参与者数组，没有参与者的任务不包含在结果中
+	 * @param taskIds
+	 * @return 任务ID->参与者数组
+	 */
+	Map<String, String[]> getTaskActors(Collection<String> taskIds);
+	/**
+	 * 根据任务ID集合批量获取历史任务参与者数组
+	 * @param taskIds
+	 * @return 任务ID->参与者数组
+	 */
+	Map<String, String[]> getHistTaskActors(Collection<String> taskIds);
 	/**
 	 * 根据参与者获取任务集合
 	 * @param actorIds
@@ -88,6 +121,22 @@ public interface IQueryService {
 	 */
 	List<Task> getActiveTasks(String orderId, String excludedTaskId, String... taskNames);
 	
+	/**
+	 * 根据期望完成时间范围查询活动任务
+	 * @param startTime 起始时间(包含)，为空时不限制
+	 * @param endTime 截止时间(不包含)
+	 * @return
+	 */
+	List<Task> getExpiringTasks(String startTime, String endTime);
+	
+	/**
+	 * 根据期望完成时间范围查询活动流程实例
+	 * @param startTime 起始时间(包含)，为空时不限制
+	 * @param endTime 截止时间(不包含)
+	 * @return
+	 */
+	List<Order> getExpiringOrders(String startTime, String endTime);
+	
 	/**
 	 * 分页查询活动任务
 	 * @param page
@@ -165,4 +214,26 @@ public interface IQueryService {
 	 * @return
 	 */
 	List<WorkItem> getHistoryWorkItems(Page<WorkItem> page, String processId, String... actorIds);
+	
+	/**
+	 * 流式查询流程实例，逐行回调，不保证顺序
+	 * 使用独立的只读连接及配置的fetch size(jdbc.fetchSize)，适用于导出等大数据量读取
+	 * @param callback 行回调
+	 * @param processIds 流程定义ID，为空时查询所有
+	 */
+	void streamActiveOrders(RowCallback<Order> callback, String... processIds);
+	
+	/**
+	 * 流式查询历史流程实例，逐行回调，不保证顺序
+	 * @param callback 行回调
+	 * @param processIds 流程定义ID，为空时查询所有
+	 */
+	void streamHistoryOrders(RowCallback<HistoryOrder> callback, String... processIds);
+	
+	/**
+	 * 流式查询流程实例的所有已完成任务，按创建时间倒序逐行回调
+	 * @param orderId 流程实例ID
+	 * @param callback 行回调
+	 */
+	void streamHistoryTasks(String orderId, RowCallback<HistoryTask> callback);
 }
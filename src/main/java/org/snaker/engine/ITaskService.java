@@ -20,6 +20,7 @@ import org.snaker.engine.core.Execution;
 import org.snaker.engine.entity.HistoryTask;
 import org.snaker.engine.entity.Task;
 import org.snaker.engine.entity.TaskActor;
+import org.snaker.engine.entity.TaskContext;
 import org.snaker.engine.model.CustomModel;
 import org.snaker.engine.model.ProcessModel;
 import org.snaker.engine.model.TaskModel;
@@ -50,6 +51,13 @@ public interface ITaskService {
 	 * @return Task
 	 */
 	Task completeTask(Task task, String operator);
+	/**
+	 * 批量完成多个任务，历史任务及删除活动任务均批量写入
+	 * @param tasks 任务集合
+	 * @param operator 操作人
+	 * @return List<Task>
+	 */
+	List<Task> completeTasks(List<Task> tasks, String operator);
 	
 	/**
 	 * 提取指定的任务，只更新操作人字段标识参与者
@@ -119,6 +127,13 @@ public interface ITaskService {
 	 */
 	Task getTask(String taskId);
 	
+	/**
+	 * 根据任务编号一次获取任务、所属流程实例及任务参与者
+	 * @param taskId 任务id
+	 * @return TaskContext 任务不存在时返回null
+	 */
+	TaskContext getTaskContext(String taskId);
+	
 	/**
 	 * 根据任务编号获取历史任务实例
 	 * @param taskId 任务id
@@ -30,6 +30,10 @@ import org.snaker.engine.model.WorkModel;
  */
 public interface SnakerEngine {
 	public static final String ADMIN = "snaker.admin";
+	/**
+	 * 系统自动完成任务时使用的操作人
+	 */
+	public static final String AUTO = "snaker.auto";
 	/**
 	 * 根据Configuration对象配置实现类
 	 * @param context
@@ -47,6 +51,11 @@ public interface SnakerEngine {
 	 */
 	public IQueryService query();
 	
+	/**
+	 * 获取任务服务
+	 */
+	public ITaskService task();
+	
 	/**
 	 * 根据流程定义ID启动流程实例
 	 * @param id 流程定义ID
@@ -16,21 +16,38 @@ package org.snaker.engine.access;
 
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.apache.commons.beanutils.PropertyUtils;
 import org.snaker.engine.DBAccess;
+import org.snaker.engine.SnakerException;
 import org.snaker.engine.access.dialect.Dialect;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
 import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.entity.Counter;
 import org.snaker.engine.entity.HistoryOrder;
 import org.snaker.engine.entity.HistoryTask;
 import org.snaker.engine.entity.HistoryTaskActor;
+import org.snaker.engine.entity.Job;
 import org.snaker.engine.entity.Order;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.entity.Task;
 import org.snaker.engine.entity.TaskActor;
+import org.snaker.engine.entity.TaskContext;
 import org.snaker.engine.entity.WorkItem;
+import org.snaker.engine.helper.ClassHelper;
+import org.snaker.engine.helper.ConfigHelper;
 import org.snaker.engine.helper.StringHelper;
 
 /**
@@ -46,6 +63,35 @@ public abstract class AbstractDBAccess implements DBAccess {
 	protected static final String KEY_ENTITY = "ENTITY";
 	
 	protected static final String KEY_SU = "SU";
+	/**
+	 * 流式查询默认的fetch size
+	 */
+	protected static final int DEFAULT_FETCH_SIZE = 500;
+	/**
+	 * 二级缓存key的前缀
+	 */
+	protected static final String CACHE_TASK = "task:";
+	protected static final String CACHE_ORDER = "order:";
+	protected static final String CACHE_HIST_TASK = "histTask:";
+	protected static final String CACHE_HIST_ORDER = "histOrder:";
+	/**
+	 * 未配置方言时批量查询的in列表最大参数个数
+	 */
+	protected static final int DEFAULT_IN_LIST_LIMIT = 1000;
+	/**
+	 * sql模板缓存的最大条数，防止异常调用导致无限增长
+	 */
+	private static final int MAX_TEMPLATES = 512;
+	/**
+	 * 按查询形态（条件组合、in列表分桶大小）缓存的sql模板
+	 */
+	private static final ConcurrentMap<String, String> SQL_TEMPLATES = new ConcurrentHashMap<String, String>();
+	/**
+	 * 匹配无过滤条件的单表查询：select ... from 表 [别名] [where 1=1] [order by ...]，用于估算总记录数
+	 */
+	private static final Pattern TABLE_PATTERN = Pattern.compile(
+			"^\\s*select\\s.+?\\sfrom\\s+(\\w+)(\\s+(?!where\\b|order\\b)\\w+)?(\\s+where\\s+1\\s*=\\s*1)?(\\s+order\\s+by\\s.+)?\\s*$", 
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
 	protected static final String SAVE = "SAVE";
 	protected static final String UPDATE = "UPDATE";
 	
@@ -63,20 +109,48 @@ public abstract class AbstractDBAccess implements DBAccess {
 	protected static final String TASK_UPDATE = "update wf_task set finish_Time=?, operator=?, version = version + 1 where id=? and version = ?";
 	protected static final String TASK_HISTORY_INSERT = "insert into wf_hist_task (id,order_Id,task_Name,display_Name,task_Type,perform_Type,task_State,operator,create_Time,finish_Time,expire_Time,action_Url,parent_Task_Id,variable) values (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
 	protected static final String TASK_DELETE = "delete from wf_task where id = ?";
+	protected static final int[] TASK_HISTORY_INSERT_TYPE = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, 
+			Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+	protected static final int[] TASK_INSERT_TYPE = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, 
+			Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+			Types.VARCHAR, Types.VARCHAR};
 	
 	protected static final String TASK_ACTOR_INSERT = "insert into wf_task_actor (task_Id, actor_Id) values (?, ?)";
 	protected static final String TASK_ACTOR_HISTORY_INSERT = "insert into wf_hist_task_actor (task_Id, actor_Id) values (?, ?)";
 	protected static final String TASK_ACTOR_DELETE = "delete from wf_task_actor where task_Id = ?";
 	protected static final String TASK_ACTOR_REDUCE = "delete from wf_task_actor where task_Id = ? and actor_Id = ?";
 	
+	protected static final String COUNTER_INSERT = "insert into wf_counter (order_Id,node_Name,total,remain) values (?,?,?,?)";
+	protected static final String COUNTER_DECREASE = "update wf_counter set remain = remain - 1 where order_Id = ? and node_Name = ?";
+	protected static final String COUNTER_INCREASE = "update wf_counter set total = total + ?, remain = remain + ? where order_Id = ? and node_Name = ?";
+	protected static final String COUNTER_DELETE = "delete from wf_counter where order_Id = ? ";
+	
+	protected static final String JOB_INSERT = "insert into wf_job (id,order_Id,task_Id,node_Name,operator,job_State,retries,next_Time,create_Time,variable) values (?,?,?,?,?,?,?,?,?,?)";
+	protected static final String JOB_UPDATE = "update wf_job set job_State = ?, owner = ?, retries = ?, next_Time = ?, error_Msg = ? where id = ?";
+	protected static final String JOB_DELETE = "delete from wf_job where id = ? and owner = ?";
+	protected static final String JOB_RUNNABLE = " where next_Time <= ? and (job_State = 0 or (job_State = 1 and lock_Time < ?)) ";
+	protected static final String JOB_TAKE = "update wf_job set job_State = 1, owner = ?, lock_Time = ?" + JOB_RUNNABLE;
+	
 	protected static final String QUERY_PROCESS = "select id,parent_Id,name,display_Name,type,instance_Url,query_Url,state, content, version from wf_process ";
 	protected static final String QUERY_ORDER = "select id,process_Id,creator,create_Time,parent_Id,parent_Node_Name,expire_Time,last_Update_Time,last_Updator,priority,order_No,variable, version from wf_order ";
 	protected static final String QUERY_TASK = "select id,order_Id,task_Name,display_Name,task_Type,perform_Type,operator,create_Time,finish_Time,expire_Time,action_Url,parent_Task_Id,variable, version from wf_task ";
 	protected static final String QUERY_TASK_ACTOR = "select task_Id, actor_Id from wf_task_actor ";
+	protected static final String QUERY_COUNTER = "select order_Id,node_Name,total,remain from wf_counter ";
+	protected static final String QUERY_JOB = "select id,order_Id,task_Id,node_Name,operator,job_State,owner,lock_Time,next_Time,retries,create_Time,error_Msg,variable from wf_job ";
 	
 	protected static final String QUERY_HIST_ORDER = "select id,process_Id,order_State,priority,creator,create_Time,end_Time,parent_Id,expire_Time,order_No,variable from wf_hist_order ";
 	protected static final String QUERY_HIST_TASK = "select id,order_Id,task_Name,display_Name,task_Type,perform_Type,task_State,operator,create_Time,finish_Time,expire_Time,action_Url,parent_Task_Id,variable from wf_hist_task ";
 	protected static final String QUERY_HIST_TASK_ACTOR = "select task_Id, actor_Id from wf_hist_task_actor ";
+	protected static final String QUERY_TASK_CONTEXT = "select t.id,t.order_Id,t.task_Name,t.display_Name,t.task_Type,t.perform_Type,t.operator,t.create_Time,t.finish_Time,t.expire_Time,t.action_Url,t.parent_Task_Id,t.variable,t.version, " + 
+			"o.process_Id,o.creator as order_Creator,o.create_Time as order_Create_Time,o.parent_Id as order_Parent_Id,o.parent_Node_Name,o.expire_Time as order_Expire_Time," + 
+			"o.last_Update_Time,o.last_Updator,o.priority,o.order_No,o.variable as order_Variable,o.version as order_Version, ta.actor_Id " + 
+			"from wf_task t left join wf_order o on t.order_Id = o.id left join wf_task_actor ta on ta.task_Id = t.id where t.id = ?";
+	
+	/**
+	 * 按主键查询的二级缓存，为null时不使用
+	 */
+	private volatile EntityCache entityCache;
+	private volatile boolean entityCacheInitialized = false;
 	
 	/**
 	 * 是否为ORM框架，用以标识对象直接持久化
@@ -117,11 +191,158 @@ public abstract class AbstractDBAccess implements DBAccess {
 	 */
 	public abstract <T> List<T> queryList(Page<T> page, Class<T> T, String sql, Object... args);
 	
+	/**
+	 * 根据sql语句、参数、类型执行单条更新，isORM为false时使用
+	 * 默认构造map调用saveOrUpdate，jdbc方式的实现类可覆盖以直接执行
+	 * @param sql
+	 * @param args
+	 * @param type
+	 */
+	protected void saveOrUpdate(String sql, Object[] args, int[] type) {
+		saveOrUpdate(buildMap(sql, args, type));
+	}
+	
+	/**
+	 * 根据sql语句、参数、类型执行单条更新并返回影响的行数，isORM为false时使用
+	 * 默认调用saveOrUpdate，无法得到影响的行数时返回-1，jdbc方式的实现类覆盖以返回实际行数
+	 * @param sql
+	 * @param args
+	 * @param type
+	 * @return
+	 */
+	protected int updateCount(String sql, Object[] args, int[] type) {
+		saveOrUpdate(sql, args, type);
+		return -1;
+	}
+	
+	/**
+	 * 使用同一sql语句、不同参数批量更新，isORM为false时使用
+	 * 默认逐条调用saveOrUpdate，jdbc方式的实现类可覆盖为批处理
+	 * @param sql
+	 * @param argsList
+	 * @param type
+	 */
+	protected void saveOrUpdateBatch(String sql, List<Object[]> argsList, int[] type) {
+		for(Object[] args : argsList) {
+			saveOrUpdate(sql, args, type);
+		}
+	}
+	
+	/**
+	 * 非ORM方式的写操作入口：当前线程存在UnitOfWork时缓冲可延迟的语句，
+	 * 其它语句执行前先flush已缓冲的语句，保证执行顺序
+	 */
+	private void write(String sql, Object[] args, int[] type) {
+		UnitOfWork uow = UnitOfWork.current();
+		if(uow == null) {
+			saveOrUpdate(sql, args, type);
+		} else if(uow.isBuffered(sql)) {
+			uow.add(this, sql, args, type);
+		} else {
+			uow.flush();
+			saveOrUpdate(sql, args, type);
+		}
+	}
+	
+	/**
+	 * 非ORM方式的批量写操作入口，处理方式同write
+	 */
+	private void writeBatch(String sql, List<Object[]> argsList, int[] type) {
+		UnitOfWork uow = UnitOfWork.current();
+		if(uow == null) {
+			saveOrUpdateBatch(sql, argsList, type);
+		} else if(uow.isBuffered(sql)) {
+			for(Object[] args : argsList) {
+				uow.add(this, sql, args, type);
+			}
+		} else {
+			uow.flush();
+			saveOrUpdateBatch(sql, argsList, type);
+		}
+	}
+	
+	/**
+	 * 查询前flush当前UnitOfWork中已缓冲的语句，使查询能读到本次执行的写入
+	 */
+	protected void flushUnitOfWork() {
+		UnitOfWork uow = UnitOfWork.current();
+		if(uow != null) {
+			uow.flush();
+		}
+	}
+	
 	@Override
 	public void initialize(Object accessObject) {
 		
 	}
 	
+	/**
+	 * 返回二级缓存，未设置时根据cache.maxEntries、cache.ttl(秒)配置创建，maxEntries不大于0时不使用二级缓存
+	 * @return 不使用二级缓存时返回null
+	 */
+	public EntityCache getEntityCache() {
+		if(!entityCacheInitialized) {
+			synchronized(this) {
+				if(!entityCacheInitialized) {
+					int maxEntries = ConfigHelper.getNumerProperty("cache.maxEntries");
+					if(maxEntries > 0) {
+						long ttl = ConfigHelper.getNumerProperty("cache.ttl") * 1000L;
+						entityCache = new EntityCache(maxEntries, ttl);
+					}
+					entityCacheInitialized = true;
+				}
+			}
+		}
+		return entityCache;
+	}
+	
+	/**
+	 * 设置二级缓存，为null时不使用二级缓存
+	 * @param entityCache
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+		this.entityCacheInitialized = true;
+	}
+	
+	/**
+	 * 二级缓存未命中时的数据库查询回调
+	 */
+	protected interface EntityLoader<T> {
+		T load();
+	}
+	
+	/**
+	 * 先查询二级缓存，未命中时执行回调查询数据库并放入缓存。
+	 * 只有TransactionObjectHolder绑定了事务时才使用二级缓存：spring、jta等外部事务中，
+	 * 写操作的失效发生在提交之前，无法锁定至提交，并发查询可能把未提交前的旧数据放入缓存
+	 * @param key 缓存key
+	 * @param loader 数据库查询回调
+	 * @return
+	 */
+	protected <T> T getCached(String key, EntityLoader<T> loader) {
+		EntityCache cache = getEntityCache();
+		if(cache == null || !TransactionObjectHolder.isExistingTransaction()) return loader.load();
+		T entity = cache.<T>get(key);
+		if(entity == null) {
+			long stamp = cache.getStamp();
+			entity = loader.load();
+			cache.put(key, entity, stamp);
+		}
+		return entity;
+	}
+	
+	/**
+	 * 写操作后使二级缓存中的对象失效
+	 * @param key 缓存key
+	 */
+	protected void evictCached(String key) {
+		EntityCache cache = getEntityCache();
+		if(cache != null) {
+			cache.evict(key);
+		}
+	}
+	
 	/**
 	 * isORM为false，需要构造map传递给实现类
 	 * @param sql
@@ -157,6 +378,290 @@ public abstract class AbstractDBAccess implements DBAccess {
 		return ServiceContext.getContext().getDialect();
 	}
 	
+	/**
+	 * in列表参数个数的分桶大小：1,2,4,8,16...
+	 * 相同分桶的查询共用同一sql模板，数据库及语句缓存只需解析少量语句
+	 * @param size 实际参数个数
+	 * @return
+	 */
+	protected static int bucketSize(int size) {
+		if(size <= 1) return size;
+		return Integer.highestOneBit(size - 1) << 1;
+	}
+	
+	/**
+	 * 添加in列表参数，并以最后一个参数补齐到分桶大小（重复值不影响in的查询结果）
+	 * @param paramList 参数列表
+	 * @param values in列表参数
+	 */
+	protected static void addInParams(List<Object> paramList, Object[] values) {
+		if(values.length == 0) return;
+		for(Object value : values) {
+			paramList.add(value);
+		}
+		Object last = values[values.length - 1];
+		for(int i = values.length; i < bucketSize(values.length); i++) {
+			paramList.add(last);
+		}
+	}
+	
+	/**
+	 * 按分桶大小构造in条件，参数为空时不添加条件
+	 * @param sql sql语句
+	 * @param prefix in条件前缀，如" and process_Id in "
+	 * @param size 实际参数个数
+	 */
+	protected static void appendIn(StringBuffer sql, String prefix, int size) {
+		if(size == 0) return;
+		int bucket = bucketSize(size);
+		sql.append(prefix).append("(");
+		for(int i = 0; i < bucket; i++) {
+			sql.append(i == 0 ? "?" : ",?");
+		}
+		sql.append(") ");
+	}
+	
+	/**
+	 * 将id集合去重、去null后按in列表限制分批，每批大小为不超过限制的2的幂，补齐后也不会超出限制
+	 * @param ids id集合
+	 * @return
+	 */
+	protected List<String[]> splitIds(Collection<String> ids) {
+		List<String[]> chunks = new ArrayList<String[]>();
+		if(ids == null || ids.isEmpty()) return chunks;
+		Dialect dialect = getDialect();
+		int limit = dialect == null ? DEFAULT_IN_LIST_LIMIT : dialect.getInListLimit();
+		int chunkSize = Integer.highestOneBit(Math.max(limit, 1));
+		List<String> distinct = new ArrayList<String>(new LinkedHashSet<String>(ids));
+		distinct.remove(null);
+		for(int i = 0; i < distinct.size(); i += chunkSize) {
+			List<String> chunk = distinct.subList(i, Math.min(i + chunkSize, distinct.size()));
+			chunks.add(chunk.toArray(new String[chunk.size()]));
+		}
+		return chunks;
+	}
+	
+	/**
+	 * 为每个id构造空的集合，用于批量查询结果的分组
+	 * @param ids id集合
+	 * @return
+	 */
+	protected static <T> Map<String, List<T>> newGroupMap(Collection<String> ids) {
+		Map<String, List<T>> map = new LinkedHashMap<String, List<T>>();
+		if(ids == null) return map;
+		for(String id : ids) {
+			if(id != null && !map.containsKey(id)) {
+				map.put(id, new ArrayList<T>());
+			}
+		}
+		return map;
+	}
+	
+	/**
+	 * 使用缓存的sql模板执行一批in查询
+	 * @param T 结果类型
+	 * @param key 查询形态
+	 * @param prefix in条件之前的sql，如"select ... where id in "
+	 * @param ids 一批id，个数不超过splitIds的分批大小
+	 * @return
+	 */
+	private <T> List<T> queryIn(Class<T> T, String key, String prefix, String[] ids) {
+		String templateKey = key + ":" + bucketSize(ids.length);
+		String sql = getTemplate(templateKey);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer();
+			appendIn(buffer, prefix, ids.length);
+			sql = putTemplate(templateKey, buffer.toString());
+		}
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, ids);
+		return queryList(T, sql, paramList.toArray());
+	}
+	
+	/**
+	 * 根据查询形态获取缓存的sql模板
+	 * @param key 查询形态
+	 * @return
+	 */
+	protected static String getTemplate(String key) {
+		return SQL_TEMPLATES.get(key);
+	}
+	
+	/**
+	 * 缓存sql模板，返回已缓存的模板（并发构造时保证同一形态只保留一个实例）
+	 * @param key 查询形态
+	 * @param sql sql模板
+	 * @return
+	 */
+	protected static String putTemplate(String key, String sql) {
+		if(SQL_TEMPLATES.size() >= MAX_TEMPLATES) {
+			return sql;
+		}
+		String exists = SQL_TEMPLATES.putIfAbsent(key, sql);
+		return exists == null ? sql : exists;
+	}
+	
+	/**
+	 * 分页总记录数的精确统计回调，由具体的访问方式执行count查询
+	 */
+	protected interface CountCallback {
+		long count();
+	}
+	
+	/**
+	 * 根据分页对象的统计方式设置总记录数
+	 * COUNT_NONE不统计；COUNT_CACHED按查询签名缓存精确count；
+	 * COUNT_ESTIMATE只用于无过滤条件的单表查询，取数据库统计信息中主表的行数，有过滤条件或取不到时同COUNT_CACHED
+	 * @param page 分页对象
+	 * @param key 查询签名，由count语句（或statement）及参数组成
+	 * @param table 无过滤条件的单表查询的主表，有过滤条件或多表连接时为null，不估算
+	 * @param callback 精确count回调
+	 */
+	protected void countPage(Page<?> page, String key, String table, CountCallback callback) {
+		int countMode = page.getCountMode();
+		if(countMode == Page.COUNT_NONE) {
+			page.setTotalCount(-1);
+			return;
+		}
+		if(countMode == Page.COUNT_ESTIMATE) {
+			Long estimate = estimateCount(table, page.getCountCacheSeconds());
+			if(estimate != null) {
+				page.setTotalCount(estimate);
+				return;
+			}
+		}
+		if(countMode == Page.COUNT_EXACT) {
+			page.setTotalCount(callback.count());
+			return;
+		}
+		Long count = CountCache.get(key);
+		if(count == null) {
+			count = callback.count();
+			CountCache.put(key, count, page.getCountCacheSeconds());
+		}
+		page.setTotalCount(count);
+	}
+	
+	/**
+	 * 从数据库统计信息中取表的近似行数，结果同样按缓存秒数缓存
+	 * 只有整表的查询才会估算，因此同一个表的查询可以共用缓存的估算值
+	 * @return 方言不支持或无统计信息时返回null
+	 */
+	private Long estimateCount(String table, int seconds) {
+		Dialect dialect = getDialect();
+		if(table == null || dialect == null) return null;
+		String sql = dialect.getEstimateCountSql();
+		if(sql == null) return null;
+		String key = "estimate:" + table;
+		Long count = CountCache.get(key);
+		if(count != null) return count;
+		Object result = queryScalar(sql, table);
+		if(result == null) return null;
+		count = ClassHelper.castLong(result);
+		if(count < 0) return null;
+		CountCache.put(key, count, seconds);
+		return count;
+	}
+	
+	/**
+	 * 查询单个值，用于统计信息查询；默认不支持，返回null
+	 * @param sql
+	 * @param args
+	 * @return
+	 */
+	protected Object queryScalar(String sql, Object... args) {
+		return null;
+	}
+	
+	/**
+	 * 流式查询，逐行映射后回调
+	 * 默认实现先查询出整个结果集再逐行回调，具体的访问方式应使用游标逐行读取
+	 * @param T 行对象的类型
+	 * @param sql 查询语句
+	 * @param callback 行回调
+	 * @param args 查询参数
+	 */
+	protected <T> void queryStream(Class<T> T, String sql, RowCallback<T> callback, Object... args) {
+		for(T row : queryList(T, sql, args)) {
+			callback.handle(row);
+		}
+	}
+	
+	/**
+	 * 流式查询的fetch size，由jdbc.fetchSize配置，未配置时为DEFAULT_FETCH_SIZE
+	 * mysql需要配置为-2147483648(Integer.MIN_VALUE)才会逐行读取
+	 * @return
+	 */
+	protected int getStreamFetchSize() {
+		int fetchSize = ConfigHelper.getNumerProperty("jdbc.fetchSize");
+		return fetchSize == 0 ? DEFAULT_FETCH_SIZE : fetchSize;
+	}
+	
+	/**
+	 * 构造count缓存的查询签名
+	 * @param sql count语句或statement
+	 * @param args 查询参数
+	 * @return
+	 */
+	protected String getCountKey(String sql, Object... args) {
+		return sql + Arrays.deepToString(args);
+	}
+	
+	/**
+	 * 获取无过滤条件的单表查询的主表名，用于估算总记录数
+	 * @param sql
+	 * @return 有过滤条件、多表连接或无法识别时返回null
+	 */
+	protected String getEstimateTable(String sql) {
+		Matcher matcher = TABLE_PATTERN.matcher(sql);
+		return matcher.matches() ? matcher.group(1) : null;
+	}
+	
+	/**
+	 * 获取当前页实际要取的记录数，COUNT_NONE方式多取一条用于判断是否有下一页
+	 * @param page
+	 * @return
+	 */
+	protected int getFetchSize(Page<?> page) {
+		if(page.getCountMode() == Page.COUNT_NONE && page.getPageSize() != Page.NON_PAGE) {
+			return page.getPageSize() + 1;
+		}
+		return page.getPageSize();
+	}
+	
+	/**
+	 * 根据分页对象构造方言分页sql
+	 * @param page
+	 * @param sql 未分页sql语句
+	 * @return
+	 */
+	protected String getPageSql(Page<?> page, String sql) {
+		Dialect dialect = getDialect();
+		long start = (long)(page.getPageNo() - 1) * page.getPageSize();
+		int limit = getFetchSize(page);
+		return dialect.getLimitBefore(start, limit) + sql + dialect.getLimitAfter(start, limit);
+	}
+	
+	/**
+	 * 设置分页结果，COUNT_NONE方式去掉多取的记录并设置是否有下一页
+	 * @param page
+	 * @param list 查询结果
+	 * @return
+	 */
+	protected <T> List<T> setPageResult(Page<T> page, List<T> list) {
+		if(list == null) list = Collections.emptyList();
+		if(page.getCountMode() == Page.COUNT_NONE) {
+			int pageSize = page.getPageSize();
+			boolean hasNext = pageSize != Page.NON_PAGE && list.size() > pageSize;
+			if(hasNext) {
+				list = new ArrayList<T>(list.subList(0, pageSize));
+			}
+			page.setHasNext(hasNext);
+		}
+		page.setResult(list);
+		return list;
+	}
+	
 	/**
 	 * 由于process中涉及blob字段，未对各种框架统一，所以process操作交给具体的实现类处理
 	 */
@@ -168,7 +673,7 @@ public abstract class AbstractDBAccess implements DBAccess {
 					process.getInstanceUrl(), process.getQueryUrl(), process.getState()};
 			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, 
 					Types.VARCHAR, Types.VARCHAR, Types.INTEGER};
-			saveOrUpdate(buildMap(PROCESS_INSERT, args, type));
+			write(PROCESS_INSERT, args, type);
 		}
 	}
 	/**
@@ -181,7 +686,7 @@ public abstract class AbstractDBAccess implements DBAccess {
 			Object[] args = new Object[]{process.getName(), process.getDisplayName(), process.getState(), 
 					process.getInstanceUrl(), process.getQueryUrl(), process.getId()};
 			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
-			saveOrUpdate(buildMap(PROCESS_UPDATE, args, type));
+			write(PROCESS_UPDATE, args, type);
 		}
 	}
 
@@ -191,15 +696,36 @@ public abstract class AbstractDBAccess implements DBAccess {
 		if(isORM()) {
 			saveOrUpdate(buildMap(task, SAVE));
 		} else {
-			Object[] args = new Object[]{task.getId(), task.getOrderId(), task.getTaskName(), task.getDisplayName(), task.getTaskType(), 
-					task.getPerformType(), task.getOperator(), task.getCreateTime(), task.getFinishTime(), 
-					task.getExpireTime(), task.getActionUrl(), task.getParentTaskId(), task.getVariable()};
-			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, 
-					Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
-					Types.VARCHAR, Types.VARCHAR};
-			saveOrUpdate(buildMap(TASK_INSERT, args, type));
+			write(TASK_INSERT, buildTaskArgs(task), TASK_INSERT_TYPE);
+		}
+	}
+	
+	@Override
+	public void saveTasks(List<Task> tasks) {
+		if(tasks == null || tasks.isEmpty()) return;
+		if(isORM()) {
+			for(Task task : tasks) {
+				saveOrUpdate(buildMap(task, SAVE));
+			}
+		} else {
+			List<Object[]> argsList = new ArrayList<Object[]>(tasks.size());
+			for(Task task : tasks) {
+				argsList.add(buildTaskArgs(task));
+			}
+			writeBatch(TASK_INSERT, argsList, TASK_INSERT_TYPE);
 		}
 	}
+	
+	/**
+	 * 构造任务插入语句的参数
+	 * @param task
+	 * @return
+	 */
+	private Object[] buildTaskArgs(Task task) {
+		return new Object[]{task.getId(), task.getOrderId(), task.getTaskName(), task.getDisplayName(), task.getTaskType(), 
+				task.getPerformType(), task.getOperator(), task.getCreateTime(), task.getFinishTime(), 
+				task.getExpireTime(), task.getActionUrl(), task.getParentTaskId(), task.getVariable()};
+	}
 
 	@Override
 	public void saveOrder(Order order) {
@@ -210,7 +736,7 @@ public abstract class AbstractDBAccess implements DBAccess {
 					order.getParentNodeName(), order.getExpireTime(), order.getLastUpdateTime(), order.getLastUpdator(), order.getOrderNo(), order.getVariable()};
 			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, 
 					Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
-			saveOrUpdate(buildMap(ORDER_INSERT, args, type));
+			write(ORDER_INSERT, args, type);
 		}
 	}
 
@@ -220,60 +746,232 @@ public abstract class AbstractDBAccess implements DBAccess {
 			saveOrUpdate(buildMap(taskActor, SAVE));
 		} else {
 			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR};
-			saveOrUpdate(buildMap(TASK_ACTOR_INSERT, new Object[]{taskActor.getTaskId(), taskActor.getActorId() }, type));
+			write(TASK_ACTOR_INSERT, new Object[]{taskActor.getTaskId(), taskActor.getActorId() }, type);
+		}
+	}
+	
+	@Override
+	public void saveTaskActors(List<TaskActor> taskActors) {
+		if(taskActors == null || taskActors.isEmpty()) return;
+		if(isORM()) {
+			for(TaskActor taskActor : taskActors) {
+				saveOrUpdate(buildMap(taskActor, SAVE));
+			}
+		} else {
+			List<Object[]> argsList = new ArrayList<Object[]>(taskActors.size());
+			for(TaskActor taskActor : taskActors) {
+				argsList.add(new Object[]{taskActor.getTaskId(), taskActor.getActorId()});
+			}
+			writeBatch(TASK_ACTOR_INSERT, argsList, new int[]{Types.VARCHAR, Types.VARCHAR});
 		}
 	}
 
 	@Override
 	public void updateTask(Task task) {
+		evictCached(CACHE_TASK + task.getId());
 		if(isORM()) {
 			saveOrUpdate(buildMap(task, UPDATE));
 		} else {
 			Object[] args = new Object[]{task.getFinishTime(), task.getOperator(), task.getId(), task.getVersion() };
 			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER};
-			saveOrUpdate(buildMap(TASK_UPDATE, args, type));
+			write(TASK_UPDATE, args, type);
 		}
 	}
 
 	@Override
 	public void updateOrder(Order order) {
+		evictCached(CACHE_ORDER + order.getId());
 		if(isORM()) {
 			saveOrUpdate(buildMap(order, UPDATE));
 		} else {
 			Object[] args = new Object[]{order.getLastUpdator(), order.getLastUpdateTime(), order.getId(), order.getVersion() };
 			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER};
-			saveOrUpdate(buildMap(ORDER_UPDATE, args, type));
+			write(ORDER_UPDATE, args, type);
 		}
 	}
 
 	@Override
 	public void deleteTask(Task task) {
+		evictCached(CACHE_TASK + task.getId());
 		if(!isORM()) {
 			Object[] args = new Object[]{task.getId()};
 			int[] type = new int[]{Types.VARCHAR};
-			saveOrUpdate(buildMap(TASK_ACTOR_DELETE, args, type));
-			saveOrUpdate(buildMap(TASK_DELETE, args, type));
+			write(TASK_ACTOR_DELETE, args, type);
+			write(TASK_DELETE, args, type);
+		}
+	}
+
+	@Override
+	public void deleteTasks(List<Task> tasks) {
+		if(tasks == null || tasks.isEmpty()) return;
+		if(isORM()) {
+			for(Task task : tasks) {
+				deleteTask(task);
+			}
+		} else {
+			List<Object[]> argsList = new ArrayList<Object[]>(tasks.size());
+			for(Task task : tasks) {
+				evictCached(CACHE_TASK + task.getId());
+				argsList.add(new Object[]{task.getId()});
+			}
+			int[] type = new int[]{Types.VARCHAR};
+			writeBatch(TASK_ACTOR_DELETE, argsList, type);
+			writeBatch(TASK_DELETE, argsList, type);
 		}
 	}
 
 	@Override
 	public void deleteOrder(Order order) {
+		evictCached(CACHE_ORDER + order.getId());
 		if(!isORM()) {
+			deleteCounter(order.getId());
 			int[] type = new int[]{Types.VARCHAR};
-			saveOrUpdate(buildMap(ORDER_DELETE, new Object[]{order.getId()}, type));
+			write(ORDER_DELETE, new Object[]{order.getId()}, type);
 		}
 	}
 	
 	@Override
 	public void removeTaskActor(String taskId, String... actors) {
 		if(!isORM()) {
+			List<Object[]> argsList = new ArrayList<Object[]>(actors.length);
 			for(String actorId : actors) {
-				int[] type = new int[]{Types.VARCHAR, Types.VARCHAR};
-				saveOrUpdate(buildMap(TASK_ACTOR_REDUCE, new Object[]{taskId, actorId}, type));
+				argsList.add(new Object[]{taskId, actorId});
 			}
+			writeBatch(TASK_ACTOR_REDUCE, argsList, new int[]{Types.VARCHAR, Types.VARCHAR});
 		}
 	}
 
+	@Override
+	public void saveCounter(Counter counter) {
+		if(isORM()) {
+			saveOrUpdate(buildMap(counter, SAVE));
+		} else {
+			Object[] args = new Object[]{counter.getOrderId(), counter.getNodeName(), counter.getTotal(), counter.getRemain()};
+			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.INTEGER};
+			write(COUNTER_INSERT, args, type);
+		}
+	}
+	
+	/**
+	 * 更新语句对计数器行加锁，并发的递减依次执行，每次递减得到的剩余数各不相同，只有一个到达者得到0
+	 * 更新与随后的查询处于同一事务中，查询结果即为本次递减后的剩余数
+	 */
+	@Override
+	public Integer decreaseCounter(String orderId, String nodeName) {
+		if(!isORM()) {
+			Object[] args = new Object[]{orderId, nodeName};
+			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR};
+			write(COUNTER_DECREASE, args, type);
+			Counter counter = getCounter(orderId, nodeName);
+			return counter == null ? null : counter.getRemain();
+		}
+		return null;
+	}
+	
+	@Override
+	public void increaseCounter(String orderId, String nodeName, int total, int remain) {
+		if(!isORM()) {
+			Object[] args = new Object[]{total, remain, orderId, nodeName};
+			int[] type = new int[]{Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR};
+			write(COUNTER_INCREASE, args, type);
+		}
+	}
+	
+	@Override
+	public Counter getCounter(String orderId, String nodeName) {
+		String where = " where order_Id = ? and node_Name = ?";
+		return queryObject(Counter.class, QUERY_COUNTER + where, orderId, nodeName);
+	}
+	
+	@Override
+	public void deleteCounter(String orderId, String... nodeNames) {
+		if(!isORM()) {
+			String key = "deleteCounter:" + bucketSize(nodeNames.length);
+			String sql = getTemplate(key);
+			if(sql == null) {
+				StringBuffer buffer = new StringBuffer(COUNTER_DELETE);
+				appendIn(buffer, " and node_Name in ", nodeNames.length);
+				sql = putTemplate(key, buffer.toString());
+			}
+			List<Object> paramList = new ArrayList<Object>();
+			paramList.add(orderId);
+			addInParams(paramList, nodeNames);
+			int[] type = new int[paramList.size()];
+			Arrays.fill(type, Types.VARCHAR);
+			write(sql, paramList.toArray(), type);
+		}
+	}
+
+	@Override
+	public void saveJob(Job job) {
+		if(isORM()) {
+			saveOrUpdate(buildMap(job, SAVE));
+		} else {
+			Object[] args = new Object[]{job.getId(), job.getOrderId(), job.getTaskId(), job.getNodeName(), job.getOperator(), 
+					job.getJobState(), job.getRetries(), job.getNextTime(), job.getCreateTime(), job.getVariable()};
+			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, 
+					Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+			write(JOB_INSERT, args, type);
+		}
+	}
+	
+	@Override
+	public void updateJob(Job job) {
+		if(isORM()) {
+			saveOrUpdate(buildMap(job, UPDATE));
+		} else {
+			Object[] args = new Object[]{job.getJobState(), job.getOwner(), job.getRetries(), job.getNextTime(), job.getErrorMsg(), job.getId()};
+			int[] type = new int[]{Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+			write(JOB_UPDATE, args, type);
+		}
+	}
+	
+	/**
+	 * 条件删除需要影响的行数，不经过UnitOfWork缓冲，执行前先flush
+	 */
+	@Override
+	public boolean deleteJob(String id, String owner) {
+		if(isORM()) return true;
+		flushUnitOfWork();
+		return updateCount(JOB_DELETE, new Object[]{id, owner}, new int[]{Types.VARCHAR, Types.VARCHAR}) != 0;
+	}
+	
+	/**
+	 * 先按下次执行时间分页查询一批可执行的作业，再以同样的条件更新领取标识，
+	 * 并发领取时条件更新对行加锁，被其它执行器先领取的作业不再满足条件，
+	 * 最后按领取标识查询本次实际领取到的作业
+	 */
+	@Override
+	public List<Job> takeJobs(String owner, String time, String staleTime, int limit) {
+		if(isORM()) return Collections.emptyList();
+		Page<Job> page = new Page<Job>(limit);
+		page.setCountMode(Page.COUNT_NONE);
+		page.orderBy("next_Time").order(Page.ASC);
+		List<Job> candidates = queryList(page, Job.class, QUERY_JOB + JOB_RUNNABLE, time, staleTime);
+		if(candidates == null || candidates.isEmpty()) return Collections.emptyList();
+		String[] ids = new String[candidates.size()];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = candidates.get(i).getId();
+		}
+		String key = "takeJobs:" + bucketSize(ids.length);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(JOB_TAKE);
+			appendIn(buffer, " and id in ", ids.length);
+			sql = putTemplate(key, buffer.toString());
+		}
+		List<Object> paramList = new ArrayList<Object>();
+		paramList.add(owner);
+		paramList.add(time);
+		paramList.add(time);
+		paramList.add(staleTime);
+		addInParams(paramList, ids);
+		int[] type = new int[paramList.size()];
+		Arrays.fill(type, Types.VARCHAR);
+		write(sql, paramList.toArray(), type);
+		return queryList(Job.class, QUERY_JOB + " where owner = ? and job_State = 1 ", owner);
+	}
+
 	@Override
 	public void saveHistory(HistoryOrder order) {
 		if(isORM()) {
@@ -283,18 +981,19 @@ public abstract class AbstractDBAccess implements DBAccess {
 					order.getCreateTime(), order.getEndTime(), order.getParentId(), order.getExpireTime(), order.getOrderNo(), order.getVariable()};
 			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, 
 					Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
-			saveOrUpdate(buildMap(ORDER_HISTORY_INSERT, args, type));
+			write(ORDER_HISTORY_INSERT, args, type);
 		}
 	}
 
 	@Override
 	public void updateHistory(HistoryOrder order) {
+		evictCached(CACHE_HIST_ORDER + order.getId());
 		if(isORM()) {
 			saveOrUpdate(buildMap(order, UPDATE));
 		} else {
 			Object[] args = new Object[]{order.getOrderState(), order.getEndTime(), order.getId()};
 			int[] type = new int[]{Types.INTEGER, Types.VARCHAR, Types.VARCHAR};
-			saveOrUpdate(buildMap(ORDER_HISTORY_UPDATE, args, type));
+			write(ORDER_HISTORY_UPDATE, args, type);
 		}
 	}
 
@@ -309,20 +1008,74 @@ public abstract class AbstractDBAccess implements DBAccess {
 				saveOrUpdate(buildMap(hist, SAVE));
 			}
 		} else {
-			Object[] args = new Object[]{task.getId(), task.getOrderId(), task.getTaskName(), task.getDisplayName(), task.getTaskType(), 
-					task.getPerformType(), task.getTaskState(), task.getOperator(), task.getCreateTime(), task.getFinishTime(), 
-					task.getExpireTime(), task.getActionUrl(), task.getParentTaskId(), task.getVariable()};
-			int[] type = new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, 
-					Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
-			saveOrUpdate(buildMap(TASK_HISTORY_INSERT, args, type));
-			for(String actorId : task.getActorIds()) {
-				saveOrUpdate(buildMap(TASK_ACTOR_HISTORY_INSERT, new Object[]{task.getId(), actorId}, new int[]{Types.VARCHAR, Types.VARCHAR}));
+			write(TASK_HISTORY_INSERT, buildHistoryTaskArgs(task), TASK_HISTORY_INSERT_TYPE);
+			List<Object[]> actorArgs = new ArrayList<Object[]>();
+			addHistoryActorArgs(actorArgs, task);
+			if(!actorArgs.isEmpty()) {
+				writeBatch(TASK_ACTOR_HISTORY_INSERT, actorArgs, new int[]{Types.VARCHAR, Types.VARCHAR});
+			}
+		}
+	}
+	
+	@Override
+	public void saveHistory(List<HistoryTask> tasks) {
+		if(tasks == null || tasks.isEmpty()) return;
+		if(isORM()) {
+			for(HistoryTask task : tasks) {
+				saveHistory(task);
+			}
+		} else {
+			List<Object[]> argsList = new ArrayList<Object[]>(tasks.size());
+			List<Object[]> actorArgs = new ArrayList<Object[]>();
+			for(HistoryTask task : tasks) {
+				argsList.add(buildHistoryTaskArgs(task));
+				addHistoryActorArgs(actorArgs, task);
+			}
+			writeBatch(TASK_HISTORY_INSERT, argsList, TASK_HISTORY_INSERT_TYPE);
+			if(!actorArgs.isEmpty()) {
+				writeBatch(TASK_ACTOR_HISTORY_INSERT, actorArgs, new int[]{Types.VARCHAR, Types.VARCHAR});
 			}
 		}
 	}
+	
+	/**
+	 * 构造历史任务插入语句的参数
+	 * @param task
+	 * @return
+	 */
+	private Object[] buildHistoryTaskArgs(HistoryTask task) {
+		return new Object[]{task.getId(), task.getOrderId(), task.getTaskName(), task.getDisplayName(), task.getTaskType(), 
+				task.getPerformType(), task.getTaskState(), task.getOperator(), task.getCreateTime(), task.getFinishTime(), 
+				task.getExpireTime(), task.getActionUrl(), task.getParentTaskId(), task.getVariable()};
+	}
+	
+	/**
+	 * 将历史任务的参与者插入参数追加到列表中
+	 * @param actorArgs
+	 * @param task
+	 */
+	private void addHistoryActorArgs(List<Object[]> actorArgs, HistoryTask task) {
+		if(task.getActorIds() == null) return;
+		for(String actorId : task.getActorIds()) {
+			actorArgs.add(new Object[]{task.getId(), actorId});
+		}
+	}
 
 	@Override
-	public Task getTask(String taskId) {
+	public Task getTask(final String taskId) {
+		return getCached(CACHE_TASK + taskId, new EntityLoader<Task>() {
+			public Task load() {
+				return findTask(taskId);
+			}
+		});
+	}
+	
+	/**
+	 * 从数据库查询任务，不经过二级缓存
+	 * @param taskId
+	 * @return
+	 */
+	protected Task findTask(String taskId) {
 		String where = " where id = ?";
 		return queryObject(Task.class, QUERY_TASK + where, taskId);
 	}
@@ -343,13 +1096,39 @@ public abstract class AbstractDBAccess implements DBAccess {
 	}
 	
 	@Override
-	public HistoryTask getHistTask(String taskId) {
+	public HistoryTask getHistTask(final String taskId) {
+		return getCached(CACHE_HIST_TASK + taskId, new EntityLoader<HistoryTask>() {
+			public HistoryTask load() {
+				return findHistTask(taskId);
+			}
+		});
+	}
+	
+	/**
+	 * 从数据库查询历史任务，不经过二级缓存
+	 * @param taskId
+	 * @return
+	 */
+	protected HistoryTask findHistTask(String taskId) {
 		String where = " where id = ?";
 		return queryObject(HistoryTask.class, QUERY_HIST_TASK + where, taskId);
 	}
 	
 	@Override
-	public HistoryOrder getHistOrder(String orderId) {
+	public HistoryOrder getHistOrder(final String orderId) {
+		return getCached(CACHE_HIST_ORDER + orderId, new EntityLoader<HistoryOrder>() {
+			public HistoryOrder load() {
+				return findHistOrder(orderId);
+			}
+		});
+	}
+	
+	/**
+	 * 从数据库查询历史流程实例，不经过二级缓存
+	 * @param orderId
+	 * @return
+	 */
+	protected HistoryOrder findHistOrder(String orderId) {
 		String where = " where id = ?";
 		return queryObject(HistoryOrder.class, QUERY_HIST_ORDER + where, orderId);
 	}
@@ -360,6 +1139,54 @@ public abstract class AbstractDBAccess implements DBAccess {
 		return queryList(TaskActor.class, QUERY_TASK_ACTOR + where, taskId);
 	}
 	
+	/**
+	 * 非ORM方式使用任务、流程实例、参与者的连接查询一次获取，每个参与者对应一行
+	 * ORM方式依次查询
+	 */
+	@Override
+	public TaskContext loadTaskContext(String taskId) {
+		if(isORM()) {
+			Task task = getTask(taskId);
+			if(task == null) return null;
+			return new TaskContext(task, getOrder(task.getOrderId()), getTaskActorsByTaskId(taskId));
+		}
+		List<TaskContextRow> rows = queryList(TaskContextRow.class, QUERY_TASK_CONTEXT, taskId);
+		if(rows == null || rows.isEmpty()) return null;
+		TaskContextRow first = rows.get(0);
+		Task task = new Task();
+		try {
+			PropertyUtils.copyProperties(task, first);
+		} catch (Exception e) {
+			throw new SnakerException(e.getMessage(), e);
+		}
+		Order order = null;
+		if(first.getProcessId() != null) {
+			order = new Order();
+			order.setId(first.getOrderId());
+			order.setProcessId(first.getProcessId());
+			order.setCreator(first.getOrderCreator());
+			order.setCreateTime(first.getOrderCreateTime());
+			order.setParentId(first.getOrderParentId());
+			order.setParentNodeName(first.getParentNodeName());
+			order.setExpireTime(first.getOrderExpireTime());
+			order.setLastUpdateTime(first.getLastUpdateTime());
+			order.setLastUpdator(first.getLastUpdator());
+			order.setPriority(first.getPriority());
+			order.setOrderNo(first.getOrderNo());
+			order.setVariable(first.getOrderVariable());
+			order.setVersion(first.getOrderVersion());
+		}
+		List<TaskActor> actors = new ArrayList<TaskActor>(rows.size());
+		for(TaskContextRow row : rows) {
+			if(row.getActorId() == null) continue;
+			TaskActor actor = new TaskActor();
+			actor.setTaskId(taskId);
+			actor.setActorId(row.getActorId());
+			actors.add(actor);
+		}
+		return new TaskContext(task, order, actors);
+	}
+	
 	@Override
 	public List<HistoryTaskActor> getHistTaskActorsByTaskId(String taskId) {
 		String where = " where task_Id = ?";
@@ -367,10 +1194,80 @@ public abstract class AbstractDBAccess implements DBAccess {
 	}
 
 	@Override
-	public Order getOrder(String orderId) {
+	public Order getOrder(final String orderId) {
+		return getCached(CACHE_ORDER + orderId, new EntityLoader<Order>() {
+			public Order load() {
+				return findOrder(orderId);
+			}
+		});
+	}
+	
+	/**
+	 * 从数据库查询流程实例，不经过二级缓存
+	 * @param orderId
+	 * @return
+	 */
+	protected Order findOrder(String orderId) {
 		String where = " where id = ?";
 		return queryObject(Order.class, QUERY_ORDER + where, orderId);
 	}
+	
+	@Override
+	public Map<String, Task> getTasks(Collection<String> taskIds) {
+		Map<String, Task> map = new LinkedHashMap<String, Task>();
+		for(String[] ids : splitIds(taskIds)) {
+			for(Task task : queryIn(Task.class, "tasks", QUERY_TASK + " where id in ", ids)) {
+				map.put(task.getId(), task);
+			}
+		}
+		return map;
+	}
+	
+	@Override
+	public Map<String, HistoryTask> getHistTasks(Collection<String> taskIds) {
+		Map<String, HistoryTask> map = new LinkedHashMap<String, HistoryTask>();
+		for(String[] ids : splitIds(taskIds)) {
+			for(HistoryTask task : queryIn(HistoryTask.class, "histTasks", QUERY_HIST_TASK + " where id in ", ids)) {
+				map.put(task.getId(), task);
+			}
+		}
+		return map;
+	}
+	
+	@Override
+	public Map<String, Order> getOrders(Collection<String> orderIds) {
+		Map<String, Order> map = new LinkedHashMap<String, Order>();
+		for(String[] ids : splitIds(orderIds)) {
+			for(Order order : queryIn(Order.class, "orders", QUERY_ORDER + " where id in ", ids)) {
+				map.put(order.getId(), order);
+			}
+		}
+		return map;
+	}
+	
+	@Override
+	public Map<String, List<TaskActor>> getTaskActors(Collection<String> taskIds) {
+		Map<String, List<TaskActor>> map = newGroupMap(taskIds);
+		for(String[] ids : splitIds(taskIds)) {
+			for(TaskActor actor : queryIn(TaskActor.class, "taskActors", QUERY_TASK_ACTOR + " where task_Id in ", ids)) {
+				List<TaskActor> actors = map.get(actor.getTaskId());
+				if(actors != null) actors.add(actor);
+			}
+		}
+		return map;
+	}
+	
+	@Override
+	public Map<String, List<HistoryTaskActor>> getHistTaskActors(Collection<String> taskIds) {
+		Map<String, List<HistoryTaskActor>> map = newGroupMap(taskIds);
+		for(String[] ids : splitIds(taskIds)) {
+			for(HistoryTaskActor actor : queryIn(HistoryTaskActor.class, "histTaskActors", QUERY_HIST_TASK_ACTOR + " where task_Id in ", ids)) {
+				List<HistoryTaskActor> actors = map.get(actor.getTaskId());
+				if(actors != null) actors.add(actor);
+			}
+		}
+		return map;
+	}
 
 	@Override
 	public Process getProcess(String idName) {
@@ -386,239 +1283,459 @@ public abstract class AbstractDBAccess implements DBAccess {
 
 	@Override
 	public List<Order> getActiveOrdersByParentId(String parentId, String... excludedId) {
-		StringBuffer sql = new StringBuffer(QUERY_ORDER);
-		sql.append(" where parent_Id = ? ");
+		boolean excluded = excludedId.length > 0 && excludedId[0] != null;
+		String key = "activeOrdersByParentId:" + (excluded ? bucketSize(excludedId.length) : 0);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_ORDER);
+			buffer.append(" where parent_Id = ? ");
+			if(excluded) {
+				appendIn(buffer, " and id not in", excludedId.length);
+			}
+			sql = putTemplate(key, buffer.toString());
+		}
 		List<Object> paramList = new ArrayList<Object>();
 		paramList.add(parentId);
-		if(excludedId.length > 0 && excludedId[0] != null) {
-			sql.append(" and id not in(");
-			for(int i = 0; i < excludedId.length; i++) {
-				sql.append("?,");
-				paramList.add(excludedId[i]);
-			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+		if(excluded) {
+			addInParams(paramList, excludedId);
 		}
-		return queryList(Order.class, sql.toString(), paramList.toArray());
+		return queryList(Order.class, sql, paramList.toArray());
 	}
 
 	@Override
 	public List<Task> getActiveTasks(String orderId, String excludedTaskId, String... taskNames) {
-		StringBuffer sql = new StringBuffer(QUERY_TASK);
-		sql.append(" where 1=1 ");
+		boolean hasOrder = StringHelper.isNotEmpty(orderId);
+		boolean hasExcluded = StringHelper.isNotEmpty(excludedTaskId);
+		String key = "activeTasksByNames:" + hasOrder + ":" + hasExcluded + ":" + bucketSize(taskNames.length);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_TASK);
+			buffer.append(" where 1=1 ");
+			if(hasOrder) {
+				buffer.append(" and order_Id = ? ");
+			}
+			if(hasExcluded) {
+				buffer.append(" and id != ? ");
+			}
+			appendIn(buffer, " and task_Name in ", taskNames.length);
+			sql = putTemplate(key, buffer.toString());
+		}
 		List<Object> paramList = new ArrayList<Object>();
-		if(StringHelper.isNotEmpty(orderId)) {
-			sql.append(" and order_Id = ? ");
+		if(hasOrder) {
 			paramList.add(orderId);
 		}
-		if(StringHelper.isNotEmpty(excludedTaskId)) {
-			sql.append(" and id != ? ");
+		if(hasExcluded) {
 			paramList.add(excludedTaskId);
 		}
-		
-		if(taskNames.length > 0) {
-			sql.append(" and task_Name in (");
-			for(int i = 0; i < taskNames.length; i++) {
-				sql.append("?,");
-				paramList.add(taskNames[i]);
+		addInParams(paramList, taskNames);
+		return queryList(Task.class, sql, paramList.toArray());
+	}
+	
+	@Override
+	public List<Task> getExpiringTasks(String startTime, String endTime) {
+		return queryExpiring(Task.class, QUERY_TASK, startTime, endTime);
+	}
+	
+	@Override
+	public List<Order> getExpiringOrders(String startTime, String endTime) {
+		return queryExpiring(Order.class, QUERY_ORDER, startTime, endTime);
+	}
+	
+	/**
+	 * 按expire_Time范围查询，起始时间为空时只限制截止时间
+	 */
+	private <T> List<T> queryExpiring(Class<T> clazz, String query, String startTime, String endTime) {
+		boolean hasStart = StringHelper.isNotEmpty(startTime);
+		String key = "expiring:" + clazz.getSimpleName() + ":" + hasStart;
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(query);
+			buffer.append(" where expire_Time < ? ");
+			if(hasStart) {
+				buffer.append(" and expire_Time >= ? ");
 			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+			buffer.append(" order by expire_Time ");
+			sql = putTemplate(key, buffer.toString());
+		}
+		if(hasStart) {
+			return queryList(clazz, sql, endTime, startTime);
 		}
-		return queryList(Task.class, sql.toString(), paramList.toArray());
+		return queryList(clazz, sql, endTime);
 	}
 
 	@Override
 	public List<Process> getProcesss(Page<Process> page, String name, Integer state) {
-		StringBuffer sql = new StringBuffer(QUERY_PROCESS);
-		sql.append(" where 1=1 ");
+		boolean hasName = StringHelper.isNotEmpty(name);
+		String key = "processs:" + hasName + ":" + (state != null);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_PROCESS);
+			buffer.append(" where 1=1 ");
+			if(hasName) {
+				buffer.append(" and name = ? ");
+			}
+			if(state != null) {
+				buffer.append(" and state = ? ");
+			}
+			sql = putTemplate(key, buffer.toString());
+		}
 		List<Object> paramList = new ArrayList<Object>();
-		if(StringHelper.isNotEmpty(name)) {
-			sql.append(" and name = ? ");
+		if(hasName) {
 			paramList.add(name);
 		}
 		if(state != null) {
-			sql.append(" and state = ? ");
 			paramList.add(state);
 		}
-		return queryList(page, Process.class, sql.toString(), paramList.toArray());
+		return queryList(page, Process.class, sql, paramList.toArray());
 	}
 
 	@Override
 	public List<Order> getActiveOrders(Page<Order> page, String... processId) {
-		StringBuffer sql = new StringBuffer(QUERY_ORDER);
-		sql.append(" where 1=1 ");
-		List<Object> paramList = new ArrayList<Object>();
-		if(processId.length > 0) {
-			sql.append(" and process_Id in (");
-			for(int i = 0; i < processId.length; i++) {
-				sql.append("?,");
-				paramList.add(processId[i]);
+		String key = "activeOrders:" + bucketSize(processId.length) + ":" + (page == null);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_ORDER);
+			buffer.append(" where 1=1 ");
+			appendIn(buffer, " and process_Id in ", processId.length);
+			if(page == null) {
+				buffer.append(" order by create_Time desc ");
 			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+			sql = putTemplate(key, buffer.toString());
 		}
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, processId);
 		
 		if(page == null) {
-			sql.append(" order by create_Time desc ");
-			return queryList(Order.class, sql.toString(), paramList.toArray());
+			return queryList(Order.class, sql, paramList.toArray());
 		} else {
 			page.setOrder(Page.DESC);
 			page.setOrderBy("create_Time");
-			return queryList(page, Order.class, sql.toString(), paramList.toArray());
+			return queryList(page, Order.class, sql, paramList.toArray());
 		}
 	}
 
 	@Override
 	public List<Task> getActiveTasks(Page<Task> page, String... actorIds) {
-		StringBuffer sql = new StringBuffer(QUERY_TASK);
-		sql.append(" left join wf_task_actor ta on ta.task_id = id ");
-		sql.append(" where 1=1 ");
-		List<Object> paramList = new ArrayList<Object>();
-		if(actorIds.length > 0) {
-			sql.append(" and ta.actor_Id in (");
-			for(int i = 0; i < actorIds.length; i++) {
-				sql.append("?,");
-				paramList.add(actorIds[i]);
-			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+		String key = "activeTasks:" + bucketSize(actorIds.length);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_TASK);
+			buffer.append(" left join wf_task_actor ta on ta.task_id = id ");
+			buffer.append(" where 1=1 ");
+			appendIn(buffer, " and ta.actor_Id in ", actorIds.length);
+			sql = putTemplate(key, buffer.toString());
 		}
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, actorIds);
 		if(page == null) {
-			return queryList(Task.class, sql.toString(), paramList.toArray());
+			return queryList(Task.class, sql, paramList.toArray());
 		} else {
-			return queryList(page, Task.class, sql.toString(), paramList.toArray());
+			return queryList(page, Task.class, sql, paramList.toArray());
 		}
 	}
 
 	@Override
 	public List<WorkItem> getWorkItems(Page<WorkItem> page, String processId, String... actorIds) {
-		StringBuffer sql = new StringBuffer();
-		sql.append(" select o.process_Id, t.order_Id, t.id as task_Id, p.display_Name as process_Name, p.instance_Url, o.parent_Id, o.creator, ");
-		sql.append(" o.create_Time as order_Create_Time, o.expire_Time as order_Expire_Time, o.order_No, o.variable as order_Variable, ");
-		sql.append(" t.display_Name as task_Name, t.task_Type, t.perform_Type, t.operator, t.action_Url, ");
-		sql.append(" t.create_Time as task_Create_Time, t.finish_Time as task_End_Time, t.expire_Time as task_Expire_Time, t.variable as task_Variable ");
-		sql.append(" from wf_task t ");
-		sql.append(" left join wf_order o on t.order_id = o.id ");
-		sql.append(" left join wf_task_actor ta on ta.task_id=t.id ");
-		sql.append(" left join wf_process p on p.id = o.process_id ");
-		sql.append(" where 1=1 ");
-		
-		/**
-		 * 查询条件构造sql的where条件
-		 */
-		List<Object> paramList = new ArrayList<Object>();
-		if(actorIds.length > 0) {
-			sql.append(" and ta.actor_Id in (");
-			for(String actor : actorIds) {
-				sql.append("?,");
-				paramList.add(actor);
+		boolean hasProcess = StringHelper.isNotEmpty(processId);
+		String key = "workItems:" + bucketSize(actorIds.length) + ":" + hasProcess;
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer();
+			buffer.append(" select o.process_Id, t.order_Id, t.id as task_Id, p.display_Name as process_Name, p.instance_Url, o.parent_Id, o.creator, ");
+			buffer.append(" o.create_Time as order_Create_Time, o.expire_Time as order_Expire_Time, o.order_No, o.variable as order_Variable, ");
+			buffer.append(" t.display_Name as task_Name, t.task_Type, t.perform_Type, t.operator, t.action_Url, ");
+			buffer.append(" t.create_Time as task_Create_Time, t.finish_Time as task_End_Time, t.expire_Time as task_Expire_Time, t.variable as task_Variable ");
+			buffer.append(" from wf_task t ");
+			buffer.append(" left join wf_order o on t.order_id = o.id ");
+			buffer.append(" left join wf_task_actor ta on ta.task_id=t.id ");
+			buffer.append(" left join wf_process p on p.id = o.process_id ");
+			buffer.append(" where 1=1 ");
+			/**
+			 * 查询条件构造sql的where条件
+			 */
+			appendIn(buffer, " and ta.actor_Id in ", actorIds.length);
+			if(hasProcess) {
+				buffer.append(" and o.process_Id = ?");
 			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+			sql = putTemplate(key, buffer.toString());
 		}
-		
-		if(StringHelper.isNotEmpty(processId)) {
-			sql.append(" and o.process_Id = ?");
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, actorIds);
+		if(hasProcess) {
 			paramList.add(processId);
 		}
+		if(page.isCursorMode() && getDialect() != null) {
+			return seekWorkItems(page, key, sql, paramList);
+		}
 		page.setOrder(Page.DESC);
 		page.setOrderBy("t.create_Time");
-		return queryList(page, WorkItem.class, sql.toString(), paramList.toArray());
+		return queryList(page, WorkItem.class, sql, paramList.toArray());
 	}
 	
 	@Override
 	public List<HistoryOrder> getHistoryOrders(Page<HistoryOrder> page,
 			String... processIds) {
-		StringBuffer sql = new StringBuffer(QUERY_HIST_ORDER);
-		sql.append(" where 1=1 ");
-		List<Object> paramList = new ArrayList<Object>();
-		if(processIds.length > 0) {
-			sql.append(" and process_Id in (");
-			for(int i = 0; i < processIds.length; i++) {
-				sql.append("?,");
-				paramList.add(processIds[i]);
+		String key = "historyOrders:" + bucketSize(processIds.length) + ":" + (page == null);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_HIST_ORDER);
+			buffer.append(" where 1=1 ");
+			appendIn(buffer, " and process_Id in ", processIds.length);
+			if(page == null) {
+				buffer.append(" order by create_Time desc ");
 			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+			sql = putTemplate(key, buffer.toString());
 		}
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, processIds);
 		
 		if(page == null) {
-			sql.append(" order by create_Time desc ");
-			return queryList(HistoryOrder.class, sql.toString(), paramList.toArray());
+			return queryList(HistoryOrder.class, sql, paramList.toArray());
 		} else {
 			page.setOrder(Page.DESC);
 			page.setOrderBy("create_Time");
-			return queryList(page, HistoryOrder.class, sql.toString(), paramList.toArray());
+			return queryList(page, HistoryOrder.class, sql, paramList.toArray());
 		}
 	}
+	@Override
+	public void streamActiveOrders(RowCallback<Order> callback, String... processIds) {
+		String key = "streamActiveOrders:" + bucketSize(processIds.length);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_ORDER);
+			buffer.append(" where 1=1 ");
+			appendIn(buffer, " and process_Id in ", processIds.length);
+			sql = putTemplate(key, buffer.toString());
+		}
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, processIds);
+		queryStream(Order.class, sql, callback, paramList.toArray());
+	}
+	
+	@Override
+	public void streamHistoryOrders(RowCallback<HistoryOrder> callback, String... processIds) {
+		String key = "streamHistoryOrders:" + bucketSize(processIds.length);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_HIST_ORDER);
+			buffer.append(" where 1=1 ");
+			appendIn(buffer, " and process_Id in ", processIds.length);
+			sql = putTemplate(key, buffer.toString());
+		}
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, processIds);
+		queryStream(HistoryOrder.class, sql, callback, paramList.toArray());
+	}
+	
+	@Override
+	public void streamHistoryTasks(String orderId, RowCallback<HistoryTask> callback) {
+		queryStream(HistoryTask.class, QUERY_HIST_TASK + " where order_Id = ? order by create_Time desc ", callback, orderId);
+	}
+	
 	@Override
 	public List<HistoryOrder> getHistoryOrdersByParentId(String parentId) {
-		StringBuffer sql = new StringBuffer(QUERY_HIST_ORDER);
-		sql.append(" where parent_Id = ? ");
-		return queryList(HistoryOrder.class, sql.toString(), new Object[]{parentId });
+		return queryList(HistoryOrder.class, QUERY_HIST_ORDER + " where parent_Id = ? ", new Object[]{parentId });
 	}
 	@Override
 	public List<HistoryTask> getHistoryTasks(String orderId) {
-		StringBuffer sql = new StringBuffer(QUERY_HIST_TASK);
-		sql.append(" where order_Id = ? order by create_Time desc ");
-		return queryList(HistoryTask.class, sql.toString(), new Object[]{orderId });
+		return queryList(HistoryTask.class, QUERY_HIST_TASK + " where order_Id = ? order by create_Time desc ", new Object[]{orderId });
 	}
 	@Override
 	public List<HistoryTask> getHistoryTasks(Page<HistoryTask> page,
 			String... actorIds) {
-		StringBuffer sql = new StringBuffer(QUERY_HIST_TASK);
-		sql.append(" left join wf_hist_task_actor ta on ta.task_id = id ");
-		sql.append(" where 1=1 ");
-		List<Object> paramList = new ArrayList<Object>();
-		if(actorIds.length > 0) {
-			sql.append(" and ta.actor_Id in (");
-			for(int i = 0; i < actorIds.length; i++) {
-				sql.append("?,");
-				paramList.add(actorIds[i]);
-			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+		String key = "historyTasks:" + bucketSize(actorIds.length);
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer(QUERY_HIST_TASK);
+			buffer.append(" left join wf_hist_task_actor ta on ta.task_id = id ");
+			buffer.append(" where 1=1 ");
+			appendIn(buffer, " and ta.actor_Id in ", actorIds.length);
+			sql = putTemplate(key, buffer.toString());
 		}
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, actorIds);
 		if(page == null) {
-			return queryList(HistoryTask.class, sql.toString(), paramList.toArray());
+			return queryList(HistoryTask.class, sql, paramList.toArray());
 		} else {
-			return queryList(page, HistoryTask.class, sql.toString(), paramList.toArray());
+			return queryList(page, HistoryTask.class, sql, paramList.toArray());
 		}
 	}
 	@Override
 	public List<WorkItem> getHistoryWorkItems(Page<WorkItem> page,
 			String processId, String... actorIds) {
-		StringBuffer sql = new StringBuffer();
-		sql.append(" select o.process_Id, t.order_Id, t.id as task_Id, p.display_Name as process_Name, p.instance_Url, o.parent_Id, o.creator, ");
-		sql.append(" o.create_Time as order_Create_Time, o.expire_Time as order_Expire_Time, o.order_No, o.variable as order_Variable, ");
-		sql.append(" t.display_Name as task_Name, t.task_Type, t.perform_Type,t.operator, t.action_Url, ");
-		sql.append(" t.create_Time as task_Create_Time, t.finish_Time as task_End_Time, t.expire_Time as task_Expire_Time, t.variable as task_Variable ");
-		sql.append(" from wf_hist_task t ");
-		sql.append(" left join wf_hist_order o on t.order_id = o.id ");
-		sql.append(" left join wf_process p on p.id = o.process_id ");
-		sql.append(" where 1=1 ");
-		
-		/**
-		 * 查询条件构造sql的where条件
-		 */
-		List<Object> paramList = new ArrayList<Object>();
-		if(actorIds.length > 0) {
-			sql.append(" and t.operator in (");
-			for(String actor : actorIds) {
-				sql.append("?,");
-				paramList.add(actor);
+		boolean hasProcess = StringHelper.isNotEmpty(processId);
+		String key = "historyWorkItems:" + bucketSize(actorIds.length) + ":" + hasProcess;
+		String sql = getTemplate(key);
+		if(sql == null) {
+			StringBuffer buffer = new StringBuffer();
+			buffer.append(" select o.process_Id, t.order_Id, t.id as task_Id, p.display_Name as process_Name, p.instance_Url, o.parent_Id, o.creator, ");
+			buffer.append(" o.create_Time as order_Create_Time, o.expire_Time as order_Expire_Time, o.order_No, o.variable as order_Variable, ");
+			buffer.append(" t.display_Name as task_Name, t.task_Type, t.perform_Type,t.operator, t.action_Url, ");
+			buffer.append(" t.create_Time as task_Create_Time, t.finish_Time as task_End_Time, t.expire_Time as task_Expire_Time, t.variable as task_Variable ");
+			buffer.append(" from wf_hist_task t ");
+			buffer.append(" left join wf_hist_order o on t.order_id = o.id ");
+			buffer.append(" left join wf_process p on p.id = o.process_id ");
+			buffer.append(" where 1=1 ");
+			/**
+			 * 查询条件构造sql的where条件
+			 */
+			appendIn(buffer, " and t.operator in ", actorIds.length);
+			if(hasProcess) {
+				buffer.append(" and o.process_Id = ?");
 			}
-			sql.deleteCharAt(sql.length() - 1);
-			sql.append(") ");
+			sql = putTemplate(key, buffer.toString());
 		}
-		
-		if(StringHelper.isNotEmpty(processId)) {
-			sql.append(" and o.process_Id = ?");
+		List<Object> paramList = new ArrayList<Object>();
+		addInParams(paramList, actorIds);
+		if(hasProcess) {
 			paramList.add(processId);
 		}
+		if(page.isCursorMode() && getDialect() != null) {
+			return seekWorkItems(page, key, sql, paramList);
+		}
 		page.setOrder(Page.DESC);
 		page.setOrderBy("t.create_Time");
-		return queryList(page, WorkItem.class, sql.toString(), paramList.toArray());
+		return queryList(page, WorkItem.class, sql, paramList.toArray());
+	}
+	
+	/**
+	 * 游标分页查询工作项：按(t.create_Time, t.id)降序定位到上一页最后一条记录之后，
+	 * 多取一条用于判断是否存在下一页
+	 * @param page 游标分页对象
+	 * @param key 已包含where子句的sql的模板key
+	 * @param sql 已包含where子句的sql
+	 * @param paramList 查询参数
+	 * @return
+	 */
+	private List<WorkItem> seekWorkItems(Page<WorkItem> page, String key, String sql, List<Object> paramList) {
+		boolean cursorSetted = page.isCursorSetted();
+		if(cursorSetted) {
+			paramList.add(page.getCursorValue());
+			paramList.add(page.getCursorValue());
+			paramList.add(page.getCursorId());
+		}
+		int pageSize = page.getPageSize();
+		String seekKey = key + ":seek:" + getDialect().getClass().getName() + ":" + cursorSetted + ":" + pageSize;
+		String querySQL = getTemplate(seekKey);
+		if(querySQL == null) {
+			StringBuffer buffer = new StringBuffer(sql);
+			if(cursorSetted) {
+				buffer.append(" and (t.create_Time < ? or (t.create_Time = ? and t.id < ?)) ");
+			}
+			buffer.append(" order by t.create_Time desc, t.id desc ");
+			querySQL = buffer.toString();
+			if(pageSize != Page.NON_PAGE) {
+				querySQL = getDialect().getSeekSql(querySQL, pageSize + 1);
+			}
+			querySQL = putTemplate(seekKey, querySQL);
+		}
+		List<WorkItem> list = queryList(WorkItem.class, querySQL, paramList.toArray());
+		page.setNextCursor(null, null);
+		if(pageSize != Page.NON_PAGE && list.size() > pageSize) {
+			list = new ArrayList<WorkItem>(list.subList(0, pageSize));
+			WorkItem last = list.get(pageSize - 1);
+			page.setNextCursor(last.getTaskCreateTime(), last.getTaskId());
+		}
+		page.setResult(list);
+		return list;
+	}
+	
+	/**
+	 * 任务上下文连接查询的行映射对象，任务字段继承自Task，其余为流程实例与参与者字段
+	 */
+	public static class TaskContextRow extends Task {
+		private static final long serialVersionUID = 6342583011245473094L;
+		private String processId;
+		private String orderCreator;
+		private String orderCreateTime;
+		private String orderParentId;
+		private String parentNodeName;
+		private String orderExpireTime;
+		private String lastUpdateTime;
+		private String lastUpdator;
+		private Integer priority;
+		private String orderNo;
+		private String orderVariable;
+		private Integer orderVersion;
+		private String actorId;
+
+		public String getProcessId() {
+			return processId;
+		}
+		public void setProcessId(String processId) {
+			this.processId = processId;
+		}
+		public String getOrderCreator() {
+			return orderCreator;
+		}
+		public void setOrderCreator(String orderCreator) {
+			this.orderCreator = orderCreator;
+		}
+		public String getOrderCreateTime() {
+			return orderCreateTime;
+		}
+		public void setOrderCreateTime(String orderCreateTime) {
+			this.orderCreateTime = orderCreateTime;
+		}
+		public String getOrderParentId() {
+			return orderParentId;
+		}
+		public void setOrderParentId(String orderParentId) {
+			this.orderParentId = orderParentId;
+		}
+		public String getParentNodeName() {
+			return parentNodeName;
+		}
+		public void setParentNodeName(String parentNodeName) {
+			this.parentNodeName = parentNodeName;
+		}
+		public String getOrderExpireTime() {
+			return orderExpireTime;
+		}
+		public void setOrderExpireTime(String orderExpireTime) {
+			this.orderExpireTime = orderExpireTime;
+		}
+		public String getLastUpdateTime() {
+			return lastUpdateTime;
+		}
+		public void setLastUpdateTime(String lastUpdateTime) {
+			this.lastUpdateTime = lastUpdateTime;
+		}
+		public String getLastUpdator() {
+			return lastUpdator;
+		}
+		public void setLastUpdator(String lastUpdator) {
+			this.lastUpdator = lastUpdator;
+		}
+		public Integer getPriority() {
+			return priority;
+		}
+		public void setPriority(Integer priority) {
+			this.priority = priority;
+		}
+		public String getOrderNo() {
+			return orderNo;
+		}
+		public void setOrderNo(String orderNo) {
+			this.orderNo = orderNo;
+		}
+		public String getOrderVariable() {
+			return orderVariable;
+		}
+		public void setOrderVariable(String orderVariable) {
+			this.orderVariable = orderVariable;
+		}
+		public Integer getOrderVersion() {
+			return orderVersion;
+		}
+		public void setOrderVersion(Integer orderVersion) {
+			this.orderVersion = orderVersion;
+		}
+		public String getActorId() {
+			return actorId;
+		}
+		public void setActorId(String actorId) {
+			this.actorId = actorId;
+		}
 	}
 }
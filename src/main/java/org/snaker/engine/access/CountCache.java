@@ -0,0 +1,83 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 分页查询总记录数的缓存
+ * 以查询签名（count语句及参数）为key，按分页对象指定的秒数过期。
+ * 写操作不会使缓存失效，缓存期内的总记录数可能滞后于实际数据。
+ * 最多保留MAX_ENTRIES个签名，超出时淘汰最久未使用的签名。
+ * @author yuqs
+ * @version 1.0
+ */
+public class CountCache {
+	/**
+	 * 最多缓存的查询签名数
+	 */
+	private static final int MAX_ENTRIES = 1000;
+	/**
+	 * 查询签名->{总记录数, 过期时间}
+	 */
+	private static final Map<String, long[]> cache = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = -6374935405536546296L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * 获取未过期的总记录数
+	 * @param key 查询签名
+	 * @return 不存在或已过期时返回null
+	 */
+	public static Long get(String key) {
+		synchronized(cache) {
+			long[] entry = cache.get(key);
+			if(entry == null) return null;
+			if(entry[1] < System.currentTimeMillis()) {
+				cache.remove(key);
+				return null;
+			}
+			return entry[0];
+		}
+	}
+
+	/**
+	 * 缓存总记录数
+	 * @param key 查询签名
+	 * @param count 总记录数
+	 * @param seconds 缓存秒数
+	 */
+	public static void put(String key, long count, int seconds) {
+		if(seconds <= 0) return;
+		synchronized(cache) {
+			cache.put(key, new long[]{count, System.currentTimeMillis() + seconds * 1000L});
+		}
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public static void clear() {
+		synchronized(cache) {
+			cache.clear();
+		}
+	}
+}
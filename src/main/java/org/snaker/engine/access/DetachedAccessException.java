@@ -0,0 +1,34 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access;
+
+import org.snaker.engine.SnakerException;
+
+/**
+ * 在脱离数据库(detached)的UnitOfWork中访问数据库时抛出的异常
+ * 调用方据此放弃脱离数据库的计算结果，在当前事务中重新执行
+ * @author yuqs
+ * @version 1.0
+ */
+public class DetachedAccessException extends SnakerException {
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6250719813342617512L;
+
+	public DetachedAccessException(String msg) {
+		super(msg);
+	}
+}
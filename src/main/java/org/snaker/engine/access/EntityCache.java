@@ -0,0 +1,266 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.cglib.beans.BeanCopier;
+
+import org.snaker.engine.SnakerException;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+
+/**
+ * 任务、流程实例、历史任务、历史实例按主键查询的二级缓存
+ * 最多保留maxEntries个对象，超出时淘汰最久未使用的对象；ttl大于0时对象放入超过ttl毫秒后失效；
+ * 存取时都复制对象，调用方修改返回的对象不影响缓存。
+ * 写操作使缓存失效：当前线程存在事务时，失效的key在事务结束前一直处于锁定状态，
+ * 锁定期间的查询直接访问数据库且不放入缓存，事务结束时再次失效，避免缓存未提交或被覆盖的旧数据。
+ * @author yuqs
+ * @version 1.0
+ */
+public class EntityCache {
+	/**
+	 * 类型->属性复制器
+	 */
+	private static final ConcurrentMap<Class<?>, BeanCopier> copiers = new ConcurrentHashMap<Class<?>, BeanCopier>();
+	/**
+	 * 最多缓存的对象数
+	 */
+	private final int maxEntries;
+	/**
+	 * 缓存对象的存活毫秒数，不大于0时不过期
+	 */
+	private final long ttl;
+	/**
+	 * key->缓存对象，按访问顺序淘汰
+	 */
+	private final Map<String, CacheEntry> cache;
+	/**
+	 * 事务中已失效、尚未提交的key->锁定次数
+	 */
+	private final Map<String, Integer> locks = new HashMap<String, Integer>();
+	/**
+	 * 失效次数，查询开始后发生失效则不放入缓存
+	 */
+	private final AtomicLong stamp = new AtomicLong();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public EntityCache(int maxEntries) {
+		this(maxEntries, 0);
+	}
+
+	/**
+	 * @param maxEntries 最多缓存的对象数
+	 * @param ttl 缓存对象的存活毫秒数，不大于0时不过期
+	 */
+	public EntityCache(int maxEntries, long ttl) {
+		this.maxEntries = maxEntries;
+		this.ttl = ttl;
+		this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 3816385217327155012L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				if(size() > EntityCache.this.maxEntries) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * 获取缓存对象的副本
+	 * @param key
+	 * @return 不存在、已过期或key已锁定时返回null
+	 */
+	public <T> T get(String key) {
+		Object value = null;
+		synchronized(this) {
+			CacheEntry entry = locks.containsKey(key) ? null : cache.get(key);
+			if(entry != null) {
+				if(entry.isExpired()) {
+					cache.remove(key);
+				} else {
+					value = entry.value;
+				}
+			}
+		}
+		if(value == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return copy(value);
+	}
+
+	/**
+	 * 返回当前的失效标记，在查询数据库之前获取，放入缓存时作为put的参数
+	 * @return
+	 */
+	public long getStamp() {
+		return stamp.get();
+	}
+
+	/**
+	 * 放入查询得到的对象副本，查询期间发生过失效或key已锁定时不放入
+	 * @param key
+	 * @param value
+	 * @param stamp 查询前getStamp的返回值
+	 */
+	public void put(String key, Object value, long stamp) {
+		if(value == null) return;
+		Object copy = copy(value);
+		synchronized(this) {
+			if(this.stamp.get() != stamp || locks.containsKey(key)) return;
+			cache.put(key, new CacheEntry(copy, ttl > 0 ? System.currentTimeMillis() + ttl : 0));
+		}
+	}
+
+	/**
+	 * 写操作后使key失效，存在事务时锁定至事务结束
+	 * @param key
+	 */
+	public void evict(String key) {
+		synchronized(this) {
+			stamp.incrementAndGet();
+			cache.remove(key);
+		}
+		if(TransactionObjectHolder.isExistingTransaction()) {
+			lock(key);
+		}
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public synchronized void clear() {
+		stamp.incrementAndGet();
+		cache.clear();
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * 命中率
+	 * @return 没有查询时返回0
+	 */
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0 : (double)hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return "EntityCache[size=" + size() + ", maxEntries=" + maxEntries + ", ttl=" + ttl + ", hits=" + hitCount.get()
+				+ ", misses=" + missCount.get() + ", evictions=" + evictionCount.get() + "]";
+	}
+
+	/**
+	 * 锁定key，同一事务中重复锁定只记一次，事务结束时解锁
+	 */
+	private void lock(final String key) {
+		Map<String, Object> txCache = TransactionObjectHolder.getCache();
+		String lockKey = "l2lock:" + System.identityHashCode(this) + ":" + key;
+		if(txCache == null || txCache.containsKey(lockKey)) return;
+		txCache.put(lockKey, Boolean.TRUE);
+		synchronized(this) {
+			Integer count = locks.get(key);
+			locks.put(key, count == null ? 1 : count + 1);
+		}
+		TransactionObjectHolder.registerSynchronization(new Runnable() {
+			public void run() {
+				unlock(key);
+			}
+		});
+	}
+
+	private synchronized void unlock(String key) {
+		Integer count = locks.remove(key);
+		if(count != null && count > 1) {
+			locks.put(key, count - 1);
+		}
+		stamp.incrementAndGet();
+		cache.remove(key);
+	}
+
+	/**
+	 * 缓存对象及过期时间
+	 */
+	private static class CacheEntry {
+		private final Object value;
+		/**
+		 * 过期时间点，0表示不过期
+		 */
+		private final long expireAt;
+
+		CacheEntry(Object value, long expireAt) {
+			this.value = value;
+			this.expireAt = expireAt;
+		}
+
+		boolean isExpired() {
+			return expireAt > 0 && System.currentTimeMillis() >= expireAt;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T copy(Object value) {
+		Class<?> clazz = value.getClass();
+		BeanCopier copier = copiers.get(clazz);
+		if(copier == null) {
+			copier = BeanCopier.create(clazz, clazz, false);
+			copiers.putIfAbsent(clazz, copier);
+		}
+		try {
+			Object target = clazz.getDeclaredConstructor().newInstance();
+			copier.copy(value, target, null);
+			return (T)target;
+		} catch (Exception e) {
+			throw new SnakerException(e.getMessage(), e);
+		}
+	}
+}
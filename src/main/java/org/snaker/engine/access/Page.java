@@ -31,6 +31,15 @@ public class Page<T> {
 	public static final String DESC = "desc";
 	public static final int NON_PAGE = -1;
 	public static final int PAGE_SIZE = 15;
+	//总记录数统计方式：精确count（默认）
+	public static final int COUNT_EXACT = 0;
+	//总记录数统计方式：不统计，多取一条记录判断是否有下一页
+	public static final int COUNT_NONE = 1;
+	//总记录数统计方式：精确count，按查询签名缓存countCacheSeconds秒
+	public static final int COUNT_CACHED = 2;
+	//总记录数统计方式：无过滤条件的单表查询取数据库统计信息中主表的近似行数，有过滤条件或不支持时同COUNT_CACHED
+	public static final int COUNT_ESTIMATE = 3;
+	public static final int COUNT_CACHE_SECONDS = 60;
 
 	//当前页
 	private int pageNo = 1;
@@ -44,6 +53,20 @@ public class Page<T> {
 	private long totalCount = 0;
 	//查询结果集
 	private List<T> result;
+	//是否为游标分页（按排序值、id定位，不使用偏移量）
+	private boolean cursorMode = false;
+	//游标分页：上一页最后一条记录的排序值、id，为null时查询第一页
+	private String cursorValue;
+	private String cursorId;
+	//游标分页：下一页的游标，为null时没有下一页
+	private String nextCursorValue;
+	private String nextCursorId;
+	//总记录数统计方式
+	private int countMode = COUNT_EXACT;
+	//COUNT_CACHED、COUNT_ESTIMATE方式下count结果的缓存秒数
+	private int countCacheSeconds = COUNT_CACHE_SECONDS;
+	//COUNT_NONE方式：是否还有下一页
+	private boolean hasNext = false;
 
 	public Page() {
 		this.pageSize = ConfigHelper.getNumerProperty("jdbc.pageSize");
@@ -175,8 +198,56 @@ public class Page<T> {
 		this.result = result;
 	}
 
+	/**
+	 * 获得总记录数统计方式.
+	 */
+	public int getCountMode() {
+		return countMode;
+	}
+
+	/**
+	 * 设置总记录数统计方式.
+	 * @param countMode 可选值为COUNT_EXACT、COUNT_NONE、COUNT_CACHED、COUNT_ESTIMATE.
+	 */
+	public void setCountMode(int countMode) {
+		if(countMode < COUNT_EXACT || countMode > COUNT_ESTIMATE) {
+			throw new IllegalArgumentException("统计方式[" + countMode + "]不是合法值");
+		}
+		this.countMode = countMode;
+	}
+
+	/**
+	 * 返回Page对象自身的setCountMode函数,可用于连续设置。
+	 */
+	public Page<T> countMode(int theCountMode) {
+		setCountMode(theCountMode);
+		return this;
+	}
+
+	/**
+	 * 获得count结果的缓存秒数.
+	 */
+	public int getCountCacheSeconds() {
+		return countCacheSeconds;
+	}
+
+	/**
+	 * 设置count结果的缓存秒数.
+	 */
+	public void setCountCacheSeconds(int countCacheSeconds) {
+		this.countCacheSeconds = countCacheSeconds;
+	}
+
+	/**
+	 * 设置COUNT_NONE方式下是否还有下一页.
+	 */
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+
 	/**
 	 * 获得总记录数, 默认值为0.
+	 * COUNT_NONE方式不统计总记录数, 返回0.
 	 */
 	public long getTotalCount() {
 		return totalCount < 0 ? 0 : totalCount;
@@ -206,8 +277,15 @@ public class Page<T> {
 
 	/**
 	 * 是否还有下一页.
+	 * 游标分页时根据是否存在下一页游标判断, COUNT_NONE方式根据多取的一条记录判断.
 	 */
 	public boolean isHasNext() {
+		if(cursorMode) {
+			return nextCursorId != null;
+		}
+		if(countMode == COUNT_NONE) {
+			return hasNext;
+		}
 		return (pageNo + 1 <= getTotalPages());
 	}
 
@@ -242,6 +320,62 @@ public class Page<T> {
 		}
 	}
 	
+	/**
+	 * 设置为游标分页，并指定上一页最后一条记录的排序值、id.
+	 * 查询第一页时均传入null，之后传入getNextCursorValue()、getNextCursorId().
+	 * 游标分页不跳过前面的记录，任意页的代价与第一页相同.
+	 */
+	public Page<T> cursor(String cursorValue, String cursorId) {
+		this.cursorMode = true;
+		this.cursorValue = cursorValue;
+		this.cursorId = cursorId;
+		this.nextCursorValue = null;
+		this.nextCursorId = null;
+		return this;
+	}
+	/**
+	 * 是否为游标分页.
+	 */
+	public boolean isCursorMode() {
+		return cursorMode;
+	}
+	/**
+	 * 是否已设置游标，未设置时查询第一页.
+	 */
+	public boolean isCursorSetted() {
+		return cursorMode && cursorId != null;
+	}
+	/**
+	 * 获得上一页最后一条记录的排序值.
+	 */
+	public String getCursorValue() {
+		return cursorValue;
+	}
+	/**
+	 * 获得上一页最后一条记录的id.
+	 */
+	public String getCursorId() {
+		return cursorId;
+	}
+	/**
+	 * 获得下一页游标的排序值.
+	 */
+	public String getNextCursorValue() {
+		return nextCursorValue;
+	}
+	/**
+	 * 获得下一页游标的id, 没有下一页时为null.
+	 */
+	public String getNextCursorId() {
+		return nextCursorId;
+	}
+	/**
+	 * 设置下一页的游标.
+	 */
+	public void setNextCursor(String nextCursorValue, String nextCursorId) {
+		this.nextCursorValue = nextCursorValue;
+		this.nextCursorId = nextCursorId;
+	}
 	@Override
 	public String toString() {
 		return ToStringBuilder.reflectionToString(this);
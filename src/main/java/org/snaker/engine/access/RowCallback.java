@@ -0,0 +1,30 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access;
+
+/**
+ * 流式查询的行回调
+ * 查询结果逐行映射后交给回调处理，不在内存中保留整个结果集，适用于导出等大数据量的读取
+ * @author yuqs
+ * @version 1.0
+ * @param <T> 行对象的类型
+ */
+public interface RowCallback<T> {
+	/**
+	 * 处理一行记录
+	 * @param row
+	 */
+	void handle(T row);
+}
@@ -0,0 +1,311 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 一次引擎调用(Execution)范围内的写缓冲
+ * 由引擎在执行开始时绑定到当前线程，执行期间jdbc方式的任务、参与者、历史、实例写操作只记录不执行，
+ * 在执行结束（事务提交前）按表分组、以固定的外键安全顺序批量写入。
+ * 同一次调用中创建又删除的任务直接抵消，不再访问数据库。
+ * 为保证读到自己的写入，任何查询或不可缓冲的写操作之前都会先flush已缓冲的语句。
+ * 脱离数据库(detached)的UnitOfWork只缓冲写操作，flush即访问数据库时抛出DetachedAccessException，用于在工作线程中执行不访问数据库的计算。
+ * @author yuqs
+ * @version 1.0
+ */
+public class UnitOfWork {
+	private static final Logger log = LoggerFactory.getLogger(UnitOfWork.class);
+	/**
+	 * 线程局部容器，用于保持当前的UnitOfWork
+	 */
+	private static final ThreadLocal<UnitOfWork> container = new ThreadLocal<UnitOfWork>();
+	/**
+	 * 可缓冲的语句，数组顺序即flush顺序：先插入父表再插入子表，先删除子表再删除父表
+	 */
+	private static final String[] FLUSH_ORDER = new String[]{
+		AbstractDBAccess.ORDER_INSERT,
+		AbstractDBAccess.ORDER_HISTORY_INSERT,
+		AbstractDBAccess.TASK_INSERT,
+		AbstractDBAccess.TASK_ACTOR_INSERT,
+		AbstractDBAccess.TASK_HISTORY_INSERT,
+		AbstractDBAccess.TASK_ACTOR_HISTORY_INSERT,
+		AbstractDBAccess.ORDER_UPDATE,
+		AbstractDBAccess.ORDER_HISTORY_UPDATE,
+		AbstractDBAccess.TASK_UPDATE,
+		AbstractDBAccess.TASK_ACTOR_DELETE,
+		AbstractDBAccess.TASK_DELETE,
+		AbstractDBAccess.ORDER_DELETE
+	};
+	/**
+	 * 语句->已缓冲的参数列表
+	 */
+	private final Map<String, List<Object[]>> statements = new HashMap<String, List<Object[]>>();
+	/**
+	 * 语句->参数类型
+	 */
+	private final Map<String, int[]> types = new HashMap<String, int[]>();
+	/**
+	 * 已缓冲插入、尚未写入数据库的任务id
+	 */
+	private final Set<String> insertedTaskIds = new HashSet<String>();
+	/**
+	 * 已缓冲删除的任务id
+	 */
+	private final Set<String> deletedTaskIds = new HashSet<String>();
+	/**
+	 * 插入与删除相互抵消的任务id
+	 */
+	private final Set<String> collapsedTaskIds = new HashSet<String>();
+	/**
+	 * 执行flush的数据库访问对象
+	 */
+	private AbstractDBAccess access;
+	/**
+	 * 嵌套深度，子流程等嵌套执行共用外层的UnitOfWork
+	 */
+	private int depth = 0;
+	/**
+	 * 是否脱离数据库，只缓冲写操作
+	 */
+	private boolean detached = false;
+	/**
+	 * 开始脱离数据库的UnitOfWork前线程绑定的UnitOfWork，结束时恢复
+	 */
+	private UnitOfWork previous;
+
+	/**
+	 * 开始（或加入当前线程已有的）UnitOfWork
+	 * @return
+	 */
+	public static UnitOfWork begin() {
+		UnitOfWork uow = container.get();
+		if(uow == null) {
+			uow = new UnitOfWork();
+			container.set(uow);
+		}
+		uow.depth++;
+		return uow;
+	}
+
+	/**
+	 * 开始脱离数据库的UnitOfWork，暂时替换当前线程已有的UnitOfWork，end时恢复。
+	 * 期间可缓冲的写操作只记录，查询及其它写操作抛出异常，由takeBuffered取出缓冲的语句
+	 * @return
+	 */
+	public static UnitOfWork beginDetached() {
+		UnitOfWork uow = new UnitOfWork();
+		uow.detached = true;
+		uow.depth = 1;
+		uow.previous = container.get();
+		container.set(uow);
+		return uow;
+	}
+
+	/**
+	 * 当前线程处于脱离数据库的UnitOfWork中时抛出DetachedAccessException，供不经过缓冲的orm方式访问数据库前检查
+	 */
+	public static void checkAttached() {
+		UnitOfWork uow = container.get();
+		if(uow != null && uow.detached) {
+			throw new DetachedAccessException("当前执行已脱离数据库，不能访问数据库");
+		}
+	}
+
+	/**
+	 * 返回当前线程绑定的UnitOfWork，未开始时返回null
+	 * @return
+	 */
+	public static UnitOfWork current() {
+		return container.get();
+	}
+
+	/**
+	 * 提交：最外层调用时flush所有缓冲的语句，嵌套调用不做处理
+	 */
+	public void commit() {
+		if(depth == 1) {
+			flush();
+		}
+	}
+
+	/**
+	 * 结束：最外层调用时解除线程绑定，并丢弃未flush的语句（异常时由事务回滚）
+	 */
+	public void end() {
+		if(--depth > 0) return;
+		if(previous != null) {
+			container.set(previous);
+			previous = null;
+		} else {
+			container.remove();
+		}
+		clear();
+		collapsedTaskIds.clear();
+	}
+
+	/**
+	 * 判断sql语句是否可缓冲
+	 * @param sql
+	 * @return
+	 */
+	boolean isBuffered(String sql) {
+		for(String statement : FLUSH_ORDER) {
+			if(statement.equals(sql)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 缓冲一条语句，调用前需确认isBuffered为true
+	 * @param access
+	 * @param sql
+	 * @param args
+	 * @param type
+	 */
+	void add(AbstractDBAccess access, String sql, Object[] args, int[] type) {
+		this.access = access;
+		String taskId = null;
+		if(AbstractDBAccess.TASK_DELETE.equals(sql) || AbstractDBAccess.TASK_ACTOR_DELETE.equals(sql)) {
+			taskId = (String)args[0];
+			if(collapsedTaskIds.contains(taskId)) return;
+			if(insertedTaskIds.remove(taskId)) {
+				//同一次调用中创建又删除的任务，撤销其插入、参与者及更新语句
+				removeTask(AbstractDBAccess.TASK_INSERT, 0, taskId);
+				removeTask(AbstractDBAccess.TASK_ACTOR_INSERT, 0, taskId);
+				removeTask(AbstractDBAccess.TASK_UPDATE, 2, taskId);
+				collapsedTaskIds.add(taskId);
+				return;
+			}
+			deletedTaskIds.add(taskId);
+		} else if(AbstractDBAccess.TASK_INSERT.equals(sql)) {
+			insertedTaskIds.add((String)args[0]);
+		} else if(AbstractDBAccess.TASK_ACTOR_INSERT.equals(sql) && deletedTaskIds.contains(args[0])) {
+			//flush顺序中删除在插入之后，已缓冲删除的任务再插入参与者时需保持原有顺序
+			flush();
+		}
+		List<Object[]> argsList = statements.get(sql);
+		if(argsList == null) {
+			argsList = new ArrayList<Object[]>();
+			statements.put(sql, argsList);
+			types.put(sql, type);
+		}
+		argsList.add(args);
+	}
+
+	/**
+	 * 按固定顺序批量写入所有缓冲的语句
+	 */
+	public void flush() {
+		if(detached) {
+			throw new DetachedAccessException("当前执行已脱离数据库，不能访问数据库");
+		}
+		if(statements.isEmpty()) {
+			clear();
+			return;
+		}
+		if(log.isDebugEnabled()) {
+			log.debug("flush unit of work, statements=" + statements.size());
+		}
+		//先复制再清空，避免flush过程中的写操作再次进入缓冲
+		Map<String, List<Object[]>> pending = new HashMap<String, List<Object[]>>(statements);
+		Map<String, int[]> pendingTypes = new HashMap<String, int[]>(types);
+		clear();
+		for(String sql : FLUSH_ORDER) {
+			List<Object[]> argsList = pending.get(sql);
+			if(argsList == null || argsList.isEmpty()) continue;
+			if(argsList.size() == 1) {
+				access.saveOrUpdate(sql, argsList.get(0), pendingTypes.get(sql));
+			} else {
+				access.saveOrUpdateBatch(sql, argsList, pendingTypes.get(sql));
+			}
+		}
+	}
+
+	/**
+	 * 取出已缓冲的语句，用于在其它线程合并到该线程的UnitOfWork中一起写入
+	 * @return 不绑定线程的UnitOfWork，只用于merge或flush
+	 */
+	public UnitOfWork takeBuffered() {
+		UnitOfWork buffered = new UnitOfWork();
+		buffered.access = access;
+		buffered.statements.putAll(statements);
+		buffered.types.putAll(types);
+		buffered.insertedTaskIds.addAll(insertedTaskIds);
+		buffered.deletedTaskIds.addAll(deletedTaskIds);
+		clear();
+		return buffered;
+	}
+	
+	/**
+	 * 合并由takeBuffered取出的语句，追加在已缓冲的同类语句之后
+	 * @param buffered
+	 */
+	public void merge(UnitOfWork buffered) {
+		if(buffered.isEmpty()) return;
+		access = buffered.access;
+		for(Map.Entry<String, List<Object[]>> entry : buffered.statements.entrySet()) {
+			List<Object[]> argsList = statements.get(entry.getKey());
+			if(argsList == null) {
+				argsList = new ArrayList<Object[]>();
+				statements.put(entry.getKey(), argsList);
+				types.put(entry.getKey(), buffered.types.get(entry.getKey()));
+			}
+			argsList.addAll(entry.getValue());
+		}
+		insertedTaskIds.addAll(buffered.insertedTaskIds);
+		deletedTaskIds.addAll(buffered.deletedTaskIds);
+	}
+	
+	/**
+	 * 是否有缓冲的语句
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return statements.isEmpty();
+	}
+
+	/**
+	 * 移除指定语句中第index个参数为taskId的缓冲
+	 */
+	private void removeTask(String sql, int index, String taskId) {
+		List<Object[]> argsList = statements.get(sql);
+		if(argsList == null) return;
+		for(Iterator<Object[]> it = argsList.iterator(); it.hasNext();) {
+			if(taskId.equals(it.next()[index])) {
+				it.remove();
+			}
+		}
+		if(argsList.isEmpty()) {
+			statements.remove(sql);
+		}
+	}
+
+	private void clear() {
+		statements.clear();
+		types.clear();
+		insertedTaskIds.clear();
+		deletedTaskIds.clear();
+	}
+}
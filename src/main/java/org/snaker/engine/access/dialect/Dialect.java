@@ -44,4 +44,43 @@ public interface Dialect {
 	 * @return
 	 */
 	public String getPageAfter(int pageNo, int pageSize);
+	
+	/**
+	 * 游标分页：sql已包含游标条件及排序，返回只取前pageSize条记录的sql语句
+	 * 与getPageSql不同，不需要跳过前面的记录，任意页的代价与第一页相同
+	 * @param sql 包含游标条件及order by的sql语句
+	 * @param pageSize 取的记录数
+	 * @return
+	 */
+	public String getSeekSql(String sql, int pageSize);
+	
+	/**
+	 * 按起始位置、记录数获取分页sql语句before字符串
+	 * 与getPageBefore不同，取的记录数可以不等于每页记录数（如多取一条判断是否有下一页）
+	 * @param start 跳过的记录数
+	 * @param limit 取的记录数
+	 * @return
+	 */
+	public String getLimitBefore(long start, int limit);
+	
+	/**
+	 * 按起始位置、记录数获取分页sql语句after字符串
+	 * @param start 跳过的记录数
+	 * @param limit 取的记录数
+	 * @return
+	 */
+	public String getLimitAfter(long start, int limit);
+	
+	/**
+	 * 获取从数据库统计信息中查询表记录数的sql语句，参数为表名
+	 * 统计信息不考虑查询条件且可能滞后，只能作为近似值
+	 * @return 不支持时返回null
+	 */
+	public String getEstimateCountSql();
+	
+	/**
+	 * 获取in列表允许的最大参数个数，超出时批量查询需要分批执行
+	 * @return
+	 */
+	public int getInListLimit();
 }
@@ -34,14 +34,47 @@ public class MySqlDialect implements Dialect {
 
 	@Override
 	public String getPageBefore(int pageNo, int pageSize) {
-		return "";
+		return getLimitBefore((long)(pageNo - 1) * pageSize, pageSize);
 	}
 
 	@Override
 	public String getPageAfter(int pageNo, int pageSize) {
-		long start = (pageNo - 1) * pageSize;
+		return getLimitAfter((long)(pageNo - 1) * pageSize, pageSize);
+	}
+
+	@Override
+	public String getLimitBefore(long start, int limit) {
+		return "";
+	}
+
+	@Override
+	public String getLimitAfter(long start, int limit) {
 		StringBuffer sb = new StringBuffer();
-		sb.append(" limit ").append(start).append(",").append(pageSize);
+		sb.append(" limit ").append(start).append(",").append(limit);
 		return sb.toString();
 	}
-}
+
+	/**
+	 * mysql游标分页直接limit，无偏移量
+	 */
+	@Override
+	public String getSeekSql(String sql, int pageSize) {
+		return sql + " limit " + pageSize;
+	}
+
+	/**
+	 * mysql从information_schema取表的统计行数（innodb为估算值）
+	 */
+	@Override
+	public String getEstimateCountSql() {
+		return "select table_rows from information_schema.tables where table_schema = database() and table_name = ?";
+	}
+
+	/**
+	 * mysql没有in列表个数限制，按1000分批避免语句过长
+	 */
+	@Override
+	public int getInListLimit() {
+		return 1000;
+	}
+}
\ No newline at end of file
@@ -34,17 +34,50 @@ public class OracleDialect implements Dialect {
 
 	@Override
 	public String getPageBefore(int pageNo, int pageSize) {
-		return "select * from ( select row_.*, rownum rownum_ from ( ";
+		return getLimitBefore((long)(pageNo - 1) * pageSize, pageSize);
 	}
 
 	@Override
 	public String getPageAfter(int pageNo, int pageSize) {
-		long start = (pageNo - 1) * pageSize + 1;
+		return getLimitAfter((long)(pageNo - 1) * pageSize, pageSize);
+	}
+
+	@Override
+	public String getLimitBefore(long start, int limit) {
+		return "select * from ( select row_.*, rownum rownum_ from ( ";
+	}
+
+	@Override
+	public String getLimitAfter(long start, int limit) {
 		StringBuffer after = new StringBuffer();
 		after.append(" ) row_ where rownum < ");
-		after.append(start + pageSize);
+		after.append(start + limit + 1);
 		after.append(" ) where rownum_ >= ");
-		after.append(start);
+		after.append(start + 1);
 		return after.toString();
 	}
-}
+
+	/**
+	 * oracle游标分页只需外层rownum限制条数，rownum条件可提前终止索引扫描
+	 */
+	@Override
+	public String getSeekSql(String sql, int pageSize) {
+		return "select * from ( " + sql + " ) where rownum <= " + pageSize;
+	}
+
+	/**
+	 * oracle取当前用户表最近一次收集统计信息时的行数
+	 */
+	@Override
+	public String getEstimateCountSql() {
+		return "select num_rows from user_tables where table_name = upper(?)";
+	}
+
+	/**
+	 * oracle的in列表最多1000个表达式(ORA-01795)
+	 */
+	@Override
+	public int getInListLimit() {
+		return 1000;
+	}
+}
\ No newline at end of file
@@ -27,12 +27,45 @@ public class SQLServerDialect implements Dialect {
 
 	@Override
 	public String getPageBefore(int pageNo, int pageSize) {
-		return "select top " + pageSize + " * from (select row_number() over (order by id asc) row_number, * from (";
+		return getLimitBefore((long)(pageNo - 1) * pageSize, pageSize);
 	}
 
 	@Override
 	public String getPageAfter(int pageNo, int pageSize) {
-		long start = (pageNo - 1) * pageSize;
+		return getLimitAfter((long)(pageNo - 1) * pageSize, pageSize);
+	}
+
+	@Override
+	public String getLimitBefore(long start, int limit) {
+		return "select top " + limit + " * from (select row_number() over (order by id asc) row_number, * from (";
+	}
+
+	@Override
+	public String getLimitAfter(long start, int limit) {
 		return ") aa ) a where row_number > " + start + " order by row_number";
 	}
-}
+
+	/**
+	 * sqlserver游标分页在select后加top，保留原有的order by
+	 */
+	@Override
+	public String getSeekSql(String sql, int pageSize) {
+		return sql.replaceFirst("(?i)^\\s*select\\s", "select top " + pageSize + " ");
+	}
+
+	/**
+	 * sqlserver取堆或聚集索引分区上维护的行数
+	 */
+	@Override
+	public String getEstimateCountSql() {
+		return "select sum(p.rows) from sys.partitions p where p.object_id = object_id(?) and p.index_id in (0,1)";
+	}
+
+	/**
+	 * sqlserver单条语句最多2100个参数
+	 */
+	@Override
+	public int getInListLimit() {
+		return 2000;
+	}
+}
\ No newline at end of file
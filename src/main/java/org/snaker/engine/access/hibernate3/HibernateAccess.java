@@ -15,6 +15,7 @@
 package org.snaker.engine.access.hibernate3;
 
 import java.sql.Blob;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -23,12 +24,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.hibernate.Hibernate;
 import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.snaker.engine.SnakerException;
 import org.snaker.engine.access.AbstractDBAccess;
+import org.snaker.engine.access.EntityCache;
 import org.snaker.engine.access.Page;
+import org.snaker.engine.access.RowCallback;
+import org.snaker.engine.access.UnitOfWork;
 import org.snaker.engine.DBAccess;
+import org.snaker.engine.entity.Counter;
+import org.snaker.engine.entity.Job;
 import org.snaker.engine.entity.Order;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.entity.Task;
@@ -70,6 +79,7 @@ public class HibernateAccess extends AbstractDBAccess implements DBAccess {
 	 * 取得hibernate当前Session对象
 	 */
 	public Session getSession() {
+		UnitOfWork.checkAttached();
 		return Hibernate3Helper.getSession(sessionFactory);
 	}
 	
@@ -103,6 +113,15 @@ public class HibernateAccess extends AbstractDBAccess implements DBAccess {
 		getSession().saveOrUpdate(process);
 	}
 	
+	/**
+	 * hibernate查询的对象由session管理，缓存的副本会与session中的对象冲突，
+	 * 需要缓存时使用hibernate自身的二级缓存
+	 */
+	@Override
+	public EntityCache getEntityCache() {
+		return null;
+	}
+	
 	@Override
 	public void deleteTask(Task task) {
 		List<TaskActor> actors = getTaskActorsByTaskId(task.getId());
@@ -114,6 +133,7 @@ public class HibernateAccess extends AbstractDBAccess implements DBAccess {
 
 	@Override
 	public void deleteOrder(Order order) {
+		deleteCounter(order.getId());
 		getSession().delete(order);
 	}
 	
@@ -127,6 +147,142 @@ public class HibernateAccess extends AbstractDBAccess implements DBAccess {
 		}
 	}
 
+	/**
+	 * 计数器不做实体映射，直接使用sql操作，避免session缓存的计数器状态与数据库不一致
+	 */
+	@Override
+	public void saveCounter(Counter counter) {
+		executeUpdate(COUNTER_INSERT, counter.getOrderId(), counter.getNodeName(), 
+				counter.getTotal(), counter.getRemain());
+	}
+	
+	@Override
+	public Integer decreaseCounter(String orderId, String nodeName) {
+		executeUpdate(COUNTER_DECREASE, orderId, nodeName);
+		Counter counter = getCounter(orderId, nodeName);
+		return counter == null ? null : counter.getRemain();
+	}
+	
+	@Override
+	public void increaseCounter(String orderId, String nodeName, int total, int remain) {
+		executeUpdate(COUNTER_INCREASE, total, remain, orderId, nodeName);
+	}
+	
+	@Override
+	public Counter getCounter(String orderId, String nodeName) {
+		SQLQuery query = getSession().createSQLQuery(QUERY_COUNTER + " where order_Id = ? and node_Name = ?");
+		query.setParameter(0, orderId);
+		query.setParameter(1, nodeName);
+		Object[] row = (Object[])query.uniqueResult();
+		if(row == null) return null;
+		Counter counter = new Counter();
+		counter.setOrderId((String)row[0]);
+		counter.setNodeName((String)row[1]);
+		counter.setTotal((int)ClassHelper.castLong(row[2]));
+		counter.setRemain((int)ClassHelper.castLong(row[3]));
+		return counter;
+	}
+	
+	@Override
+	public void deleteCounter(String orderId, String... nodeNames) {
+		StringBuffer sql = new StringBuffer(COUNTER_DELETE);
+		Object[] args = new Object[nodeNames.length + 1];
+		args[0] = orderId;
+		if(nodeNames.length > 0) {
+			sql.append(" and node_Name in (");
+			for(int i = 0; i < nodeNames.length; i++) {
+				sql.append("?,");
+				args[i + 1] = nodeNames[i];
+			}
+			sql.deleteCharAt(sql.length() - 1);
+			sql.append(") ");
+		}
+		executeUpdate(sql.toString(), args);
+	}
+	
+	/**
+	 * 异步作业与计数器相同，不做实体映射，直接使用sql操作
+	 */
+	@Override
+	public void saveJob(Job job) {
+		executeUpdate(JOB_INSERT, job.getId(), job.getOrderId(), job.getTaskId(), job.getNodeName(), job.getOperator(), 
+				job.getJobState(), job.getRetries(), job.getNextTime(), job.getCreateTime(), job.getVariable());
+	}
+	
+	@Override
+	public void updateJob(Job job) {
+		executeUpdate(JOB_UPDATE, job.getJobState(), job.getOwner(), job.getRetries(), 
+				job.getNextTime(), job.getErrorMsg(), job.getId());
+	}
+	
+	@Override
+	public boolean deleteJob(String id, String owner) {
+		return executeUpdate(JOB_DELETE, id, owner) != 0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Job> takeJobs(String owner, String time, String staleTime, int limit) {
+		SQLQuery query = getSession().createSQLQuery("select id from wf_job " + JOB_RUNNABLE + " order by next_Time");
+		query.setParameter(0, time);
+		query.setParameter(1, staleTime);
+		query.setMaxResults(limit);
+		List<String> ids = (List<String>)query.list();
+		if(ids.isEmpty()) return Collections.emptyList();
+		StringBuffer sql = new StringBuffer(JOB_TAKE);
+		Object[] args = new Object[ids.size() + 4];
+		args[0] = owner;
+		args[1] = time;
+		args[2] = time;
+		args[3] = staleTime;
+		sql.append(" and id in (");
+		for(int i = 0; i < ids.size(); i++) {
+			sql.append("?,");
+			args[i + 4] = ids.get(i);
+		}
+		sql.deleteCharAt(sql.length() - 1);
+		sql.append(") ");
+		executeUpdate(sql.toString(), args);
+		
+		query = getSession().createSQLQuery(QUERY_JOB + " where owner = ? and job_State = 1");
+		query.setParameter(0, owner);
+		List<Job> jobs = new ArrayList<Job>();
+		for(Object[] row : (List<Object[]>)query.list()) {
+			Job job = new Job();
+			job.setId((String)row[0]);
+			job.setOrderId((String)row[1]);
+			job.setTaskId((String)row[2]);
+			job.setNodeName((String)row[3]);
+			job.setOperator((String)row[4]);
+			job.setJobState((int)ClassHelper.castLong(row[5]));
+			job.setOwner((String)row[6]);
+			job.setLockTime((String)row[7]);
+			job.setNextTime((String)row[8]);
+			job.setRetries((int)ClassHelper.castLong(row[9]));
+			job.setCreateTime((String)row[10]);
+			job.setErrorMsg((String)row[11]);
+			job.setVariable((String)row[12]);
+			jobs.add(job);
+		}
+		return jobs;
+	}
+	
+	/**
+	 * 执行原生sql更新，执行前先flush session，保证sql执行顺序与调用顺序一致
+	 * @param sql
+	 * @param args
+	 * @return 影响的行数
+	 */
+	private int executeUpdate(String sql, Object... args) {
+		Session session = getSession();
+		session.flush();
+		SQLQuery query = session.createSQLQuery(sql);
+		for(int i = 0; i < args.length; i++) {
+			query.setParameter(i, args[i]);
+		}
+		return query.executeUpdate();
+	}
+
 	@Override
 	public boolean isORM() {
 		return true;
@@ -159,34 +315,70 @@ public class HibernateAccess extends AbstractDBAccess implements DBAccess {
 		return (List<T>)query.list();
 	}
 	
+	/**
+	 * 使用独立的StatelessSession、只进的ScrollableResults逐行回调
+	 * StatelessSession没有一级缓存，已处理的对象不会累积在session中
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected <T> void queryStream(Class<T> T, String sql, RowCallback<T> callback, Object... args) {
+		StatelessSession session = sessionFactory.openStatelessSession();
+		ScrollableResults results = null;
+		try {
+			SQLQuery query = session.createSQLQuery(sql);
+			query.addEntity(T);
+			for (int i = 0; i < args.length; i++) {
+				query.setParameter(i, args[i]);
+			}
+			query.setFetchSize(getStreamFetchSize());
+			query.setReadOnly(true);
+			results = query.scroll(ScrollMode.FORWARD_ONLY);
+			while(results.next()) {
+				callback.handle((T)results.get(0));
+			}
+		} finally {
+			if(results != null) results.close();
+			session.close();
+		}
+	}
+	
+	@Override
+	protected Object queryScalar(String sql, Object... args) {
+		SQLQuery query = getSession().createSQLQuery(sql);
+		for (int i = 0; i < args.length; i++) {
+			query.setParameter(i, args[i]);
+		}
+		return query.uniqueResult();
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
-	public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, Object... args) {
+	public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, final Object... args) {
 		try {
-			String countSQL = "select count(1) from (" + sql + ") c ";
+			final String countSQL = "select count(1) from (" + sql + ") c ";
 			String querySQL = sql;
 			if(page.isOrderBySetted()) {
 				querySQL = querySQL + StringHelper.buildPageOrder(page.getOrder(), page.getOrderBy());
 			}
-			SQLQuery countQuery = getSession().createSQLQuery(countSQL);
 			SQLQuery pageQuery = getSession().createSQLQuery(querySQL);
 			pageQuery.addEntity(T);
 			if(args.length > 0) {
 				for (int i = 0; i < args.length; i++) {
 					pageQuery.setParameter(i, args[i]);
-					countQuery.setParameter(i, args[i]);
 				}
 			}
 			//判断是否需要分页（根据pageSize判断）
 			if(page.getPageSize() != Page.NON_PAGE) {
 				pageQuery.setFirstResult((page.getPageNo() - 1) * page.getPageSize());
-				pageQuery.setMaxResults(page.getPageSize());
+				pageQuery.setMaxResults(getFetchSize(page));
 			}
 			List<T> list = pageQuery.list();
-			Object total = countQuery.uniqueResult();
-			page.setResult(list);
-			page.setTotalCount(ClassHelper.castLong(total));
-			return list;
+			countPage(page, getCountKey(countSQL, args), getEstimateTable(sql), new CountCallback() {
+				public long count() {
+					return ClassHelper.castLong(queryScalar(countSQL, args));
+				}
+			});
+			return setPageResult(page, list);
 		} catch(RuntimeException e) {
 			log.error(e.getMessage(), e);
 			return Collections.emptyList();
@@ -0,0 +1,214 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access.jdbc;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.cglib.beans.BulkBean;
+import net.sf.cglib.reflect.FastClass;
+
+import org.apache.commons.beanutils.ConvertUtils;
+import org.snaker.engine.SnakerException;
+
+/**
+ * 结果集到bean对象的映射计划
+ * 按(bean的class类型, 结果集字段列表)构造一次并缓存：字段索引、属性类型在构造时确定，
+ * 通过cglib生成的FastClass实例化对象、BulkBean一次调用所有setter，
+ * 映射每行记录时不再查询元数据、转换字段名称或反射设置属性。
+ * @author yuqs
+ * @version 1.0
+ * @param <T>
+ */
+public class BeanRowMapping<T> {
+	/**
+	 * class类型->可写属性（属性名小写、下划线形式->属性描述符）
+	 */
+	private static final ConcurrentMap<Class<?>, Map<String, PropertyDescriptor>> properties = 
+			new ConcurrentHashMap<Class<?>, Map<String, PropertyDescriptor>>();
+	/**
+	 * class类型+字段列表->映射计划
+	 */
+	private static final ConcurrentMap<String, BeanRowMapping<?>> mappings = 
+			new ConcurrentHashMap<String, BeanRowMapping<?>>();
+	/**
+	 * 实例化bean对象的FastClass
+	 */
+	private final FastClass fastClass;
+	/**
+	 * 设置属性的BulkBean，没有可映射的字段时为null
+	 */
+	private final BulkBean bulkBean;
+	/**
+	 * 映射的结果集字段索引
+	 */
+	private final int[] indexes;
+	/**
+	 * 映射的属性类型
+	 */
+	private final Class<?>[] types;
+
+	private BeanRowMapping(Class<T> mappedClass, ResultSetMetaData rsmd) throws SQLException {
+		Map<String, PropertyDescriptor> mappedFields = getProperties(mappedClass);
+		List<Integer> indexList = new ArrayList<Integer>();
+		List<PropertyDescriptor> pdList = new ArrayList<PropertyDescriptor>();
+		for (int index = 1; index <= rsmd.getColumnCount(); index++) {
+			String column = JdbcHelper.lookupColumnName(rsmd, index);
+			PropertyDescriptor pd = mappedFields.get(column.replaceAll(" ", "").toLowerCase());
+			if (pd != null) {
+				indexList.add(index);
+				pdList.add(pd);
+			}
+		}
+		int size = pdList.size();
+		this.indexes = new int[size];
+		this.types = new Class<?>[size];
+		String[] getters = new String[size];
+		String[] setters = new String[size];
+		for (int i = 0; i < size; i++) {
+			PropertyDescriptor pd = pdList.get(i);
+			indexes[i] = indexList.get(i);
+			types[i] = pd.getPropertyType();
+			getters[i] = pd.getReadMethod() == null ? null : pd.getReadMethod().getName();
+			setters[i] = pd.getWriteMethod().getName();
+		}
+		this.fastClass = FastClass.create(mappedClass);
+		this.bulkBean = size == 0 ? null : BulkBean.create(mappedClass, getters, setters, types);
+	}
+
+	/**
+	 * 根据bean的class类型、结果集元数据返回缓存的映射计划
+	 * @param mappedClass
+	 * @param rsmd
+	 * @return
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> BeanRowMapping<T> getMapping(Class<T> mappedClass, ResultSetMetaData rsmd) throws SQLException {
+		StringBuilder key = new StringBuilder(mappedClass.getName());
+		for (int index = 1; index <= rsmd.getColumnCount(); index++) {
+			key.append(',').append(JdbcHelper.lookupColumnName(rsmd, index));
+		}
+		BeanRowMapping<?> mapping = mappings.get(key.toString());
+		if (mapping == null) {
+			mapping = new BeanRowMapping<T>(mappedClass, rsmd);
+			BeanRowMapping<?> exists = mappings.putIfAbsent(key.toString(), mapping);
+			if (exists != null) mapping = exists;
+		}
+		return (BeanRowMapping<T>)mapping;
+	}
+
+	/**
+	 * 创建映射一行记录使用的字段值数组，同一结果集的各行可重复使用
+	 * @return
+	 */
+	public Object[] newValues() {
+		return new Object[indexes.length];
+	}
+
+	/**
+	 * 将结果集的当前行映射为bean对象
+	 * @param rs 结果集
+	 * @param values newValues()创建的字段值数组
+	 * @return
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public T mapRow(ResultSet rs, Object[] values) throws SQLException {
+		T mappedObject;
+		try {
+			mappedObject = (T)fastClass.newInstance();
+		} catch (InvocationTargetException e) {
+			throw new SnakerException(e.getMessage(), e.getTargetException());
+		}
+		if (bulkBean == null) return mappedObject;
+		for (int i = 0; i < indexes.length; i++) {
+			Class<?> type = types[i];
+			Object value = JdbcHelper.getResultSetValue(rs, indexes[i], type);
+			if (value == null) {
+				if (type.isPrimitive()) {
+					value = ConvertUtils.convert((String)null, type);
+				}
+			} else if (!type.isPrimitive() && !type.isInstance(value)) {
+				value = ConvertUtils.convert(value, type);
+			}
+			values[i] = value;
+		}
+		bulkBean.setPropertyValues(mappedObject, values);
+		return mappedObject;
+	}
+
+	/**
+	 * 返回class类型的可写属性，属性名称同时按小写及下划线形式（如taskId->task_id）索引
+	 * @param mappedClass
+	 * @return
+	 */
+	private static Map<String, PropertyDescriptor> getProperties(Class<?> mappedClass) {
+		Map<String, PropertyDescriptor> mappedFields = properties.get(mappedClass);
+		if (mappedFields != null) return mappedFields;
+		mappedFields = new HashMap<String, PropertyDescriptor>();
+		BeanInfo beanInfo = null;
+		try {
+			beanInfo = Introspector.getBeanInfo(mappedClass);
+		} catch (IntrospectionException e) {
+			throw new SnakerException("Bean introspection failed: " + e.getMessage(), e);
+		}
+		for (PropertyDescriptor pd : beanInfo.getPropertyDescriptors()) {
+			if (pd.getWriteMethod() != null) {
+				mappedFields.put(pd.getName().toLowerCase(), pd);
+				String underscoredName = underscoreName(pd.getName());
+				if (!pd.getName().toLowerCase().equals(underscoredName)) {
+					mappedFields.put(underscoredName, pd);
+				}
+			}
+		}
+		properties.putIfAbsent(mappedClass, mappedFields);
+		return mappedFields;
+	}
+
+	/**
+	 * 属性名称转换为下划线，如taskId->task_id
+	 * @param name
+	 * @return
+	 */
+	private static String underscoreName(String name) {
+		StringBuilder result = new StringBuilder();
+		if (name != null && name.length() > 0) {
+			result.append(name.substring(0, 1).toLowerCase());
+			for (int i = 1; i < name.length(); i++) {
+				String s = name.substring(i, i + 1);
+				if (s.equals(s.toUpperCase())) {
+					result.append("_");
+					result.append(s.toLowerCase());
+				} else {
+					result.append(s);
+				}
+			}
+		}
+		return result.toString();
+	}
+}
@@ -16,6 +16,7 @@ package org.snaker.engine.access.jdbc;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
@@ -24,12 +25,14 @@ import java.util.Map;
 import javax.sql.DataSource;
 
 import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.handlers.ScalarHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaker.engine.SnakerException;
 import org.snaker.engine.access.AbstractDBAccess;
 import org.snaker.engine.access.Page;
+import org.snaker.engine.access.RowCallback;
 import org.snaker.engine.DBAccess;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.helper.ClassHelper;
@@ -78,6 +81,68 @@ public class JdbcAccess extends AbstractDBAccess implements DBAccess {
     private Connection getConnection() throws SQLException {
     	return JdbcHelper.getConnection(dataSource);
     }
+    
+	/**
+	 * 执行查询，事务连接上复用缓存的预编译语句
+	 * @see StatementCache
+	 */
+	private <R> R query(Connection conn, String sql, ResultSetHandler<R> rsh, Object... params) throws SQLException {
+		StatementCache cache = StatementCache.get(conn);
+		if(cache == null) {
+			return runner.query(conn, sql, rsh, params);
+		}
+		ResultSet rs = null;
+		try {
+			PreparedStatement pstmt = cache.prepare(sql);
+			runner.fillStatement(pstmt, params);
+			rs = pstmt.executeQuery();
+			return rsh.handle(rs);
+		} catch (SQLException e) {
+			cache.evict(sql);
+			throw e;
+		} finally {
+			JdbcHelper.close(rs);
+		}
+	}
+	
+	/**
+	 * 执行更新，事务连接上复用缓存的预编译语句
+	 */
+	private int update(Connection conn, String sql, Object... params) throws SQLException {
+		StatementCache cache = StatementCache.get(conn);
+		if(cache == null) {
+			return runner.update(conn, sql, params);
+		}
+		try {
+			PreparedStatement pstmt = cache.prepare(sql);
+			runner.fillStatement(pstmt, params);
+			return pstmt.executeUpdate();
+		} catch (SQLException e) {
+			cache.evict(sql);
+			throw e;
+		}
+	}
+	
+	/**
+	 * 批量执行，事务连接上复用缓存的预编译语句
+	 */
+	private int[] batch(Connection conn, String sql, Object[][] params) throws SQLException {
+		StatementCache cache = StatementCache.get(conn);
+		if(cache == null) {
+			return runner.batch(conn, sql, params);
+		}
+		try {
+			PreparedStatement pstmt = cache.prepare(sql);
+			for(Object[] args : params) {
+				runner.fillStatement(pstmt, args);
+				pstmt.addBatch();
+			}
+			return pstmt.executeBatch();
+		} catch (SQLException e) {
+			cache.evict(sql);
+			throw e;
+		}
+	}
 
 	/**
 	 * 使用原生JDBC操作BLOB字段
@@ -141,12 +206,13 @@ public class JdbcAccess extends AbstractDBAccess implements DBAccess {
      * @return 指定列的结果对象
      */
     public Object query(int column, String sql, Object... params) {
+    	flushUnitOfWork();
     	Object result;
         try {
         	if(log.isDebugEnabled()) {
         		log.debug("查询单列数据=\n" + sql);
         	}
-            result = runner.query(getConnection(), sql, new ScalarHandler<Object>(column), params);
+            result = query(getConnection(), sql, new ScalarHandler<Object>(column), params);
         } catch (SQLException e) {
             log.error(e.getMessage(), e);
             throw new RuntimeException(e.getMessage(), e);
@@ -154,6 +220,52 @@ public class JdbcAccess extends AbstractDBAccess implements DBAccess {
         return result;
     }
     
+	/**
+	 * 使用独立的只读连接、只进游标及配置的fetch size逐行读取
+	 * 独立连接不参与当前事务，读不到当前事务未提交的写入
+	 */
+	@Override
+	protected <T> void queryStream(Class<T> T, String sql, RowCallback<T> callback, Object... args) {
+		Connection conn = null;
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try {
+			conn = dataSource != null ? dataSource.getConnection() : JdbcHelper.getDataSource().getConnection();
+			conn.setReadOnly(true);
+			if(log.isDebugEnabled()) {
+				log.debug("流式查询=\n" + sql);
+			}
+			pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			pstmt.setFetchSize(getStreamFetchSize());
+			runner.fillStatement(pstmt, args);
+			rs = pstmt.executeQuery();
+			BeanRowMapping<T> mapping = BeanRowMapping.getMapping(T, rs.getMetaData());
+			Object[] values = mapping.newValues();
+			while(rs.next()) {
+				callback.handle(mapping.mapRow(rs, values));
+			}
+		} catch (SQLException e) {
+			log.error(e.getMessage(), e);
+			throw new SnakerException(e.getMessage(), e);
+		} finally {
+			try {
+				JdbcHelper.close(rs);
+				JdbcHelper.close(pstmt);
+				if(conn != null) {
+					conn.setReadOnly(false);
+					JdbcHelper.close(conn);
+				}
+			} catch (SQLException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+	}
+	
+	@Override
+	protected Object queryScalar(String sql, Object... args) {
+		return query(1, sql, args);
+	}
+    
 	@Override
 	public boolean isORM() {
 		return false;
@@ -161,27 +273,55 @@ public class JdbcAccess extends AbstractDBAccess implements DBAccess {
 
 	@Override
 	public void saveOrUpdate(Map<String, Object> map) {
-		String sql = (String)map.get(KEY_SQL);
-		Object[] args = (Object[])map.get(KEY_ARGS);
+		saveOrUpdate((String)map.get(KEY_SQL), (Object[])map.get(KEY_ARGS), (int[])map.get(KEY_TYPE));
+	}
+	
+	/**
+	 * 直接使用sql、参数执行，不再构造map
+	 */
+	@Override
+	protected void saveOrUpdate(String sql, Object[] args, int[] type) {
+		updateCount(sql, args, type);
+	}
+	
+	@Override
+	protected int updateCount(String sql, Object[] args, int[] type) {
         try {
         	if(log.isDebugEnabled()) {
         		log.debug("增删改数据(需手动提交事务)=\n" + sql);
         	}
-            runner.update(getConnection(), sql, args);
+            return update(getConnection(), sql, args);
         } catch (SQLException e) {
         	log.error(e.getMessage(), e);
             throw new RuntimeException(e.getMessage(), e);
         }
 	}
 
+	/**
+	 * 使用dbutils的batch方法批量执行
+	 */
+	@Override
+	protected void saveOrUpdateBatch(String sql, List<Object[]> argsList, int[] type) {
+		try {
+			if(log.isDebugEnabled()) {
+				log.debug("批量增删改数据(需手动提交事务)[" + argsList.size() + "]=\n" + sql);
+			}
+			batch(getConnection(), sql, argsList.toArray(new Object[argsList.size()][]));
+		} catch (SQLException e) {
+			log.error(e.getMessage(), e);
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
 	@Override
 	public <T> T queryObject(Class<T> T, String sql, Object... args) {
+		flushUnitOfWork();
     	List<T> result = null;
         try {
         	if(log.isDebugEnabled()) {
         		log.debug("查询单条记录=\n" + sql);
         	}
-        	result = runner.query(getConnection(), sql, new BeanPropertyHandler<T>(T), args);
+        	result = query(getConnection(), sql, new BeanPropertyHandler<T>(T), args);
         	return JdbcHelper.requiredSingleResult(result);
         } catch (SQLException e) {
         	log.error(e.getMessage(), e);
@@ -191,11 +331,12 @@ public class JdbcAccess extends AbstractDBAccess implements DBAccess {
 
 	@Override
 	public <T> List<T> queryList(Class<T> T, String sql, Object... args) {
+		flushUnitOfWork();
         try {
         	if(log.isDebugEnabled()) {
         		log.debug("查询单条记录=\n" + sql);
         	}
-        	return runner.query(getConnection(), sql, new BeanPropertyHandler<T>(T), args);
+        	return query(getConnection(), sql, new BeanPropertyHandler<T>(T), args);
         } catch (SQLException e) {
         	log.error(e.getMessage(), e);
             return Collections.emptyList();
@@ -203,23 +344,25 @@ public class JdbcAccess extends AbstractDBAccess implements DBAccess {
 	}
 	
 	@Override
-	public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, Object... args) {
-		String countSQL = "select count(1) from (" + sql + ") c ";
+	public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, final Object... args) {
+		flushUnitOfWork();
+		final String countSQL = "select count(1) from (" + sql + ") c ";
 		String querySQL = sql;
 		if(page.isOrderBySetted()) {
 			querySQL = sql + StringHelper.buildPageOrder(page.getOrder(), page.getOrderBy());
 		}
 		//判断是否需要分页（根据pageSize判断）
 		if(page.getPageSize() != Page.NON_PAGE) {
-			querySQL = getDialect().getPageSql(querySQL, page.getPageNo(), page.getPageSize());
+			querySQL = getPageSql(page, querySQL);
 		}
 		try {
-			Object count = query(1, countSQL, args);
-			List<T> list = runner.query(getConnection(), sql, new BeanPropertyHandler<T>(T), args);
-			if(list == null) list = Collections.emptyList();
-			page.setResult(list);
-			page.setTotalCount(ClassHelper.castLong(count));
-			return list;
+			countPage(page, getCountKey(countSQL, args), getEstimateTable(sql), new CountCallback() {
+				public long count() {
+					return ClassHelper.castLong(query(1, countSQL, args));
+				}
+			});
+			List<T> list = query(getConnection(), querySQL, new BeanPropertyHandler<T>(T), args);
+			return setPageResult(page, list);
 		} catch(Exception e) {
 			log.error(e.getMessage(), e);
 			return Collections.emptyList();
@@ -0,0 +1,137 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+
+/**
+ * 事务范围内的PreparedStatement缓存
+ * 只缓存当前线程事务绑定的连接上预编译的语句，同一事务中重复执行的语句不再重新解析；
+ * 由事务拦截器在提交或回滚时关闭，不在事务中的连接不使用缓存。
+ * @author yuqs
+ * @version 1.0
+ */
+public class StatementCache {
+	private static final Logger log = LoggerFactory.getLogger(StatementCache.class);
+	/**
+	 * 每个连接缓存的最大语句数
+	 */
+	private static final int MAX_STATEMENTS = 64;
+	/**
+	 * 线程局部容器，用于保持当前事务连接的语句缓存
+	 */
+	private static final ThreadLocal<StatementCache> container = new ThreadLocal<StatementCache>();
+	/**
+	 * 缓存所属的连接
+	 */
+	private final Connection conn;
+	/**
+	 * sql->预编译语句，按访问顺序淘汰，淘汰时关闭语句
+	 */
+	private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if(size() > MAX_STATEMENTS) {
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private StatementCache(Connection conn) {
+		this.conn = conn;
+	}
+
+	/**
+	 * 返回连接对应的语句缓存，连接不是当前线程事务绑定的连接时返回null
+	 * @param conn 数据库连接
+	 * @return
+	 */
+	public static StatementCache get(Connection conn) {
+		if(conn == null || conn != TransactionObjectHolder.get()) return null;
+		StatementCache cache = container.get();
+		if(cache != null && cache.conn != conn) {
+			cache.closeAll();
+			cache = null;
+		}
+		if(cache == null) {
+			cache = new StatementCache(conn);
+			container.set(cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * 返回sql对应的预编译语句，已缓存的语句清除参数后复用
+	 * @param sql sql语句
+	 * @return
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement pstmt = statements.get(sql);
+		if(pstmt == null) {
+			pstmt = conn.prepareStatement(sql);
+			statements.put(sql, pstmt);
+		} else {
+			pstmt.clearParameters();
+		}
+		return pstmt;
+	}
+
+	/**
+	 * 语句执行失败时移出缓存并关闭
+	 * @param sql sql语句
+	 */
+	public void evict(String sql) {
+		closeQuietly(statements.remove(sql));
+	}
+
+	/**
+	 * 关闭当前线程缓存的所有语句，由事务提交或回滚时调用
+	 */
+	public static void close() {
+		StatementCache cache = container.get();
+		if(cache != null) {
+			container.remove();
+			cache.closeAll();
+		}
+	}
+
+	private void closeAll() {
+		for(Iterator<PreparedStatement> it = statements.values().iterator(); it.hasNext();) {
+			closeQuietly(it.next());
+		}
+		statements.clear();
+	}
+
+	private static void closeQuietly(PreparedStatement pstmt) {
+		try {
+			JdbcHelper.close(pstmt);
+		} catch (SQLException e) {
+			log.warn(e.getMessage(), e);
+		}
+	}
+}
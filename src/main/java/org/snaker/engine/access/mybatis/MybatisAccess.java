@@ -14,17 +14,31 @@
  */
 package org.snaker.engine.access.mybatis;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.snaker.engine.access.AbstractDBAccess;
 import org.snaker.engine.access.Page;
+import org.snaker.engine.access.RowCallback;
+import org.snaker.engine.access.UnitOfWork;
+import org.snaker.engine.entity.Counter;
 import org.snaker.engine.entity.HistoryOrder;
 import org.snaker.engine.entity.HistoryTask;
 import org.snaker.engine.entity.HistoryTaskActor;
+import org.snaker.engine.entity.Job;
 import org.snaker.engine.entity.Order;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.entity.Task;
@@ -37,6 +51,10 @@ import org.snaker.engine.entity.WorkItem;
  * @version 1.0
  */
 public class MybatisAccess extends AbstractDBAccess {
+	/**
+	 * 按配置fetch size复制的流式查询语句id后缀
+	 */
+	private static final String STREAM_SUFFIX = "!stream";
 	/**
 	 * mybatis的sqlSessionFactory
 	 */
@@ -58,6 +76,7 @@ public class MybatisAccess extends AbstractDBAccess {
 	}
 	
 	private SqlSession getSession() {
+		UnitOfWork.checkAttached();
 		return MybatisHelper.getSession(sqlSessionFactory);
 	}
 
@@ -91,6 +110,7 @@ public class MybatisAccess extends AbstractDBAccess {
 
 	@Override
 	public void deleteTask(Task task) {
+		evictCached(CACHE_TASK + task.getId());
 		List<TaskActor> actors = getTaskActorsByTaskId(task.getId());
 		for(TaskActor actor : actors) {
 			getSession().delete("TaskActor.DELETE", actor.getTaskId());
@@ -100,6 +120,8 @@ public class MybatisAccess extends AbstractDBAccess {
 
 	@Override
 	public void deleteOrder(Order order) {
+		evictCached(CACHE_ORDER + order.getId());
+		deleteCounter(order.getId());
 		getSession().update("Order.DELETE", order);
 	}
 	
@@ -112,7 +134,66 @@ public class MybatisAccess extends AbstractDBAccess {
 	}
 
 	@Override
-	public Task getTask(String taskId) {
+	public Integer decreaseCounter(String orderId, String nodeName) {
+		SqlSession session = getSession();
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("orderId", orderId);
+		params.put("nodeName", nodeName);
+		session.update("Counter.DECREASE", params);
+		Counter counter = session.selectOne("Counter.SELECTONE", params);
+		return counter == null ? null : counter.getRemain();
+	}
+	
+	@Override
+	public void increaseCounter(String orderId, String nodeName, int total, int remain) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("orderId", orderId);
+		params.put("nodeName", nodeName);
+		params.put("total", total);
+		params.put("remain", remain);
+		getSession().update("Counter.INCREASE", params);
+	}
+	
+	@Override
+	public Counter getCounter(String orderId, String nodeName) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("orderId", orderId);
+		params.put("nodeName", nodeName);
+		return getSession().selectOne("Counter.SELECTONE", params);
+	}
+	
+	@Override
+	public void deleteCounter(String orderId, String... nodeNames) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("orderId", orderId);
+		params.put("nodeNames", nodeNames);
+		getSession().delete("Counter.DELETE", params);
+	}
+	
+	@Override
+	public boolean deleteJob(String id, String owner) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("id", id);
+		params.put("owner", owner);
+		return getSession().delete("Job.DELETE", params) != 0;
+	}
+	
+	@Override
+	public List<Job> takeJobs(String owner, String time, String staleTime, int limit) {
+		SqlSession session = getSession();
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("owner", owner);
+		params.put("time", time);
+		params.put("staleTime", staleTime);
+		List<String> ids = session.selectList("Job.SELECTRUNNABLE", params, new RowBounds(0, limit));
+		if(ids.isEmpty()) return Collections.emptyList();
+		params.put("ids", ids);
+		session.update("Job.TAKE", params);
+		return session.selectList("Job.SELECTTAKEN", params);
+	}
+
+	@Override
+	protected Task findTask(String taskId) {
 		return getSession().selectOne("Task.SELECTONE", taskId);
 	}
 	
@@ -131,12 +212,12 @@ public class MybatisAccess extends AbstractDBAccess {
 	}
 	
 	@Override
-	public HistoryTask getHistTask(String taskId) {
+	protected HistoryTask findHistTask(String taskId) {
 		return getSession().selectOne("HistoryTask.SELECTONE", taskId);
 	}
 	
 	@Override
-	public HistoryOrder getHistOrder(String orderId) {
+	protected HistoryOrder findHistOrder(String orderId) {
 		return getSession().selectOne("HistoryOrder.SELECTONE", orderId);
 	}
 
@@ -151,10 +232,75 @@ public class MybatisAccess extends AbstractDBAccess {
 	}
 
 	@Override
-	public Order getOrder(String orderId) {
+	protected Order findOrder(String orderId) {
 		return getSession().selectOne("Order.SELECTONE", orderId);
 	}
 
+	@Override
+	public Map<String, Task> getTasks(Collection<String> taskIds) {
+		Map<String, Task> map = new LinkedHashMap<String, Task>();
+		for(Task task : this.<Task>selectByIds("Task.SELECTBYIDS", taskIds)) {
+			map.put(task.getId(), task);
+		}
+		return map;
+	}
+
+	@Override
+	public Map<String, HistoryTask> getHistTasks(Collection<String> taskIds) {
+		Map<String, HistoryTask> map = new LinkedHashMap<String, HistoryTask>();
+		for(HistoryTask task : this.<HistoryTask>selectByIds("HistoryTask.SELECTBYIDS", taskIds)) {
+			map.put(task.getId(), task);
+		}
+		return map;
+	}
+
+	@Override
+	public Map<String, Order> getOrders(Collection<String> orderIds) {
+		Map<String, Order> map = new LinkedHashMap<String, Order>();
+		for(Order order : this.<Order>selectByIds("Order.SELECTBYIDS", orderIds)) {
+			map.put(order.getId(), order);
+		}
+		return map;
+	}
+
+	@Override
+	public Map<String, List<TaskActor>> getTaskActors(Collection<String> taskIds) {
+		Map<String, List<TaskActor>> map = newGroupMap(taskIds);
+		for(TaskActor actor : this.<TaskActor>selectByIds("TaskActor.SELECTBYTASKIDS", taskIds)) {
+			List<TaskActor> actors = map.get(actor.getTaskId());
+			if(actors != null) actors.add(actor);
+		}
+		return map;
+	}
+
+	@Override
+	public Map<String, List<HistoryTaskActor>> getHistTaskActors(Collection<String> taskIds) {
+		Map<String, List<HistoryTaskActor>> map = newGroupMap(taskIds);
+		for(HistoryTaskActor actor : this.<HistoryTaskActor>selectByIds("HistoryTaskActor.SELECTBYTASKIDS", taskIds)) {
+			List<HistoryTaskActor> actors = map.get(actor.getTaskId());
+			if(actors != null) actors.add(actor);
+		}
+		return map;
+	}
+
+	/**
+	 * 按in列表限制分批执行参数为ids的statement
+	 * @param statement
+	 * @param ids
+	 * @return
+	 */
+	private <T> List<T> selectByIds(String statement, Collection<String> ids) {
+		List<T> list = new ArrayList<T>();
+		SqlSession session = getSession();
+		for(String[] chunk : splitIds(ids)) {
+			Map<String, Object> params = new HashMap<String, Object>();
+			params.put("ids", chunk);
+			List<T> result = session.selectList(statement, params);
+			list.addAll(result);
+		}
+		return list;
+	}
+
 	@Override
 	public Process getProcess(String idName) {
 		return getSession().selectOne("Process.SELECTONE", idName);
@@ -182,16 +328,32 @@ public class MybatisAccess extends AbstractDBAccess {
 		return getSession().selectList("Query.getActiveTasksByTaskNames", params);
 	}
 
+	@Override
+	public List<Task> getExpiringTasks(String startTime, String endTime) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("startTime", startTime);
+		params.put("endTime", endTime);
+		return getSession().selectList("Query.getExpiringTasks", params);
+	}
+
+	@Override
+	public List<Order> getExpiringOrders(String startTime, String endTime) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("startTime", startTime);
+		params.put("endTime", endTime);
+		return getSession().selectList("Query.getExpiringOrders", params);
+	}
+
 	@Override
 	public List<Process> getProcesss(Page<Process> page, String name, Integer state) {
 		SqlSession session = getSession();
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("name", name);
 		params.put("state", state);
-		buildPageParameter(session, page, params, "Process.getProcesssCount");
+		buildPageParameter(session, page, params, "Process.getProcesssCount", "wf_process");
 		List<Process> list = session.selectList("Process.getProcesss", params);
 		if(page != null) {
-			page.setResult(list);
+			list = setPageResult(page, list);
 		}
 		return list;
 	}
@@ -201,10 +363,10 @@ public class MybatisAccess extends AbstractDBAccess {
 		SqlSession session = getSession();
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("processId", processId);
-		buildPageParameter(session, page, params, "Query.getActiveOrdersCount");
+		buildPageParameter(session, page, params, "Query.getActiveOrdersCount", "wf_order");
 		List<Order> list = session.selectList("Query.getActiveOrders", params);
 		if(page != null) {
-			page.setResult(list);
+			list = setPageResult(page, list);
 		}
 		return list;
 	}
@@ -214,11 +376,11 @@ public class MybatisAccess extends AbstractDBAccess {
 		SqlSession session = getSession();
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("actorIds", actorIds);
-		buildPageParameter(session, page, params, "Query.getActiveTasksCount");
+		buildPageParameter(session, page, params, "Query.getActiveTasksCount", null);
 		params.put("orderby", " order by create_Time desc ");
 		List<Task> list = session.selectList("Query.getActiveTasks", params);
 		if(page != null) {
-			page.setResult(list);
+			list = setPageResult(page, list);
 		}
 		return list;
 	}
@@ -230,11 +392,11 @@ public class MybatisAccess extends AbstractDBAccess {
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("actorIds", actorIds);
 		params.put("processId", processId);
-		buildPageParameter(session, page, params, "Query.getWorkItemsCount");
+		buildPageParameter(session, page, params, "Query.getWorkItemsCount", null);
 		params.put("orderby", " order by t.create_Time desc ");
 		List<WorkItem> list = session.selectList("Query.getWorkItems", params);
 		if(page != null) {
-			page.setResult(list);
+			list = setPageResult(page, list);
 		}
 		return list;
 	}
@@ -245,10 +407,10 @@ public class MybatisAccess extends AbstractDBAccess {
 		SqlSession session = getSession();
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("processIds", processIds);
-		buildPageParameter(session, page, params, "HistoryQuery.getHistoryOrdersCount");
+		buildPageParameter(session, page, params, "HistoryQuery.getHistoryOrdersCount", "wf_hist_order");
 		List<HistoryOrder> list = session.selectList("HistoryQuery.getHistoryOrders", params);
 		if(page != null) {
-			page.setResult(list);
+			list = setPageResult(page, list);
 		}
 		return list;
 	}
@@ -273,11 +435,11 @@ public class MybatisAccess extends AbstractDBAccess {
 		SqlSession session = getSession();
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("actorIds", actorIds);
-		buildPageParameter(session, page, params, "HistoryQuery.getHistoryTasksCount");
+		buildPageParameter(session, page, params, "HistoryQuery.getHistoryTasksCount", null);
 		params.put("orderby", " order by create_Time desc ");
 		List<HistoryTask> list = session.selectList("HistoryQuery.getHistoryTasks", params);
 		if(page != null) {
-			page.setResult(list);
+			list = setPageResult(page, list);
 		}
 		return list;
 	}
@@ -289,22 +451,130 @@ public class MybatisAccess extends AbstractDBAccess {
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("actorIds", actorIds);
 		params.put("processId", processId);
-		buildPageParameter(session, page, params, "HistoryQuery.getWorkItemsCount");
+		buildPageParameter(session, page, params, "HistoryQuery.getWorkItemsCount", null);
 		params.put("orderby", " order by t.create_Time desc ");
 		List<WorkItem> list = session.selectList("HistoryQuery.getWorkItems", params);
 		if(page != null) {
-			page.setResult(list);
+			list = setPageResult(page, list);
 		}
 		return list;
 	}
 	
-	private void buildPageParameter(SqlSession session, Page<?> page, Map<String, Object> params, String statement) {
+	@Override
+	public void streamActiveOrders(RowCallback<Order> callback, String... processIds) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("processId", processIds);
+		select("Query.streamActiveOrders", params, callback);
+	}
+
+	@Override
+	public void streamHistoryOrders(RowCallback<HistoryOrder> callback, String... processIds) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("processIds", processIds);
+		select("HistoryQuery.streamHistoryOrders", params, callback);
+	}
+
+	@Override
+	public void streamHistoryTasks(String orderId, RowCallback<HistoryTask> callback) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("orderId", orderId);
+		select("HistoryQuery.streamHistoryTasksByOrderId", params, callback);
+	}
+	
+	/**
+	 * 使用独立的SqlSession及ResultHandler逐行回调，结果不在session中累积
+	 * fetch size取jdbc.fetchSize配置(mysql需配置为Integer.MIN_VALUE)
+	 * @param statement 查询语句
+	 * @param params 查询参数
+	 * @param callback 行回调
+	 */
+	private <T> void select(String statement, Map<String, Object> params, final RowCallback<T> callback) {
+		SqlSession session = sqlSessionFactory.openSession();
+		try {
+			session.select(getStreamStatement(statement), params, new ResultHandler() {
+				@SuppressWarnings("unchecked")
+				public void handleResult(ResultContext context) {
+					callback.handle((T)context.getResultObject());
+				}
+			});
+		} finally {
+			session.close();
+		}
+	}
+	
+	/**
+	 * mybatis3.2不支持运行期指定fetch size，因此按配置的fetch size复制一份流式查询语句并注册
+	 * @param statement 查询语句
+	 * @return 带有fetch size的查询语句id
+	 */
+	private String getStreamStatement(String statement) {
+		Configuration configuration = sqlSessionFactory.getConfiguration();
+		String id = statement + STREAM_SUFFIX;
+		synchronized(configuration) {
+			if(!configuration.hasStatement(id, false)) {
+				MappedStatement ms = configuration.getMappedStatement(statement);
+				MappedStatement.Builder builder = new MappedStatement.Builder(configuration, id, ms.getSqlSource(), ms.getSqlCommandType())
+						.resource(ms.getResource())
+						.parameterMap(ms.getParameterMap())
+						.resultMaps(ms.getResultMaps())
+						.resultSetType(ms.getResultSetType())
+						.statementType(ms.getStatementType())
+						.timeout(ms.getTimeout())
+						.fetchSize(getStreamFetchSize())
+						.useCache(false)
+						.databaseId(ms.getDatabaseId())
+						.lang(ms.getLang());
+				configuration.addMappedStatement(builder.build());
+			}
+		}
+		return id;
+	}
+	
+	/**
+	 * 按分页对象的统计方式设置总记录数，并设置分页参数
+	 * @param session
+	 * @param page 分页对象
+	 * @param params 查询参数
+	 * @param statement count语句
+	 * @param table 单表查询的主表，用于估算无过滤条件时的总记录数，多表连接时为null
+	 */
+	private void buildPageParameter(final SqlSession session, Page<?> page, final Map<String, Object> params, final String statement, String table) {
 		if(page != null) {
-			params.put("limitBefore", getDialect().getPageBefore(page.getPageNo(), page.getPageSize()));
-			params.put("limitAfter", getDialect().getPageAfter(page.getPageNo(), page.getPageSize()));
-			Long count = getSession().selectOne(statement, params);
-			page.setTotalCount(count);
+			countPage(page, getCountKey(statement, params), getEstimateTable(table, params), new CountCallback() {
+				public long count() {
+					Long count = session.selectOne(statement, params);
+					return count == null ? 0L : count;
+				}
+			});
+			long start = (long)(page.getPageNo() - 1) * page.getPageSize();
+			params.put("limitBefore", getDialect().getLimitBefore(start, getFetchSize(page)));
+			params.put("limitAfter", getDialect().getLimitAfter(start, getFetchSize(page)));
+		}
+	}
+	
+	/**
+	 * 查询参数均为null或空数组（无过滤条件）时返回主表，否则返回null
+	 */
+	private String getEstimateTable(String table, Map<String, Object> params) {
+		for(Map.Entry<String, Object> entry : params.entrySet()) {
+			Object value = entry.getValue();
+			if(value == null || entry.getKey().equals("orderby")) continue;
+			if(value instanceof Object[] && ((Object[])value).length == 0) continue;
+			return null;
+		}
+		return table;
+	}
+	
+	/**
+	 * 按参数名排序构造count缓存的查询签名
+	 */
+	private String getCountKey(String statement, Map<String, Object> params) {
+		List<Object> args = new ArrayList<Object>();
+		for(Map.Entry<String, Object> entry : new TreeMap<String, Object>(params).entrySet()) {
+			args.add(entry.getKey());
+			args.add(entry.getValue());
 		}
+		return getCountKey(statement, args.toArray());
 	}
 
 	@Override
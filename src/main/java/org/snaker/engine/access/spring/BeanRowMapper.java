@@ -0,0 +1,56 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.access.spring;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.snaker.engine.access.jdbc.BeanRowMapping;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 使用缓存的BeanRowMapping映射结果集的RowMapper
+ * 替代每次查询都重新内省bean属性的BeanPropertyRowMapper，每次查询只需创建本对象
+ * @author yuqs
+ * @version 1.0
+ * @param <T>
+ */
+public class BeanRowMapper<T> implements RowMapper<T> {
+	/**
+	 * 需要映射的bean对象的class类型
+	 */
+	private final Class<T> mappedClass;
+	/**
+	 * 第一行记录时取得的映射计划
+	 */
+	private BeanRowMapping<T> mapping;
+	/**
+	 * 各行共用的字段值数组
+	 */
+	private Object[] values;
+
+	public BeanRowMapper(Class<T> mappedClass) {
+		this.mappedClass = mappedClass;
+	}
+
+	@Override
+	public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+		if (mapping == null) {
+			mapping = BeanRowMapping.getMapping(mappedClass, rs.getMetaData());
+			values = mapping.newValues();
+		}
+		return mapping.mapRow(rs, values);
+	}
+}
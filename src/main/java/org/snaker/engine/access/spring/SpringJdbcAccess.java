@@ -14,7 +14,9 @@
  */
 package org.snaker.engine.access.spring;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Collections;
@@ -26,16 +28,19 @@ import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaker.engine.access.AbstractDBAccess;
+import org.snaker.engine.SnakerException;
 import org.snaker.engine.access.Page;
+import org.snaker.engine.access.RowCallback;
 import org.snaker.engine.DBAccess;
 import org.snaker.engine.entity.Process;
-import org.snaker.engine.helper.ClassHelper;
 import org.snaker.engine.helper.StringHelper;
 import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.core.support.AbstractLobCreatingPreparedStatementCallback;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.lob.LobCreator;
 import org.springframework.jdbc.support.lob.LobHandler;
 
@@ -94,22 +99,44 @@ public class SpringJdbcAccess extends AbstractDBAccess implements DBAccess {
 
 	@Override
 	public void saveOrUpdate(Map<String, Object> map) {
-		String sql = (String)map.get(KEY_SQL);
-		Object[] args = (Object[])map.get(KEY_ARGS);
-		int[] type = (int[])map.get(KEY_TYPE);
+		saveOrUpdate((String)map.get(KEY_SQL), (Object[])map.get(KEY_ARGS), (int[])map.get(KEY_TYPE));
+	}
+	
+	/**
+	 * 直接使用sql、参数执行，不再构造map
+	 */
+	@Override
+	protected void saveOrUpdate(String sql, Object[] args, int[] type) {
+		updateCount(sql, args, type);
+	}
+	
+	@Override
+	protected int updateCount(String sql, Object[] args, int[] type) {
 		if(log.isDebugEnabled()) {
 			log.debug("增删改数据(Spring托管事务)=\n" + sql);
 		}
-		template.update(sql, args, type);
+		return template.update(sql, args, type);
+	}
+
+	/**
+	 * 使用JdbcTemplate的batchUpdate方法批量执行
+	 */
+	@Override
+	protected void saveOrUpdateBatch(String sql, List<Object[]> argsList, int[] type) {
+		if(log.isDebugEnabled()) {
+			log.debug("批量增删改数据(Spring托管事务)[" + argsList.size() + "]=\n" + sql);
+		}
+		template.batchUpdate(sql, argsList, type);
 	}
 
 	@Override
 	public <T> T queryObject(Class<T> T, String sql, Object... args) {
+		flushUnitOfWork();
 		if(log.isDebugEnabled()) {
 			log.debug("查询单条数据=\n" + sql);
 		}
 		try {
-			return template.queryForObject(sql, args, new BeanPropertyRowMapper<T>(T));
+			return template.queryForObject(sql, args, new BeanRowMapper<T>(T));
 		} catch(Exception e) {
 			log.error("查询单条数据=\n" + e.getMessage());
 			return null;
@@ -118,43 +145,85 @@ public class SpringJdbcAccess extends AbstractDBAccess implements DBAccess {
 
 	@Override
 	public <T> List<T> queryList(Class<T> T, String sql, Object... args) {
+		flushUnitOfWork();
 		if(log.isDebugEnabled()) {
 			log.debug("查询多条数据=\n" + sql);
 		}
-		return template.query(sql, args, new BeanPropertyRowMapper<T>(T));
+		return template.query(sql, args, new BeanRowMapper<T>(T));
 	}
 
 	@Override
-	public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, Object... args) {
-		String countSQL = "select count(1) from (" + sql + ") c ";
+	public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, final Object... args) {
+		flushUnitOfWork();
+		final String countSQL = "select count(1) from (" + sql + ") c ";
 		String querySQL = sql;
 		if(page.isOrderBySetted()) {
 			querySQL = sql + StringHelper.buildPageOrder(page.getOrder(), page.getOrderBy());
 		}
 		//判断是否需要分页（根据pageSize判断）
 		if(page.getPageSize() != Page.NON_PAGE) {
-			querySQL = getDialect().getPageSql(querySQL, page.getPageNo(), page.getPageSize());
+			querySQL = getPageSql(page, querySQL);
 		}
 		if(log.isDebugEnabled()) {
 			log.debug("查询分页countSQL=\n" + countSQL);
 			log.debug("查询分页querySQL=\n" + querySQL);
 		}
 
-		List<T> tasks = null;
-		long count = 0L;
 		try {
-			count = template.queryForLong(countSQL, args);
-			tasks = template.query(querySQL, args, new BeanPropertyRowMapper<T>(T));
-			if(tasks == null) tasks = Collections.emptyList();
-			page.setResult(tasks);
-			page.setTotalCount(ClassHelper.castLong(count));
-			return page.getResult();
+			countPage(page, getCountKey(countSQL, args), getEstimateTable(sql), new CountCallback() {
+				public long count() {
+					return template.queryForLong(countSQL, args);
+				}
+			});
+			List<T> tasks = template.query(querySQL, args, new BeanRowMapper<T>(T));
+			return setPageResult(page, tasks);
 		} catch(RuntimeException e) {
 			log.error("查询失败" + e.getMessage());
 			return Collections.emptyList();
 		}
 	}
 	
+	/**
+	 * 使用独立的只读连接及配置的fetch size逐行回调
+	 * 独立连接不参与当前事务，读不到当前事务未提交的写入
+	 */
+	@Override
+	protected <T> void queryStream(Class<T> T, String sql, final RowCallback<T> callback, Object... args) {
+		Connection conn = null;
+		try {
+			conn = template.getDataSource().getConnection();
+			conn.setReadOnly(true);
+			JdbcTemplate streamTemplate = new JdbcTemplate(new SingleConnectionDataSource(conn, true));
+			streamTemplate.setFetchSize(getStreamFetchSize());
+			if(log.isDebugEnabled()) {
+				log.debug("流式查询=\n" + sql);
+			}
+			final BeanRowMapper<T> mapper = new BeanRowMapper<T>(T);
+			streamTemplate.query(sql, args, new RowCallbackHandler() {
+				public void processRow(ResultSet rs) throws SQLException {
+					callback.handle(mapper.mapRow(rs, rs.getRow()));
+				}
+			});
+		} catch (SQLException e) {
+			throw new SnakerException(e.getMessage(), e);
+		} finally {
+			if(conn != null) {
+				try {
+					conn.setReadOnly(false);
+				} catch (SQLException e) {
+					log.error(e.getMessage(), e);
+				}
+				JdbcUtils.closeConnection(conn);
+			}
+		}
+	}
+	
+	@Override
+	protected Object queryScalar(String sql, Object... args) {
+		List<Object> list = template.queryForList(sql, args, Object.class);
+		return list.isEmpty() ? null : list.get(0);
+	}
+	
 	public void setLobHandler(LobHandler lobHandler) {
 		this.lobHandler = lobHandler;
 	}
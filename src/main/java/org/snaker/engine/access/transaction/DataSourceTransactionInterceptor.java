@@ -21,6 +21,7 @@ import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaker.engine.access.jdbc.JdbcHelper;
+import org.snaker.engine.access.jdbc.StatementCache;
 import org.snaker.engine.helper.AssertHelper;
 
 /**
@@ -73,6 +74,7 @@ public class DataSourceTransactionInterceptor extends TransactionInterceptor {
             	log.error(e.getMessage(), e);
                 throw new RuntimeException(e.getMessage(), e);
             } finally {
+            	StatementCache.close();
             	TransactionObjectHolder.unbind();
             }
         }
@@ -91,6 +93,7 @@ public class DataSourceTransactionInterceptor extends TransactionInterceptor {
             	log.error(e.getMessage(), e);
                 throw new RuntimeException(e.getMessage(), e);
             } finally {
+            	StatementCache.close();
             	TransactionObjectHolder.unbind();
             }
         }
@@ -14,6 +14,14 @@
  */
 package org.snaker.engine.access.transaction;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * 事务对象保持类
  * 该类用于绑定数据库访问对象（Connection、Session）
@@ -21,10 +29,19 @@ package org.snaker.engine.access.transaction;
  * @version 1.0
  */
 public class TransactionObjectHolder {
+	private static final Logger log = LoggerFactory.getLogger(TransactionObjectHolder.class);
 	/**
 	 * 线程局部容器，用于保持数据库访问对象
 	 */
 	private static final ThreadLocal<Object> container = new ThreadLocal<Object>();
+	/**
+	 * 线程局部容器，用于保持当前事务范围内的一级缓存
+	 */
+	private static final ThreadLocal<Map<String, Object>> cache = new ThreadLocal<Map<String, Object>>();
+	/**
+	 * 线程局部容器，用于保持事务结束（提交或回滚）时执行的回调
+	 */
+	private static final ThreadLocal<List<Runnable>> synchronizations = new ThreadLocal<List<Runnable>>();
 	
 	/**
 	 * 绑定对象
@@ -32,18 +49,63 @@ public class TransactionObjectHolder {
 	 */
 	public static void bind(Object object) {
 		container.set(object);
+		cache.remove();
+		synchronizations.remove();
 	}
 	
 	/**
-	 * 移除对象
+	 * 移除对象，同时清除事务范围内的一级缓存，并执行注册的事务结束回调
 	 * @return
 	 */
 	public static Object unbind() {
 		Object object = container.get();
 		container.remove();
+		cache.remove();
+		List<Runnable> callbacks = synchronizations.get();
+		synchronizations.remove();
+		if(callbacks != null) {
+			for(Runnable callback : callbacks) {
+				try {
+					callback.run();
+				} catch(RuntimeException e) {
+					log.error(e.getMessage(), e);
+				}
+			}
+		}
 		return object;
 	}
 	
+	/**
+	 * 注册事务结束时执行的回调，不存在事务对象时直接执行
+	 * @param callback
+	 */
+	public static void registerSynchronization(Runnable callback) {
+		if(!isExistingTransaction()) {
+			callback.run();
+			return;
+		}
+		List<Runnable> callbacks = synchronizations.get();
+		if(callbacks == null) {
+			callbacks = new ArrayList<Runnable>();
+			synchronizations.set(callbacks);
+		}
+		callbacks.add(callback);
+	}
+	
+	/**
+	 * 返回当前事务范围内的一级缓存，不存在事务对象时返回null
+	 * @return
+	 */
+	public static Map<String, Object> getCache() {
+		if(!isExistingTransaction()) return null;
+		Map<String, Object> map = cache.get();
+		if(map == null) {
+			map = new HashMap<String, Object>();
+			cache.set(map);
+		}
+		return map;
+	}
+	
 	/**
 	 * 返回当前对象
 	 * @return
@@ -14,7 +14,15 @@
  */
 package org.snaker.engine.core;
 
+import java.util.List;
+import java.util.Map;
+
 import org.snaker.engine.DBAccess;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.entity.TaskActor;
+import org.snaker.engine.entity.TaskContext;
 
 /**
  * 作为抽象父类，提供给子类access实现方式
@@ -34,6 +42,12 @@ public abstract class AccessService {
 	 * 状态：终止状态
 	 */
 	public static final Integer STATE_TERMINATION = -1;
+	/**
+	 * 一级缓存key的前缀
+	 */
+	private static final String CACHE_TASK = "task:";
+	private static final String CACHE_TASK_ACTORS = "actors:";
+	private static final String CACHE_ORDER = "order:";
 	/**
 	 * 数据库的access
 	 */
@@ -51,4 +65,110 @@ public abstract class AccessService {
 	public void setAccess(DBAccess access) {
 		this.access = access; 
 	}
+	
+	/**
+	 * 根据id获取任务，同一事务中只查询一次
+	 * @param taskId
+	 * @return
+	 */
+	protected Task loadTask(String taskId) {
+		Task task = getCache(CACHE_TASK + taskId);
+		if(task == null) {
+			task = access().getTask(taskId);
+			putCache(CACHE_TASK + taskId, task);
+		}
+		return task;
+	}
+	
+	/**
+	 * 根据任务id获取参与者集合，同一事务中只查询一次
+	 * @param taskId
+	 * @return
+	 */
+	protected List<TaskActor> loadTaskActors(String taskId) {
+		List<TaskActor> actors = getCache(CACHE_TASK_ACTORS + taskId);
+		if(actors == null) {
+			actors = access().getTaskActorsByTaskId(taskId);
+			putCache(CACHE_TASK_ACTORS + taskId, actors);
+		}
+		return actors;
+	}
+	
+	/**
+	 * 根据id获取流程实例，同一事务中只查询一次
+	 * @param orderId
+	 * @return
+	 */
+	protected Order loadOrder(String orderId) {
+		Order order = getCache(CACHE_ORDER + orderId);
+		if(order == null) {
+			order = access().getOrder(orderId);
+			putCache(CACHE_ORDER + orderId, order);
+		}
+		return order;
+	}
+	
+	/**
+	 * 根据任务id一次获取任务上下文，并放入一级缓存供后续查询使用
+	 * @param taskId
+	 * @return
+	 */
+	protected TaskContext loadTaskContext(String taskId) {
+		TaskContext context = access().loadTaskContext(taskId);
+		if(context != null) {
+			//完成任务时直接使用已加载的参与者，不再查询
+			context.getTask().setActorIds(context.getActorIds());
+			putCache(CACHE_TASK + taskId, context.getTask());
+			putCache(CACHE_TASK_ACTORS + taskId, context.getTaskActors());
+			if(context.getOrder() != null) {
+				putCache(CACHE_ORDER + context.getOrder().getId(), context.getOrder());
+			}
+		}
+		return context;
+	}
+	
+	/**
+	 * 任务删除后移除缓存的任务及参与者
+	 * @param taskId
+	 */
+	protected void evictTask(String taskId) {
+		evictCache(CACHE_TASK + taskId);
+		evictCache(CACHE_TASK_ACTORS + taskId);
+	}
+	
+	/**
+	 * 参与者变更后移除缓存的参与者集合
+	 * @param taskId
+	 */
+	protected void evictTaskActors(String taskId) {
+		evictCache(CACHE_TASK_ACTORS + taskId);
+	}
+	
+	/**
+	 * 流程实例删除后移除缓存的流程实例
+	 * @param orderId
+	 */
+	protected void evictOrder(String orderId) {
+		evictCache(CACHE_ORDER + orderId);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> T getCache(String key) {
+		Map<String, Object> cache = TransactionObjectHolder.getCache();
+		return cache == null ? null : (T)cache.get(key);
+	}
+	
+	private void putCache(String key, Object value) {
+		Map<String, Object> cache = TransactionObjectHolder.getCache();
+		if(cache != null && value != null) {
+			cache.put(key, value);
+		}
+	}
+	
+	private void evictCache(String key) {
+		Map<String, Object> cache = TransactionObjectHolder.getCache();
+		if(cache != null) {
+			cache.remove(key);
+		}
+	}
 }
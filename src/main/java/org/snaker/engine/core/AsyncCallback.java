@@ -0,0 +1,35 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.core;
+
+/**
+ * 异步调用的回调，调用结束后在执行器线程中回调
+ * @author yuqs
+ * @version 1.0
+ * @param <T> 调用结果的类型
+ */
+public interface AsyncCallback<T> {
+	/**
+	 * 调用成功
+	 * @param result
+	 */
+	void onSuccess(T result);
+	
+	/**
+	 * 调用失败，包括执行器拒绝执行
+	 * @param e
+	 */
+	void onFailure(Throwable e);
+}
@@ -0,0 +1,468 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.SnakerEngine;
+import org.snaker.engine.entity.HistoryTask;
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.helper.ConfigHelper;
+import org.snaker.engine.helper.ThreadHelper;
+
+/**
+ * 流程引擎的异步调用门面
+ * 各方法提交到执行器后立即返回Future，由执行器线程调用流程引擎（每次调用在独立的事务中执行），
+ * 传入AsyncCallback时调用完成后在执行器线程中回调，调用方无需阻塞等待Future。
+ * 同一流程实例的调用按提交顺序依次执行，不同流程实例的调用完全并行；
+ * 按任务调用时在提交线程中按主键查询任务所属的流程实例（保证提交顺序），再进入该流程实例的执行队列。
+ * 执行器拒绝执行（已关闭或队列已满）时，受影响的调用以RejectedExecutionException失败结束。
+ * 默认执行器的线程数由async.threads配置(默认16)，配置async.virtualThreads=true且运行环境支持时使用虚拟线程。
+ * @author yuqs
+ * @version 1.0
+ */
+public class AsyncSnakerEngine {
+	private static final Logger log = LoggerFactory.getLogger(AsyncSnakerEngine.class);
+	/**
+	 * 流程引擎
+	 */
+	private final SnakerEngine engine;
+	/**
+	 * 执行调用的执行器
+	 */
+	private final Executor executor;
+	/**
+	 * 流程实例id->该流程实例的执行队列，队列为空时移除
+	 */
+	private final Map<String, Lane> lanes = new HashMap<String, Lane>();
+	
+	public AsyncSnakerEngine(SnakerEngine engine) {
+		this(engine, newExecutor());
+	}
+	
+	/**
+	 * 使用指定的执行器构造
+	 * @param engine
+	 * @param executor
+	 */
+	public AsyncSnakerEngine(SnakerEngine engine, Executor executor) {
+		this.engine = engine;
+		this.executor = executor;
+	}
+	
+	/**
+	 * 返回同步调用的流程引擎
+	 * @return
+	 */
+	public SnakerEngine getEngine() {
+		return engine;
+	}
+	
+	/**
+	 * 根据流程定义ID异步启动流程实例
+	 * @param id
+	 * @param operator
+	 * @param args
+	 * @return
+	 */
+	public Future<Order> startInstanceByIdAsync(String id, String operator, Map<String, Object> args) {
+		return startInstanceByIdAsync(id, operator, args, null);
+	}
+	
+	/**
+	 * 根据流程定义ID异步启动流程实例，完成后回调
+	 * @param id
+	 * @param operator
+	 * @param args
+	 * @param callback
+	 * @return
+	 */
+	public Future<Order> startInstanceByIdAsync(final String id, final String operator, 
+			final Map<String, Object> args, AsyncCallback<Order> callback) {
+		AsyncCall<Order> call = new AsyncCall<Order>(new Callable<Order>() {
+			public Order call() {
+				return engine.startInstanceById(id, operator, args);
+			}
+		}, callback);
+		execute(call);
+		return call;
+	}
+	
+	/**
+	 * 根据流程定义ID异步启动流程实例
+	 * @param id
+	 * @param operator
+	 * @return
+	 */
+	public Future<Order> startInstanceByIdAsync(String id, String operator) {
+		return startInstanceByIdAsync(id, operator, null, null);
+	}
+	
+	/**
+	 * 根据任务主键ID异步执行任务
+	 * @param taskId
+	 * @param operator
+	 * @param args
+	 * @return
+	 */
+	public Future<List<Task>> executeTaskAsync(String taskId, String operator, Map<String, Object> args) {
+		return executeTaskAsync(taskId, operator, args, null);
+	}
+	
+	/**
+	 * 根据任务主键ID异步执行任务，完成后回调
+	 * @param taskId
+	 * @param operator
+	 * @param args
+	 * @param callback
+	 * @return
+	 */
+	public Future<List<Task>> executeTaskAsync(final String taskId, final String operator, 
+			final Map<String, Object> args, AsyncCallback<List<Task>> callback) {
+		return submitByTask(taskId, false, new Callable<List<Task>>() {
+			public List<Task> call() {
+				return engine.executeTask(taskId, operator, args);
+			}
+		}, callback);
+	}
+	
+	/**
+	 * 根据任务主键ID异步执行任务
+	 * @param taskId
+	 * @param operator
+	 * @return
+	 */
+	public Future<List<Task>> executeTaskAsync(String taskId, String operator) {
+		return executeTaskAsync(taskId, operator, null, null);
+	}
+	
+	/**
+	 * 根据任务主键ID异步执行任务，并跳转到指定节点
+	 * @param taskId
+	 * @param operator
+	 * @param args
+	 * @param nodeName
+	 * @return
+	 */
+	public Future<List<Task>> executeAndJumpTaskAsync(String taskId, String operator, 
+			Map<String, Object> args, String nodeName) {
+		return executeAndJumpTaskAsync(taskId, operator, args, nodeName, null);
+	}
+	
+	/**
+	 * 根据任务主键ID异步执行任务，并跳转到指定节点，完成后回调
+	 * @param taskId
+	 * @param operator
+	 * @param args
+	 * @param nodeName
+	 * @param callback
+	 * @return
+	 */
+	public Future<List<Task>> executeAndJumpTaskAsync(final String taskId, final String operator, 
+			final Map<String, Object> args, final String nodeName, AsyncCallback<List<Task>> callback) {
+		return submitByTask(taskId, false, new Callable<List<Task>>() {
+			public List<Task> call() {
+				return engine.executeAndJumpTask(taskId, operator, args, nodeName);
+			}
+		}, callback);
+	}
+	
+	/**
+	 * 根据任务主键ID异步提取任务
+	 * @param taskId
+	 * @param operator
+	 * @return
+	 */
+	public Future<Void> takeTaskAsync(String taskId, String operator) {
+		return takeTaskAsync(taskId, operator, null);
+	}
+	
+	/**
+	 * 根据任务主键ID异步提取任务，完成后回调
+	 * @param taskId
+	 * @param operator
+	 * @param callback
+	 * @return
+	 */
+	public Future<Void> takeTaskAsync(final String taskId, final String operator, AsyncCallback<Void> callback) {
+		return submitByTask(taskId, false, new Callable<Void>() {
+			public Void call() {
+				engine.takeTask(taskId, operator);
+				return null;
+			}
+		}, callback);
+	}
+	
+	/**
+	 * 根据历史任务主键ID异步撤回任务
+	 * @param taskId
+	 * @param operator
+	 * @return
+	 */
+	public Future<Task> withdrawTaskAsync(String taskId, String operator) {
+		return withdrawTaskAsync(taskId, operator, null);
+	}
+	
+	/**
+	 * 根据历史任务主键ID异步撤回任务，完成后回调
+	 * @param taskId
+	 * @param operator
+	 * @param callback
+	 * @return
+	 */
+	public Future<Task> withdrawTaskAsync(final String taskId, final String operator, AsyncCallback<Task> callback) {
+		return submitByTask(taskId, true, new Callable<Task>() {
+			public Task call() {
+				return engine.withdrawTask(taskId, operator);
+			}
+		}, callback);
+	}
+	
+	/**
+	 * 异步终止流程实例
+	 * @param orderId
+	 * @param operator
+	 * @return
+	 */
+	public Future<Void> terminateByIdAsync(String orderId, String operator) {
+		return terminateByIdAsync(orderId, operator, null);
+	}
+	
+	/**
+	 * 异步终止流程实例，完成后回调
+	 * @param orderId
+	 * @param operator
+	 * @param callback
+	 * @return
+	 */
+	public Future<Void> terminateByIdAsync(final String orderId, final String operator, AsyncCallback<Void> callback) {
+		return submit(orderId, new Callable<Void>() {
+			public Void call() {
+				engine.terminateById(orderId, operator);
+				return null;
+			}
+		}, callback);
+	}
+	
+	/**
+	 * 异步完成流程实例
+	 * @param orderId
+	 * @return
+	 */
+	public Future<Void> finishInstanceByIdAsync(String orderId) {
+		return finishInstanceByIdAsync(orderId, null);
+	}
+	
+	/**
+	 * 异步完成流程实例，完成后回调
+	 * @param orderId
+	 * @param callback
+	 * @return
+	 */
+	public Future<Void> finishInstanceByIdAsync(final String orderId, AsyncCallback<Void> callback) {
+		return submit(orderId, new Callable<Void>() {
+			public Void call() {
+				engine.finishInstanceById(orderId);
+				return null;
+			}
+		}, callback);
+	}
+	
+	/**
+	 * 关闭默认或指定的执行器，已提交的调用继续执行
+	 */
+	public void shutdown() {
+		if(executor instanceof ExecutorService) {
+			((ExecutorService)executor).shutdown();
+		}
+	}
+	
+	/**
+	 * 返回有待执行调用的流程实例数
+	 * @return
+	 */
+	public int getPendingOrders() {
+		synchronized(lanes) {
+			return lanes.size();
+		}
+	}
+	
+	/**
+	 * 在提交线程中按主键查询任务所属的流程实例后提交，保证同一流程实例的调用按提交顺序执行；
+	 * 任务不存在时不进入执行队列，由引擎抛出异常
+	 */
+	private <T> Future<T> submitByTask(String taskId, boolean history, Callable<T> callable, AsyncCallback<T> callback) {
+		String orderId;
+		if(history) {
+			HistoryTask task = engine.query().getHistTask(taskId);
+			orderId = task == null ? null : task.getOrderId();
+		} else {
+			Task task = engine.query().getTask(taskId);
+			orderId = task == null ? null : task.getOrderId();
+		}
+		return submit(orderId, callable, callback);
+	}
+	
+	/**
+	 * 提交到流程实例的执行队列，队列空闲时交由执行器执行；orderId为null时直接交由执行器执行
+	 */
+	private <T> Future<T> submit(String orderId, Callable<T> callable, AsyncCallback<T> callback) {
+		AsyncCall<T> call = new AsyncCall<T>(callable, callback);
+		if(orderId == null) {
+			execute(call);
+			return call;
+		}
+		Lane lane;
+		synchronized(lanes) {
+			lane = lanes.get(orderId);
+			if(lane == null) {
+				lane = new Lane(orderId);
+				lanes.put(orderId, lane);
+			}
+			lane.calls.add(call);
+			if(lane.running) return call;
+			lane.running = true;
+		}
+		execute(lane);
+		return call;
+	}
+	
+	/**
+	 * 交由执行器执行，执行器拒绝时调用以RejectedExecutionException失败结束
+	 * @param call
+	 */
+	private void execute(Call call) {
+		try {
+			executor.execute(call);
+		} catch(RejectedExecutionException e) {
+			call.fail(e);
+		}
+	}
+	
+	private static Executor newExecutor() {
+		int threads = ConfigHelper.getNumerProperty("async.threads");
+		if(threads <= 0) threads = 16;
+		boolean virtualThreads = "true".equalsIgnoreCase(ConfigHelper.getProperty("async.virtualThreads"));
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, 
+				new LinkedBlockingQueue<Runnable>(), ThreadHelper.newThreadFactory("snaker-async-", virtualThreads));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	/**
+	 * 交由执行器执行的单元，执行器拒绝时以异常结束
+	 */
+	private interface Call extends Runnable {
+		void fail(Throwable e);
+	}
+	
+	/**
+	 * 一次异步调用，结束（含失败）后回调
+	 */
+	private static class AsyncCall<T> extends FutureTask<T> implements Call {
+		private final AsyncCallback<T> callback;
+		
+		AsyncCall(Callable<T> callable, AsyncCallback<T> callback) {
+			super(callable);
+			this.callback = callback;
+		}
+		
+		public void fail(Throwable e) {
+			setException(e);
+		}
+		
+		@Override
+		protected void done() {
+			if(callback == null || isCancelled()) return;
+			try {
+				T result;
+				try {
+					result = get();
+				} catch(ExecutionException e) {
+					callback.onFailure(e.getCause());
+					return;
+				}
+				callback.onSuccess(result);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch(RuntimeException e) {
+				log.error("异步调用的回调出现异常", e);
+			}
+		}
+	}
+	
+	/**
+	 * 流程实例的执行队列，每次只执行一个调用，执行完成后再将自身提交给执行器，避免长期占用线程
+	 */
+	private class Lane implements Call {
+		private final String orderId;
+		private final LinkedList<AsyncCall<?>> calls = new LinkedList<AsyncCall<?>>();
+		private boolean running = false;
+		
+		Lane(String orderId) {
+			this.orderId = orderId;
+		}
+		
+		public void run() {
+			AsyncCall<?> call;
+			synchronized(lanes) {
+				call = calls.removeFirst();
+			}
+			//FutureTask将异常保存在结果中，不会抛出
+			call.run();
+			synchronized(lanes) {
+				if(calls.isEmpty()) {
+					running = false;
+					lanes.remove(orderId);
+					return;
+				}
+			}
+			execute(this);
+		}
+		
+		/**
+		 * 执行器拒绝时移除队列，队列中的调用全部失败结束，之后提交的调用使用新的队列
+		 */
+		public void fail(Throwable e) {
+			List<AsyncCall<?>> failed;
+			synchronized(lanes) {
+				failed = new ArrayList<AsyncCall<?>>(calls);
+				calls.clear();
+				running = false;
+				lanes.remove(orderId);
+			}
+			for(AsyncCall<?> call : failed) {
+				call.fail(e);
+			}
+		}
+	}
+}
@@ -14,9 +14,9 @@
  */
 package org.snaker.engine.core;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +27,8 @@ import org.snaker.engine.parser.ModelParser;
 
 /**
  * 流程定义模型容器类
+ * 读操作不加锁，按流程定义ID或名称（不区分大小写）均为一次map查找；
+ * 写操作（部署、卸载）串行执行，新的流程定义解析完成后才替换容器中的旧定义，并发读取不会看到未解析的定义。
  * @author yuqs
  * @version 1.0
  */
@@ -35,36 +37,61 @@ public class ModelContainer {
 	/**
 	 * 流程定义模型容器类，key为流程名称；value为流程模型对象
 	 */
-	private static Map<String, ProcessModel> modelMap = new HashMap<String, ProcessModel>();
+	private static final ConcurrentMap<String, ProcessModel> modelMap = new ConcurrentHashMap<String, ProcessModel>();
 	
 	/**
 	 * 流程定义po容器类，key为流程定义主键ID，value为流程定义po对象
 	 */
-	private static Map<String, Process> entityMap = new HashMap<String, Process>();
+	private static final ConcurrentMap<String, Process> entityMap = new ConcurrentHashMap<String, Process>();
 	
 	/**
-	 * 同步方法，对外部类提供向容器增加model
+	 * 流程定义名称索引，key为小写的流程名称，value为最后放入容器的同名流程定义po对象
+	 */
+	private static final ConcurrentMap<String, Process> nameMap = new ConcurrentHashMap<String, Process>();
+	
+	/**
+	 * 写操作的锁，保证id、名称、模型三个索引的一致
+	 */
+	private static final Object writeLock = new Object();
+	
+	/**
+	 * 对外部类提供向容器增加model
 	 * @param name
 	 * @param model
 	 */
-	private static synchronized void pushModel(String name, ProcessModel model) {
+	private static void pushModel(String name, ProcessModel model) {
 		log.info("push model[name=" + name + "]" + model);
-		modelMap.put(name, model);
+		if(name == null) return;
+		if(model == null) {
+			modelMap.remove(name);
+		} else {
+			modelMap.put(name, model);
+		}
 	}
 	
 	/**
-	 * 同步方法，对外部类提供向容器增加entity
+	 * 对外部类提供向容器增加entity，解析模型后再替换容器中的旧定义
 	 * @param id
 	 * @param process
 	 */
-	public static synchronized void pushEntity(String id, Process process) {
+	public static void pushEntity(String id, Process process) {
 		log.info("push entity[id=" + id + "]" + process);
-		if(entityMap.containsKey(id)) log.warn("entity[id=" + id + "] be replaced.");
 		if(process.getModel() == null && process.getDBContent() != null) {
 			process.setModel(ModelParser.parse(process.getDBContent()));
 		}
-		pushModel(process.getName(), process.getModel());
-		entityMap.put(id, process);
+		synchronized(writeLock) {
+			Process old = entityMap.put(id, process);
+			if(old != null) {
+				log.warn("entity[id=" + id + "] be replaced.");
+				if(old.getName() != null && !old.getName().equalsIgnoreCase(process.getName())) {
+					removeName(old);
+				}
+			}
+			pushModel(process.getName(), process.getModel());
+			if(process.getName() != null) {
+				nameMap.put(nameKey(process.getName()), process);
+			}
+		}
 	}
 	
 	/**
@@ -73,23 +100,50 @@ public class ModelContainer {
 	 */
 	public static void popEntity(String id) {
 		log.info("pop entity[id=" + id + "]");
-		Process process = entityMap.get(id);
-		if(process != null) {
-			modelMap.remove(process.getName());
-			entityMap.remove(id);
+		synchronized(writeLock) {
+			Process process = entityMap.remove(id);
+			if(process != null) {
+				removeName(process);
+			}
 		}
 	}
 	
+	/**
+	 * 移除流程定义的名称索引及模型，存在其它同名定义时指向其中一个
+	 * @param process
+	 */
+	private static void removeName(Process process) {
+		String name = process.getName();
+		if(name == null) return;
+		Process other = null;
+		for(Process entity : entityMap.values()) {
+			if(entity != process && name.equalsIgnoreCase(entity.getName())) {
+				other = entity;
+				break;
+			}
+		}
+		if(other == null) {
+			nameMap.remove(nameKey(name));
+			modelMap.remove(name);
+		} else {
+			nameMap.put(nameKey(name), other);
+			modelMap.remove(name);
+			pushModel(other.getName(), other.getModel());
+		}
+	}
+	
+	private static String nameKey(String name) {
+		return name.toLowerCase(Locale.ENGLISH);
+	}
+	
 	/**
 	 * 处理容器中所有子流程级联引用
 	 */
 	public static void cascadeReference() {
-		for(Entry<String, ProcessModel> entry : modelMap.entrySet()) {
-			ProcessModel model = entry.getValue();
+		for(ProcessModel model : modelMap.values()) {
 			cascadeReference(model);
 		}
 	}
-	
 	/**
 	 * 处理单个子流程级联引用
 	 * @param model
@@ -109,17 +163,16 @@ public class ModelContainer {
 	}
 	
 	/**
-	 * 根据流程定义ID，从容器中获取对应的process对象
+	 * 根据流程定义ID或名称（不区分大小写），从容器中获取对应的process对象
 	 * @param id
 	 * @return
 	 */
 	public static Process getEntity(String key) {
-		Process entity = entityMap.get(key);
-		if(entity != null) return entity;
-		for(Entry<String, Process> entry : entityMap.entrySet()) {
-			if(entry.getValue().getName().equalsIgnoreCase(key)) {
-				return entry.getValue();
-			}
+		if(key != null) {
+			Process entity = entityMap.get(key);
+			if(entity != null) return entity;
+			entity = nameMap.get(nameKey(key));
+			if(entity != null) return entity;
 		}
 		throw new SnakerException("流程定义[key=" + key + "]对应的实体对象为空.");
 	}
@@ -14,10 +14,14 @@
  */
 package org.snaker.engine.core;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import org.snaker.engine.IOrderService;
+import org.snaker.engine.entity.Counter;
 import org.snaker.engine.entity.HistoryOrder;
+import org.snaker.engine.entity.Job;
 import org.snaker.engine.entity.Order;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.helper.DateHelper;
@@ -47,7 +51,7 @@ public class OrderService extends AccessService implements IOrderService {
 	 */
 	@Override
 	public Order getOrder(String id) {
-		return access().getOrder(id);
+		return loadOrder(id);
 	}
 
 	/**
@@ -61,6 +65,7 @@ public class OrderService extends AccessService implements IOrderService {
 		
 		access().updateHistory(history);
 		access().deleteOrder(order);
+		evictOrder(order.getId());
 	}
 
 	/**
@@ -75,6 +80,80 @@ public class OrderService extends AccessService implements IOrderService {
 		
 		access().saveHistory(history);
 		access().deleteOrder(order);
+		evictOrder(order.getId());
+	}
+	
+	/**
+	 * 剩余数与总数相同的计数器
+	 */
+	public void createCounter(String orderId, String nodeName, int total) {
+		createCounter(orderId, nodeName, total, total);
+	}
+	
+	/**
+	 * 重复执行同一节点时（如驳回至分支之前），先删除旧的计数器再保存
+	 */
+	public void createCounter(String orderId, String nodeName, int total, int remain) {
+		Counter counter = new Counter(orderId, nodeName, total);
+		counter.setRemain(remain);
+		access().deleteCounter(orderId, nodeName);
+		access().saveCounter(counter);
+	}
+	
+	/**
+	 * 由DBAccess实现类原子递减计数器
+	 * 计数器保留至流程实例结束，晚于合并到达的调用者得到负数，不会再次触发合并
+	 */
+	public Integer decreaseCounter(String orderId, String nodeName) {
+		return access().decreaseCounter(orderId, nodeName);
+	}
+	
+	public void increaseCounter(String orderId, String nodeName, int total, int remain) {
+		access().increaseCounter(orderId, nodeName, total, remain);
+	}
+	
+	public Counter getCounter(String orderId, String nodeName) {
+		return access().getCounter(orderId, nodeName);
+	}
+	
+	public void removeCounter(String orderId, String... nodeNames) {
+		access().deleteCounter(orderId, nodeNames);
+	}
+	
+	/**
+	 * 作业创建后即可执行，执行参数以json格式保存
+	 */
+	public Job createJob(Order order, String nodeName, String taskId, String operator, Map<String, Object> args) {
+		Job job = new Job();
+		job.setId(StringHelper.getPrimaryKey());
+		job.setOrderId(order.getId());
+		job.setNodeName(nodeName);
+		job.setTaskId(taskId);
+		job.setOperator(operator);
+		job.setJobState(Job.STATE_WAITING);
+		job.setRetries(0);
+		job.setCreateTime(DateHelper.getTime());
+		job.setNextTime(job.getCreateTime());
+		if(args != null && !args.isEmpty()) {
+			job.setVariable(JsonHelper.toJson(args));
+		}
+		access().saveJob(job);
+		return job;
+	}
+	
+	public List<Job> takeJobs(String owner, int limit, int lockSeconds) {
+		long now = System.currentTimeMillis();
+		String time = DateHelper.parseTime(new Date(now));
+		String staleTime = DateHelper.parseTime(new Date(now - lockSeconds * 1000L));
+		return access().takeJobs(owner, time, staleTime, limit);
+	}
+	
+	public void updateJob(Job job) {
+		access().updateJob(job);
+	}
+	
+	public boolean removeJob(String id, String owner) {
+		return access().deleteJob(id, owner);
 	}
 	
 	/**
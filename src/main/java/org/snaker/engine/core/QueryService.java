@@ -14,11 +14,15 @@
  */
 package org.snaker.engine.core;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.snaker.engine.IQueryService;
 import org.snaker.engine.SnakerException;
 import org.snaker.engine.access.Page;
+import org.snaker.engine.access.RowCallback;
 import org.snaker.engine.entity.HistoryOrder;
 import org.snaker.engine.entity.HistoryTask;
 import org.snaker.engine.entity.HistoryTaskActor;
@@ -35,17 +39,17 @@ import org.snaker.engine.entity.WorkItem;
 public class QueryService extends AccessService implements IQueryService {
 	@Override
 	public Order getOrder(String orderId) {
-		return access().getOrder(orderId);
+		return loadOrder(orderId);
 	}
 	
 	@Override
 	public Task getTask(String taskId) {
-		return access().getTask(taskId);
+		return loadTask(taskId);
 	}
 	
 	@Override
 	public String[] getTaskActorsByTaskId(String taskId) {
-		List<TaskActor> actors = access().getTaskActorsByTaskId(taskId);
+		List<TaskActor> actors = loadTaskActors(taskId);
 		if(actors == null || actors.isEmpty()) return null;
 		String[] actorIds = new String[actors.size()];
 		for(int i = 0; i < actors.size(); i++) {
@@ -67,6 +71,51 @@ public class QueryService extends AccessService implements IQueryService {
 		return actorIds;
 	}
 
+	@Override
+	public Map<String, Task> getTasks(Collection<String> taskIds) {
+		return access().getTasks(taskIds);
+	}
+	
+	@Override
+	public Map<String, HistoryTask> getHistTasks(Collection<String> taskIds) {
+		return access().getHistTasks(taskIds);
+	}
+	
+	@Override
+	public Map<String, Order> getOrders(Collection<String> orderIds) {
+		return access().getOrders(orderIds);
+	}
+	
+	@Override
+	public Map<String, String[]> getTaskActors(Collection<String> taskIds) {
+		Map<String, String[]> result = new LinkedHashMap<String, String[]>();
+		for(Map.Entry<String, List<TaskActor>> entry : access().getTaskActors(taskIds).entrySet()) {
+			List<TaskActor> actors = entry.getValue();
+			if(actors.isEmpty()) continue;
+			String[] actorIds = new String[actors.size()];
+			for(int i = 0; i < actors.size(); i++) {
+				actorIds[i] = actors.get(i).getActorId();
+			}
+			result.put(entry.getKey(), actorIds);
+		}
+		return result;
+	}
+	
+	@Override
+	public Map<String, String[]> getHistTaskActors(Collection<String> taskIds) {
+		Map<String, String[]> result = new LinkedHashMap<String, String[]>();
+		for(Map.Entry<String, List<HistoryTaskActor>> entry : access().getHistTaskActors(taskIds).entrySet()) {
+			List<HistoryTaskActor> actors = entry.getValue();
+			if(actors.isEmpty()) continue;
+			String[] actorIds = new String[actors.size()];
+			for(int i = 0; i < actors.size(); i++) {
+				actorIds[i] = actors.get(i).getActorId();
+			}
+			result.put(entry.getKey(), actorIds);
+		}
+		return result;
+	}
+
 	@Override
 	public HistoryOrder getHistOrder(String orderId) {
 		return access().getHistOrder(orderId);
@@ -97,6 +146,16 @@ public class QueryService extends AccessService implements IQueryService {
 	public List<Task> getActiveTasks(String orderId, String excludedTaskId, String... taskNames) {
 		return access().getActiveTasks(orderId, excludedTaskId, taskNames);
 	}
+	
+	@Override
+	public List<Task> getExpiringTasks(String startTime, String endTime) {
+		return access().getExpiringTasks(startTime, endTime);
+	}
+	
+	@Override
+	public List<Order> getExpiringOrders(String startTime, String endTime) {
+		return access().getExpiringOrders(startTime, endTime);
+	}
 
 	@Override
 	public List<Order> getActiveOrders(String... processIds) {
@@ -145,4 +204,19 @@ public class QueryService extends AccessService implements IQueryService {
 			String processId, String... actorIds) {
 		return access().getHistoryWorkItems(page, processId, actorIds);
 	}
+
+	@Override
+	public void streamActiveOrders(RowCallback<Order> callback, String... processIds) {
+		access().streamActiveOrders(callback, processIds);
+	}
+
+	@Override
+	public void streamHistoryOrders(RowCallback<HistoryOrder> callback, String... processIds) {
+		access().streamHistoryOrders(callback, processIds);
+	}
+
+	@Override
+	public void streamHistoryTasks(String orderId, RowCallback<HistoryTask> callback) {
+		access().streamHistoryTasks(orderId, callback);
+	}
 }
@@ -22,10 +22,13 @@ import java.util.Map.Entry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaker.engine.ExpireHandler;
+import org.snaker.engine.ExpressionEvaluator;
 import org.snaker.engine.SnakerEngine;
 import org.snaker.engine.TaskInterceptor;
 import org.snaker.engine.access.dialect.Dialect;
 import org.snaker.engine.parser.NodeParser;
+import org.snaker.engine.scheduler.ParallelExecutor;
 
 /**
  * 服务上下文（单实例），提供可配置的服务注册
@@ -81,6 +84,14 @@ public class ServiceContext {
 		return find(Dialect.class);
 	}
 	
+	/**
+	 * 获取注册的表达式引擎，未注册时返回null
+	 * @return
+	 */
+	public ExpressionEvaluator getExpressionEvaluator() {
+		return find(ExpressionEvaluator.class);
+	}
+	
 	/**
 	 * 获取注册的节点解析器
 	 * @param nodeName
@@ -97,6 +108,30 @@ public class ServiceContext {
 	public List<TaskInterceptor> findInterceptors() {
 		return findList(TaskInterceptor.class);
 	}
+	
+	/**
+	 * 获取注册的到期处理器列表
+	 * @return
+	 */
+	public List<ExpireHandler> findExpireHandlers() {
+		return findList(ExpireHandler.class);
+	}
+	
+	/**
+	 * 获取注册的并行执行器（并行模式fork节点使用），未注册时返回null
+	 * @return
+	 */
+	public ParallelExecutor getParallelExecutor() {
+		return find(ParallelExecutor.class);
+	}
+	
+	/**
+	 * 获取注册的流程实例服务，供引擎内部使用计数器等非公开操作
+	 * @return
+	 */
+	public OrderService getOrderService() {
+		return find(OrderService.class);
+	}
 
 	/**
 	 * 对外部提供的put方法
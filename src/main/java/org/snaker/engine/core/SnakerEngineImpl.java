@@ -28,13 +28,18 @@ import org.snaker.engine.IQueryService;
 import org.snaker.engine.ITaskService;
 import org.snaker.engine.SnakerEngine;
 import org.snaker.engine.SnakerException;
+import org.snaker.engine.access.UnitOfWork;
 import org.snaker.engine.access.transaction.TransactionInterceptor;
 import org.snaker.engine.cfg.Configuration;
 import org.snaker.engine.core.TaskService.TaskType;
+import org.snaker.engine.entity.Counter;
 import org.snaker.engine.entity.HistoryTask;
+import org.snaker.engine.entity.Job;
 import org.snaker.engine.entity.Order;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.entity.Task;
+import org.snaker.engine.entity.TaskContext;
+import org.snaker.engine.handlers.impl.StartSubProcessHandler;
 import org.snaker.engine.helper.AssertHelper;
 import org.snaker.engine.helper.DateHelper;
 import org.snaker.engine.helper.JsonHelper;
@@ -43,9 +48,12 @@ import org.snaker.engine.model.CustomModel;
 import org.snaker.engine.model.NodeModel;
 import org.snaker.engine.model.ProcessModel;
 import org.snaker.engine.model.StartModel;
+import org.snaker.engine.model.SubProcessModel;
 import org.snaker.engine.model.TaskModel;
 import org.snaker.engine.model.TransitionModel;
 import org.snaker.engine.model.WorkModel;
+import org.snaker.engine.scheduler.ExpireScheduler;
+import org.snaker.engine.scheduler.JobExecutor;
 
 /**
  * 基本的流程引擎实现类
@@ -78,6 +86,14 @@ public class SnakerEngineImpl implements SnakerEngine {
 	 * 查询业务类
 	 */
 	protected IQueryService queryService;
+	/**
+	 * 到期调度器，未配置时为null
+	 */
+	protected ExpireScheduler scheduler;
+	/**
+	 * 异步延续作业执行器，未配置时为null
+	 */
+	protected JobExecutor jobExecutor;
 	
 	/**
 	 * 根据serviceContext上下文，查找processService、orderService、taskService服务
@@ -90,6 +106,8 @@ public class SnakerEngineImpl implements SnakerEngine {
 		queryService = context.find(IQueryService.class);
 		orderService = context.find(IOrderService.class);
 		taskService = context.find(ITaskService.class);
+		scheduler = context.find(ExpireScheduler.class);
+		jobExecutor = context.find(JobExecutor.class);
 		/*
 		 * 无spring环境，DBAccess的实现类通过服务上下文获取
 		 */
@@ -120,6 +138,12 @@ public class SnakerEngineImpl implements SnakerEngine {
 			service.setAccess(access);
 		}
 		initializeProcess();
+		if(scheduler != null) {
+			scheduler.start(this);
+		}
+		if(jobExecutor != null) {
+			jobExecutor.start(this);
+		}
 	}
 	
 	/**
@@ -153,6 +177,14 @@ public class SnakerEngineImpl implements SnakerEngine {
 		return queryService;
 	}
 	
+	/**
+	 * 获取任务服务
+	 */
+	@Override
+	public ITaskService task() {
+		return taskService;
+	}
+	
 	/**
 	 * 根据流程定义ID启动流程实例
 	 */
@@ -177,15 +209,20 @@ public class SnakerEngineImpl implements SnakerEngine {
 		if(args == null) args = new HashMap<String, Object>();
 		Process process = ModelContainer.getEntity(id);
 		AssertHelper.notNull(process, "指定的流程定义[id=" + id + "]不存在");
-		Execution execution = execute(process, operator, args, null, null);
-		
-		if(process.getModel() != null) {
-			StartModel start = process.getModel().getStart();
-			AssertHelper.notNull(start, "指定的流程定义[id=" + id + "]没有开始节点");
-			start.execute(execution);
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			Execution execution = execute(process, operator, args, null, null);
+			
+			if(process.getModel() != null) {
+				StartModel start = process.getModel().getStart();
+				AssertHelper.notNull(start, "指定的流程定义[id=" + id + "]没有开始节点");
+				start.execute(execution);
+			}
+			uow.commit();
+			return execution.getOrder();
+		} finally {
+			uow.end();
 		}
-		
-		return execution.getOrder();
 	}
 	
 	/**
@@ -197,10 +234,16 @@ public class SnakerEngineImpl implements SnakerEngine {
 		StartModel start = process.getModel().getStart();
 		AssertHelper.notNull(start, "流程定义[id=" + process.getId() + "]没有开始节点");
 		
-		Execution current = execute(process, execution.getOperator(), execution.getArgs(), 
-				execution.getParentOrder().getId(), execution.getParentNodeName());
-		start.execute(current);
-		return current.getOrder();
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			Execution current = execute(process, execution.getOperator(), execution.getArgs(), 
+					execution.getParentOrder().getId(), execution.getParentNodeName());
+			start.execute(current);
+			uow.commit();
+			return current.getOrder();
+		} finally {
+			uow.end();
+		}
 	}
 	
 	/**
@@ -214,6 +257,9 @@ public class SnakerEngineImpl implements SnakerEngine {
 	 */
 	private Execution execute(Process process, String operator, Map<String, Object> args, String parentId, String parentNodeName) {
 		Order order = orderService.createOrder(process, operator, args, parentId, parentNodeName);
+		if(scheduler != null) {
+			scheduler.schedule(order);
+		}
 		Execution current = new Execution(this, process, order, args);
 		current.setOperator(operator);
 		return current;
@@ -240,19 +286,25 @@ public class SnakerEngineImpl implements SnakerEngine {
 	 */
 	@Override
 	public List<Task> executeTask(String taskId, String operator, Map<String, Object> args) {
-		/*
-		 * 完成任务，并且构造执行对象
-		 */
-		Execution execution = execute(taskId, operator, args);
-		ProcessModel model = execution.getProcess().getModel();
-		if(model != null) {
-			NodeModel nodeModel = model.getNode(execution.getTask().getTaskName());
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
 			/*
-			 * 将执行对象交给该任务对应的节点模型执行
+			 * 完成任务，并且构造执行对象
 			 */
-			nodeModel.execute(execution);
+			Execution execution = execute(taskId, operator, args);
+			ProcessModel model = execution.getProcess().getModel();
+			if(model != null) {
+				NodeModel nodeModel = model.getNode(execution.getTask().getTaskName());
+				/*
+				 * 将执行对象交给该任务对应的节点模型执行
+				 */
+				nodeModel.execute(execution);
+			}
+			uow.commit();
+			return execution.getTasks();
+		} finally {
+			uow.end();
 		}
-		return execution.getTasks();
 	}
 	
 	/**
@@ -262,23 +314,29 @@ public class SnakerEngineImpl implements SnakerEngine {
 	 */
 	@Override
 	public List<Task> executeAndJumpTask(String taskId, String operator, Map<String, Object> args, String nodeName) {
-		Execution execution = execute(taskId, operator, args);
-		ProcessModel model = execution.getProcess().getModel();
-		AssertHelper.notNull(model, "当前任务未找到流程定义模型");
-		if(StringHelper.isEmpty(nodeName)) {
-			Task newTask = taskService.rejectTask(model, execution.getTask());
-			execution.addTask(newTask);
-		} else {
-			NodeModel nodeModel = model.getNode(nodeName);
-			AssertHelper.notNull(nodeModel, "根据节点名称[" + nodeName + "]无法找到节点模型");
-			//动态创建转移对象，由转移对象执行execution实例
-			TransitionModel tm = new TransitionModel();
-			tm.setTarget(nodeModel);
-			tm.setEnabled(true);
-			tm.execute(execution);
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			Execution execution = execute(taskId, operator, args);
+			ProcessModel model = execution.getProcess().getModel();
+			AssertHelper.notNull(model, "当前任务未找到流程定义模型");
+			if(StringHelper.isEmpty(nodeName)) {
+				Task newTask = taskService.rejectTask(model, execution.getTask());
+				execution.addTask(newTask);
+			} else {
+				NodeModel nodeModel = model.getNode(nodeName);
+				AssertHelper.notNull(nodeModel, "根据节点名称[" + nodeName + "]无法找到节点模型");
+				//任意跳转可能使分支绕过合并节点，删除计数器，合并时退回到查询活动任务的方式
+				context.getOrderService().removeCounter(execution.getOrder().getId());
+				//动态创建转移对象，由转移对象执行execution实例
+				TransitionModel tm = new TransitionModel();
+				tm.setTarget(nodeModel);
+				tm.execute(execution);
+			}
+			uow.commit();
+			return execution.getTasks();
+		} finally {
+			uow.end();
 		}
-
-		return execution.getTasks();
 	}
 	
 	/**
@@ -305,8 +363,11 @@ public class SnakerEngineImpl implements SnakerEngine {
 	 */
 	private Execution execute(String taskId, String operator, Map<String, Object> args) {
 		if(args == null) args = new HashMap<String, Object>();
-		Task task = finishTask(taskId, operator, args);
-		Order order = orderService.getOrder(task.getOrderId());
+		//一次查询得到任务、流程实例及参与者
+		TaskContext context = taskService.getTaskContext(taskId);
+		AssertHelper.notNull(context, "指定的任务[id=" + taskId + "]不存在");
+		Task task = finishTask(context.getTask(), operator, args);
+		Order order = context.getOrder();
 		AssertHelper.notNull(order, "指定的流程实例[id=" + task.getOrderId() + "]已完成或不存在");
 		order.setLastUpdator(operator);
 		order.setLastUpdateTime(DateHelper.getTime());
@@ -322,11 +383,22 @@ public class SnakerEngineImpl implements SnakerEngine {
 	 */
 	@Override
 	public Task finishTask(String taskId, String operator, Map<String, Object> args) {
-		Task task = taskService.getTask(taskId);
-		AssertHelper.notNull(task, "指定的任务[id=" + taskId + "]不存在");
+		TaskContext context = taskService.getTaskContext(taskId);
+		AssertHelper.notNull(context, "指定的任务[id=" + taskId + "]不存在");
+		return finishTask(context.getTask(), operator, args);
+	}
+	
+	/**
+	 * 完成任务上下文中已加载的任务，任务的参与者已随上下文一起加载
+	 * @param task 任务对象
+	 * @param operator 操作人
+	 * @param args 参数列表
+	 * @return Task
+	 */
+	private Task finishTask(Task task, String operator, Map<String, Object> args) {
 		task.setVariable(JsonHelper.toJson(args));
 		if(!taskService.isAllowed(task, operator)) {
-			throw new SnakerException("当前参与者[" + operator + "]不允许执行任务[taskId=" + taskId + "]");
+			throw new SnakerException("当前参与者[" + operator + "]不允许执行任务[taskId=" + task.getId() + "]");
 		}
 		taskService.completeTask(task, operator);
 		return task;
@@ -339,13 +411,19 @@ public class SnakerEngineImpl implements SnakerEngine {
 		Order order = orderService.getOrder(hist.getOrderId());
 		AssertHelper.notNull(order, "指定的流程实例[id=" + hist.getOrderId() + "]已完成或不存在");
 		Process process = ModelContainer.getEntity(order.getProcessId());
-		return taskService.withdrawTask(process.getModel(), hist, operator);
+		Task task = taskService.withdrawTask(process.getModel(), hist, operator);
+		//撤回all方式的参与者任务，需要重新完成该任务，计数器剩余数加1
+		if(isPerformAll(task)) {
+			context.getOrderService().increaseCounter(task.getOrderId(), task.getTaskName(), 0, 1);
+		}
+		return task;
 	}
 
 	@Override
 	public void takeTask(String taskId, String operator) {
-		Task task = taskService.getTask(taskId);
-		AssertHelper.notNull(task, "指定的任务[id=" + taskId + "]不存在");
+		TaskContext context = taskService.getTaskContext(taskId);
+		AssertHelper.notNull(context, "指定的任务[id=" + taskId + "]不存在");
+		Task task = context.getTask();
 		if(!taskService.isAllowed(task, operator)) {
 			throw new SnakerException("当前参与者[" + operator + "]不允许提取任务[taskId=" + taskId + "]");
 		}
@@ -359,11 +437,17 @@ public class SnakerEngineImpl implements SnakerEngine {
 	
 	@Override
 	public void terminateById(String orderId, String operator) {
-		List<Task> tasks = queryService.getActiveTasks(orderId);
-		for(Task task : tasks) {
-			taskService.completeTask(task, operator);
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			List<Task> tasks = queryService.getActiveTasks(orderId);
+			for(Task task : tasks) {
+				taskService.completeTask(task, operator);
+			}
+			orderService.terminate(orderId, operator);
+			uow.commit();
+		} finally {
+			uow.end();
 		}
-		orderService.terminate(orderId, operator);
 	}
 	
 	@Override
@@ -375,21 +459,114 @@ public class SnakerEngineImpl implements SnakerEngine {
 	@Override
 	public List<Task> createTask(WorkModel model, Execution execution) {
 		if(model instanceof TaskModel) {
-			return taskService.createTask((TaskModel)model, execution);
+			TaskModel taskModel = (TaskModel)model;
+			List<Task> tasks = taskService.createTask(taskModel, execution);
+			//all方式按参与者任务数创建计数器，剩余数为完成规则要求的完成数
+			if(TaskModel.TYPE_ALL.equalsIgnoreCase(taskModel.getPerformType()) && !tasks.isEmpty()) {
+				context.getOrderService().createCounter(execution.getOrder().getId(), taskModel.getName(), 
+						tasks.size(), taskModel.getRequiredCount(tasks.size()));
+			}
+			return tasks;
 		} else if(model instanceof CustomModel) {
-			return taskService.createTask((CustomModel)model, execution);
+			List<Task> tasks = taskService.createTask((CustomModel)model, execution);
+			//异步节点在同一事务中保存作业，由作业执行器自动执行自定义任务
+			if(model.isAsync()) {
+				for(Task task : tasks) {
+					context.getOrderService().createJob(execution.getOrder(), model.getName(), 
+							task.getId(), execution.getOperator(), execution.getArgs());
+				}
+			}
+			return tasks;
 		}
 		return Collections.emptyList();
 	}
 	
+	/**
+	 * 执行已领取的异步作业（由作业执行器调用）：custom节点执行其自定义任务，subprocess节点启动子流程。
+	 * 先按领取标识删除作业再继续执行，删除不到时说明领取已超时并被其它执行器重新领取，放弃执行；
+	 * 作业已失效（自定义任务已执行、流程实例已结束）时直接删除。
+	 * 自定义任务及子流程均以创建作业时的操作人执行
+	 * @param job 异步作业
+	 * @return List<Task> 任务集合
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Task> executeJob(Job job) {
+		if(!context.getOrderService().removeJob(job.getId(), job.getOwner())) {
+			log.warn("异步作业[" + job.getId() + "]已被其它执行器重新领取或不存在，放弃执行");
+			return Collections.emptyList();
+		}
+		Map<String, Object> args = null;
+		if(StringHelper.isNotEmpty(job.getVariable())) {
+			args = JsonHelper.fromJson(job.getVariable(), Map.class);
+		}
+		if(StringHelper.isNotEmpty(job.getTaskId())) {
+			if(taskService.getTask(job.getTaskId()) == null) {
+				log.warn("异步作业[" + job.getId() + "]的自定义任务[id=" + job.getTaskId() + "]已执行或不存在");
+				return Collections.emptyList();
+			}
+			return executeTask(job.getTaskId(), job.getOperator(), args);
+		}
+		Order order = orderService.getOrder(job.getOrderId());
+		if(order == null) {
+			log.warn("异步作业[" + job.getId() + "]的流程实例[id=" + job.getOrderId() + "]已完成或不存在");
+			return Collections.emptyList();
+		}
+		Process process = ModelContainer.getEntity(order.getProcessId());
+		NodeModel nodeModel = process.getModel().getNode(job.getNodeName());
+		if(!(nodeModel instanceof SubProcessModel)) {
+			throw new SnakerException("异步作业[" + job.getId() + "]的节点[" + job.getNodeName() + "]不是子流程节点");
+		}
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			if(args == null) args = new HashMap<String, Object>();
+			Execution execution = new Execution(this, process, order, args);
+			execution.setOperator(job.getOperator());
+			new StartSubProcessHandler((SubProcessModel)nodeModel).start(execution);
+			uow.commit();
+			return execution.getTasks();
+		} finally {
+			uow.end();
+		}
+	}
+	
 	@Override
 	public void addTaskActor(String taskId, String... actors) {
 		Task task = taskService.getTask(taskId);
 		AssertHelper.notNull(task, "指定的任务[id=" + taskId + "]不存在");
 		if(task.getTaskType().intValue() == TaskType.Task.ordinal()) {
 			taskService.addTaskActor(task, actors);
+			if(isPerformAll(task)) {
+				increaseCounter(task, actors.length);
+			}
 		}
 	}
+	
+	/**
+	 * all方式增加参与者任务后，按完成规则调整计数器的总数与剩余数
+	 * @param task 任务对象
+	 * @param count 增加的参与者任务数
+	 */
+	private void increaseCounter(Task task, int count) {
+		OrderService counters = context.getOrderService();
+		Counter counter = counters.getCounter(task.getOrderId(), task.getTaskName());
+		if(counter == null || counter.getRemain() <= 0) return;
+		Order order = orderService.getOrder(task.getOrderId());
+		Process process = ModelContainer.getEntity(order.getProcessId());
+		TaskModel model = (TaskModel)process.getModel().getNode(task.getTaskName());
+		int total = counter.getTotal();
+		int required = model.getRequiredCount(total + count) - model.getRequiredCount(total);
+		counters.increaseCounter(task.getOrderId(), task.getTaskName(), count, required);
+	}
+	
+	/**
+	 * 判断是否为all方式的参与者任务
+	 * @param task
+	 * @return
+	 */
+	private boolean isPerformAll(Task task) {
+		return task.getPerformType() != null 
+				&& task.getPerformType().intValue() == TaskModel.PerformType.ALL.ordinal();
+	}
 
 	@Override
 	public void removeTaskActor(String taskId, String... actors) {
@@ -17,6 +17,7 @@ package org.snaker.engine.core;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.snaker.engine.ITaskService;
 import org.snaker.engine.SnakerEngine;
@@ -24,6 +25,7 @@ import org.snaker.engine.SnakerException;
 import org.snaker.engine.entity.HistoryTask;
 import org.snaker.engine.entity.Task;
 import org.snaker.engine.entity.TaskActor;
+import org.snaker.engine.entity.TaskContext;
 import org.snaker.engine.helper.DateHelper;
 import org.snaker.engine.helper.StringHelper;
 import org.snaker.engine.model.BaseModel;
@@ -72,8 +74,45 @@ public class TaskService extends AccessService implements ITaskService {
 		}
 		access().saveHistory(history);
 		access().deleteTask(task);
+		evictTask(task.getId());
 		return task;
 	}
+	
+	/**
+	 * 批量完成任务，参与者一次查询，历史任务、删除活动任务分别批量写入
+	 */
+	@Override
+	public List<Task> completeTasks(List<Task> tasks, String operator) {
+		if(tasks.isEmpty()) return tasks;
+		List<String> taskIds = new ArrayList<String>(tasks.size());
+		for(Task task : tasks) {
+			taskIds.add(task.getId());
+		}
+		Map<String, List<TaskActor>> actorMap = access().getTaskActors(taskIds);
+		List<HistoryTask> histories = new ArrayList<HistoryTask>(tasks.size());
+		String finishTime = DateHelper.getTime();
+		for(Task task : tasks) {
+			HistoryTask history = new HistoryTask(task);
+			history.setFinishTime(finishTime);
+			history.setTaskState(STATE_FINISH);
+			history.setOperator(operator);
+			if(history.getActorIds() == null) {
+				List<TaskActor> actors = actorMap.get(task.getId());
+				String[] actorIds = new String[actors == null ? 0 : actors.size()];
+				for(int i = 0; i < actorIds.length; i++) {
+					actorIds[i] = actors.get(i).getActorId();
+				}
+				history.setActorIds(actorIds);
+			}
+			histories.add(history);
+		}
+		access().saveHistory(histories);
+		access().deleteTasks(tasks);
+		for(Task task : tasks) {
+			evictTask(task.getId());
+		}
+		return tasks;
+	}
 	/**
 	 * 由DBAccess实现类更新task对象为完成状态
 	 */
@@ -96,14 +135,22 @@ public class TaskService extends AccessService implements ITaskService {
 			break;
 		case 1:
 			try {
+				List<Task> newTasks = new ArrayList<Task>(actors.length);
+				List<TaskActor> taskActors = new ArrayList<TaskActor>(actors.length);
 				for(String actor : actors) {
 					Task newTask = (Task)task.clone();
 					newTask.setId(StringHelper.getPrimaryKey());
 					newTask.setCreateTime(DateHelper.getTime());
 					newTask.setOperator(actor);
-					saveTask(newTask);
-					assignTask(newTask.getId(), actor);
+					newTasks.add(newTask);
+					if(StringHelper.isEmpty(actor)) continue;
+					TaskActor taskActor = new TaskActor();
+					taskActor.setTaskId(newTask.getId());
+					taskActor.setActorId(actor);
+					taskActors.add(taskActor);
 				}
+				access().saveTasks(newTasks);
+				access().saveTaskActors(taskActors);
 			} catch(CloneNotSupportedException ex) {
 				throw new SnakerException("任务对象不支持复制", ex.getCause());
 			}
@@ -114,11 +161,16 @@ public class TaskService extends AccessService implements ITaskService {
 	@Override
 	public void removeTaskActor(Task task, String... actors) {
 		access().removeTaskActor(task.getId(), actors);
+		evictTaskActors(task.getId());
 	}
 	
 	@Override
 	public Task withdrawTask(ProcessModel model, HistoryTask hist, String operator) {
 		TaskModel histModel = (TaskModel)model.getNode(hist.getTaskName());
+		Set<String> nextNames = histModel.getNextTaskNames();
+		if(nextNames.isEmpty()) {
+			throw new SnakerException("后续节点为fork、join、subprocess或结束节点，无法撤回.");
+		}
 		List<Task> tasks = null;
 		if(TaskModel.TYPE_ANY.equalsIgnoreCase(histModel.getPerformType())) {
 			tasks = access().getNextActiveTasks(hist.getId());
@@ -129,7 +181,13 @@ public class TaskService extends AccessService implements ITaskService {
 			throw new SnakerException("后续活动任务已完成或不存在，无法撤回.");
 		}
 		for(Task task : tasks) {
-			access().deleteTask(task);
+			if(!nextNames.contains(task.getTaskName())) {
+				throw new SnakerException("后续活动任务[" + task.getTaskName() + "]不是可撤回的节点，无法撤回.");
+			}
+		}
+		access().deleteTasks(tasks);
+		for(Task task : tasks) {
+			evictTask(task.getId());
 		}
 		
 		Task task = hist.undoTask();
@@ -168,14 +226,21 @@ public class TaskService extends AccessService implements ITaskService {
 	@Override
 	public void assignTask(String taskId, String... actorIds) {
 		if(actorIds == null || actorIds.length == 0) return;
+		List<TaskActor> taskActors = new ArrayList<TaskActor>(actorIds.length);
 		for(String actorId : actorIds) {
 			//修复当actorId为null的bug
 			if(StringHelper.isEmpty(actorId)) continue;
 			TaskActor taskActor = new TaskActor();
 			taskActor.setTaskId(taskId);
 			taskActor.setActorId(actorId);
-			access().saveTaskActor(taskActor);
+			taskActors.add(taskActor);
+		}
+		if(taskActors.size() == 1) {
+			access().saveTaskActor(taskActors.get(0));
+		} else {
+			access().saveTaskActors(taskActors);
 		}
+		evictTaskActors(taskId);
 	}
 
 	/**
@@ -183,7 +248,15 @@ public class TaskService extends AccessService implements ITaskService {
 	 */
 	@Override
 	public Task getTask(String taskId) {
-		return access().getTask(taskId);
+		return loadTask(taskId);
+	}
+	
+	/**
+	 * 由DBAccess实现类一次查询任务上下文
+	 */
+	@Override
+	public TaskContext getTaskContext(String taskId) {
+		return loadTaskContext(taskId);
 	}
 	
 	/**
@@ -222,10 +295,20 @@ public class TaskService extends AccessService implements ITaskService {
 			tasks.add(task);
 		} else {
 			//任务执行方式为参与者中每个都要执行完才可驱动流程继续流转，该方法根据参与者个数产生对应的task数量
+			//先在内存中构建全部task及参与者，再批量写入
+			if(actors == null || actors.length == 0) return tasks;
+			List<TaskActor> taskActors = new ArrayList<TaskActor>(actors.length);
 			for(String actor : actors) {
-				Task ftask = createTask(taskModel, execution, PerformType.ALL.ordinal(), expireTime, actor);
+				Task ftask = buildTask(taskModel, execution, PerformType.ALL.ordinal(), expireTime, actor);
 				tasks.add(ftask);
+				if(StringHelper.isEmpty(actor)) continue;
+				TaskActor taskActor = new TaskActor();
+				taskActor.setTaskId(ftask.getId());
+				taskActor.setActorId(actor);
+				taskActors.add(taskActor);
 			}
+			access().saveTasks(tasks);
+			access().saveTaskActors(taskActors);
 		}
 		return tasks;
 	}
@@ -255,13 +338,27 @@ public class TaskService extends AccessService implements ITaskService {
 	 * @return
 	 */
 	private Task createTask(TaskModel taskModel, Execution execution, int performType, String expireTime, String... actors) {
+		Task task = buildTask(taskModel, execution, performType, expireTime, actors);
+		saveTask(task);
+		assignTask(task.getId(), actors);
+		return task;
+	}
+	
+	/**
+	 * 由任务模型在内存中构建任务，不做持久化
+	 * @param taskModel 任务模型
+	 * @param execution 执行对象
+	 * @param performType 参与类型
+	 * @param expireTime 期望完成时间
+	 * @param actors 任务参与者集合
+	 * @return
+	 */
+	private Task buildTask(TaskModel taskModel, Execution execution, int performType, String expireTime, String... actors) {
 		Task task = createTask(taskModel, execution, TaskType.Task.ordinal());
 		task.setActionUrl(taskModel.getUrl());
 		task.setExpireTime(expireTime);
 		task.setPerformType(performType);
 		task.setVariable(StringHelper.getStringByArray(actors));
-		saveTask(task);
-		assignTask(task.getId(), actors);
 		task.setActorIds(actors);
 		return task;
 	}
@@ -343,7 +440,7 @@ public class TaskService extends AccessService implements ITaskService {
 	 */
 	@Override
 	public List<TaskActor> getTaskActorsByTaskId(String taskId) {
-		return access().getTaskActorsByTaskId(taskId);
+		return loadTaskActors(taskId);
 	}
 
 	/**
@@ -352,7 +449,7 @@ public class TaskService extends AccessService implements ITaskService {
 	@Override
 	public boolean isAllowed(Task task, String operator) {
 		if(StringHelper.isNotEmpty(operator)) {
-			if(SnakerEngine.ADMIN.equalsIgnoreCase(operator)) {
+			if(SnakerEngine.ADMIN.equalsIgnoreCase(operator) || SnakerEngine.AUTO.equalsIgnoreCase(operator)) {
 				return true;
 			}
 			if(StringHelper.isNotEmpty(task.getOperator())) {
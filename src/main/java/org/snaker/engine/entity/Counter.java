@@ -0,0 +1,83 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.entity;
+
+import java.io.Serializable;
+
+/**
+ * 合并计数器实体类
+ * fork节点记录需要到达join节点的分支数，all方式的任务节点记录完成规则要求的完成数
+ * 每次到达（完成）时原子递减，减至0时合并
+ * @author yuqs
+ * @version 1.0
+ */
+public class Counter implements Serializable {
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -3826474918370521830L;
+	/**
+	 * 关联的流程实例ID
+	 */
+	private String orderId;
+	/**
+	 * 计数的节点名称
+	 */
+	private String nodeName;
+	/**
+	 * 计数总数
+	 */
+	private Integer total;
+	/**
+	 * 剩余未到达的计数
+	 */
+	private Integer remain;
+
+	public Counter() {
+
+	}
+
+	public Counter(String orderId, String nodeName, int total) {
+		this.orderId = orderId;
+		this.nodeName = nodeName;
+		this.total = total;
+		this.remain = total;
+	}
+
+	public String getOrderId() {
+		return orderId;
+	}
+	public void setOrderId(String orderId) {
+		this.orderId = orderId;
+	}
+	public String getNodeName() {
+		return nodeName;
+	}
+	public void setNodeName(String nodeName) {
+		this.nodeName = nodeName;
+	}
+	public Integer getTotal() {
+		return total;
+	}
+	public void setTotal(Integer total) {
+		this.total = total;
+	}
+	public Integer getRemain() {
+		return remain;
+	}
+	public void setRemain(Integer remain) {
+		this.remain = remain;
+	}
+}
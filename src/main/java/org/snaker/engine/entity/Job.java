@@ -0,0 +1,175 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.entity;
+
+import java.io.Serializable;
+
+/**
+ * 异步作业实体类
+ * async="true"的custom、subprocess节点到达时在同一事务中保存作业后立即返回，
+ * 由作业执行器领取后在新事务中继续执行，失败时按退避时间重试
+ * @author yuqs
+ * @version 1.0
+ */
+public class Job implements Serializable {
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 2147362811938625114L;
+	/**
+	 * 等待执行
+	 */
+	public static final int STATE_WAITING = 0;
+	/**
+	 * 已被领取，执行中
+	 */
+	public static final int STATE_RUNNING = 1;
+	/**
+	 * 重试次数用尽，不再执行
+	 */
+	public static final int STATE_FAILED = 2;
+	/**
+	 * 主键ID
+	 */
+	private String id;
+	/**
+	 * 流程实例ID
+	 */
+	private String orderId;
+	/**
+	 * custom节点的自定义任务ID，subprocess节点为空
+	 */
+	private String taskId;
+	/**
+	 * 节点名称
+	 */
+	private String nodeName;
+	/**
+	 * 操作人
+	 */
+	private String operator;
+	/**
+	 * 作业状态
+	 */
+	private Integer jobState;
+	/**
+	 * 领取标识
+	 */
+	private String owner;
+	/**
+	 * 领取时间，超过锁定时长未完成的作业可被重新领取
+	 */
+	private String lockTime;
+	/**
+	 * 下次可执行时间
+	 */
+	private String nextTime;
+	/**
+	 * 已重试次数
+	 */
+	private Integer retries;
+	/**
+	 * 创建时间
+	 */
+	private String createTime;
+	/**
+	 * 最近一次执行失败的异常信息
+	 */
+	private String errorMsg;
+	/**
+	 * 执行参数(json格式)
+	 */
+	private String variable;
+
+	public String getId() {
+		return id;
+	}
+	public void setId(String id) {
+		this.id = id;
+	}
+	public String getOrderId() {
+		return orderId;
+	}
+	public void setOrderId(String orderId) {
+		this.orderId = orderId;
+	}
+	public String getTaskId() {
+		return taskId;
+	}
+	public void setTaskId(String taskId) {
+		this.taskId = taskId;
+	}
+	public String getNodeName() {
+		return nodeName;
+	}
+	public void setNodeName(String nodeName) {
+		this.nodeName = nodeName;
+	}
+	public String getOperator() {
+		return operator;
+	}
+	public void setOperator(String operator) {
+		this.operator = operator;
+	}
+	public Integer getJobState() {
+		return jobState;
+	}
+	public void setJobState(Integer jobState) {
+		this.jobState = jobState;
+	}
+	public String getOwner() {
+		return owner;
+	}
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+	public String getLockTime() {
+		return lockTime;
+	}
+	public void setLockTime(String lockTime) {
+		this.lockTime = lockTime;
+	}
+	public String getNextTime() {
+		return nextTime;
+	}
+	public void setNextTime(String nextTime) {
+		this.nextTime = nextTime;
+	}
+	public Integer getRetries() {
+		return retries;
+	}
+	public void setRetries(Integer retries) {
+		this.retries = retries;
+	}
+	public String getCreateTime() {
+		return createTime;
+	}
+	public void setCreateTime(String createTime) {
+		this.createTime = createTime;
+	}
+	public String getErrorMsg() {
+		return errorMsg;
+	}
+	public void setErrorMsg(String errorMsg) {
+		this.errorMsg = errorMsg;
+	}
+	public String getVariable() {
+		return variable;
+	}
+	public void setVariable(String variable) {
+		this.variable = variable;
+	}
+
+}
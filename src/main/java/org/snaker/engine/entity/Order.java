@@ -23,7 +23,7 @@ import org.apache.commons.lang.builder.ToStringBuilder;
  * @author yuqs
  * @version 1.0
  */
-public class Order implements Serializable {
+public class Order implements Serializable, Cloneable {
 	/**
 	 * 
 	 */
@@ -189,4 +189,9 @@ public class Order implements Serializable {
 	public void setVersion(Integer version) {
 		this.version = version;
 	}
+	
+	@Override
+	public Object clone() throws CloneNotSupportedException {
+		return super.clone();
+	}
 }
@@ -0,0 +1,85 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.entity;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 任务执行上下文
+ * 一次查询得到的任务、所属流程实例及任务参与者，用于构造执行对象
+ * @author yuqs
+ * @version 1.0
+ */
+public class TaskContext implements Serializable {
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 4508207813420536562L;
+	/**
+	 * 任务对象
+	 */
+	private Task task;
+	/**
+	 * 任务所属的流程实例，流程实例不存在时为null
+	 */
+	private Order order;
+	/**
+	 * 任务参与者集合
+	 */
+	private List<TaskActor> taskActors;
+
+	public TaskContext() {
+
+	}
+
+	public TaskContext(Task task, Order order, List<TaskActor> taskActors) {
+		this.task = task;
+		this.order = order;
+		this.taskActors = taskActors;
+	}
+
+	/**
+	 * 返回任务参与者id数组
+	 * @return
+	 */
+	public String[] getActorIds() {
+		if(taskActors == null) return new String[0];
+		String[] actorIds = new String[taskActors.size()];
+		for(int i = 0; i < taskActors.size(); i++) {
+			actorIds[i] = taskActors.get(i).getActorId();
+		}
+		return actorIds;
+	}
+
+	public Task getTask() {
+		return task;
+	}
+	public void setTask(Task task) {
+		this.task = task;
+	}
+	public Order getOrder() {
+		return order;
+	}
+	public void setOrder(Order order) {
+		this.order = order;
+	}
+	public List<TaskActor> getTaskActors() {
+		return taskActors;
+	}
+	public void setTaskActors(List<TaskActor> taskActors) {
+		this.taskActors = taskActors;
+	}
+}
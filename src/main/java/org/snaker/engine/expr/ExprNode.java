@@ -0,0 +1,491 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.expr;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 表达式语法树节点，节点在解析后不再修改，可被多线程共享
+ * @author yuqs
+ * @version 1.0
+ */
+public abstract class ExprNode {
+	/**
+	 * 根据参数集合计算节点的值
+	 * @param args
+	 * @return
+	 */
+	public abstract Object eval(Map<String, Object> args);
+	
+	/**
+	 * 常量
+	 */
+	static class Literal extends ExprNode {
+		private final Object value;
+		Literal(Object value) {
+			this.value = value;
+		}
+		public Object eval(Map<String, Object> args) {
+			return value;
+		}
+	}
+	
+	/**
+	 * 变量，直接从参数集合中读取
+	 */
+	static class Variable extends ExprNode {
+		private final String name;
+		Variable(String name) {
+			this.name = name;
+		}
+		public Object eval(Map<String, Object> args) {
+			Object value = args.get(name);
+			if(value == null && !args.containsKey(name)) {
+				throw new IllegalArgumentException("undefined variable: " + name);
+			}
+			return value;
+		}
+	}
+	
+	/**
+	 * 成员访问：复合名称参数（如task1.operator）、Map取值或者bean属性
+	 */
+	static class Member extends ExprNode {
+		private final ExprNode target;
+		private final String name;
+		/**
+		 * 由变量名称组成的复合名称，非变量开头时为null
+		 */
+		private final String path;
+		private final String getter;
+		private final String isGetter;
+		Member(ExprNode target, String name) {
+			this.target = target;
+			this.name = name;
+			if(target instanceof Variable) {
+				this.path = ((Variable)target).name + "." + name;
+			} else if(target instanceof Member && ((Member)target).path != null) {
+				this.path = ((Member)target).path + "." + name;
+			} else {
+				this.path = null;
+			}
+			String cap = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+			this.getter = "get" + cap;
+			this.isGetter = "is" + cap;
+		}
+		public Object eval(Map<String, Object> args) {
+			if(path != null && args.containsKey(path)) {
+				return args.get(path);
+			}
+			Object object = target.eval(args);
+			if(object == null) {
+				throw new NullPointerException("null value of property: " + name);
+			}
+			if(object instanceof Map) {
+				return ((Map<?, ?>)object).get(name);
+			}
+			if(object.getClass().isArray() && name.equals("length")) {
+				return Array.getLength(object);
+			}
+			Method method = findMethod(object.getClass(), getter, 0);
+			if(method == null) method = findMethod(object.getClass(), isGetter, 0);
+			if(method == null) {
+				throw new IllegalArgumentException("no property[" + name + "] on " + object.getClass().getName());
+			}
+			return invoke(method, object, new Object[0]);
+		}
+	}
+	
+	/**
+	 * 下标访问：Map、List、数组
+	 */
+	static class Index extends ExprNode {
+		private final ExprNode target;
+		private final ExprNode index;
+		Index(ExprNode target, ExprNode index) {
+			this.target = target;
+			this.index = index;
+		}
+		public Object eval(Map<String, Object> args) {
+			Object object = target.eval(args);
+			Object key = index.eval(args);
+			if(object instanceof Map) {
+				return ((Map<?, ?>)object).get(key);
+			}
+			if(!(key instanceof Number)) {
+				throw new IllegalArgumentException("illegal index: " + key);
+			}
+			int i = ((Number)key).intValue();
+			if(object instanceof List) {
+				return ((List<?>)object).get(i);
+			}
+			if(object != null && object.getClass().isArray()) {
+				return Array.get(object, i);
+			}
+			throw new IllegalArgumentException("can't index on " + object);
+		}
+	}
+	
+	/**
+	 * 实例方法调用
+	 */
+	static class Invoke extends ExprNode {
+		private final ExprNode target;
+		private final String name;
+		private final ExprNode[] params;
+		Invoke(ExprNode target, String name, ExprNode[] params) {
+			this.target = target;
+			this.name = name;
+			this.params = params;
+		}
+		public Object eval(Map<String, Object> args) {
+			Object object = target.eval(args);
+			if(object == null) {
+				throw new NullPointerException("null value on invoke: " + name);
+			}
+			Object[] values = new Object[params.length];
+			for(int i = 0; i < params.length; i++) {
+				values[i] = params[i].eval(args);
+			}
+			Method method = findMethod(object.getClass(), name, values);
+			if(method == null) {
+				throw new IllegalArgumentException("no method[" + name + "] on " + object.getClass().getName());
+			}
+			return invoke(method, object, values);
+		}
+	}
+	
+	/**
+	 * 一元运算
+	 */
+	static class Unary extends ExprNode {
+		private final char op;
+		private final ExprNode operand;
+		Unary(String op, ExprNode operand) {
+			this.op = op.charAt(0);
+			this.operand = operand;
+		}
+		public Object eval(Map<String, Object> args) {
+			Object value = operand.eval(args);
+			if(op == '!') {
+				return !toBoolean(value);
+			}
+			if(!(value instanceof Number)) {
+				throw new IllegalArgumentException("illegal operand for " + op + ": " + value);
+			}
+			if(op == '+') return value;
+			Number n = (Number)value;
+			if(n instanceof Integer) return -n.intValue();
+			if(n instanceof Long) return -n.longValue();
+			if(n instanceof BigDecimal) return ((BigDecimal)n).negate();
+			return -n.doubleValue();
+		}
+	}
+	
+	/**
+	 * 短路逻辑运算
+	 */
+	static class Logical extends ExprNode {
+		private final boolean and;
+		private final ExprNode left;
+		private final ExprNode right;
+		Logical(boolean and, ExprNode left, ExprNode right) {
+			this.and = and;
+			this.left = left;
+			this.right = right;
+		}
+		public Object eval(Map<String, Object> args) {
+			boolean l = toBoolean(left.eval(args));
+			if(and ? !l : l) return l;
+			return toBoolean(right.eval(args));
+		}
+	}
+	
+	/**
+	 * 三元运算
+	 */
+	static class Conditional extends ExprNode {
+		private final ExprNode condition;
+		private final ExprNode whenTrue;
+		private final ExprNode whenFalse;
+		Conditional(ExprNode condition, ExprNode whenTrue, ExprNode whenFalse) {
+			this.condition = condition;
+			this.whenTrue = whenTrue;
+			this.whenFalse = whenFalse;
+		}
+		public Object eval(Map<String, Object> args) {
+			return toBoolean(condition.eval(args)) ? whenTrue.eval(args) : whenFalse.eval(args);
+		}
+	}
+	
+	/**
+	 * 二元运算：比较、算术
+	 */
+	static class Binary extends ExprNode {
+		private final String op;
+		private final ExprNode left;
+		private final ExprNode right;
+		Binary(String op, ExprNode left, ExprNode right) {
+			this.op = op.intern();
+			this.left = left;
+			this.right = right;
+		}
+		public Object eval(Map<String, Object> args) {
+			Object l = left.eval(args);
+			Object r = right.eval(args);
+			if(op == "==") return equals(l, r);
+			if(op == "!=") return !equals(l, r);
+			if(op == "+" && (l instanceof String || r instanceof String)) {
+				return String.valueOf(l) + String.valueOf(r);
+			}
+			if(op == "<" || op == "<=" || op == ">" || op == ">=") {
+				int c = compare(l, r);
+				if(op == "<") return c < 0;
+				if(op == "<=") return c <= 0;
+				if(op == ">") return c > 0;
+				return c >= 0;
+			}
+			return arithmetic(l, r);
+		}
+		
+		private Object arithmetic(Object l, Object r) {
+			if(!(l instanceof Number) || !(r instanceof Number)) {
+				throw new IllegalArgumentException("illegal operands for " + op + ": " + l + ", " + r);
+			}
+			Number a = (Number)l;
+			Number b = (Number)r;
+			char c = op.charAt(0);
+			if(isDecimal(a) || isDecimal(b)) {
+				double x = a.doubleValue();
+				double y = b.doubleValue();
+				switch(c) {
+				case '+': return x + y;
+				case '-': return x - y;
+				case '*': return x * y;
+				case '/': return x / y;
+				default: return x % y;
+				}
+			}
+			long x = a.longValue();
+			long y = b.longValue();
+			long result;
+			switch(c) {
+			case '+': result = x + y; break;
+			case '-': result = x - y; break;
+			case '*': result = x * y; break;
+			case '/': result = x / y; break;
+			default: result = x % y;
+			}
+			if(a instanceof Long || b instanceof Long || a instanceof BigInteger || b instanceof BigInteger) {
+				return result;
+			}
+			return (int)result;
+		}
+	}
+	
+	/**
+	 * 判断值是否为boolean类型，并返回boolean值
+	 * @param value
+	 * @return
+	 */
+	static boolean toBoolean(Object value) {
+		if(value instanceof Boolean) return (Boolean)value;
+		throw new IllegalArgumentException("boolean value expected: " + value);
+	}
+	
+	/**
+	 * 相等比较：数值按大小比较，其它对象使用equals
+	 * @param l
+	 * @param r
+	 * @return
+	 */
+	static boolean equals(Object l, Object r) {
+		if(l == r) return true;
+		if(l == null || r == null) return false;
+		if(l instanceof Number && r instanceof Number) {
+			return compareNumber((Number)l, (Number)r) == 0;
+		}
+		if(l instanceof Character && r instanceof String || l instanceof String && r instanceof Character) {
+			return l.toString().equals(r.toString());
+		}
+		return l.equals(r);
+	}
+	
+	/**
+	 * 大小比较：数值按大小比较，同类型的Comparable对象使用compareTo
+	 * @param l
+	 * @param r
+	 * @return
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static int compare(Object l, Object r) {
+		if(l instanceof Number && r instanceof Number) {
+			return compareNumber((Number)l, (Number)r);
+		}
+		if(l instanceof Comparable && r != null && l.getClass() == r.getClass()) {
+			return ((Comparable)l).compareTo(r);
+		}
+		throw new IllegalArgumentException("can't compare " + l + " with " + r);
+	}
+	
+	private static int compareNumber(Number a, Number b) {
+		if(a instanceof BigDecimal || b instanceof BigDecimal || a instanceof BigInteger || b instanceof BigInteger) {
+			return toBigDecimal(a).compareTo(toBigDecimal(b));
+		}
+		if(isDecimal(a) || isDecimal(b)) {
+			return Double.compare(a.doubleValue(), b.doubleValue());
+		}
+		long x = a.longValue();
+		long y = b.longValue();
+		return x < y ? -1 : (x == y ? 0 : 1);
+	}
+	
+	private static BigDecimal toBigDecimal(Number n) {
+		if(n instanceof BigDecimal) return (BigDecimal)n;
+		if(n instanceof BigInteger) return new BigDecimal((BigInteger)n);
+		if(isDecimal(n)) return new BigDecimal(n.doubleValue());
+		return BigDecimal.valueOf(n.longValue());
+	}
+	
+	private static boolean isDecimal(Number n) {
+		return n instanceof Double || n instanceof Float || n instanceof BigDecimal;
+	}
+	
+	/**
+	 * 方法缓存，key为class#方法名#参数个数，只缓存参数个数唯一确定的方法
+	 */
+	private static final ConcurrentMap<String, Method> methods = new ConcurrentHashMap<String, Method>();
+	
+	/**
+	 * 查找无参方法
+	 * @param clazz
+	 * @param name
+	 * @param count
+	 * @return
+	 */
+	static Method findMethod(Class<?> clazz, String name, int count) {
+		return findMethod(clazz, name, new Object[count]);
+	}
+	
+	/**
+	 * 根据方法名称、参数值查找可访问的public方法
+	 * @param clazz
+	 * @param name
+	 * @param values
+	 * @return
+	 */
+	static Method findMethod(Class<?> clazz, String name, Object[] values) {
+		String key = clazz.getName() + "#" + name + "#" + values.length;
+		Method method = methods.get(key);
+		if(method != null) return method;
+		Method found = null;
+		int count = 0;
+		for(Method m : clazz.getMethods()) {
+			if(!m.getName().equals(name) || m.getParameterTypes().length != values.length) continue;
+			count++;
+			if(found == null && accept(m.getParameterTypes(), values)) {
+				found = m;
+			}
+		}
+		if(found == null) return null;
+		found = accessible(clazz, found);
+		if(count == 1) methods.putIfAbsent(key, found);
+		return found;
+	}
+	
+	/**
+	 * 方法声明在非public类中时，查找public的父类或接口中的同名方法
+	 * @param clazz
+	 * @param method
+	 * @return
+	 */
+	private static Method accessible(Class<?> clazz, Method method) {
+		if(Modifier.isPublic(method.getDeclaringClass().getModifiers())) return method;
+		for(Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+			if(Modifier.isPublic(c.getModifiers())) {
+				try {
+					return c.getMethod(method.getName(), method.getParameterTypes());
+				} catch (NoSuchMethodException e) {
+					//ignore exception
+				}
+			}
+			for(Class<?> i : c.getInterfaces()) {
+				Method m = publicMethod(i, method);
+				if(m != null) return m;
+			}
+		}
+		return method;
+	}
+	
+	private static Method publicMethod(Class<?> type, Method method) {
+		if(Modifier.isPublic(type.getModifiers())) {
+			try {
+				return type.getMethod(method.getName(), method.getParameterTypes());
+			} catch (NoSuchMethodException e) {
+				//ignore exception
+			}
+		}
+		for(Class<?> i : type.getInterfaces()) {
+			Method m = publicMethod(i, method);
+			if(m != null) return m;
+		}
+		return null;
+	}
+	
+	private static boolean accept(Class<?>[] types, Object[] values) {
+		for(int i = 0; i < types.length; i++) {
+			if(values[i] == null) {
+				if(types[i].isPrimitive()) return false;
+				continue;
+			}
+			Class<?> type = types[i].isPrimitive() ? wrap(types[i]) : types[i];
+			if(!type.isInstance(values[i])) return false;
+		}
+		return true;
+	}
+	
+	private static Class<?> wrap(Class<?> type) {
+		if(type == int.class) return Integer.class;
+		if(type == long.class) return Long.class;
+		if(type == boolean.class) return Boolean.class;
+		if(type == double.class) return Double.class;
+		if(type == float.class) return Float.class;
+		if(type == char.class) return Character.class;
+		if(type == short.class) return Short.class;
+		if(type == byte.class) return Byte.class;
+		return Void.class;
+	}
+	
+	static Object invoke(Method method, Object target, Object[] values) {
+		try {
+			return method.invoke(target, values);
+		} catch (InvocationTargetException e) {
+			Throwable t = e.getTargetException();
+			if(t instanceof RuntimeException) throw (RuntimeException)t;
+			throw new IllegalStateException(t);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
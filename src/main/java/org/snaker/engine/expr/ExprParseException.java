@@ -0,0 +1,28 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.expr;
+
+/**
+ * 表达式解析异常，表示表达式不被内置引擎支持
+ * @author yuqs
+ * @version 1.0
+ */
+public class ExprParseException extends Exception {
+	private static final long serialVersionUID = -4471398287003744573L;
+
+	public ExprParseException(String msg) {
+		super(msg);
+	}
+}
@@ -0,0 +1,372 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.expr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 表达式解析器，采用递归下降方式将表达式解析为语法树。
+ * 运算符优先级由低到高为：?:、||、&&、== !=、< <= > >=、+ -、* / %、! -(一元)、. [] ()
+ * @author yuqs
+ * @version 1.0
+ */
+public class ExprParser {
+	/**
+	 * 不支持的关键字
+	 */
+	private static final Set<String> UNSUPPORTED = new HashSet<String>(Arrays.asList(
+			"new", "instanceof", "this", "super", "class", "return", "if", "else", "for",
+			"while", "do", "switch", "case", "import", "void", "throw", "try", "catch"));
+	/**
+	 * 多字符运算符
+	 */
+	private static final String[] OPERATORS = {"==", "!=", "<=", ">=", "&&", "||"};
+	/**
+	 * 单字符运算符
+	 */
+	private static final String SINGLE_OPERATORS = "+-*/%<>!?:.,()[]";
+	
+	private final String text;
+	/**
+	 * 去除结尾分号后的表达式及当前解析位置
+	 */
+	private String source;
+	private int pos = 0;
+	/**
+	 * 当前token类型及内容
+	 */
+	private int type;
+	private String token;
+	private Object value;
+	
+	private static final int EOF = 0;
+	private static final int NUMBER = 1;
+	private static final int STRING = 2;
+	private static final int IDENT = 3;
+	private static final int OPERATOR = 4;
+	
+	public ExprParser(String text) {
+		this.text = text == null ? "" : text.trim();
+	}
+	
+	/**
+	 * 解析表达式，返回语法树根节点
+	 * @return
+	 * @throws ExprParseException 表达式语法错误或存在不支持的语法
+	 */
+	public ExprNode parse() throws ExprParseException {
+		String body = text;
+		while(body.endsWith(";")) {
+			body = body.substring(0, body.length() - 1).trim();
+		}
+		if(body.length() == 0) throw new ExprParseException("empty expression");
+		source = body;
+		pos = 0;
+		next();
+		ExprNode node = parseConditional();
+		if(type != EOF) throw new ExprParseException("unexpected token: " + token);
+		return node;
+	}
+	
+	private ExprNode parseConditional() throws ExprParseException {
+		ExprNode node = parseOr();
+		if(isOperator("?")) {
+			next();
+			ExprNode whenTrue = parseConditional();
+			expect(":");
+			ExprNode whenFalse = parseConditional();
+			node = new ExprNode.Conditional(node, whenTrue, whenFalse);
+		}
+		return node;
+	}
+	
+	private ExprNode parseOr() throws ExprParseException {
+		ExprNode node = parseAnd();
+		while(isOperator("||")) {
+			next();
+			node = new ExprNode.Logical(false, node, parseAnd());
+		}
+		return node;
+	}
+	
+	private ExprNode parseAnd() throws ExprParseException {
+		ExprNode node = parseEquality();
+		while(isOperator("&&")) {
+			next();
+			node = new ExprNode.Logical(true, node, parseEquality());
+		}
+		return node;
+	}
+	
+	private ExprNode parseEquality() throws ExprParseException {
+		ExprNode node = parseRelational();
+		while(isOperator("==") || isOperator("!=")) {
+			String op = token;
+			next();
+			node = new ExprNode.Binary(op, node, parseRelational());
+		}
+		return node;
+	}
+	
+	private ExprNode parseRelational() throws ExprParseException {
+		ExprNode node = parseAdditive();
+		while(isOperator("<") || isOperator("<=") || isOperator(">") || isOperator(">=")) {
+			String op = token;
+			next();
+			node = new ExprNode.Binary(op, node, parseAdditive());
+		}
+		return node;
+	}
+	
+	private ExprNode parseAdditive() throws ExprParseException {
+		ExprNode node = parseMultiplicative();
+		while(isOperator("+") || isOperator("-")) {
+			String op = token;
+			next();
+			node = new ExprNode.Binary(op, node, parseMultiplicative());
+		}
+		return node;
+	}
+	
+	private ExprNode parseMultiplicative() throws ExprParseException {
+		ExprNode node = parseUnary();
+		while(isOperator("*") || isOperator("/") || isOperator("%")) {
+			String op = token;
+			next();
+			node = new ExprNode.Binary(op, node, parseUnary());
+		}
+		return node;
+	}
+	
+	private ExprNode parseUnary() throws ExprParseException {
+		if(isOperator("!") || isOperator("-") || isOperator("+")) {
+			String op = token;
+			next();
+			return new ExprNode.Unary(op, parseUnary());
+		}
+		return parsePostfix();
+	}
+	
+	private ExprNode parsePostfix() throws ExprParseException {
+		ExprNode node = parsePrimary();
+		while(true) {
+			if(isOperator(".")) {
+				next();
+				if(type != IDENT) throw new ExprParseException("identifier expected after '.'");
+				String name = token;
+				next();
+				if(isOperator("(")) {
+					next();
+					List<ExprNode> args = new ArrayList<ExprNode>();
+					if(!isOperator(")")) {
+						args.add(parseConditional());
+						while(isOperator(",")) {
+							next();
+							args.add(parseConditional());
+						}
+					}
+					expect(")");
+					node = new ExprNode.Invoke(node, name, args.toArray(new ExprNode[args.size()]));
+				} else {
+					node = new ExprNode.Member(node, name);
+				}
+			} else if(isOperator("[")) {
+				next();
+				ExprNode index = parseConditional();
+				expect("]");
+				node = new ExprNode.Index(node, index);
+			} else {
+				return node;
+			}
+		}
+	}
+	
+	private ExprNode parsePrimary() throws ExprParseException {
+		if(type == NUMBER || type == STRING) {
+			Object literal = value;
+			next();
+			return new ExprNode.Literal(literal);
+		}
+		if(type == IDENT) {
+			String name = token;
+			next();
+			if(name.equals("true")) return new ExprNode.Literal(Boolean.TRUE);
+			if(name.equals("false")) return new ExprNode.Literal(Boolean.FALSE);
+			if(name.equals("null")) return new ExprNode.Literal(null);
+			if(UNSUPPORTED.contains(name)) throw new ExprParseException("unsupported keyword: " + name);
+			if(isOperator("(")) throw new ExprParseException("unsupported function call: " + name);
+			//大写开头且有成员访问的名称视为类名（静态调用），不支持
+			if(Character.isUpperCase(name.charAt(0)) && isOperator(".")) {
+				throw new ExprParseException("unsupported static access: " + name);
+			}
+			return new ExprNode.Variable(name);
+		}
+		if(isOperator("(")) {
+			next();
+			ExprNode node = parseConditional();
+			expect(")");
+			return node;
+		}
+		throw new ExprParseException("unexpected token: " + (type == EOF ? "end of expression" : token));
+	}
+	
+	private boolean isOperator(String op) {
+		return type == OPERATOR && token.equals(op);
+	}
+	
+	private void expect(String op) throws ExprParseException {
+		if(!isOperator(op)) throw new ExprParseException("'" + op + "' expected");
+		next();
+	}
+	
+	/**
+	 * 读取下一个token
+	 * @throws ExprParseException
+	 */
+	private void next() throws ExprParseException {
+		String s = source;
+		int len = s.length();
+		while(pos < len && Character.isWhitespace(s.charAt(pos))) pos++;
+		value = null;
+		if(pos >= len) {
+			type = EOF;
+			token = null;
+			return;
+		}
+		char c = s.charAt(pos);
+		if(Character.isDigit(c) || (c == '.' && pos + 1 < len && Character.isDigit(s.charAt(pos + 1)))) {
+			readNumber();
+		} else if(c == '\'' || c == '"') {
+			readString(c);
+		} else if(Character.isJavaIdentifierStart(c)) {
+			int start = pos;
+			while(pos < len && Character.isJavaIdentifierPart(s.charAt(pos))) pos++;
+			type = IDENT;
+			token = s.substring(start, pos);
+		} else {
+			for(String op : OPERATORS) {
+				if(s.startsWith(op, pos)) {
+					pos += op.length();
+					type = OPERATOR;
+					token = op;
+					return;
+				}
+			}
+			if(SINGLE_OPERATORS.indexOf(c) < 0) {
+				throw new ExprParseException("unsupported character: " + c);
+			}
+			//赋值、自增等运算不支持
+			if(pos + 1 < len && s.charAt(pos + 1) == '=' && "+-*/%".indexOf(c) >= 0) {
+				throw new ExprParseException("unsupported assignment");
+			}
+			if(pos + 1 < len && (c == '+' || c == '-') && s.charAt(pos + 1) == c) {
+				throw new ExprParseException("unsupported increment");
+			}
+			pos++;
+			type = OPERATOR;
+			token = String.valueOf(c);
+		}
+	}
+	
+	private void readNumber() throws ExprParseException {
+		String s = source;
+		int len = s.length();
+		int start = pos;
+		boolean decimal = false;
+		if(s.startsWith("0x", pos) || s.startsWith("0X", pos)) {
+			throw new ExprParseException("unsupported hex literal");
+		}
+		while(pos < len) {
+			char c = s.charAt(pos);
+			if(Character.isDigit(c)) {
+				pos++;
+			} else if(c == '.' && !decimal && pos + 1 < len && Character.isDigit(s.charAt(pos + 1))) {
+				decimal = true;
+				pos++;
+			} else if((c == 'e' || c == 'E') && pos + 1 < len) {
+				decimal = true;
+				pos++;
+				if(s.charAt(pos) == '+' || s.charAt(pos) == '-') pos++;
+			} else {
+				break;
+			}
+		}
+		String literal = s.substring(start, pos);
+		char suffix = pos < len ? Character.toLowerCase(s.charAt(pos)) : 0;
+		try {
+			if(suffix == 'l') {
+				pos++;
+				value = Long.valueOf(literal);
+			} else if(suffix == 'd' || suffix == 'f') {
+				pos++;
+				value = suffix == 'd' ? (Object)Double.valueOf(literal) : (Object)Float.valueOf(literal);
+			} else if(decimal) {
+				value = Double.valueOf(literal);
+			} else {
+				long l = Long.parseLong(literal);
+				value = l <= Integer.MAX_VALUE ? (Object)Integer.valueOf((int)l) : (Object)Long.valueOf(l);
+			}
+		} catch (NumberFormatException e) {
+			throw new ExprParseException("illegal number: " + literal);
+		}
+		if(pos < len && Character.isJavaIdentifierPart(s.charAt(pos))) {
+			throw new ExprParseException("illegal number: " + s.substring(start, pos + 1));
+		}
+		type = NUMBER;
+		token = s.substring(start, pos);
+	}
+	
+	private void readString(char quote) throws ExprParseException {
+		String s = source;
+		int len = s.length();
+		int start = pos++;
+		StringBuilder buffer = new StringBuilder();
+		while(true) {
+			if(pos >= len) throw new ExprParseException("unterminated string");
+			char c = s.charAt(pos++);
+			if(c == quote) break;
+			if(c == '\\') {
+				if(pos >= len) throw new ExprParseException("unterminated string");
+				char e = s.charAt(pos++);
+				switch(e) {
+				case 'n': buffer.append('\n'); break;
+				case 't': buffer.append('\t'); break;
+				case 'r': buffer.append('\r'); break;
+				case 'b': buffer.append('\b'); break;
+				case 'f': buffer.append('\f'); break;
+				case 'u':
+					if(pos + 4 > len) throw new ExprParseException("illegal unicode escape");
+					try {
+						buffer.append((char)Integer.parseInt(s.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException ex) {
+						throw new ExprParseException("illegal unicode escape");
+					}
+					pos += 4;
+					break;
+				default: buffer.append(e);
+				}
+			} else {
+				buffer.append(c);
+			}
+		}
+		type = STRING;
+		token = s.substring(start, pos);
+		value = buffer.toString();
+	}
+}
@@ -0,0 +1,56 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.expr;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.snaker.engine.Expression;
+import org.snaker.engine.SnakerException;
+
+/**
+ * 内置引擎编译的表达式，持有不可变的语法树，可被多线程共享
+ * @author yuqs
+ * @version 1.0
+ */
+public class NativeExpression implements Expression {
+	/**
+	 * 原始表达式
+	 */
+	private final String expr;
+	/**
+	 * 语法树根节点
+	 */
+	private final ExprNode root;
+	
+	public NativeExpression(String expr, ExprNode root) {
+		this.expr = expr;
+		this.root = root;
+	}
+	
+	@Override
+	public <T> T eval(Class<T> T, Map<String, Object> args) {
+		if(args == null) args = Collections.emptyMap();
+		try {
+			return T.cast(root.eval(args));
+		} catch (RuntimeException e) {
+			throw new SnakerException("表达式[" + expr + "]解析失败.", e);
+		}
+	}
+	
+	public String toString() {
+		return expr;
+	}
+}
@@ -14,6 +14,14 @@
  */
 package org.snaker.engine.handlers.impl;
 
+import java.util.List;
+
+import org.snaker.engine.SnakerEngine;
+import org.snaker.engine.core.Execution;
+import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.model.TaskModel;
+
 /**
  * actor all方式的合并处理器
  * @author yuqs
@@ -24,6 +32,10 @@ public class MergeActorHandler extends AbstractMergeHandler {
 	 * 调用者需要提供actor all的任务名称
 	 */
 	private String taskName;
+	/**
+	 * actor all的任务模型，为null时不使用计数器
+	 */
+	private TaskModel model;
 	
 	/**
 	 * 构造函数，由调用者提供taskName
@@ -32,6 +44,39 @@ public class MergeActorHandler extends AbstractMergeHandler {
 	public MergeActorHandler(String taskName) {
 		this.taskName = taskName;
 	}
+	
+	/**
+	 * 构造函数，由调用者提供任务模型，合并时使用创建任务时生成的计数器
+	 * @param model
+	 */
+	public MergeActorHandler(TaskModel model) {
+		this.taskName = model.getName();
+		this.model = model;
+	}
+	
+	/**
+	 * 每个参与者任务完成时原子递减计数器，减至0时表示满足完成规则，可合并
+	 * 完成规则为部分完成时，合并后由系统完成其余未处理的参与者任务
+	 * 计数器不存在时（如升级前已创建的流程实例），按查询活动任务的方式合并
+	 */
+	@Override
+	public void handle(Execution execution) {
+		if(model != null) {
+			SnakerEngine engine = execution.getEngine();
+			String orderId = execution.getOrder().getId();
+			Integer remain = ServiceContext.getContext().getOrderService().decreaseCounter(orderId, taskName);
+			if(remain != null) {
+				boolean isMerged = remain.intValue() == 0;
+				if(isMerged && model.isPartialCompletion()) {
+					List<Task> tasks = engine.query().getActiveTasks(orderId, execution.getTask().getId(), new String[]{taskName});
+					engine.task().completeTasks(tasks, SnakerEngine.AUTO);
+				}
+				execution.setMerged(isMerged);
+				return;
+			}
+		}
+		super.handle(execution);
+	}
 
 	/**
 	 * actor all方式，查询参数为：orderId、taskName
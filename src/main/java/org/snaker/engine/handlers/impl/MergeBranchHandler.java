@@ -14,13 +14,9 @@
  */
 package org.snaker.engine.handlers.impl;
 
-import java.util.List;
-
-import org.snaker.engine.model.ForkModel;
+import org.snaker.engine.core.Execution;
+import org.snaker.engine.core.ServiceContext;
 import org.snaker.engine.model.JoinModel;
-import org.snaker.engine.model.NodeModel;
-import org.snaker.engine.model.TransitionModel;
-import org.snaker.engine.model.WorkModel;
 
 /**
  * 合并分支操作的处理器
@@ -34,30 +30,27 @@ public class MergeBranchHandler extends AbstractMergeHandler {
 	}
 	
 	/**
-	 * 对join节点的所有输入变迁进行递归，查找join至fork节点的所有中间task元素
-	 * @param node
-	 * @param buffer
+	 * 由分支节点计数器控制的合并，到达时原子递减计数器，减至0时合并，无需查询活动任务
+	 * 计数器不存在时（如升级前已创建的流程实例、任意跳转后），按查询活动任务的方式合并
 	 */
-	private void findForkTaskNames(NodeModel node, StringBuilder buffer) {
-		if(node instanceof ForkModel) return;
-		List<TransitionModel> inputs = node.getInputs();
-		for(TransitionModel tm : inputs) {
-			if(tm.getSource() instanceof WorkModel) {
-				buffer.append(tm.getSource().getName()).append(",");
+	@Override
+	public void handle(Execution execution) {
+		if(model.isCounted()) {
+			Integer remain = ServiceContext.getContext().getOrderService().decreaseCounter(execution.getOrder().getId(), model.getName());
+			if(remain != null) {
+				execution.setMerged(remain.intValue() == 0);
+				return;
 			}
-			findForkTaskNames(tm.getSource(), buffer);
 		}
+		super.handle(execution);
 	}
-
+	
 	/**
-	 * 对join节点的所有输入变迁进行递归，查找join至fork节点的所有中间task元素
+	 * 返回join至fork节点的所有中间task元素，由JoinModel编译时查找
 	 * @see org.snaker.engine.handlers.impl.AbstractMergeHandler#findActiveNodes()
 	 */
 	@Override
 	protected String[] findActiveNodes() {
-		StringBuilder buffer = new StringBuilder(20);
-		findForkTaskNames(model, buffer);
-		String[] taskNames = buffer.toString().split(",");
-		return taskNames;
+		return model.getForkTaskNames();
 	}
 }
@@ -14,16 +14,11 @@
  */
 package org.snaker.engine.handlers.impl;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
 import org.snaker.engine.SnakerEngine;
 import org.snaker.engine.SnakerException;
 import org.snaker.engine.core.Execution;
 import org.snaker.engine.core.ModelContainer;
+import org.snaker.engine.core.ServiceContext;
 import org.snaker.engine.entity.Order;
 import org.snaker.engine.entity.Process;
 import org.snaker.engine.handlers.IHandler;
@@ -37,24 +32,30 @@ import org.snaker.engine.model.SubProcessModel;
  */
 public class StartSubProcessHandler implements IHandler {
 	private SubProcessModel model;
-	/**
-	 * 是否以future方式执行启动子流程任务
-	 */
-	private boolean isFutureRunning = false;
 	public StartSubProcessHandler(SubProcessModel model) {
 		this.model = model;
 	}
 	
-	public StartSubProcessHandler(SubProcessModel model, boolean isFutureRunning) {
-		this.model = model;
-		this.isFutureRunning = isFutureRunning;
-	}
-	
 	/**
-	 * 子流程执行的处理
+	 * 子流程执行的处理，异步节点只保存异步作业，由作业执行器在新事务中启动子流程。
+	 * 子流程实例对尚未提交的父流程实例有外键约束，同步节点只能在父流程的事务中依次启动；
+	 * 需要并行启动多个子流程时使用异步(async)子流程节点，由作业执行器的多个线程分别启动
 	 */
 	@Override
 	public void handle(Execution execution) {
+		if(model.isAsync()) {
+			ServiceContext.getContext().getOrderService().createJob(execution.getOrder(), model.getName(), 
+					null, execution.getOperator(), execution.getArgs());
+			return;
+		}
+		start(execution);
+	}
+	
+	/**
+	 * 在当前线程的事务中启动子流程，并将子流程产生的活动任务添加到执行对象中
+	 * @param execution
+	 */
+	public void start(Execution execution) {
 		//获取子流程模型对象
 		ProcessModel pm = model.getSubProcess();
 		//根据子流程模型名称获取子流程定义对象
@@ -62,49 +63,9 @@ public class StartSubProcessHandler implements IHandler {
 		SnakerEngine engine = execution.getEngine();
 		
 		Execution child = execution.createSubExecution(execution, process, model.getName());
-		Order order = null;
-		if(isFutureRunning) {
-			//创建单个线程执行器来执行启动子流程的任务
-			ExecutorService es = Executors.newSingleThreadExecutor();
-			//提交执行任务，并返回future
-			Future<Order> future = es.submit(new ExecuteTask(execution, process, model.getName()));
-			try {
-				es.shutdown();
-				order = future.get();
-			} catch (InterruptedException e) {
-				throw new SnakerException("Future线程被强制终止执行", e.getCause());
-			} catch (ExecutionException e) {
-				throw new SnakerException("Future线程执行异常.", e.getCause());
-			}
-		} else {
-			order  = engine.startInstanceByExecution(child);
-		}
+		Order order = engine.startInstanceByExecution(child);
 		if(order == null) throw new SnakerException("子流程创建失败");
 
 		execution.addTasks(engine.query().getActiveTasks(order.getId()));
 	}
-
-	/**
-	 * Future模式的任务执行。通过call返回任务结果集
-	 * @author yuqs
-	 * @version 1.0
-	 */
-	class ExecuteTask implements Callable<Order> {
-		private SnakerEngine engine;
-		private Execution child;
-		/**
-		 * 构造函数
-		 * @param execution
-		 * @param process
-		 * @param parentNodeName
-		 */
-		public ExecuteTask(Execution execution, Process process,String parentNodeName) {
-			this.engine = execution.getEngine();
-			child = execution.createSubExecution(execution, process, parentNodeName);
-		}
-		@Override
-		public Order call() throws Exception {
-			return engine.startInstanceByExecution(child);
-		}
-	}
 }
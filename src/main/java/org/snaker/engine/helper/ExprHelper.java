@@ -15,18 +15,50 @@
 package org.snaker.engine.helper;
 
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.snaker.engine.Expression;
+import org.snaker.engine.ExpressionEvaluator;
 import org.snaker.engine.SnakerException;
-
-import bsh.Interpreter;
+import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.impl.BshExpression;
 
 /**
  * 表达式引擎帮助类 1.0版本使用bsh的引擎
+ * 表达式按照文本编译一次后缓存，编译后的表达式可被多线程共享
+ * 如果ServiceContext中注册了ExpressionEvaluator，则优先使用该引擎编译，不支持的表达式仍由bsh引擎处理
  * @author yuqs
  * @version 1.0
  */
 public class ExprHelper {
+	/**
+	 * 编译后的表达式缓存，key为表达式文本
+	 */
+	private static final ConcurrentMap<String, Expression> expressions = new ConcurrentHashMap<String, Expression>();
+	
+	/**
+	 * 编译表达式，相同文本的表达式只编译一次
+	 * @param expr
+	 * @return
+	 */
+	public static Expression compile(String expr) {
+		if(expr == null) expr = "";
+		Expression expression = expressions.get(expr);
+		if(expression == null) {
+			ExpressionEvaluator evaluator = ServiceContext.getContext().getExpressionEvaluator();
+			if(evaluator != null) {
+				expression = evaluator.compile(expr);
+			}
+			if(expression == null) {
+				expression = new BshExpression(expr, escape(expr));
+			}
+			Expression exists = expressions.putIfAbsent(expr, expression);
+			if(exists != null) expression = exists;
+		}
+		return expression;
+	}
+	
 	/**
 	 * 根据给定的参数集合、表达式语句，使用bsh执行，并返回结果
 	 * @param args
@@ -34,15 +66,7 @@ public class ExprHelper {
 	 * @return
 	 */
 	public static String evalString(Map<String, Object> args, String expr) {
-		Interpreter bsh = new Interpreter();
-		try {
-			for (Entry<String, Object> entry : args.entrySet()) {
-				bsh.set(entry.getKey(), entry.getValue());
-			}
-			return (String) bsh.eval(escape(expr));
-		} catch (Exception e) {
-			throw new SnakerException("表达式[" + expr + "]解析失败.", e.getCause());
-		}
+		return compile(expr).eval(String.class, args);
 	}
 	
 	/**
@@ -52,15 +76,11 @@ public class ExprHelper {
 	 * @return
 	 */
 	public static boolean evalBoolean(Map<String, Object> args, String expr) {
-		Interpreter bsh = new Interpreter();
-		try {
-			for (Entry<String, Object> entry : args.entrySet()) {
-				bsh.set(entry.getKey(), entry.getValue());
-			}
-			return (Boolean) bsh.eval(escape(expr));
-		} catch (Exception e) {
-			throw new SnakerException("表达式[" + expr + "]解析失败.", e.getCause());
+		Boolean result = compile(expr).eval(Boolean.class, args);
+		if(result == null) {
+			throw new SnakerException("表达式[" + expr + "]解析失败.");
 		}
+		return result;
 	}
 
 	/**
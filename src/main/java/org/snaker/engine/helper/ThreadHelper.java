@@ -0,0 +1,80 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.helper;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 线程帮助类
+ * @author yuqs
+ * @version 1.0
+ */
+public abstract class ThreadHelper {
+	private static final Logger log = LoggerFactory.getLogger(ThreadHelper.class);
+	
+	/**
+	 * 构造线程工厂，virtualThreads为true且运行环境支持时返回虚拟线程工厂，否则返回平台守护线程工厂
+	 * @param prefix 线程名称前缀
+	 * @param virtualThreads 是否使用虚拟线程
+	 * @return
+	 */
+	public static ThreadFactory newThreadFactory(String prefix, boolean virtualThreads) {
+		if(virtualThreads) {
+			ThreadFactory factory = newVirtualThreadFactory(prefix);
+			if(factory != null) return factory;
+		}
+		return new DaemonThreadFactory(prefix);
+	}
+	
+	/**
+	 * 通过反射构造虚拟线程工厂(Thread.ofVirtual().name(prefix, 0).factory())，运行环境不支持时返回null
+	 * @param prefix
+	 * @return
+	 */
+	private static ThreadFactory newVirtualThreadFactory(String prefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> clazz = Class.forName("java.lang.Thread$Builder");
+			builder = clazz.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			return (ThreadFactory)clazz.getMethod("factory").invoke(builder);
+		} catch(Exception e) {
+			log.warn("运行环境不支持虚拟线程，使用平台线程[" + prefix + "]");
+			return null;
+		}
+	}
+	
+	/**
+	 * 平台守护线程工厂
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger sequence = new AtomicInteger();
+		
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, prefix + sequence.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.ExpireHandler;
+import org.snaker.engine.SnakerEngine;
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Task;
+
+/**
+ * 到期自动完成处理器，任务到期时以系统操作人执行任务，流程实例到期时只记录日志
+ * @author yuqs
+ * @version 1.0
+ */
+public class AutoCompleteHandler implements ExpireHandler {
+	private static final Logger log = LoggerFactory.getLogger(AutoCompleteHandler.class);
+	
+	@Override
+	public void expire(SnakerEngine engine, Task task) {
+		if(log.isInfoEnabled()) {
+			log.info("任务[标识=" + task.getId() + ",名称=" + task.getDisplayName() + "]已到期，自动完成");
+		}
+		engine.executeTask(task.getId(), SnakerEngine.AUTO);
+	}
+
+	@Override
+	public void expire(SnakerEngine engine, Order order) {
+		if(log.isInfoEnabled()) {
+			log.info("流程实例[标识=" + order.getId() + ",编号=" + order.getOrderNo() + "]已到期");
+		}
+	}
+}
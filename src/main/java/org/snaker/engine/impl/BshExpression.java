@@ -0,0 +1,269 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.Expression;
+import org.snaker.engine.SnakerException;
+
+import bsh.BshMethod;
+import bsh.Interpreter;
+import bsh.Primitive;
+
+/**
+ * bsh引擎编译的表达式
+ * 编译时扫描表达式引用的变量名称，并将表达式定义为bsh方法，方法参数即为引用的变量；
+ * 执行时只绑定表达式引用到的参数，直接调用已解析的方法，不再重复解析表达式文本。
+ * 参数集合中引用变量的存在情况不同时，bsh对未定义变量的处理不同，所以按照变量存在情况分别定义方法。
+ * 无法定义为方法的表达式（如多条语句），则退回每次创建解释器执行的方式
+ * @author yuqs
+ * @version 1.0
+ */
+public class BshExpression implements Expression {
+	private static final Logger log = LoggerFactory.getLogger(BshExpression.class);
+	/**
+	 * 表达式方法名称
+	 */
+	private static final String METHOD_NAME = "snakerExpr";
+	/**
+	 * 可绑定的最大变量数
+	 */
+	private static final int MAX_NAMES = 30;
+	/**
+	 * 不能作为变量名称的关键字
+	 */
+	private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+			"abstract", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+			"continue", "default", "do", "double", "else", "enum", "extends", "false", "final",
+			"finally", "float", "for", "goto", "if", "implements", "import", "instanceof", "int",
+			"interface", "long", "native", "new", "null", "package", "private", "protected",
+			"public", "return", "short", "static", "strictfp", "super", "switch", "synchronized",
+			"this", "throw", "throws", "transient", "true", "try", "void", "volatile", "while"));
+	/**
+	 * 原始表达式
+	 */
+	private final String expr;
+	/**
+	 * 预处理后的表达式
+	 */
+	private final String text;
+	/**
+	 * 表达式引用的变量名称
+	 */
+	private final String[] names;
+	/**
+	 * 表达式引用的变量名称集合
+	 */
+	private final Set<String> nameSet;
+	/**
+	 * 是否只能以解释方式执行
+	 */
+	private final boolean interpretOnly;
+	/**
+	 * 按照变量存在情况（位掩码）缓存的已定义方法
+	 */
+	private final ConcurrentMap<Integer, Variant> variants = new ConcurrentHashMap<Integer, Variant>(4);
+	
+	/**
+	 * 根据原始表达式、预处理后的表达式构造
+	 * @param expr
+	 * @param text
+	 */
+	public BshExpression(String expr, String text) {
+		this.expr = expr;
+		String body = text.trim();
+		while(body.endsWith(";")) {
+			body = body.substring(0, body.length() - 1).trim();
+		}
+		this.text = body;
+		List<String> list = new ArrayList<String>();
+		boolean statements = scan(body, list);
+		this.names = list.toArray(new String[list.size()]);
+		this.nameSet = new HashSet<String>(list);
+		this.interpretOnly = statements || body.length() == 0 || names.length > MAX_NAMES;
+	}
+	
+	@Override
+	public <T> T eval(Class<T> T, Map<String, Object> args) {
+		if(args == null) args = Collections.emptyMap();
+		try {
+			Object result = null;
+			Variant variant = interpretOnly ? null : getVariant(args);
+			if(variant != null) {
+				result = variant.invoke(args);
+			} else {
+				result = interpret(args);
+			}
+			return T.cast(result);
+		} catch (Exception e) {
+			throw new SnakerException("表达式[" + expr + "]解析失败.", e.getCause());
+		}
+	}
+	
+	/**
+	 * 根据参数集合中引用变量的存在情况，返回对应的已定义方法
+	 * 表达式引用了复合名称（如task1.operator）的参数时，其绑定方式与普通变量不同，返回null由解释方式执行
+	 * @param args
+	 * @return
+	 */
+	private Variant getVariant(Map<String, Object> args) {
+		for(String key : args.keySet()) {
+			int index = key == null ? -1 : key.indexOf('.');
+			if(index > 0 && nameSet.contains(key.substring(0, index))) return null;
+		}
+		int mask = 0;
+		for(int i = 0; i < names.length; i++) {
+			if(args.containsKey(names[i])) mask |= 1 << i;
+		}
+		Integer key = Integer.valueOf(mask);
+		Variant variant = variants.get(key);
+		if(variant == null) {
+			variant = define(mask);
+			if(variant == null) return null;
+			Variant exists = variants.putIfAbsent(key, variant);
+			if(exists != null) variant = exists;
+		}
+		return variant;
+	}
+	
+	/**
+	 * 将表达式定义为bsh方法，方法参数为mask指定的变量
+	 * @param mask
+	 * @return
+	 */
+	private Variant define(int mask) {
+		List<String> params = new ArrayList<String>();
+		for(int i = 0; i < names.length; i++) {
+			if((mask & (1 << i)) != 0) params.add(names[i]);
+		}
+		StringBuilder buffer = new StringBuilder(text.length() + 40);
+		buffer.append(METHOD_NAME).append("(");
+		for(int i = 0; i < params.size(); i++) {
+			if(i > 0) buffer.append(",");
+			buffer.append(params.get(i));
+		}
+		buffer.append(") { return ").append(text).append("; }");
+		try {
+			Interpreter bsh = new Interpreter();
+			bsh.eval(buffer.toString());
+			for(BshMethod method : bsh.getNameSpace().getMethods()) {
+				if(METHOD_NAME.equals(method.getName())) {
+					return new Variant(bsh, method, params.toArray(new String[params.size()]));
+				}
+			}
+		} catch (Exception e) {
+			log.warn("表达式[" + expr + "]无法编译，使用解释方式执行:" + e.getMessage());
+		}
+		return null;
+	}
+	
+	/**
+	 * 创建解释器，设置所有参数后解释执行表达式
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	private Object interpret(Map<String, Object> args) throws Exception {
+		Interpreter bsh = new Interpreter();
+		for (Entry<String, Object> entry : args.entrySet()) {
+			bsh.set(entry.getKey(), entry.getValue());
+		}
+		return bsh.eval(text);
+	}
+	
+	/**
+	 * 扫描表达式中引用的变量名称（跳过字符串、数字、关键字及成员访问）
+	 * @param text
+	 * @param names
+	 * @return 表达式是否包含多条语句
+	 */
+	private static boolean scan(String text, List<String> names) {
+		Map<String, Boolean> found = new HashMap<String, Boolean>();
+		char prev = 0;
+		int len = text.length();
+		int i = 0;
+		while(i < len) {
+			char c = text.charAt(i);
+			if(c == '"') {
+				i++;
+				while(i < len && text.charAt(i) != '"') {
+					if(text.charAt(i) == '\\') i++;
+					i++;
+				}
+				i++;
+				prev = '"';
+			} else if(Character.isDigit(c)) {
+				while(i < len && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '.')) i++;
+				prev = '0';
+			} else if(Character.isJavaIdentifierStart(c)) {
+				int start = i;
+				while(i < len && Character.isJavaIdentifierPart(text.charAt(i))) i++;
+				String name = text.substring(start, i);
+				if(prev != '.' && !KEYWORDS.contains(name) && !found.containsKey(name)) {
+					found.put(name, Boolean.TRUE);
+					names.add(name);
+				}
+				prev = 'a';
+			} else {
+				if(c == ';' || c == '{' || c == '}') return true;
+				if(!Character.isWhitespace(c)) prev = c;
+				i++;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 按变量存在情况定义的bsh方法
+	 */
+	static class Variant {
+		private final Interpreter interpreter;
+		private final BshMethod method;
+		private final String[] params;
+		Variant(Interpreter interpreter, BshMethod method, String[] params) {
+			this.interpreter = interpreter;
+			this.method = method;
+			this.params = params;
+		}
+		
+		/**
+		 * 只绑定方法参数对应的变量，调用已解析的方法。每次调用使用独立的局部命名空间
+		 * @param args
+		 * @return
+		 * @throws Exception
+		 */
+		Object invoke(Map<String, Object> args) throws Exception {
+			Object[] values = new Object[params.length];
+			for(int i = 0; i < params.length; i++) {
+				Object value = args.get(params[i]);
+				values[i] = value == null ? Primitive.NULL : value;
+			}
+			return Primitive.unwrap(method.invoke(values, interpreter));
+		}
+	}
+}
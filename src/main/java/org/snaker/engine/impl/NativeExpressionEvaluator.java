@@ -0,0 +1,50 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.Expression;
+import org.snaker.engine.ExpressionEvaluator;
+import org.snaker.engine.expr.ExprNode;
+import org.snaker.engine.expr.ExprParseException;
+import org.snaker.engine.expr.ExprParser;
+import org.snaker.engine.expr.NativeExpression;
+
+/**
+ * 内置的表达式引擎，将表达式编译为语法树直接读取参数集合计算，执行时不经过bsh。
+ * 支持比较、逻辑、算术、三元运算，字符串比较，Map/属性访问、下标访问及实例方法调用；
+ * 赋值、多条语句、静态方法调用、对象创建等不支持的表达式返回null，由bsh引擎处理。
+ * 与bsh的差异：对象之间的==、!=使用equals比较；未定义的变量在使用时抛出异常。
+ * 在snaker.xml中配置该类即可启用
+ * @author yuqs
+ * @version 1.0
+ */
+public class NativeExpressionEvaluator implements ExpressionEvaluator {
+	private static final Logger log = LoggerFactory.getLogger(NativeExpressionEvaluator.class);
+
+	@Override
+	public Expression compile(String expr) {
+		try {
+			ExprNode root = new ExprParser(expr).parse();
+			return new NativeExpression(expr, root);
+		} catch (ExprParseException e) {
+			if(log.isDebugEnabled()) {
+				log.debug("表达式[" + expr + "]不被内置引擎支持:" + e.getMessage());
+			}
+			return null;
+		}
+	}
+}
@@ -52,17 +52,15 @@ public class CustomModel extends WorkModel {
 	 */
 	private String var;
 	/**
-	 * 加载模型时初始化的对象实例
+	 * 编译模型时初始化的对象实例
 	 */
 	private Object invokeObject;
 	
 	@Override
 	public void execute(Execution execution) {
+		//编译后的模型为只读状态，实例只在compileNode中构造
 		if(invokeObject == null) {
-			invokeObject = ClassHelper.newInstance(clazz);
-		}
-		if(invokeObject == null) {
-			throw new SnakerException("自定义模型[class=" + clazz + "]实例化对象失败");
+			throw new SnakerException("自定义模型[class=" + clazz + "]未编译或实例化对象失败");
 		}
 		
 		if(invokeObject instanceof IHandler) {
@@ -82,6 +80,13 @@ public class CustomModel extends WorkModel {
 		super.execute(execution);
 	}
 	
+	@Override
+	protected void compileNode() {
+		if(invokeObject == null && StringHelper.isNotEmpty(clazz)) {
+			invokeObject = ClassHelper.newInstance(clazz);
+		}
+	}
+	
 	/**
 	 * 根据传递的执行参数、模型的参数列表返回实际的参数对象数组
 	 * @param execArgs
@@ -17,6 +17,8 @@ package org.snaker.engine.model;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaker.engine.DecisionHandler;
+import org.snaker.engine.Expression;
+import org.snaker.engine.SnakerException;
 import org.snaker.engine.core.Execution;
 import org.snaker.engine.helper.ClassHelper;
 import org.snaker.engine.helper.ExprHelper;
@@ -37,36 +39,46 @@ public class DecisionModel extends NodeModel {
 	 * 决策选择表达式串（需要表达式引擎解析）
 	 */
 	private String expr;
+	/**
+	 * 编译后的决策选择表达式
+	 */
+	private Expression expression;
 	/**
 	 * 决策处理类，对于复杂的分支条件，可通过handleClass来处理
 	 */
 	private String handleClass;
+	/**
+	 * 决策处理类实例
+	 */
+	private DecisionHandler decide;
 	
 	@Override
 	public void execute(Execution execution) {
 		log.info(execution.getOrder().getId() + "->decision execution.getArgs():" + execution.getArgs());
 		String next = null;
-		if(StringHelper.isNotEmpty(expr)) {
-			next = ExprHelper.evalString(execution.getArgs(), expr);
+		if(expression != null) {
+			next = expression.eval(String.class, execution.getArgs());
+		} else if(decide != null) {
+			next = decide.decide(execution);
 		} else if(StringHelper.isNotEmpty(handleClass)) {
-			DecisionHandler handler = (DecisionHandler)ClassHelper.newInstance(handleClass);
-			if(handler != null) {
-				next = handler.decide(execution);
-			}
+			throw new SnakerException("决策模型[handleClass=" + handleClass + "]未编译或实例化对象失败");
 		}
 		log.info(execution.getOrder().getId() + "->decision expression[expr=" + expr + "] return result:" + next);
 		boolean isfound = false;
-		for(TransitionModel tm : getOutputs()) {
+		for(TransitionModel tm : getOutputArray()) {
 			if(StringHelper.isEmpty(next)) {
-				String expr = tm.getExpr();
-				if(StringHelper.isNotEmpty(expr) && ExprHelper.evalBoolean(execution.getArgs(), expr)) {
-					tm.setEnabled(true);
+				Expression expression = tm.getExpression();
+				if(expression == null) continue;
+				Boolean result = expression.eval(Boolean.class, execution.getArgs());
+				if(result == null) {
+					throw new SnakerException("表达式[" + tm.getExpr() + "]解析失败.");
+				}
+				if(result) {
 					tm.execute(execution);
 					isfound = true;
 				}
 			} else {
 				if(tm.getName().equals(next)) {
-					tm.setEnabled(true);
 					tm.execute(execution);
 					isfound = true;
 				}
@@ -75,11 +87,22 @@ public class DecisionModel extends NodeModel {
 		if(!isfound) log.warn(execution.getOrder().getId() + "->decision can't find next transition.");
 	}
 	
+	/**
+	 * 编译时构造决策处理类实例
+	 */
+	@Override
+	protected void compileNode() {
+		if(decide == null && StringHelper.isNotEmpty(handleClass)) {
+			decide = (DecisionHandler)ClassHelper.newInstance(handleClass);
+		}
+	}
+	
 	public String getExpr() {
 		return expr;
 	}
 	public void setExpr(String expr) {
 		this.expr = expr;
+		this.expression = StringHelper.isNotEmpty(expr) ? ExprHelper.compile(expr) : null;
 	}
 
 	public String getHandleClass() {
@@ -30,10 +30,14 @@ public class EndModel extends NodeModel {
 	 * 
 	 */
 	private static final long serialVersionUID = -7793175180140842894L;
+	/**
+	 * 结束流程处理器无状态，所有结束节点共享同一实例
+	 */
+	private static final EndProcessHandler handler = new EndProcessHandler();
 
 	@Override
 	public void execute(Execution execution) {
-		fire(new EndProcessHandler(), execution);
+		fire(handler, execution);
 	}
 	
 	/**
@@ -14,14 +14,253 @@
  */
 package org.snaker.engine.model;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.SnakerException;
+import org.snaker.engine.access.DetachedAccessException;
+import org.snaker.engine.access.UnitOfWork;
+import org.snaker.engine.core.Execution;
+import org.snaker.engine.core.OrderService;
+import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.scheduler.ParallelExecutor;
+
 /**
  * 分支定义fork元素
  * @author yuqs
  * @version 1.0
  */
 public class ForkModel extends NodeModel {
+	private static final Logger log = LoggerFactory.getLogger(ForkModel.class);
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = 2030281774771653617L;
+	/**
+	 * 编译时确定的、由该分支节点创建计数器的合并节点，无法确定时为null
+	 */
+	private JoinModel[] joins;
+	/**
+	 * 是否并行执行各分支
+	 */
+	private boolean parallel = false;
+	/**
+	 * 编译时确定的、可并行执行的输出变迁：只经过决策节点即创建任务，不涉及合并、子流程等节点
+	 */
+	private boolean[] independents;
+	
+	/**
+	 * 执行输出变迁前，为管理的合并节点创建计数器，计数总数为合并节点的输入变迁数
+	 */
+	@Override
+	public void execute(Execution execution) {
+		if(joins != null) {
+			OrderService orderService = ServiceContext.getContext().getOrderService();
+			String orderId = execution.getOrder().getId();
+			for(JoinModel join : joins) {
+				orderService.createCounter(orderId, join.getName(), join.getInputs().size());
+			}
+		}
+		executeBranches(execution);
+	}
+	
+	/**
+	 * 执行输出变迁。并行模式且注册了执行器时，可并行的分支（决策表达式、决策处理类、自定义处理类、任务拦截器等）
+	 * 先在执行器中以脱离数据库的UnitOfWork并发计算，只缓冲任务写操作，不加入当前事务；
+	 * 然后在当前线程按输出变迁顺序处理：已计算的分支合并缓冲的写操作（随当前UnitOfWork一次批量写入），
+	 * 其它分支及计算中需要访问数据库的分支在此时执行，因此写入顺序与输出变迁顺序一致。
+	 * 需要访问数据库的分支会被放弃计算结果后重新执行，分支上的处理类在访问数据库前的操作应当可以重复执行；
+	 * 分支的其它异常不重新执行，等待其余分支结束后原样抛出
+	 * @param execution
+	 */
+	private void executeBranches(Execution execution) {
+		ParallelExecutor executor = parallel && independents != null 
+				? ServiceContext.getContext().getParallelExecutor() : null;
+		if(executor == null) {
+			super.execute(execution);
+			return;
+		}
+		TransitionModel[] outputs = getOutputArray();
+		List<Callable<Branch>> tasks = new ArrayList<Callable<Branch>>();
+		for(int i = 0; i < outputs.length; i++) {
+			if(independents[i]) tasks.add(new Branch(outputs[i], execution));
+		}
+		List<Branch> branches = executor.invokeAll(tasks);
+		UnitOfWork uow = UnitOfWork.current();
+		for(int i = 0, j = 0; i < outputs.length; i++) {
+			Branch branch = independents[i] ? branches.get(j++) : null;
+			if(branch == null || branch.buffered == null) {
+				outputs[i].execute(execution);
+				continue;
+			}
+			if(uow != null) {
+				uow.merge(branch.buffered);
+			} else {
+				branch.buffered.flush();
+			}
+			execution.addTasks(branch.tasks);
+		}
+	}
+	
+	@Override
+	protected void compileNode() {
+		TransitionModel[] outputs = getOutputArray();
+		independents = new boolean[outputs.length];
+		for(int i = 0; i < outputs.length; i++) {
+			independents[i] = isIndependent(outputs[i].getTarget(), new HashSet<NodeModel>());
+		}
+		List<JoinModel> list = findJoins(new HashSet<ForkModel>());
+		if(list == null || list.isEmpty()) return;
+		for(JoinModel join : list) {
+			join.setCounted(true);
+		}
+		joins = list.toArray(new JoinModel[list.size()]);
+	}
+	
+	/**
+	 * 模拟令牌在分支区域内的流转，查找需要由该节点创建计数器的合并节点。
+	 * 每个输出变迁产生一个令牌，令牌只能经过单输入单输出的任务、自定义、子流程节点或嵌套的fork，
+	 * 合并节点收齐所有输入变迁的令牌后产生一个新令牌，所有令牌汇聚到同一合并节点时即为分支区域的出口。
+	 * 嵌套fork自己管理的合并节点不计入。区域内出现决策、结束节点或其它输入时返回null
+	 * @param forks 正在查找的fork节点，防止循环引用
+	 * @return
+	 */
+	private List<JoinModel> findJoins(Set<ForkModel> forks) {
+		if(!forks.add(this)) return null;
+		Map<JoinModel, Integer> arrived = new HashMap<JoinModel, Integer>();
+		List<JoinModel> result = new ArrayList<JoinModel>();
+		List<JoinModel> excluded = new ArrayList<JoinModel>();
+		Set<NodeModel> visited = new HashSet<NodeModel>();
+		LinkedList<NodeModel> tokens = new LinkedList<NodeModel>();
+		for(TransitionModel tm : getOutputs()) {
+			tokens.add(tm.getTarget());
+		}
+		int parked = 0;
+		while(!tokens.isEmpty()) {
+			NodeModel node = tokens.removeFirst();
+			if(node instanceof JoinModel) {
+				JoinModel join = (JoinModel)node;
+				Integer count = arrived.get(join);
+				count = count == null ? 1 : count + 1;
+				arrived.put(join, count);
+				int inputs = join.getInputs().size();
+				if(count < inputs) {
+					parked++;
+					continue;
+				}
+				if(count > inputs) return null;
+				parked -= inputs - 1;
+				result.add(join);
+				if(tokens.isEmpty() && parked == 0) {
+					result.removeAll(excluded);
+					return result;
+				}
+			} else if(node instanceof ForkModel) {
+				if(node.getInputs().size() != 1 || !visited.add(node)) return null;
+				List<JoinModel> inner = ((ForkModel)node).findJoins(forks);
+				if(inner != null) excluded.addAll(inner);
+				for(TransitionModel tm : node.getOutputs()) {
+					tokens.add(tm.getTarget());
+				}
+				continue;
+			} else if(!(node instanceof WorkModel) || node.getInputs().size() != 1 || !visited.add(node)) {
+				return null;
+			}
+			if(node.getOutputs().size() != 1) return null;
+			tokens.add(node.getOutputs().get(0).getTarget());
+		}
+		return null;
+	}
+	
+	/**
+	 * 判断从节点开始的分支是否可并行执行：任务、自定义节点直接创建任务，决策节点的所有输出均可并行
+	 */
+	private static boolean isIndependent(NodeModel node, Set<NodeModel> visited) {
+		if(node instanceof TaskModel || node instanceof CustomModel) return true;
+		if(!(node instanceof DecisionModel) || !visited.add(node)) return false;
+		for(TransitionModel tm : node.getOutputs()) {
+			if(!isIndependent(tm.getTarget(), visited)) return false;
+		}
+		return true;
+	}
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * 并行计算的分支，使用独立的执行对象及流程实例、任务、参数的副本，写操作缓冲后交由调用线程合并，
+	 * 分支对副本的修改不带回调用线程；访问数据库时buffered为null，由调用线程重新执行
+	 */
+	private static class Branch implements Callable<Branch> {
+		private final TransitionModel transition;
+		private final Execution execution;
+		private List<Task> tasks;
+		private UnitOfWork buffered;
+		
+		Branch(TransitionModel transition, Execution parent) {
+			this.transition = transition;
+			Map<String, Object> args = parent.getArgs() == null 
+					? null : new HashMap<String, Object>(parent.getArgs());
+			this.execution = new Execution(parent.getEngine(), parent.getProcess(), copy(parent.getOrder()), args);
+			this.execution.setOperator(parent.getOperator());
+			this.execution.setTask(parent.getTask() == null ? null : (Task)copy(parent.getTask()));
+		}
+		
+		@Override
+		public Branch call() {
+			UnitOfWork uow = UnitOfWork.beginDetached();
+			try {
+				transition.execute(execution);
+				buffered = uow.takeBuffered();
+				tasks = execution.getTasks();
+			} catch(RuntimeException e) {
+				if(!isDetachedAccess(e)) throw e;
+				log.debug("并行分支[" + transition.getName() + "]需在当前事务中重新执行：" + e.getMessage());
+			} finally {
+				uow.end();
+			}
+			return this;
+		}
+		
+		/**
+		 * 是否由访问数据库引起，处理类可能包装了原始异常
+		 */
+		private static boolean isDetachedAccess(Throwable e) {
+			for(Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+				if(t instanceof DetachedAccessException) return true;
+			}
+			return false;
+		}
+		
+		private static Order copy(Order order) {
+			try {
+				return (Order)order.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new SnakerException(e.getMessage(), e);
+			}
+		}
+		
+		private static Object copy(Task task) {
+			try {
+				return task.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new SnakerException(e.getMessage(), e);
+			}
+		}
+	}
 }
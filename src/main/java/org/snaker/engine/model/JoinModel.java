@@ -14,6 +14,10 @@
  */
 package org.snaker.engine.model;
 
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import org.snaker.engine.core.Execution;
 import org.snaker.engine.handlers.impl.MergeBranchHandler;
 
@@ -28,10 +32,63 @@ public class JoinModel extends NodeModel {
 	 * 
 	 */
 	private static final long serialVersionUID = 5296621319088076775L;
+	/**
+	 * 分支合并处理器，编译时构造
+	 */
+	private MergeBranchHandler mergeHandler;
+	/**
+	 * 是否由分支节点的计数器控制合并，编译时由ForkModel设置
+	 */
+	private boolean counted = false;
+	/**
+	 * join至fork节点的所有中间工作任务节点名称，编译时查找
+	 */
+	private String[] forkTaskNames;
 	
 	@Override
 	public void execute(Execution execution) {
-		fire(new MergeBranchHandler(this), execution);
+		fire(mergeHandler != null ? mergeHandler : new MergeBranchHandler(this), execution);
 		if(execution.isMerged()) super.execute(execution);
 	}
+	
+	@Override
+	protected void compileNode() {
+		forkTaskNames = findForkTaskNames();
+		mergeHandler = new MergeBranchHandler(this);
+	}
+	
+	/**
+	 * 返回join至fork节点的所有中间工作任务节点名称
+	 * @return
+	 */
+	public String[] getForkTaskNames() {
+		return forkTaskNames != null ? forkTaskNames : findForkTaskNames();
+	}
+	
+	/**
+	 * 对join节点的所有输入变迁进行递归，查找join至fork节点的所有中间工作任务节点名称
+	 */
+	private String[] findForkTaskNames() {
+		Set<String> names = new LinkedHashSet<String>();
+		findForkTaskNames(this, names, new HashSet<NodeModel>());
+		return names.toArray(new String[names.size()]);
+	}
+	
+	private void findForkTaskNames(NodeModel node, Set<String> names, Set<NodeModel> visited) {
+		if(node instanceof ForkModel || !visited.add(node)) return;
+		for(TransitionModel tm : node.getInputs()) {
+			if(tm.getSource() instanceof WorkModel) {
+				names.add(tm.getSource().getName());
+			}
+			findForkTaskNames(tm.getSource(), names, visited);
+		}
+	}
+	
+	public boolean isCounted() {
+		return counted;
+	}
+	
+	void setCounted(boolean counted) {
+		this.counted = counted;
+	}
 }
@@ -15,7 +15,11 @@
 package org.snaker.engine.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.snaker.engine.Action;
 import org.snaker.engine.core.Execution;
@@ -42,6 +46,18 @@ public class NodeModel extends BaseModel implements Action {
 	 * layout
 	 */
 	private String layout;
+	/**
+	 * 编译后节点在流程模型中的序号，未编译时为-1
+	 */
+	private int index = -1;
+	/**
+	 * 编译后的输入变迁数组
+	 */
+	private TransitionModel[] inputArray;
+	/**
+	 * 编译后的输出变迁数组
+	 */
+	private TransitionModel[] outputArray;
 	
 	/**
 	 * 默认执行方法，子类如无特殊情况，可直接使用该方法
@@ -50,12 +66,35 @@ public class NodeModel extends BaseModel implements Action {
 	 * @return
 	 */
 	public void execute(Execution execution) {
-		for(TransitionModel tm : getOutputs()) {
-			tm.setEnabled(true);
+		for(TransitionModel tm : getOutputArray()) {
 			tm.execute(execution);
 		}
 	}
 	
+	/**
+	 * 编译节点模型，由ProcessModel.compile调用
+	 * 固定节点序号及输入、输出变迁，编译完成后节点模型为只读状态，可被多线程共享
+	 * @param index
+	 */
+	void compile(int index) {
+		this.index = index;
+		this.inputArray = getInputs().toArray(new TransitionModel[getInputs().size()]);
+		this.outputArray = getOutputs().toArray(new TransitionModel[getOutputs().size()]);
+		this.inputs = Collections.unmodifiableList(inputs);
+		this.outputs = Collections.unmodifiableList(outputs);
+		for(TransitionModel tm : outputArray) {
+			tm.compile();
+		}
+		compileNode();
+	}
+	
+	/**
+	 * 子类可覆盖此方法，在编译时预先构造执行所需的处理器等对象
+	 */
+	protected void compileNode() {
+		
+	}
+	
 	/**
 	 * 根据父节点模型、当前节点模型判断是否可退回。可退回条件：
 	 * 1、满足中间无fork、join、subprocess模型
@@ -65,22 +104,85 @@ public class NodeModel extends BaseModel implements Action {
 	 * @return
 	 */
 	public boolean canRejected(NodeModel parent) {
-		if(parent instanceof TaskModel && ((TaskModel)parent).getPerformType().equals(TaskModel.TYPE_ALL)) {
-			return false;
+		Set<String> names = parent instanceof WorkModel 
+				? ((WorkModel)parent).getRejectNames() : findRejectNames(parent);
+		return names.contains(this.getName());
+	}
+	
+	/**
+	 * 计算可从父节点驳回的节点名称集合，规则与canRejected一致
+	 * @param parent
+	 * @return
+	 */
+	static Set<String> findRejectNames(NodeModel parent) {
+		Set<String> names = new HashSet<String>();
+		findRejectNames(parent, names, new HashSet<NodeModel>());
+		return names;
+	}
+	
+	private static void findRejectNames(NodeModel parent, Set<String> names, Set<NodeModel> visited) {
+		if(!visited.add(parent)) return;
+		if(parent instanceof TaskModel && TaskModel.TYPE_ALL.equalsIgnoreCase(((TaskModel)parent).getPerformType())) {
+			return;
 		}
 		for(TransitionModel tm : parent.getOutputs()) {
 			NodeModel target = tm.getTarget();
-			if(target.getName().equals(this.getName())) {
-				return true;
-			}
+			names.add(target.getName());
 			if(target instanceof ForkModel 
 					|| target instanceof JoinModel 
 					|| target instanceof SubProcessModel) {
 				continue;
 			}
-			return canRejected(target);
+			findRejectNames(target, names, visited);
+			return;
 		}
-		return false;
+	}
+	
+	/**
+	 * 计算不经过fork、join、subprocess可直接到达的后续任务节点名称集合
+	 * @param node
+	 * @return
+	 */
+	static Set<String> findNextTaskNames(NodeModel node) {
+		Set<String> names = new LinkedHashSet<String>();
+		findNextTaskNames(node, names, new HashSet<NodeModel>());
+		return names;
+	}
+	
+	private static void findNextTaskNames(NodeModel node, Set<String> names, Set<NodeModel> visited) {
+		if(!visited.add(node)) return;
+		for(TransitionModel tm : node.getOutputs()) {
+			NodeModel target = tm.getTarget();
+			if(target instanceof TaskModel) {
+				names.add(target.getName());
+			} else if(!(target instanceof ForkModel 
+					|| target instanceof JoinModel 
+					|| target instanceof SubProcessModel)) {
+				findNextTaskNames(target, names, visited);
+			}
+		}
+	}
+	
+	/**
+	 * 返回输入变迁数组，未编译时根据输入变迁集合构造
+	 * @return
+	 */
+	public TransitionModel[] getInputArray() {
+		if(inputArray != null) return inputArray;
+		return getInputs().toArray(new TransitionModel[getInputs().size()]);
+	}
+	
+	/**
+	 * 返回输出变迁数组，未编译时根据输出变迁集合构造
+	 * @return
+	 */
+	public TransitionModel[] getOutputArray() {
+		if(outputArray != null) return outputArray;
+		return getOutputs().toArray(new TransitionModel[getOutputs().size()]);
+	}
+	
+	public int getIndex() {
+		return index;
 	}
 	
 	public List<TransitionModel> getInputs() {
@@ -15,7 +15,10 @@
 package org.snaker.engine.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.snaker.engine.INoGenerator;
 import org.snaker.engine.helper.ClassHelper;
@@ -56,12 +59,72 @@ public class ProcessModel extends BaseModel {
 	 * 实例编号生成器对象
 	 */
 	private INoGenerator generator;
+	/**
+	 * 编译后的节点数组，下标与节点序号一致
+	 */
+	private NodeModel[] nodeArray;
+	/**
+	 * 编译后的节点名称索引
+	 */
+	private Map<String, NodeModel> nodeMap;
+	/**
+	 * 编译后的start节点
+	 */
+	private StartModel start;
+	/**
+	 * 编译后的工作任务节点集合
+	 */
+	private List<WorkModel> workModels;
+	
+	/**
+	 * 编译流程模型，由ModelParser在变迁关联完成后调用
+	 * 为每个节点分配序号，固定节点、变迁集合并预先构造处理器，构造节点名称索引、start节点及工作任务节点集合，
+	 * 并为工作任务节点预先计算驳回、撤回的可达节点集合
+	 * 编译后的模型不再修改，可无锁地被多个线程同时执行
+	 */
+	public void compile() {
+		if(nodeArray != null) return;
+		NodeModel[] array = nodes.toArray(new NodeModel[nodes.size()]);
+		Map<String, NodeModel> map = new HashMap<String, NodeModel>(array.length * 2);
+		List<WorkModel> works = new ArrayList<WorkModel>();
+		for(int i = 0; i < array.length; i++) {
+			NodeModel node = array[i];
+			node.compile(i);
+			//同名节点以第一个为准，与按顺序查找的结果一致
+			if(!map.containsKey(node.getName())) {
+				map.put(node.getName(), node);
+			}
+			if(start == null && node instanceof StartModel) {
+				start = (StartModel)node;
+			}
+			if(node instanceof WorkModel) {
+				works.add((WorkModel)node);
+			}
+		}
+		for(WorkModel work : works) {
+			work.compileReachable();
+		}
+		this.nodes = Collections.unmodifiableList(nodes);
+		this.workModels = Collections.unmodifiableList(works);
+		this.nodeMap = map;
+		this.nodeArray = array;
+	}
+	
+	/**
+	 * 根据节点序号返回节点模型
+	 * @param index
+	 * @return
+	 */
+	public NodeModel getNode(int index) {
+		return nodeArray == null ? nodes.get(index) : nodeArray[index];
+	}
 	
 	/**
 	 * 返回当前流程定义的所有工作任务节点模型
 	 * @return
 	 */
 	public List<WorkModel> getWorkModels() {
+		if(workModels != null) return workModels;
 		List<WorkModel> models = new ArrayList<WorkModel>();
 		for(NodeModel node : nodes) {
 			if(node instanceof WorkModel) {
@@ -76,6 +139,7 @@ public class ProcessModel extends BaseModel {
 	 * @return
 	 */
 	public StartModel getStart() {
+		if(nodeArray != null) return start;
 		for(NodeModel node : nodes) {
 			if(node instanceof StartModel) {
 				return (StartModel)node;
@@ -90,6 +154,7 @@ public class ProcessModel extends BaseModel {
 	 * @return
 	 */
 	public NodeModel getNode(String nodeName) {
+		if(nodeMap != null) return nodeMap.get(nodeName);
 		for(NodeModel node : nodes) {
 			if(node.getName().equals(nodeName)) {
 				return node;
@@ -104,6 +169,14 @@ public class ProcessModel extends BaseModel {
 	 * @return
 	 */
 	public <T> boolean containsNodeNames(Class<T> T, String... nodeNames) {
+		if(nodeMap != null) {
+			for(String nodeName : nodeNames) {
+				if(T.isInstance(nodeMap.get(nodeName))) {
+					return true;
+				}
+			}
+			return false;
+		}
 		for(NodeModel node : nodes) {
 			if(!T.isInstance(node)) {
 				continue;
@@ -17,6 +17,7 @@ package org.snaker.engine.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.snaker.engine.SnakerException;
 import org.snaker.engine.TaskInterceptor;
 import org.snaker.engine.core.Execution;
 import org.snaker.engine.handlers.impl.MergeActorHandler;
@@ -57,6 +58,20 @@ public class TaskModel extends WorkModel {
 	 * all：所有参与者都完成，才可执行下一步
 	 */
 	private String performType;
+	/**
+	 * all方式的完成规则，为空时所有参与者都完成才可执行下一步
+	 * N：任意N个参与者完成即可（如：3）
+	 * N%：完成的参与者达到百分比即可（如：60%）
+	 */
+	private String completion;
+	/**
+	 * 完成规则解析后的完成数，0表示未设置
+	 */
+	private int completionCount = 0;
+	/**
+	 * 完成规则解析后的百分比，0表示未设置
+	 */
+	private int completionPercent = 0;
 	/**
 	 * 期望完成时间
 	 */
@@ -69,6 +84,10 @@ public class TaskModel extends WorkModel {
 	 * 局部拦截器实例集合
 	 */
 	private List<TaskInterceptor> interceptorList = new ArrayList<TaskInterceptor>();
+	/**
+	 * all方式的合并处理器，编译时构造
+	 */
+	private MergeActorHandler mergeHandler;
 	
 	/**
 	 * 所有task节点的transition子节点都会执行
@@ -86,11 +105,39 @@ public class TaskModel extends WorkModel {
 			 * 由于all方式分配任务，是每人一个任务
 			 * 那么此时需要判断之前分配的所有任务都执行完成后，才可执行下一步，否则不处理
 			 */
-			fire(new MergeActorHandler(getName()), execution);
+			fire(mergeHandler != null ? mergeHandler : new MergeActorHandler(this), execution);
 			if(execution.isMerged()) super.execute(execution);
 		}
 	}
 	
+	@Override
+	protected void compileNode() {
+		mergeHandler = new MergeActorHandler(this);
+	}
+	
+	/**
+	 * 根据完成规则计算all方式的任务需要完成的数量
+	 * @param total 参与者任务总数
+	 * @return 需要完成的数量，不超过total
+	 */
+	public int getRequiredCount(int total) {
+		int required = total;
+		if(completionCount > 0) {
+			required = completionCount;
+		} else if(completionPercent > 0) {
+			required = (total * completionPercent + 99) / 100;
+		}
+		return Math.max(Math.min(required, total), total > 0 ? 1 : 0);
+	}
+	
+	/**
+	 * 是否设置了完成规则，设置时合并后可能仍有未完成的参与者任务
+	 * @return
+	 */
+	public boolean isPartialCompletion() {
+		return completionCount > 0 || completionPercent > 0;
+	}
+	
 	public String getAssignee() {
 		return assignee;
 	}
@@ -114,6 +161,31 @@ public class TaskModel extends WorkModel {
 		this.performType = performType;
 	}
 
+	public String getCompletion() {
+		return completion;
+	}
+
+	public void setCompletion(String completion) {
+		this.completion = completion;
+		this.completionCount = 0;
+		this.completionPercent = 0;
+		if(StringHelper.isEmpty(completion)) return;
+		String value = completion.trim();
+		try {
+			if(value.endsWith("%")) {
+				completionPercent = Integer.parseInt(value.substring(0, value.length() - 1).trim());
+			} else {
+				completionCount = Integer.parseInt(value);
+			}
+		} catch(NumberFormatException e) {
+			throw new SnakerException("任务[" + getName() + "]的完成规则[" + completion + "]不合法，合法示例:3,60%");
+		}
+		//完成数、百分比只会设置其中一个，须为正数且百分比不超过100
+		if(completionCount + completionPercent <= 0 || completionPercent > 100) {
+			throw new SnakerException("任务[" + getName() + "]的完成规则[" + completion + "]不合法，合法示例:3,60%");
+		}
+	}
+
 	public String getInterceptors() {
 		return interceptors;
 	}
@@ -15,9 +15,13 @@
 package org.snaker.engine.model;
 
 import org.snaker.engine.Action;
+import org.snaker.engine.Expression;
 import org.snaker.engine.core.Execution;
+import org.snaker.engine.handlers.IHandler;
 import org.snaker.engine.handlers.impl.CreateTaskHandler;
 import org.snaker.engine.handlers.impl.StartSubProcessHandler;
+import org.snaker.engine.helper.ExprHelper;
+import org.snaker.engine.helper.StringHelper;
 
 /**
  * 变迁定义transition元素
@@ -46,6 +50,10 @@ public class TransitionModel extends BaseModel implements Action {
 	 * 变迁的条件表达式，用于decision
 	 */
 	private String expr;
+	/**
+	 * 编译后的条件表达式
+	 */
+	private Expression expression;
 	/**
 	 * 转折点图形数据
 	 */
@@ -55,26 +63,51 @@ public class TransitionModel extends BaseModel implements Action {
 	 */
 	private String offset;
 	/**
-	 * 当前变迁路径是否可用
+	 * 编译时根据目标节点类型预先构造的处理器
 	 */
-	private boolean enabled = false;
+	private IHandler handler;
 	
+	/**
+	 * 执行变迁。调用方（节点模型、决策模型或动态跳转）选定路径后直接调用，变迁本身不保存执行状态
+	 */
 	@Override
 	public void execute(Execution execution) {
-		if(!enabled) return;
-		if(target instanceof TaskModel || target instanceof CustomModel) {
-			//如果目标节点模型为TaskModel，则创建task
-			fire(new CreateTaskHandler((WorkModel)target), execution);
-			
-		} else if(target instanceof SubProcessModel) {
-			//如果目标节点模型为SubProcessModel，则启动子流程
-			fire(new StartSubProcessHandler((SubProcessModel)target), execution);
+		IHandler handler = this.handler;
+		if(handler == null) {
+			//动态创建的变迁未经编译，则即时构造处理器
+			handler = newHandler();
+		}
+		if(handler != null) {
+			fire(handler, execution);
 		} else {
 			//如果目标节点模型为其它控制类型，则继续由目标节点执行
 			target.execute(execution);
 		}
 	}
 	
+	/**
+	 * 编译变迁，预先构造目标节点对应的处理器
+	 */
+	void compile() {
+		this.handler = newHandler();
+	}
+	
+	/**
+	 * 根据目标节点类型构造处理器
+	 * 1、目标节点模型为TaskModel、CustomModel，则创建task
+	 * 2、目标节点模型为SubProcessModel，则启动子流程
+	 * 3、其它控制类型返回null，由目标节点执行
+	 * @return
+	 */
+	private IHandler newHandler() {
+		if(target instanceof TaskModel || target instanceof CustomModel) {
+			return new CreateTaskHandler((WorkModel)target);
+		} else if(target instanceof SubProcessModel) {
+			return new StartSubProcessHandler((SubProcessModel)target);
+		}
+		return null;
+	}
+	
 	public NodeModel getSource() {
 		return source;
 	}
@@ -93,12 +126,6 @@ public class TransitionModel extends BaseModel implements Action {
 	public void setTo(String to) {
 		this.to = to;
 	}
-	public boolean isEnabled() {
-		return enabled;
-	}
-	public void setEnabled(boolean enabled) {
-		this.enabled = enabled;
-	}
 
 	public String getExpr() {
 		return expr;
@@ -106,6 +133,11 @@ public class TransitionModel extends BaseModel implements Action {
 
 	public void setExpr(String expr) {
 		this.expr = expr;
+		this.expression = StringHelper.isNotEmpty(expr) ? ExprHelper.compile(expr) : null;
+	}
+	
+	public Expression getExpression() {
+		return expression;
 	}
 
 	public String getG() {
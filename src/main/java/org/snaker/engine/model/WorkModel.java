@@ -14,6 +14,9 @@
  */
 package org.snaker.engine.model;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * 工作元素
  * @author yuqs
@@ -28,10 +31,55 @@ public abstract class WorkModel extends NodeModel {
 	 * url
 	 */
 	private String url;
+	/**
+	 * 是否异步执行，为true时custom、subprocess节点到达时只保存异步作业，由作业执行器在新事务中继续执行
+	 */
+	private boolean async;
+	/**
+	 * 编译后可由本节点驳回的节点名称集合
+	 */
+	private Set<String> rejectNames;
+	/**
+	 * 编译后不经过fork、join、subprocess可直接到达的后续任务节点名称集合
+	 */
+	private Set<String> nextTaskNames;
+	
+	/**
+	 * 预先计算驳回、撤回使用的可达节点集合，由ProcessModel.compile在所有节点编译完成后调用
+	 */
+	void compileReachable() {
+		this.rejectNames = Collections.unmodifiableSet(findRejectNames(this));
+		this.nextTaskNames = Collections.unmodifiableSet(findNextTaskNames(this));
+	}
+	
+	/**
+	 * 返回可由本节点驳回的节点名称集合，未编译时即时计算
+	 * @return
+	 */
+	public Set<String> getRejectNames() {
+		if(rejectNames != null) return rejectNames;
+		return findRejectNames(this);
+	}
+	
+	/**
+	 * 返回不经过fork、join、subprocess可直接到达的后续任务节点名称集合，未编译时即时计算
+	 * @return
+	 */
+	public Set<String> getNextTaskNames() {
+		if(nextTaskNames != null) return nextTaskNames;
+		return findNextTaskNames(this);
+	}
+	
 	public String getUrl() {
 		return url;
 	}
 	public void setUrl(String url) {
 		this.url = url;
 	}
+	public boolean isAsync() {
+		return async;
+	}
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
 }
@@ -81,6 +81,8 @@ public class ModelParser {
 						}
 					}
 				}
+				//编译为只读的流程模型
+				process.compile();
 				return process;
 			} catch (SAXException e) {
 				e.printStackTrace();
@@ -52,6 +52,9 @@ public interface NodeParser {
     public static final String ATTR_G = "g";
     public static final String ATTR_OFFSET = "offset";
     public static final String ATTR_INTERCEPTORS = "interceptors";
+    public static final String ATTR_COMPLETION = "completion";
+    public static final String ATTR_ASYNC = "async";
+    public static final String ATTR_PARALLEL = "parallel";
 	
 	/**
 	 * 节点dom元素解析方法，由实现类完成解析
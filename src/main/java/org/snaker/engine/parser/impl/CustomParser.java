@@ -32,6 +32,7 @@ public class CustomParser extends AbstractNodeParser {
 		custom.setMethodName(element.getAttribute(ATTR_METHODNAME));
 		custom.setArgs(element.getAttribute(ATTR_ARGS));
 		custom.setVar(element.getAttribute(ATTR_VAR));
+		custom.setAsync("true".equalsIgnoreCase(element.getAttribute(ATTR_ASYNC)));
 	}
 	
 	@Override
@@ -17,6 +17,7 @@ package org.snaker.engine.parser.impl;
 import org.snaker.engine.model.ForkModel;
 import org.snaker.engine.model.NodeModel;
 import org.snaker.engine.parser.AbstractNodeParser;
+import org.w3c.dom.Element;
 
 /**
  * 分支节点解析类
@@ -24,6 +25,12 @@ import org.snaker.engine.parser.AbstractNodeParser;
  * @version 1.0
  */
 public class ForkParser extends AbstractNodeParser {
+	@Override
+	protected void parseNode(NodeModel node, Element element) {
+		ForkModel fork = (ForkModel)node;
+		fork.setParallel("true".equalsIgnoreCase(element.getAttribute(ATTR_PARALLEL)));
+	}
+	
 	/**
 	 * 产生ForkModel模型对象
 	 */
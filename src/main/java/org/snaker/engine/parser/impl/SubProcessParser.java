@@ -48,5 +48,6 @@ public class SubProcessParser extends AbstractNodeParser {
 		} else {
 			model.setUrl(ConfigHelper.getProperty("subprocessurl"));
 		}
+		model.setAsync("true".equalsIgnoreCase(element.getAttribute(ATTR_ASYNC)));
 	}
 }
@@ -36,6 +36,7 @@ public class TaskParser extends AbstractNodeParser {
 		task.setExpireTime(element.getAttribute(ATTR_EXPIRETIME));
 		task.setPerformType(element.getAttribute(ATTR_TYPE));
 		task.setInterceptors(element.getAttribute(ATTR_INTERCEPTORS));
+		task.setCompletion(element.getAttribute(ATTR_COMPLETION));
 	}
 
 	/**
@@ -0,0 +1,342 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.scheduler;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.ExpireHandler;
+import org.snaker.engine.SnakerEngine;
+import org.snaker.engine.TaskInterceptor;
+import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.helper.ConfigHelper;
+import org.snaker.engine.helper.StringHelper;
+import org.snaker.engine.helper.ThreadHelper;
+
+/**
+ * 任务、流程实例的到期调度器
+ * 只从数据库按expire_Time范围加载近期窗口(scheduler.horizon秒)内的到期时间放入哈希时间轮，
+ * 窗口过半时加载下一段窗口；启动时的首次加载不设下限，用于恢复重启前已到期的任务及流程实例。
+ * 窗口加载后新产生的任务(作为任务拦截器)及流程实例由引擎直接放入时间轮；到期时间在窗口之外的暂存至下一次加载，
+ * 避免其事务在下一段窗口查询之后才提交而被遗漏。
+ * 到期时由处理线程池重新查询任务或流程实例，已完成的直接忽略，仍活动的依次调用注册的到期处理器。
+ * 需在配置文件中注册后由引擎启动，expire_Time列上应建立索引。
+ * @author yuqs
+ * @version 1.0
+ */
+public class ExpireScheduler implements TaskInterceptor, Runnable {
+	private static final Logger log = LoggerFactory.getLogger(ExpireScheduler.class);
+	/**
+	 * 期望完成时间的格式
+	 */
+	private static final String TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+	/**
+	 * 时间轮刻度(毫秒)
+	 */
+	private long tickDuration = 1000;
+	/**
+	 * 时间轮槽位数
+	 */
+	private int ticksPerWheel = 512;
+	/**
+	 * 从数据库加载的时间窗口(毫秒)
+	 */
+	private long horizon = 600 * 1000;
+	/**
+	 * 到期处理线程数
+	 */
+	private int threads = 4;
+	/**
+	 * 到期处理的等待队列长度，队列满时由调度线程直接处理
+	 */
+	private int queueSize = 1024;
+	/**
+	 * 流程引擎
+	 */
+	private SnakerEngine engine;
+	/**
+	 * 到期处理器
+	 */
+	private List<ExpireHandler> handlers = Collections.emptyList();
+	/**
+	 * 时间轮
+	 */
+	private HashedTimerWheel wheel;
+	/**
+	 * 已加载窗口的截止时间(毫秒，不包含)，为0表示尚未加载
+	 */
+	private volatile long loadedUntil = 0;
+	/**
+	 * 拦截到的、到期时间在已加载窗口之外的定时器，下一次加载时放入时间轮或丢弃
+	 */
+	private final List<Timeout> deferred = new ArrayList<Timeout>();
+	/**
+	 * 到期处理线程池
+	 */
+	private ThreadPoolExecutor executor;
+	/**
+	 * 调度线程
+	 */
+	private Thread thread;
+	private volatile boolean running = false;
+	
+	public ExpireScheduler() {
+		int value = ConfigHelper.getNumerProperty("scheduler.tickDuration");
+		if(value > 0) tickDuration = value;
+		value = ConfigHelper.getNumerProperty("scheduler.ticksPerWheel");
+		if(value > 0) ticksPerWheel = value;
+		value = ConfigHelper.getNumerProperty("scheduler.horizon");
+		if(value > 0) horizon = value * 1000L;
+		value = ConfigHelper.getNumerProperty("scheduler.threads");
+		if(value > 0) threads = value;
+		value = ConfigHelper.getNumerProperty("scheduler.queueSize");
+		if(value > 0) queueSize = value;
+	}
+	
+	/**
+	 * 启动调度线程，重复调用不做处理
+	 * @param engine
+	 */
+	public synchronized void start(SnakerEngine engine) {
+		if(running) return;
+		this.engine = engine;
+		handlers = ServiceContext.getContext().findExpireHandlers();
+		if(handlers.isEmpty()) {
+			log.warn("没有注册任何到期处理器，到期的任务及流程实例将不做处理");
+		}
+		wheel = new HashedTimerWheel(tickDuration, ticksPerWheel, System.currentTimeMillis());
+		loadedUntil = 0;
+		synchronized(deferred) {
+			deferred.clear();
+		}
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, 
+				new ArrayBlockingQueue<Runnable>(queueSize), 
+				ThreadHelper.newThreadFactory("snaker-expire-handler-", false), 
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		running = true;
+		thread = new Thread(this, "snaker-expire-scheduler");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * 停止调度线程，等待中的定时器在下次启动时重新从数据库恢复
+	 */
+	public synchronized void stop() {
+		if(!running) return;
+		running = false;
+		thread.interrupt();
+		thread = null;
+		executor.shutdown();
+	}
+	
+	@Override
+	public void run() {
+		while(running) {
+			try {
+				long now = System.currentTimeMillis();
+				if(loadedUntil == 0 || now + horizon / 2 >= loadedUntil) {
+					load(now);
+				}
+				for(final Timeout timeout : wheel.advance(now)) {
+					executor.execute(new Runnable() {
+						public void run() {
+							fire(timeout);
+						}
+					});
+				}
+				Thread.sleep(tickDuration);
+			} catch(InterruptedException e) {
+				break;
+			} catch(Exception e) {
+				log.error("到期调度执行异常：" + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/**
+	 * 加载下一段窗口内的到期时间，窗口边界按秒对齐，与期望完成时间的精度一致
+	 * @param now
+	 */
+	void load(long now) {
+		long until = (now + horizon) / 1000 * 1000;
+		String startTime = loadedUntil == 0 ? null : format(loadedUntil);
+		String endTime = format(until);
+		//先推进窗口再查询，查询期间新产生的任务由拦截器放入时间轮，重复的按键去重
+		long previous = loadedUntil;
+		loadedUntil = until;
+		List<Task> tasks;
+		List<Order> orders;
+		try {
+			tasks = engine.query().getExpiringTasks(startTime, endTime);
+			orders = engine.query().getExpiringOrders(startTime, endTime);
+		} catch(RuntimeException e) {
+			//加载失败时回退窗口，下一刻度重新加载
+			loadedUntil = previous;
+			throw e;
+		}
+		for(Task task : tasks) {
+			schedule(Timeout.TYPE_TASK, task.getId(), task.getExpireTime(), false);
+		}
+		for(Order order : orders) {
+			schedule(Timeout.TYPE_ORDER, order.getId(), order.getExpireTime(), false);
+		}
+		//拦截时在窗口之外、而事务可能晚于本次查询才提交的定时器，进入新窗口的放入时间轮；
+		//仍在窗口之外的由后续窗口查询加载，其查询至少在horizon/2之后执行
+		List<Timeout> pending;
+		synchronized(deferred) {
+			pending = new ArrayList<Timeout>(deferred);
+			deferred.clear();
+		}
+		for(Timeout timeout : pending) {
+			if(timeout.getDeadline() < until) {
+				wheel.add(timeout);
+			}
+		}
+		if(log.isDebugEnabled()) {
+			log.debug("load expire window[" + startTime + "," + endTime + "), tasks=" 
+					+ tasks.size() + ", orders=" + orders.size() + ", pending=" + wheel.size());
+		}
+	}
+	
+	/**
+	 * 新产生的任务在已加载窗口内到期时直接放入时间轮
+	 */
+	@Override
+	public void intercept(List<Task> tasks) {
+		if(!running) return;
+		for(Task task : tasks) {
+			schedule(Timeout.TYPE_TASK, task.getId(), task.getExpireTime(), true);
+		}
+	}
+	
+	/**
+	 * 新创建的流程实例在已加载窗口内到期时直接放入时间轮
+	 * @param order
+	 */
+	public void schedule(Order order) {
+		if(!running) return;
+		schedule(Timeout.TYPE_ORDER, order.getId(), order.getExpireTime(), true);
+	}
+	
+	/**
+	 * 取消任务或流程实例的定时器
+	 * @param type Timeout.TYPE_TASK或Timeout.TYPE_ORDER
+	 * @param id
+	 * @return
+	 */
+	public boolean cancel(String type, String id) {
+		return wheel != null && wheel.cancel(type, id);
+	}
+	
+	/**
+	 * 返回等待中的定时器数量
+	 * @return
+	 */
+	public int getPendingCount() {
+		return wheel == null ? 0 : wheel.size();
+	}
+	
+	/**
+	 * @param intercepted 是否为新产生的任务或流程实例，是则窗口之外的到期时间暂存至下一次加载
+	 */
+	private void schedule(String type, String id, String expireTime, boolean intercepted) {
+		if(StringHelper.isEmpty(expireTime)) return;
+		long deadline;
+		try {
+			deadline = parse(expireTime);
+		} catch(ParseException e) {
+			log.warn("无法解析的期望完成时间[" + type + "=" + id + ",expireTime=" + expireTime + "]");
+			return;
+		}
+		Timeout timeout = new Timeout(type, id, deadline);
+		//窗口之外的到期时间由后续窗口加载
+		if(deadline >= loadedUntil) {
+			if(intercepted) {
+				synchronized(deferred) {
+					deferred.add(timeout);
+				}
+			}
+			return;
+		}
+		wheel.add(timeout);
+	}
+	
+	/**
+	 * 到期时重新查询，仍为活动状态时调用所有到期处理器
+	 */
+	private void fire(Timeout timeout) {
+		if(timeout.isTask()) {
+			Task task = engine.query().getTask(timeout.getId());
+			if(task == null) return;
+			for(ExpireHandler handler : handlers) {
+				try {
+					handler.expire(engine, task);
+				} catch(Exception e) {
+					log.error("任务[id=" + task.getId() + "]到期处理异常：" + e.getMessage(), e);
+				}
+			}
+		} else {
+			Order order = engine.query().getOrder(timeout.getId());
+			if(order == null) return;
+			for(ExpireHandler handler : handlers) {
+				try {
+					handler.expire(engine, order);
+				} catch(Exception e) {
+					log.error("流程实例[id=" + order.getId() + "]到期处理异常：" + e.getMessage(), e);
+				}
+			}
+		}
+	}
+	
+	private static String format(long time) {
+		DateFormat df = new SimpleDateFormat(TIME_PATTERN);
+		return df.format(new Date(time));
+	}
+	
+	private static long parse(String time) throws ParseException {
+		DateFormat df = new SimpleDateFormat(TIME_PATTERN);
+		return df.parse(time).getTime();
+	}
+	
+	public void setTickDuration(long tickDuration) {
+		this.tickDuration = tickDuration;
+	}
+	public void setTicksPerWheel(int ticksPerWheel) {
+		this.ticksPerWheel = ticksPerWheel;
+	}
+	public void setHorizon(long horizon) {
+		this.horizon = horizon;
+	}
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+}
@@ -0,0 +1,162 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.snaker.engine.SnakerException;
+
+/**
+ * 哈希时间轮
+ * 槽位数为2的幂，每个槽位为双向链表，定时器按到期刻度放入对应槽位，超过一圈的记录剩余轮数。
+ * 插入、取消均为O(1)，推进时只遍历经过的槽位。同一键的定时器只保留最后一次插入的。
+ * 由到期调度器线程推进，插入、取消可来自任意线程，所有操作在时间轮对象上同步。
+ * @author yuqs
+ * @version 1.0
+ */
+public class HashedTimerWheel {
+	/**
+	 * 每个刻度的毫秒数
+	 */
+	private final long tickDuration;
+	/**
+	 * 槽位数-1，用于取模
+	 */
+	private final int mask;
+	/**
+	 * 槽位链表头
+	 */
+	private final Timeout[] wheel;
+	/**
+	 * 键->定时器索引
+	 */
+	private final Map<String, Timeout> timeouts = new HashMap<String, Timeout>();
+	/**
+	 * 时间轮的起始时间(毫秒)
+	 */
+	private final long startTime;
+	/**
+	 * 已推进的刻度数
+	 */
+	private long tick = 0;
+
+	public HashedTimerWheel(long tickDuration, int ticksPerWheel, long startTime) {
+		if(tickDuration <= 0 || ticksPerWheel <= 0) {
+			throw new SnakerException("时间轮的刻度时长及槽位数必须大于0");
+		}
+		int size = Integer.highestOneBit(ticksPerWheel);
+		if(size < ticksPerWheel) size <<= 1;
+		this.tickDuration = tickDuration;
+		this.mask = size - 1;
+		this.wheel = new Timeout[size];
+		this.startTime = startTime;
+	}
+
+	/**
+	 * 插入定时器，已存在同一键的定时器时先取消旧的
+	 * 已过期的定时器放入下一个刻度
+	 * @param timeout
+	 */
+	public synchronized void add(Timeout timeout) {
+		Timeout old = timeouts.put(timeout.getKey(), timeout);
+		if(old != null) unlink(old);
+		long ticks = (timeout.getDeadline() - startTime + tickDuration - 1) / tickDuration;
+		if(ticks <= tick) ticks = tick + 1;
+		int slot = (int)(ticks & mask);
+		timeout.remainingRounds = (ticks - tick - 1) / wheel.length;
+		timeout.slot = slot;
+		timeout.prev = null;
+		timeout.next = wheel[slot];
+		if(wheel[slot] != null) wheel[slot].prev = timeout;
+		wheel[slot] = timeout;
+	}
+
+	/**
+	 * 根据类型、id取消定时器
+	 * @param type
+	 * @param id
+	 * @return 是否存在并已取消
+	 */
+	public synchronized boolean cancel(String type, String id) {
+		Timeout timeout = timeouts.remove(Timeout.key(type, id));
+		if(timeout == null) return false;
+		unlink(timeout);
+		return true;
+	}
+
+	/**
+	 * 推进时间轮到指定时间，返回其间到期的定时器
+	 * @param now 当前时间(毫秒)
+	 * @return
+	 */
+	public synchronized List<Timeout> advance(long now) {
+		List<Timeout> expired = new ArrayList<Timeout>();
+		while(startTime + (tick + 1) * tickDuration <= now) {
+			tick++;
+			int slot = (int)(tick & mask);
+			Timeout timeout = wheel[slot];
+			while(timeout != null) {
+				Timeout next = timeout.next;
+				if(timeout.remainingRounds <= 0) {
+					timeouts.remove(timeout.getKey());
+					unlink(timeout);
+					expired.add(timeout);
+				} else {
+					timeout.remainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+		return expired;
+	}
+
+	/**
+	 * 是否存在指定的定时器
+	 * @param type
+	 * @param id
+	 * @return
+	 */
+	public synchronized boolean contains(String type, String id) {
+		return timeouts.containsKey(Timeout.key(type, id));
+	}
+
+	/**
+	 * 返回等待中的定时器数量
+	 * @return
+	 */
+	public synchronized int size() {
+		return timeouts.size();
+	}
+
+	public long getTickDuration() {
+		return tickDuration;
+	}
+
+	private void unlink(Timeout timeout) {
+		if(timeout.slot < 0) return;
+		if(timeout.prev != null) {
+			timeout.prev.next = timeout.next;
+		} else {
+			wheel[timeout.slot] = timeout.next;
+		}
+		if(timeout.next != null) timeout.next.prev = timeout.prev;
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.slot = -1;
+	}
+}
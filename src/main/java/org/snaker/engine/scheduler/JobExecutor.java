@@ -0,0 +1,237 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.scheduler;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.core.OrderService;
+import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.core.SnakerEngineImpl;
+import org.snaker.engine.entity.Job;
+import org.snaker.engine.helper.ConfigHelper;
+import org.snaker.engine.helper.DateHelper;
+
+/**
+ * 异步延续作业执行器
+ * 轮询线程按next_Time顺序批量认领(takeJobs)到期的作业，提交给工作窃取线程池执行，
+ * 每个作业在独立的事务中由引擎继续执行(executeJob)。
+ * 执行失败的作业按指数退避重新等待，超过最大重试次数后标记为失败，不再认领；
+ * 认领后超过锁定时长仍未完成的作业(如执行节点宕机)可被重新认领。
+ * 需在配置文件中注册后由引擎启动。
+ * @author yuqs
+ * @version 1.0
+ */
+public class JobExecutor implements Runnable {
+	private static final Logger log = LoggerFactory.getLogger(JobExecutor.class);
+	/**
+	 * 退避等待的上限(秒)
+	 */
+	private static final int MAX_RETRY_DELAY = 3600;
+	/**
+	 * 错误信息的最大长度
+	 */
+	private static final int MAX_ERROR_LENGTH = 500;
+	/**
+	 * 工作线程数
+	 */
+	private int workers = 4;
+	/**
+	 * 每次认领的作业数
+	 */
+	private int batchSize = 20;
+	/**
+	 * 没有作业时的轮询间隔(毫秒)
+	 */
+	private long pollInterval = 1000;
+	/**
+	 * 最大重试次数
+	 */
+	private int maxRetries = 5;
+	/**
+	 * 首次重试的等待时间(秒)，之后逐次加倍
+	 */
+	private int retryDelay = 10;
+	/**
+	 * 作业认领后的锁定时长(秒)
+	 */
+	private int lockTimeout = 300;
+	/**
+	 * 流程引擎
+	 */
+	private SnakerEngineImpl engine;
+	/**
+	 * 认领、更新作业的流程实例服务
+	 */
+	private OrderService orderService;
+	/**
+	 * 执行作业的线程池
+	 */
+	private WorkStealingPool pool;
+	/**
+	 * 认领者标识前缀，每次认领再加上序号，用于区分不同批次
+	 */
+	private final String ownerPrefix = UUID.randomUUID().toString().replace("-", "");
+	private final AtomicLong sequence = new AtomicLong();
+	/**
+	 * 轮询线程
+	 */
+	private Thread thread;
+	private volatile boolean running = false;
+	
+	public JobExecutor() {
+		int value = ConfigHelper.getNumerProperty("job.workers");
+		if(value > 0) workers = value;
+		value = ConfigHelper.getNumerProperty("job.batchSize");
+		if(value > 0) batchSize = value;
+		value = ConfigHelper.getNumerProperty("job.pollInterval");
+		if(value > 0) pollInterval = value;
+		value = ConfigHelper.getNumerProperty("job.maxRetries");
+		if(value > 0) maxRetries = value;
+		value = ConfigHelper.getNumerProperty("job.retryDelay");
+		if(value > 0) retryDelay = value;
+		value = ConfigHelper.getNumerProperty("job.lockTimeout");
+		if(value > 0) lockTimeout = value;
+	}
+	
+	/**
+	 * 启动轮询线程及线程池，重复调用不做处理
+	 * @param engine
+	 */
+	public synchronized void start(SnakerEngineImpl engine) {
+		if(running) return;
+		this.engine = engine;
+		this.orderService = ServiceContext.getContext().getOrderService();
+		pool = new WorkStealingPool("snaker-job", workers);
+		running = true;
+		thread = new Thread(this, "snaker-job-executor");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * 停止轮询线程及线程池，已认领未执行的作业在锁定超时后重新认领
+	 */
+	public synchronized void stop() {
+		if(!running) return;
+		running = false;
+		thread.interrupt();
+		thread = null;
+		pool.shutdown();
+	}
+	
+	@Override
+	public void run() {
+		while(running) {
+			try {
+				int taken = 0;
+				//线程池中等待的作业不足一批时才继续认领，避免认领过多导致锁定超时
+				if(pool.getPendingCount() < batchSize) {
+					taken = poll();
+				}
+				if(taken < batchSize) {
+					Thread.sleep(pollInterval);
+				}
+			} catch(InterruptedException e) {
+				break;
+			} catch(Exception e) {
+				log.error("作业认领异常：" + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/**
+	 * 认领一批到期的作业并提交执行
+	 * @return 认领的作业数
+	 */
+	int poll() {
+		String owner = ownerPrefix + "-" + sequence.incrementAndGet();
+		List<Job> jobs = orderService.takeJobs(owner, batchSize, lockTimeout);
+		for(final Job job : jobs) {
+			pool.submit(new Runnable() {
+				public void run() {
+					execute(job);
+				}
+			});
+		}
+		return jobs.size();
+	}
+	
+	/**
+	 * 执行作业，失败时记录错误并安排重试
+	 * @param job
+	 */
+	void execute(Job job) {
+		try {
+			engine.executeJob(job);
+		} catch(Exception e) {
+			log.error("作业[id=" + job.getId() + "]执行异常：" + e.getMessage(), e);
+			try {
+				fail(job, e);
+			} catch(Exception ex) {
+				log.error("作业[id=" + job.getId() + "]更新失败：" + ex.getMessage(), ex);
+			}
+		}
+	}
+	
+	/**
+	 * 作业失败：增加重试次数，按指数退避设置下次执行时间，超过最大重试次数时标记为失败
+	 * @param job
+	 * @param e
+	 */
+	void fail(Job job, Exception e) {
+		int retries = job.getRetries() == null ? 1 : job.getRetries() + 1;
+		job.setRetries(retries);
+		job.setOwner(null);
+		String message = String.valueOf(e.getMessage());
+		if(message.length() > MAX_ERROR_LENGTH) {
+			message = message.substring(0, MAX_ERROR_LENGTH);
+		}
+		job.setErrorMsg(message);
+		if(retries > maxRetries) {
+			job.setJobState(Job.STATE_FAILED);
+		} else {
+			job.setJobState(Job.STATE_WAITING);
+			job.setNextTime(DateHelper.parseTime(new Date(System.currentTimeMillis() 
+					+ getRetryDelay(retries) * 1000L)));
+		}
+		orderService.updateJob(job);
+	}
+	
+	/**
+	 * 返回第retries次重试前的等待时间(秒)
+	 * @param retries
+	 * @return
+	 */
+	long getRetryDelay(int retries) {
+		long delay = retryDelay;
+		for(int i = 1; i < retries && delay < MAX_RETRY_DELAY; i++) {
+			delay *= 2;
+		}
+		return Math.min(delay, MAX_RETRY_DELAY);
+	}
+	
+	/**
+	 * 返回线程池中等待执行的作业数
+	 * @return
+	 */
+	public int getPendingCount() {
+		return pool == null ? 0 : pool.getPendingCount();
+	}
+}
@@ -0,0 +1,150 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.snaker.engine.SnakerException;
+import org.snaker.engine.helper.ConfigHelper;
+import org.snaker.engine.helper.ThreadHelper;
+
+/**
+ * 引擎共享的并行执行器，用于并行模式fork节点中不访问数据库的分支计算
+ * 固定线程数、有界队列的线程池，队列满时由调用线程直接执行；
+ * 配置parallel.virtualThreads=true且运行环境支持虚拟线程时使用虚拟线程。
+ * 工作线程不加入调用线程的事务，任务不应访问数据库，需要写数据库的操作由调用者在当前线程执行。
+ * 在工作线程中嵌套调用invokeAll时直接在当前线程依次执行，避免占满线程池后相互等待。
+ * 需在配置文件中注册后使用。
+ * @author yuqs
+ * @version 1.0
+ */
+public class ParallelExecutor {
+	/**
+	 * 标识当前线程是否为本执行器的工作线程
+	 */
+	private final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>();
+	/**
+	 * 线程池
+	 */
+	private final ThreadPoolExecutor executor;
+	
+	public ParallelExecutor() {
+		this(ConfigHelper.getNumerProperty("parallel.threads"), 
+				ConfigHelper.getNumerProperty("parallel.queueSize"),
+				"true".equalsIgnoreCase(ConfigHelper.getProperty("parallel.virtualThreads")));
+	}
+	
+	/**
+	 * 构造函数
+	 * @param threads 线程数，小于等于0时为8
+	 * @param queueSize 等待队列长度，小于等于0时为1024
+	 * @param virtualThreads 是否使用虚拟线程
+	 */
+	public ParallelExecutor(int threads, int queueSize, boolean virtualThreads) {
+		if(threads <= 0) threads = 8;
+		if(queueSize <= 0) queueSize = 1024;
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, 
+				new ArrayBlockingQueue<Runnable>(queueSize), 
+				ThreadHelper.newThreadFactory("snaker-parallel-", virtualThreads), 
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * 并发执行所有任务，按提交顺序返回结果。工作线程不绑定调用线程的事务，任务不应访问数据库；
+	 * 任一任务失败时等待其余任务结束后抛出第一个异常，运行时异常原样抛出
+	 * @param tasks
+	 * @return
+	 */
+	public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>(tasks.size());
+		if(tasks.size() < 2 || Boolean.TRUE.equals(worker.get())) {
+			for(Callable<T> task : tasks) {
+				results.add(call(task));
+			}
+			return results;
+		}
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for(Callable<T> task : tasks) {
+			futures.add(executor.submit(new WorkerTask<T>(task)));
+		}
+		RuntimeException error = null;
+		for(Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if(error == null) error = new SnakerException("并行执行线程被强制终止执行", e);
+			} catch (ExecutionException e) {
+				if(error != null) continue;
+				Throwable cause = e.getCause();
+				error = cause instanceof RuntimeException ? (RuntimeException)cause 
+						: new SnakerException("并行执行异常：" + cause.getMessage(), cause);
+			}
+		}
+		if(error != null) throw error;
+		return results;
+	}
+	
+	/**
+	 * 关闭线程池
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+	
+	private static <T> T call(Callable<T> task) {
+		try {
+			return task.call();
+		} catch(RuntimeException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new SnakerException(e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * 标记工作线程后执行的任务，队列满由调用线程直接执行时同样标记，执行结束后恢复
+	 */
+	private class WorkerTask<T> implements Callable<T> {
+		private final Callable<T> task;
+		
+		WorkerTask(Callable<T> task) {
+			this.task = task;
+		}
+		
+		@Override
+		public T call() throws Exception {
+			Boolean previous = worker.get();
+			worker.set(Boolean.TRUE);
+			try {
+				return task.call();
+			} finally {
+				if(previous == null) {
+					worker.remove();
+				} else {
+					worker.set(previous);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.scheduler;
+
+/**
+ * 时间轮中的一个到期定时器，对应一个任务或流程实例的期望完成时间
+ * @author yuqs
+ * @version 1.0
+ */
+public class Timeout {
+	/**
+	 * 任务的到期定时器
+	 */
+	public static final String TYPE_TASK = "task";
+	/**
+	 * 流程实例的到期定时器
+	 */
+	public static final String TYPE_ORDER = "order";
+	/**
+	 * 定时器类型
+	 */
+	private final String type;
+	/**
+	 * 任务或流程实例id
+	 */
+	private final String id;
+	/**
+	 * 到期时间(毫秒)
+	 */
+	private final long deadline;
+	/**
+	 * 剩余轮数，为0时在所在槽位到达时到期
+	 */
+	long remainingRounds;
+	/**
+	 * 所在槽位及槽位内的双向链表，用于O(1)取消
+	 */
+	int slot = -1;
+	Timeout prev;
+	Timeout next;
+
+	public Timeout(String type, String id, long deadline) {
+		this.type = type;
+		this.id = id;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * 返回定时器在时间轮中的唯一键
+	 * @return
+	 */
+	public String getKey() {
+		return key(type, id);
+	}
+
+	static String key(String type, String id) {
+		return type + ":" + id;
+	}
+
+	public boolean isTask() {
+		return TYPE_TASK.equals(type);
+	}
+
+	public String getType() {
+		return type;
+	}
+	public String getId() {
+		return id;
+	}
+	public long getDeadline() {
+		return deadline;
+	}
+
+	@Override
+	public String toString() {
+		return "Timeout[" + getKey() + ",deadline=" + deadline + "]";
+	}
+}
@@ -0,0 +1,163 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.snaker.engine.scheduler;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaker.engine.SnakerException;
+
+/**
+ * 工作窃取线程池
+ * 每个工作线程持有一个双端队列，提交的任务按轮询放入各线程的队列尾部，
+ * 线程从自己队列的头部取任务，自己的队列为空时从其它线程队列的尾部窃取，
+ * 避免个别耗时任务阻塞其后排队的任务
+ * @author yuqs
+ * @version 1.0
+ */
+public class WorkStealingPool {
+	private static final Logger log = LoggerFactory.getLogger(WorkStealingPool.class);
+	/**
+	 * 队列均为空时等待任务的时长(毫秒)
+	 */
+	private static final long IDLE_WAIT = 50;
+	/**
+	 * 工作线程
+	 */
+	private final Worker[] workers;
+	/**
+	 * 轮询提交的下标
+	 */
+	private final AtomicInteger next = new AtomicInteger();
+	/**
+	 * 已提交未开始执行的任务数
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+	/**
+	 * 被窃取执行的任务数
+	 */
+	private final AtomicLong stealCount = new AtomicLong();
+	private volatile boolean running = true;
+	
+	public WorkStealingPool(String name, int parallelism) {
+		if(parallelism <= 0) {
+			throw new SnakerException("工作线程数必须大于0");
+		}
+		workers = new Worker[parallelism];
+		for(int i = 0; i < parallelism; i++) {
+			workers[i] = new Worker(name + "-" + i, i);
+		}
+		for(Worker worker : workers) {
+			worker.start();
+		}
+	}
+	
+	/**
+	 * 提交任务
+	 * @param task
+	 */
+	public void submit(Runnable task) {
+		if(!running) {
+			throw new SnakerException("线程池已关闭");
+		}
+		int index = (next.getAndIncrement() & Integer.MAX_VALUE) % workers.length;
+		pending.incrementAndGet();
+		workers[index].deque.offerLast(task);
+	}
+	
+	/**
+	 * 关闭线程池，未开始执行的任务被丢弃
+	 */
+	public void shutdown() {
+		running = false;
+		for(Worker worker : workers) {
+			worker.interrupt();
+		}
+	}
+	
+	/**
+	 * 返回已提交未开始执行的任务数
+	 * @return
+	 */
+	public int getPendingCount() {
+		return pending.get();
+	}
+	
+	/**
+	 * 返回被窃取执行的任务数
+	 * @return
+	 */
+	public long getStealCount() {
+		return stealCount.get();
+	}
+	
+	public int getParallelism() {
+		return workers.length;
+	}
+	
+	/**
+	 * 从其它线程队列的尾部窃取任务
+	 */
+	private Runnable steal(int self) {
+		for(int i = 1; i < workers.length; i++) {
+			Runnable task = workers[(self + i) % workers.length].deque.pollLast();
+			if(task != null) {
+				stealCount.incrementAndGet();
+				return task;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 工作线程
+	 */
+	private class Worker extends Thread {
+		private final LinkedBlockingDeque<Runnable> deque = new LinkedBlockingDeque<Runnable>();
+		private final int index;
+		
+		Worker(String name, int index) {
+			super(name);
+			this.index = index;
+			setDaemon(true);
+		}
+		
+		@Override
+		public void run() {
+			while(running) {
+				Runnable task = deque.pollFirst();
+				if(task == null) task = steal(index);
+				if(task == null) {
+					try {
+						task = deque.pollFirst(IDLE_WAIT, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+				if(task == null) continue;
+				pending.decrementAndGet();
+				try {
+					task.run();
+				} catch(Throwable e) {
+					log.error("任务执行异常：" + e.getMessage(), e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.snaker.engine.access.AbstractDBAccess;
+import org.snaker.engine.access.Page;
+import org.snaker.engine.access.dialect.Dialect;
+
+/**
+ * 测试用的access，记录执行的语句及查询，不访问数据库
+ * 查询时记录语句后flush当前的UnitOfWork，查询结果默认为空，由子类覆盖findObject、findList按需返回
+ * @author yuqs
+ * @version 1.0
+ */
+public class RecordingAccess extends AbstractDBAccess {
+	/**
+	 * 执行的更新语句，批量执行记录为"batch:条数:sql"
+	 */
+	public final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+	/**
+	 * 执行的查询语句
+	 */
+	public final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+	/**
+	 * 查询语句对应的参数
+	 */
+	public final List<Object[]> queryArgs = Collections.synchronizedList(new ArrayList<Object[]>());
+	/**
+	 * 指定的方言，为null时使用上下文中的方言
+	 */
+	private final Dialect dialect;
+	
+	public RecordingAccess() {
+		this(null);
+	}
+	
+	public RecordingAccess(Dialect dialect) {
+		this.dialect = dialect;
+	}
+	
+	/**
+	 * 返回最后一次查询的语句
+	 * @return
+	 */
+	public String getLastSql() {
+		return queries.get(queries.size() - 1);
+	}
+	
+	/**
+	 * 返回最后一次查询的参数
+	 * @return
+	 */
+	public Object[] getLastArgs() {
+		return queryArgs.get(queryArgs.size() - 1);
+	}
+	
+	/**
+	 * 记录一次查询
+	 * @param sql
+	 * @param args
+	 */
+	protected void record(String sql, Object[] args) {
+		queries.add(sql);
+		queryArgs.add(args);
+	}
+	
+	/**
+	 * 返回单个对象的查询结果
+	 */
+	protected Object findObject(Class<?> clazz, String sql, Object[] args) {
+		return null;
+	}
+	
+	/**
+	 * 返回列表的查询结果
+	 */
+	protected List<?> findList(Class<?> clazz, String sql, Object[] args) {
+		return Collections.emptyList();
+	}
+	
+	@Override
+	protected Dialect getDialect() {
+		return dialect == null ? super.getDialect() : dialect;
+	}
+	
+	@Override
+	public boolean isORM() {
+		return false;
+	}
+	
+	@Override
+	public void saveOrUpdate(Map<String, Object> map) {
+		executed.add((String)map.get(KEY_SQL));
+	}
+	
+	@Override
+	protected void saveOrUpdateBatch(String sql, List<Object[]> argsList, int[] type) {
+		executed.add("batch:" + argsList.size() + ":" + sql);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T queryObject(Class<T> T, String sql, Object... args) {
+		record(sql, args);
+		flushUnitOfWork();
+		return (T)findObject(T, sql, args);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> List<T> queryList(Class<T> T, String sql, Object... args) {
+		record(sql, args);
+		flushUnitOfWork();
+		return new ArrayList<T>((List<T>)findList(T, sql, args));
+	}
+	
+	@Override
+	public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, Object... args) {
+		return queryList(T, sql, args);
+	}
+}
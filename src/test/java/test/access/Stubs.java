@@ -0,0 +1,63 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+
+/**
+ * 测试用的接口桩，由动态代理实现
+ * @author yuqs
+ * @version 1.0
+ */
+public class Stubs {
+	/**
+	 * 所有方法返回null的处理器
+	 */
+	private static final InvocationHandler NULL_HANDLER = new InvocationHandler() {
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			return null;
+		}
+	};
+	
+	/**
+	 * 返回由指定处理器实现的接口桩
+	 * @param type
+	 * @param handler
+	 * @return
+	 */
+	public static <T> T stub(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, handler));
+	}
+	
+	/**
+	 * 返回所有方法返回null的接口桩
+	 * @param type
+	 * @return
+	 */
+	public static <T> T stub(Class<T> type) {
+		return stub(type, NULL_HANDLER);
+	}
+	
+	/**
+	 * 返回不执行任何操作的数据库连接，用于绑定事务
+	 * @return
+	 */
+	public static Connection connection() {
+		return stub(Connection.class);
+	}
+}
@@ -0,0 +1,101 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.jdbc.BeanPropertyHandler;
+import org.snaker.engine.access.jdbc.BeanRowMapping;
+import org.snaker.engine.access.spring.BeanRowMapper;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.entity.WorkItem;
+
+/**
+ * 测试缓存的结果集映射计划
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestBeanRowMapping {
+	@Test
+	public void testHandler() throws Exception {
+		String[] columns = new String[]{"id", "task_Name", "PERFORM_TYPE", "version", "unknown"};
+		ResultSet rs = resultSet(columns, new Object[][]{
+				{"t1", "task1", 1, null, "x"},
+				{"t2", "task2", new BigDecimal(0), 2, "y"}});
+		List<Task> tasks = new BeanPropertyHandler<Task>(Task.class).handle(rs);
+		Assert.assertEquals(2, tasks.size());
+		Assert.assertEquals("t1", tasks.get(0).getId());
+		Assert.assertEquals("task1", tasks.get(0).getTaskName());
+		Assert.assertEquals(Integer.valueOf(1), tasks.get(0).getPerformType());
+		Assert.assertNull(tasks.get(0).getVersion());
+		Assert.assertEquals("task2", tasks.get(1).getTaskName());
+		Assert.assertEquals(Integer.valueOf(0), tasks.get(1).getPerformType());
+		Assert.assertEquals(Integer.valueOf(2), tasks.get(1).getVersion());
+
+		//相同class类型、字段列表共用同一个映射计划
+		BeanRowMapping<Task> mapping = BeanRowMapping.getMapping(Task.class, rs.getMetaData());
+		Assert.assertSame(mapping, BeanRowMapping.getMapping(Task.class, resultSet(columns, new Object[0][]).getMetaData()));
+		Assert.assertNotSame(mapping, BeanRowMapping.getMapping(Task.class, resultSet(new String[]{"id"}, new Object[0][]).getMetaData()));
+	}
+
+	@Test
+	public void testRowMapper() throws Exception {
+		ResultSet rs = resultSet(new String[]{"task_Id", "process_Name", "task_Create_Time"}, new Object[][]{
+				{"t1", "请假流程", "2013-01-01"}});
+		BeanRowMapper<WorkItem> mapper = new BeanRowMapper<WorkItem>(WorkItem.class);
+		Assert.assertTrue(rs.next());
+		WorkItem item = mapper.mapRow(rs, 0);
+		Assert.assertEquals("t1", item.getTaskId());
+		Assert.assertEquals("请假流程", item.getProcessName());
+		Assert.assertEquals("2013-01-01", item.getTaskCreateTime());
+	}
+
+	/**
+	 * 构造内存中的ResultSet
+	 */
+	private ResultSet resultSet(final String[] columns, final Object[][] rows) {
+		final ResultSetMetaData rsmd = Stubs.stub(ResultSetMetaData.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(method.getName().equals("getColumnCount")) return columns.length;
+				if(method.getName().equals("getColumnLabel")) return columns[(Integer)args[0] - 1];
+				return null;
+			}
+		});
+		return Stubs.stub(ResultSet.class, new InvocationHandler() {
+			int row = -1;
+			Object last;
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if(name.equals("getMetaData")) return rsmd;
+				if(name.equals("next")) return ++row < rows.length;
+				if(name.equals("wasNull")) return last == null;
+				if(name.startsWith("get")) {
+					last = rows[row][(Integer)args[0] - 1];
+					if(name.equals("getInt")) return last == null ? 0 : ((Number)last).intValue();
+					if(name.equals("getString")) return last == null ? null : last.toString();
+					return last;
+				}
+				return null;
+			}
+		});
+	}
+}
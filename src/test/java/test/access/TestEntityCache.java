@@ -0,0 +1,136 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.EntityCache;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+import org.snaker.engine.entity.Task;
+
+/**
+ * 测试按主键查询的二级缓存
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestEntityCache {
+	@After
+	public void after() {
+		TransactionObjectHolder.unbind();
+	}
+
+	@Test
+	public void testReadThrough() {
+		RecordingAccess access = newAccess();
+		EntityCache cache = new EntityCache(2);
+		access.setEntityCache(cache);
+		TransactionObjectHolder.bind(new Object());
+		Task task = access.getTask("t1");
+		Task cached = access.getTask("t1");
+		Assert.assertEquals(1, access.queries.size());
+		Assert.assertNotSame(task, cached);
+		Assert.assertEquals("task1", cached.getTaskName());
+		//修改返回的对象不影响缓存
+		cached.setOperator("a1");
+		Assert.assertNull(access.getTask("t1").getOperator());
+		Assert.assertEquals(2, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+
+		access.updateTask(task);
+		TransactionObjectHolder.unbind();
+		TransactionObjectHolder.bind(new Object());
+		access.getTask("t1");
+		Assert.assertEquals(2, access.queries.size());
+
+		//超出最大数量时淘汰最久未使用的对象
+		access.getTask("t2");
+		access.getTask("t3");
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(1, cache.getEvictionCount());
+		access.getTask("t1");
+		Assert.assertEquals(5, access.queries.size());
+	}
+
+	@Test
+	public void testLockInTransaction() {
+		RecordingAccess access = newAccess();
+		EntityCache cache = new EntityCache(10);
+		access.setEntityCache(cache);
+		TransactionObjectHolder.bind(new Object());
+		Task task = access.getTask("t1");
+		access.updateTask(task);
+		access.getTask("t1");
+		access.getTask("t1");
+		Assert.assertEquals(3, access.queries.size());
+		Assert.assertEquals(0, cache.size());
+		TransactionObjectHolder.unbind();
+		TransactionObjectHolder.bind(new Object());
+		access.getTask("t1");
+		access.getTask("t1");
+		Assert.assertEquals(4, access.queries.size());
+	}
+
+	@Test
+	public void testBypassWithoutTransaction() {
+		RecordingAccess access = newAccess();
+		EntityCache cache = new EntityCache(10);
+		access.setEntityCache(cache);
+		//外部事务(spring、jta)不绑定TransactionObjectHolder，不使用二级缓存
+		access.getTask("t1");
+		access.getTask("t1");
+		Assert.assertEquals(2, access.queries.size());
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testExpire() throws Exception {
+		RecordingAccess access = newAccess();
+		EntityCache cache = new EntityCache(10, 50);
+		access.setEntityCache(cache);
+		TransactionObjectHolder.bind(new Object());
+		access.getTask("t1");
+		access.getTask("t1");
+		Assert.assertEquals(1, access.queries.size());
+		Thread.sleep(80);
+		access.getTask("t1");
+		Assert.assertEquals(2, access.queries.size());
+	}
+
+	@Test
+	public void testDisabled() {
+		RecordingAccess access = newAccess();
+		access.setEntityCache(null);
+		access.getTask("t1");
+		access.getTask("t1");
+		Assert.assertEquals(2, access.queries.size());
+	}
+
+	/**
+	 * 按主键返回任务的access
+	 */
+	private RecordingAccess newAccess() {
+		return new RecordingAccess() {
+			@Override
+			protected Object findObject(Class<?> clazz, String sql, Object[] args) {
+				Task task = new Task();
+				task.setId((String)args[0]);
+				task.setTaskName("task1");
+				task.setVersion(0);
+				return task;
+			}
+		};
+	}
+}
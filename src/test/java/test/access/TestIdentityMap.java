@@ -0,0 +1,100 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+import org.snaker.engine.core.TaskService;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.entity.TaskActor;
+
+/**
+ * 测试事务范围内的一级缓存
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestIdentityMap {
+	@After
+	public void after() {
+		TransactionObjectHolder.unbind();
+	}
+
+	@Test
+	public void testWithoutTransaction() {
+		RecordingAccess access = newAccess();
+		TaskService service = new TaskService();
+		service.setAccess(access);
+		service.getTask("t1");
+		service.getTask("t1");
+		Assert.assertEquals(2, access.queries.size());
+		Assert.assertNull(TransactionObjectHolder.getCache());
+	}
+
+	@Test
+	public void testInTransaction() {
+		RecordingAccess access = newAccess();
+		TaskService service = new TaskService();
+		service.setAccess(access);
+		TransactionObjectHolder.bind(new Object());
+		Task task = service.getTask("t1");
+		Assert.assertSame(task, service.getTask("t1"));
+		service.getTaskActorsByTaskId("t1");
+		service.isAllowed(task, "a1");
+		Assert.assertEquals(2, access.queries.size());
+
+		//参与者变更、任务删除后重新查询
+		service.assignTask("t1", "a2");
+		service.getTaskActorsByTaskId("t1");
+		Assert.assertEquals(3, access.queries.size());
+		service.completeTask(task);
+		service.getTask("t1");
+		Assert.assertEquals(4, access.queries.size());
+
+		TransactionObjectHolder.unbind();
+		Assert.assertNull(TransactionObjectHolder.getCache());
+	}
+
+	/**
+	 * 返回任务及参与者a1的access
+	 */
+	private RecordingAccess newAccess() {
+		return new RecordingAccess() {
+			@Override
+			protected Object findObject(Class<?> clazz, String sql, Object[] args) {
+				if(clazz != Task.class) return null;
+				Task task = new Task();
+				task.setId((String)args[0]);
+				return task;
+			}
+
+			@Override
+			protected List<?> findList(Class<?> clazz, String sql, Object[] args) {
+				List<TaskActor> list = new ArrayList<TaskActor>();
+				if(clazz == TaskActor.class) {
+					TaskActor actor = new TaskActor();
+					actor.setTaskId((String)args[0]);
+					actor.setActorId("a1");
+					list.add(actor);
+				}
+				return list;
+			}
+		};
+	}
+}
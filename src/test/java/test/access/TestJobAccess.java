@@ -0,0 +1,148 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.Page;
+import org.snaker.engine.access.UnitOfWork;
+import org.snaker.engine.entity.Job;
+import org.snaker.engine.entity.Task;
+
+/**
+ * 测试异步作业的认领语句及按领取标识删除
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestJobAccess {
+	private static final String TIME = "2026-01-01 10:00:00";
+	private static final String STALE_TIME = "2026-01-01 09:55:00";
+
+	@Test
+	public void testTakeJobs() {
+		JobAccess access = new JobAccess();
+		Job j1 = newJob("j1");
+		access.candidates.add(j1);
+		access.candidates.add(newJob("j2"));
+		//j2已被其它执行器先领取，条件更新不再命中
+		access.claimed.add(j1);
+		List<Job> jobs = access.takeJobs("owner1", TIME, STALE_TIME, 20);
+		Assert.assertEquals(1, jobs.size());
+		Assert.assertSame(j1, jobs.get(0));
+		
+		//按下次执行时间分页查询候选作业：到期的等待作业及锁定超时的执行中作业，不统计总记录数
+		Assert.assertEquals(JobAccess.RUNNABLE_SQL, access.queries.get(0));
+		Assert.assertArrayEquals(new Object[]{TIME, STALE_TIME}, access.queryArgs.get(0));
+		Assert.assertEquals(20, access.page.getPageSize());
+		Assert.assertEquals(1, access.page.getPageNo());
+		Assert.assertEquals(Page.COUNT_NONE, access.page.getCountMode());
+		Assert.assertEquals("next_Time", access.page.getOrderBy());
+		Assert.assertEquals(Page.ASC, access.page.getOrder());
+		
+		//以同样的条件更新候选作业的领取标识
+		Assert.assertEquals(1, access.executed.size());
+		Assert.assertTrue(access.executed.get(0).startsWith(JobAccess.TAKE_SQL + " and id in "));
+		List<Object> args = Arrays.asList(access.updateArgs.get(0));
+		Assert.assertEquals(Arrays.<Object>asList("owner1", TIME, TIME, STALE_TIME, "j1", "j2"), args.subList(0, 6));
+		
+		//按领取标识查询本次实际领取到的作业
+		Assert.assertEquals(2, access.queries.size());
+		Assert.assertTrue(access.getLastSql().endsWith(" where owner = ? and job_State = 1 "));
+		Assert.assertArrayEquals(new Object[]{"owner1"}, access.getLastArgs());
+	}
+
+	@Test
+	public void testTakeNone() {
+		JobAccess access = new JobAccess();
+		Assert.assertTrue(access.takeJobs("owner1", TIME, STALE_TIME, 20).isEmpty());
+		Assert.assertEquals(1, access.queries.size());
+		Assert.assertTrue(access.executed.isEmpty());
+	}
+
+	@Test
+	public void testDeleteJob() {
+		JobAccess access = new JobAccess();
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			Task task = new Task();
+			task.setId("t1");
+			access.saveTask(task);
+			Assert.assertTrue(access.deleteJob("j1", "owner1"));
+			uow.commit();
+		} finally {
+			uow.end();
+		}
+		//条件删除不经过缓冲，执行前先flush已缓冲的语句
+		Assert.assertEquals(2, access.executed.size());
+		Assert.assertTrue(access.executed.get(0).startsWith("insert into wf_task "));
+		Assert.assertEquals(JobAccess.DELETE_SQL, access.executed.get(1));
+		Assert.assertArrayEquals(new Object[]{"j1", "owner1"}, access.updateArgs.get(1));
+		
+		//领取已超时并被其它执行器重新领取（领取标识已变化）时删除不到
+		access.deleted = 0;
+		Assert.assertFalse(access.deleteJob("j1", "owner1"));
+	}
+
+	private Job newJob(String id) {
+		Job job = new Job();
+		job.setId(id);
+		job.setJobState(Job.STATE_WAITING);
+		return job;
+	}
+
+	/**
+	 * 返回指定候选作业、领取结果，记录更新参数及分页对象的access
+	 */
+	static class JobAccess extends RecordingAccess {
+		static final String RUNNABLE_SQL = QUERY_JOB + JOB_RUNNABLE;
+		static final String TAKE_SQL = JOB_TAKE;
+		static final String DELETE_SQL = JOB_DELETE;
+		List<Job> candidates = new ArrayList<Job>();
+		List<Job> claimed = new ArrayList<Job>();
+		List<Object[]> updateArgs = new ArrayList<Object[]>();
+		Page<?> page;
+		int deleted = 1;
+
+		@Override
+		protected void saveOrUpdate(String sql, Object[] args, int[] type) {
+			updateArgs.add(args);
+			super.saveOrUpdate(sql, args, type);
+		}
+
+		@Override
+		protected int updateCount(String sql, Object[] args, int[] type) {
+			super.updateCount(sql, args, type);
+			return deleted;
+		}
+
+		@Override
+		protected List<?> findList(Class<?> clazz, String sql, Object[] args) {
+			if(sql.equals(RUNNABLE_SQL)) return candidates;
+			if(sql.startsWith(QUERY_JOB)) return claimed;
+			return Collections.emptyList();
+		}
+
+		@Override
+		public <T> List<T> queryList(Page<T> page, Class<T> T, String sql, Object... args) {
+			this.page = page;
+			return super.queryList(page, T, sql, args);
+		}
+	}
+}
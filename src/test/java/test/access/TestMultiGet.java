@@ -0,0 +1,103 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.dialect.OracleDialect;
+import org.snaker.engine.core.QueryService;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.entity.TaskActor;
+
+/**
+ * 测试按id集合的批量查询
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestMultiGet {
+	@Test
+	public void testGetTasks() {
+		RecordingAccess access = newAccess();
+		Map<String, Task> tasks = access.getTasks(Arrays.asList("t1", "t2", "t1", null, "t3"));
+		Assert.assertEquals(1, access.queries.size());
+		Assert.assertEquals(4, access.queryArgs.get(0).length);
+		Assert.assertEquals(3, tasks.size());
+		Assert.assertEquals("t2", tasks.get("t2").getId());
+		Assert.assertTrue(access.getTasks(new ArrayList<String>()).isEmpty());
+		Assert.assertEquals(1, access.queries.size());
+	}
+
+	@Test
+	public void testChunk() {
+		RecordingAccess access = newAccess();
+		List<String> ids = new ArrayList<String>();
+		for(int i = 0; i < 1100; i++) {
+			ids.add("t" + i);
+		}
+		Map<String, Task> tasks = access.getTasks(ids);
+		//oracle限制1000，按512分批
+		Assert.assertEquals(3, access.queries.size());
+		Assert.assertEquals(512, access.queryArgs.get(0).length);
+		Assert.assertEquals(128, access.queryArgs.get(2).length);
+		Assert.assertEquals(1100, tasks.size());
+	}
+
+	@Test
+	public void testGetTaskActors() {
+		RecordingAccess access = newAccess();
+		QueryService service = new QueryService();
+		service.setAccess(access);
+		Map<String, List<TaskActor>> actors = access.getTaskActors(Arrays.asList("t1", "none"));
+		Assert.assertEquals(2, actors.get("t1").size());
+		Assert.assertTrue(actors.get("none").isEmpty());
+		Map<String, String[]> actorIds = service.getTaskActors(Arrays.asList("t1", "none"));
+		Assert.assertArrayEquals(new String[]{"a1", "a2"}, actorIds.get("t1"));
+		Assert.assertFalse(actorIds.containsKey("none"));
+	}
+
+	/**
+	 * 按参数返回记录的access，id为none的记录不存在
+	 */
+	private RecordingAccess newAccess() {
+		return new RecordingAccess(new OracleDialect()) {
+			@Override
+			protected List<?> findList(Class<?> clazz, String sql, Object[] args) {
+				List<Object> list = new ArrayList<Object>();
+				for(Object id : new LinkedHashSet<Object>(Arrays.asList(args))) {
+					if("none".equals(id)) continue;
+					if(clazz == Task.class) {
+						Task task = new Task();
+						task.setId((String)id);
+						list.add(task);
+					} else if(clazz == TaskActor.class) {
+						for(String actorId : new String[]{"a1", "a2"}) {
+							TaskActor actor = new TaskActor();
+							actor.setTaskId((String)id);
+							actor.setActorId(actorId);
+							list.add(actor);
+						}
+					}
+				}
+				return list;
+			}
+		};
+	}
+}
@@ -0,0 +1,159 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.CountCache;
+import org.snaker.engine.access.Page;
+import org.snaker.engine.access.dialect.MySqlDialect;
+import org.snaker.engine.access.dialect.OracleDialect;
+
+/**
+ * 测试分页总记录数的统计方式
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestPageCount {
+	private static final String TASKS = "select * from wf_task where 1=1  order by create_Time desc";
+	private static final String ACTOR_TASKS = "select * from wf_task where 1=1  and task_Name = ?";
+
+	@After
+	public void after() {
+		CountCache.clear();
+	}
+
+	@Test
+	public void testLimitSql() {
+		Assert.assertEquals(new MySqlDialect().getPageAfter(3, 10), new MySqlDialect().getLimitAfter(20, 10));
+		Assert.assertEquals(new OracleDialect().getPageAfter(3, 10), new OracleDialect().getLimitAfter(20, 10));
+		CountAccess access = new CountAccess();
+		Page<String> page = new Page<String>(10).pageNo(3).countMode(Page.COUNT_NONE);
+		Assert.assertEquals("select 1 limit 20,11", access.list(page, "select 1"));
+	}
+
+	@Test
+	public void testNone() {
+		CountAccess access = new CountAccess();
+		Page<String> page = new Page<String>(2).countMode(Page.COUNT_NONE);
+		List<String> list = access.page(page, TASKS, "a", "b", "c");
+		Assert.assertEquals(0, access.counts);
+		Assert.assertEquals(2, list.size());
+		Assert.assertTrue(page.isHasNext());
+		Assert.assertEquals(0, page.getTotalCount());
+		access.page(page, TASKS, "a", "b");
+		Assert.assertFalse(page.isHasNext());
+	}
+
+	@Test
+	public void testCached() {
+		CountAccess access = new CountAccess();
+		Page<String> page = new Page<String>(2).countMode(Page.COUNT_CACHED);
+		access.page(page, TASKS, "a", "b");
+		access.page(page.pageNo(2), TASKS, "c");
+		Assert.assertEquals(1, access.counts);
+		Assert.assertEquals(5, page.getTotalCount());
+		access.page(new Page<String>(2), TASKS, "a");
+		Assert.assertEquals(2, access.counts);
+	}
+
+	@Test
+	public void testEstimate() {
+		CountAccess access = new CountAccess();
+		Page<String> page = new Page<String>(2).countMode(Page.COUNT_ESTIMATE);
+		access.page(page, TASKS, "a");
+		Assert.assertEquals(0, access.counts);
+		Assert.assertEquals(1000, page.getTotalCount());
+		access.estimate = null;
+		//统计信息按表缓存
+		Page<String> other = new Page<String>(2).countMode(Page.COUNT_ESTIMATE);
+		access.page(other, TASKS, "a");
+		Assert.assertEquals(1000, other.getTotalCount());
+		//无统计信息时退化为缓存的精确count
+		CountCache.clear();
+		access.page(page, TASKS, "a");
+		Assert.assertEquals(1, access.counts);
+		Assert.assertEquals(5, page.getTotalCount());
+	}
+
+	@Test
+	public void testEstimateFiltered() {
+		CountAccess access = new CountAccess();
+		Page<String> page = new Page<String>(2).countMode(Page.COUNT_ESTIMATE);
+		//有过滤条件时整表的统计信息不适用，按COUNT_CACHED统计
+		access.page(page, ACTOR_TASKS, "a");
+		access.page(page, ACTOR_TASKS, "a");
+		Assert.assertEquals(1, access.counts);
+		Assert.assertEquals(5, page.getTotalCount());
+		Assert.assertEquals(0, access.queries.size());
+		access.page(page, TASKS, "a");
+		Assert.assertEquals(1000, page.getTotalCount());
+	}
+
+	@Test
+	public void testEstimateTable() {
+		CountAccess access = new CountAccess();
+		Assert.assertEquals("wf_task", access.table("select * from wf_task"));
+		Assert.assertEquals("wf_task", access.table(TASKS));
+		Assert.assertEquals("wf_order", access.table("SELECT id, (select count(1) from wf_task t where t.order_Id = o.id) c FROM wf_order o WHERE 1 = 1"));
+		Assert.assertNull(access.table(ACTOR_TASKS));
+		Assert.assertNull(access.table("select * from wf_task t left join wf_task_actor ta on ta.task_Id = t.id"));
+		Assert.assertNull(access.table("select * from wf_task where id in (select task_Id from wf_task_actor)"));
+	}
+
+	/**
+	 * 记录count次数的access
+	 */
+	static class CountAccess extends RecordingAccess {
+		int counts = 0;
+		Object estimate = 1000L;
+
+		CountAccess() {
+			super(new MySqlDialect());
+		}
+
+		List<String> page(Page<String> page, String sql, String... rows) {
+			countPage(page, getCountKey(sql, "a1"), getEstimateTable(sql), new CountCallback() {
+				public long count() {
+					counts++;
+					return 5;
+				}
+			});
+			List<String> list = new ArrayList<String>();
+			for(String row : rows) {
+				list.add(row);
+			}
+			return setPageResult(page, list);
+		}
+
+		String table(String sql) {
+			return getEstimateTable(sql);
+		}
+
+		String list(Page<?> page, String sql) {
+			return getPageSql(page, sql);
+		}
+
+		@Override
+		protected Object queryScalar(String sql, Object... args) {
+			record(sql, args);
+			return estimate;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.Page;
+import org.snaker.engine.access.dialect.MySqlDialect;
+import org.snaker.engine.access.dialect.OracleDialect;
+import org.snaker.engine.access.dialect.SQLServerDialect;
+import org.snaker.engine.entity.WorkItem;
+
+/**
+ * 测试工作项的游标分页
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestSeekPage {
+	@Test
+	public void testSeekSql() {
+		String sql = "select t.id from wf_task t where 1=1 order by t.create_Time desc, t.id desc";
+		Assert.assertEquals(sql + " limit 11", new MySqlDialect().getSeekSql(sql, 11));
+		Assert.assertEquals("select * from ( " + sql + " ) where rownum <= 11", new OracleDialect().getSeekSql(sql, 11));
+		Assert.assertTrue(new SQLServerDialect().getSeekSql(sql, 11).startsWith("select top 11 t.id "));
+	}
+
+	@Test
+	public void testCursor() {
+		SeekAccess access = new SeekAccess(5);
+		Page<WorkItem> page = new Page<WorkItem>(2);
+		page.cursor(null, null);
+		List<WorkItem> items = access.getWorkItems(page, null, "a1");
+		Assert.assertEquals(2, items.size());
+		Assert.assertTrue(page.isHasNext());
+		Assert.assertTrue(access.getLastSql().endsWith(" limit 3"));
+		Assert.assertEquals(1, access.getLastArgs().length);
+		Assert.assertEquals("t4", page.getNextCursorId());
+
+		page.cursor(page.getNextCursorValue(), page.getNextCursorId());
+		access.getWorkItems(page, null, "a1");
+		Assert.assertTrue(access.getLastSql().indexOf("t.id < ?") > 0);
+		Assert.assertEquals(4, access.getLastArgs().length);
+		Assert.assertEquals("t4", access.getLastArgs()[3]);
+
+		access.rows = 2;
+		page.cursor(page.getNextCursorValue(), page.getNextCursorId());
+		items = access.getWorkItems(page, null, "a1");
+		Assert.assertEquals(2, items.size());
+		Assert.assertFalse(page.isHasNext());
+	}
+
+	/**
+	 * 按创建时间倒序返回工作项的access，每次最多返回3行
+	 */
+	static class SeekAccess extends RecordingAccess {
+		int rows;
+
+		SeekAccess(int rows) {
+			super(new MySqlDialect());
+			this.rows = rows;
+		}
+
+		@Override
+		protected List<?> findList(Class<?> clazz, String sql, Object[] args) {
+			List<WorkItem> list = new ArrayList<WorkItem>();
+			for(int i = 0; i < Math.min(rows, 3); i++) {
+				WorkItem item = new WorkItem();
+				item.setTaskId("t" + (5 - i));
+				item.setTaskCreateTime("2013-01-0" + (5 - i));
+				list.add(item);
+			}
+			return list;
+		}
+	}
+}
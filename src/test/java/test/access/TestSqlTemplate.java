@@ -0,0 +1,82 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.jdbc.StatementCache;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+
+/**
+ * 测试按查询形态缓存的sql模板及事务范围的语句缓存
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestSqlTemplate {
+	@After
+	public void after() {
+		StatementCache.close();
+		TransactionObjectHolder.unbind();
+	}
+
+	@Test
+	public void testTemplate() {
+		RecordingAccess access = new RecordingAccess();
+		access.getActiveOrders(null, "p1", "p2", "p3");
+		access.getActiveOrders(null, "p4", "p5", "p6", "p7");
+		access.getActiveOrders(null, "p8", "p9", "p10", "p11", "p12");
+		//3个、4个参数分到同一个桶，共用同一个sql实例，参数以最后一个值补齐
+		Assert.assertSame(access.queries.get(0), access.queries.get(1));
+		Assert.assertNotSame(access.queries.get(1), access.queries.get(2));
+		Assert.assertTrue(access.queries.get(0).contains("process_Id in (?,?,?,?)"));
+		Assert.assertArrayEquals(new Object[]{"p1", "p2", "p3", "p3"}, access.queryArgs.get(0));
+		Assert.assertEquals(8, access.queryArgs.get(2).length);
+
+		access.getActiveOrders(null);
+		Assert.assertFalse(access.queries.get(3).contains(" in "));
+		Assert.assertEquals(0, access.queryArgs.get(3).length);
+	}
+
+	@Test
+	public void testStatementCache() throws Exception {
+		final List<String> prepared = new ArrayList<String>();
+		Connection conn = Stubs.stub(Connection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(method.getName().equals("prepareStatement")) {
+					prepared.add((String)args[0]);
+					return Stubs.stub(PreparedStatement.class);
+				}
+				return null;
+			}
+		});
+		Assert.assertNull(StatementCache.get(conn));
+		TransactionObjectHolder.bind(conn);
+		StatementCache cache = StatementCache.get(conn);
+		PreparedStatement pstmt = cache.prepare("select 1");
+		Assert.assertSame(pstmt, StatementCache.get(conn).prepare("select 1"));
+		Assert.assertEquals(1, prepared.size());
+		StatementCache.close();
+		Assert.assertNotSame(pstmt, StatementCache.get(conn).prepare("select 1"));
+		Assert.assertEquals(2, prepared.size());
+	}
+}
@@ -0,0 +1,88 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.RowCallback;
+import org.snaker.engine.entity.HistoryOrder;
+import org.snaker.engine.entity.HistoryTask;
+
+/**
+ * 测试流式查询
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestStreamQuery {
+	@Test
+	public void testStream() {
+		StreamAccess access = new StreamAccess();
+		final List<String> ids = new ArrayList<String>();
+		access.streamHistoryOrders(new RowCallback<HistoryOrder>() {
+			public void handle(HistoryOrder row) {
+				ids.add(row.getId());
+			}
+		}, "p1", "p2");
+		Assert.assertEquals(2, ids.size());
+		Assert.assertTrue(access.getLastSql().startsWith("select "));
+		Assert.assertTrue(access.getLastSql().indexOf("from wf_hist_order") > 0);
+		Assert.assertTrue(access.getLastSql().indexOf("process_Id in (?,?)") > 0);
+		Assert.assertEquals(2, access.getLastArgs().length);
+	}
+
+	@Test
+	public void testDefaultStream() {
+		StreamAccess access = new StreamAccess();
+		final List<HistoryTask> tasks = new ArrayList<HistoryTask>();
+		access.streamHistoryTasks("o1", new RowCallback<HistoryTask>() {
+			public void handle(HistoryTask row) {
+				tasks.add(row);
+			}
+		});
+		Assert.assertEquals(2, tasks.size());
+		Assert.assertEquals("o1", access.getLastArgs()[0]);
+		Assert.assertTrue(access.getLastSql().indexOf("order_Id = ?") > 0);
+	}
+
+	/**
+	 * 逐行返回两个实例的access，历史任务通过默认的流式实现返回
+	 */
+	static class StreamAccess extends RecordingAccess {
+		@Override
+		protected <T> void queryStream(Class<T> T, String sql, RowCallback<T> callback, Object... args) {
+			if(T != HistoryOrder.class) {
+				super.queryStream(T, sql, callback, args);
+				return;
+			}
+			record(sql, args);
+			for(int i = 0; i < 2; i++) {
+				HistoryOrder order = new HistoryOrder();
+				order.setId("o" + i);
+				callback.handle(T.cast(order));
+			}
+		}
+
+		@Override
+		protected List<?> findList(Class<?> clazz, String sql, Object[] args) {
+			List<HistoryTask> list = new ArrayList<HistoryTask>();
+			list.add(new HistoryTask());
+			list.add(new HistoryTask());
+			return list;
+		}
+	}
+}
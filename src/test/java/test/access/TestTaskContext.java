@@ -0,0 +1,99 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+import org.snaker.engine.core.OrderService;
+import org.snaker.engine.core.TaskService;
+import org.snaker.engine.entity.TaskContext;
+
+/**
+ * 测试任务上下文的一次查询加载
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestTaskContext {
+	@After
+	public void after() {
+		TransactionObjectHolder.unbind();
+	}
+
+	@Test
+	public void testLoad() {
+		RecordingAccess access = newAccess("a1", "a2");
+		TaskContext context = access.loadTaskContext("t1");
+		Assert.assertEquals(1, access.queries.size());
+		Assert.assertEquals("t1", context.getTask().getId());
+		Assert.assertEquals("task1", context.getTask().getTaskName());
+		Assert.assertEquals(Integer.valueOf(0), context.getTask().getPerformType());
+		Assert.assertEquals("o1", context.getOrder().getId());
+		Assert.assertEquals("p1", context.getOrder().getProcessId());
+		Assert.assertEquals(Integer.valueOf(3), context.getOrder().getVersion());
+		Assert.assertArrayEquals(new String[]{"a1", "a2"}, context.getActorIds());
+	}
+
+	@Test
+	public void testNoActor() {
+		RecordingAccess access = newAccess((String)null);
+		TaskContext context = access.loadTaskContext("t1");
+		Assert.assertEquals(0, context.getTaskActors().size());
+		Assert.assertNull(newAccess().loadTaskContext("t1"));
+	}
+
+	@Test
+	public void testCache() {
+		RecordingAccess access = newAccess("a1");
+		TaskService taskService = new TaskService();
+		taskService.setAccess(access);
+		OrderService orderService = new OrderService();
+		orderService.setAccess(access);
+		TransactionObjectHolder.bind(new Object());
+		TaskContext context = taskService.getTaskContext("t1");
+		Assert.assertSame(context.getTask(), taskService.getTask("t1"));
+		Assert.assertSame(context.getOrder(), orderService.getOrder("o1"));
+		Assert.assertTrue(taskService.isAllowed(context.getTask(), "a1"));
+		Assert.assertEquals(1, access.queries.size());
+	}
+
+	/**
+	 * 返回连接查询行的access，每个参与者一行
+	 */
+	private RecordingAccess newAccess(final String... actorIds) {
+		return new RecordingAccess() {
+			@Override
+			protected List<?> findList(Class<?> clazz, String sql, Object[] args) {
+				List<TaskContextRow> list = new ArrayList<TaskContextRow>();
+				for(String actorId : actorIds) {
+					TaskContextRow row = new TaskContextRow();
+					row.setId("t1");
+					row.setOrderId("o1");
+					row.setTaskName("task1");
+					row.setPerformType(0);
+					row.setProcessId("p1");
+					row.setOrderVersion(3);
+					row.setActorId(actorId);
+					list.add(row);
+				}
+				return list;
+			}
+		};
+	}
+}
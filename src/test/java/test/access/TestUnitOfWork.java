@@ -0,0 +1,117 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.access;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.UnitOfWork;
+import org.snaker.engine.entity.HistoryTask;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.entity.TaskActor;
+
+/**
+ * 测试UnitOfWork的写缓冲、抵消及flush顺序
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestUnitOfWork {
+	@Test
+	public void testWithoutUnitOfWork() {
+		RecordingAccess access = new RecordingAccess();
+		access.saveTask(newTask("t1"));
+		access.deleteTask(newTask("t1"));
+		Assert.assertEquals(3, access.executed.size());
+	}
+
+	@Test
+	public void testCollapse() {
+		RecordingAccess access = new RecordingAccess();
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			Task task = newTask("t1");
+			access.saveTask(task);
+			access.saveTaskActor(newActor("t1", "a1"));
+			access.saveHistory(new HistoryTask(task));
+			access.deleteTask(task);
+			Assert.assertTrue(access.executed.isEmpty());
+			uow.commit();
+		} finally {
+			uow.end();
+		}
+		Assert.assertEquals(1, access.executed.size());
+		Assert.assertTrue(access.executed.get(0).startsWith("insert into wf_hist_task "));
+		Assert.assertNull(UnitOfWork.current());
+	}
+
+	@Test
+	public void testFlushOrder() {
+		RecordingAccess access = new RecordingAccess();
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			access.deleteTask(newTask("old"));
+			List<Task> tasks = new ArrayList<Task>();
+			tasks.add(newTask("t1"));
+			tasks.add(newTask("t2"));
+			access.saveTasks(tasks);
+			uow.commit();
+		} finally {
+			uow.end();
+		}
+		Assert.assertEquals(3, access.executed.size());
+		Assert.assertEquals("batch:2:insert into wf_task ", access.executed.get(0).substring(0, 28));
+		Assert.assertTrue(access.executed.get(1).startsWith("delete from wf_task_actor "));
+		Assert.assertTrue(access.executed.get(2).startsWith("delete from wf_task "));
+	}
+
+	@Test
+	public void testFlushBeforeQuery() {
+		RecordingAccess access = new RecordingAccess();
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			access.saveTask(newTask("t1"));
+			Assert.assertTrue(access.executed.isEmpty());
+			access.getTask("t1");
+			Assert.assertEquals(1, access.executed.size());
+			//嵌套的UnitOfWork不会提前flush
+			UnitOfWork inner = UnitOfWork.begin();
+			Assert.assertSame(uow, inner);
+			access.saveTask(newTask("t2"));
+			inner.commit();
+			inner.end();
+			Assert.assertEquals(1, access.executed.size());
+			uow.commit();
+		} finally {
+			uow.end();
+		}
+		Assert.assertEquals(2, access.executed.size());
+	}
+
+	private Task newTask(String id) {
+		Task task = new Task();
+		task.setId(id);
+		task.setOrderId("order");
+		return task;
+	}
+
+	private TaskActor newActor(String taskId, String actorId) {
+		TaskActor actor = new TaskActor();
+		actor.setTaskId(taskId);
+		actor.setActorId(actorId);
+		return actor;
+	}
+}
@@ -0,0 +1,59 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.concurrency.actorall;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.SnakerException;
+import org.snaker.engine.model.TaskModel;
+
+/**
+ * 测试all方式的完成规则
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestCompletionRule {
+	@Test
+	public void test() {
+		TaskModel model = new TaskModel();
+		model.setName("task1");
+		Assert.assertFalse(model.isPartialCompletion());
+		Assert.assertEquals(500, model.getRequiredCount(500));
+		
+		model.setCompletion("3");
+		Assert.assertTrue(model.isPartialCompletion());
+		Assert.assertEquals(3, model.getRequiredCount(500));
+		Assert.assertEquals(2, model.getRequiredCount(2));
+		
+		model.setCompletion("60%");
+		Assert.assertEquals(300, model.getRequiredCount(500));
+		Assert.assertEquals(2, model.getRequiredCount(3));
+		Assert.assertEquals(0, model.getRequiredCount(0));
+		
+		model.setCompletion("");
+		Assert.assertFalse(model.isPartialCompletion());
+		Assert.assertEquals(5, model.getRequiredCount(5));
+	}
+	
+	@Test(expected = SnakerException.class)
+	public void testIllegal() {
+		new TaskModel().setCompletion("half");
+	}
+	
+	@Test(expected = SnakerException.class)
+	public void testZero() {
+		new TaskModel().setCompletion("0%");
+	}
+}
@@ -0,0 +1,184 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.concurrency.async;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.IQueryService;
+import org.snaker.engine.SnakerEngine;
+import org.snaker.engine.core.AsyncCallback;
+import org.snaker.engine.core.AsyncSnakerEngine;
+import org.snaker.engine.entity.Task;
+
+import test.access.Stubs;
+
+/**
+ * 测试异步引擎门面：同一流程实例的调用按提交顺序串行，不同流程实例的调用并行
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestAsyncSnakerEngine {
+	private List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+	private CyclicBarrier barrier = new CyclicBarrier(2);
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+	private AsyncSnakerEngine async = new AsyncSnakerEngine(newEngine(), executor);
+	
+	@After
+	public void after() {
+		async.shutdown();
+	}
+	
+	@Test
+	public void testOrdering() throws Exception {
+		List<Future<List<Task>>> futures = new ArrayList<Future<List<Task>>>();
+		for(int i = 0; i < 5; i++) {
+			futures.add(async.executeTaskAsync("o1-t" + i, "a1"));
+		}
+		for(Future<List<Task>> future : futures) {
+			Assert.assertEquals(1, future.get(5, TimeUnit.SECONDS).size());
+		}
+		Assert.assertEquals("[o1-t0, o1-t1, o1-t2, o1-t3, o1-t4]", calls.toString());
+	}
+	
+	@Test
+	public void testOrderingMixed() throws Exception {
+		//按任务与按流程实例提交的调用仍按提交顺序执行
+		async.executeTaskAsync("o1-t0", "a1");
+		async.terminateByIdAsync("o1", "a1");
+		async.executeTaskAsync("o1-t1", "a1").get(5, TimeUnit.SECONDS);
+		Assert.assertEquals("[o1-t0, o1, o1-t1]", calls.toString());
+	}
+	
+	@Test
+	public void testUnrelatedOrderNotBlocked() throws Exception {
+		//barrier-o1的调用等待屏障时占用执行队列，其它流程实例的调用不受影响
+		Future<Void> blocked = async.terminateByIdAsync("barrier-o1", "a1");
+		for(int i = 0; i < 3; i++) {
+			async.executeTaskAsync("o" + (i + 2) + "-t0", "a1").get(5, TimeUnit.SECONDS);
+		}
+		Assert.assertFalse(blocked.isDone());
+		async.terminateByIdAsync("barrier-o9", "a1").get(5, TimeUnit.SECONDS);
+		blocked.get(5, TimeUnit.SECONDS);
+	}
+	
+	@Test
+	public void testCallback() throws Exception {
+		final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+		final CountDownLatch latch = new CountDownLatch(2);
+		AsyncCallback<List<Task>> callback = new AsyncCallback<List<Task>>() {
+			public void onSuccess(List<Task> result) {
+				results.add(result.size());
+				latch.countDown();
+			}
+			
+			public void onFailure(Throwable e) {
+				results.add(e.getClass());
+				latch.countDown();
+			}
+		};
+		async.executeTaskAsync("o1-t0", "a1", null, callback);
+		async.executeTaskAsync("o2-error", "a1", null, callback);
+		Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(results.contains(1));
+		Assert.assertTrue(results.contains(IllegalStateException.class));
+	}
+	
+	@Test
+	public void testRejected() throws Exception {
+		executor.shutdown();
+		Future<Void> future = async.terminateByIdAsync("o1", "a1");
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch(ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		try {
+			async.executeTaskAsync("o1-t0", "a1").get(5, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch(ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		//拒绝后执行队列被移除，不会残留
+		Assert.assertEquals(0, async.getPendingOrders());
+		Assert.assertTrue(calls.isEmpty());
+	}
+	
+	@Test
+	public void testParallel() throws Exception {
+		//两个流程实例的调用同时到达屏障，说明并行执行
+		Future<Void> f1 = async.terminateByIdAsync("barrier-o1", "a1");
+		Future<Void> f2 = async.terminateByIdAsync("barrier-o2", "a1");
+		f1.get(5, TimeUnit.SECONDS);
+		f2.get(5, TimeUnit.SECONDS);
+		Assert.assertEquals(2, calls.size());
+	}
+	
+	@Test
+	public void testError() throws Exception {
+		Future<List<Task>> future = async.executeTaskAsync("o1-error", "a1");
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch(ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		//失败的调用不影响同一流程实例的后续调用
+		Assert.assertEquals(1, async.executeTaskAsync("o1-t0", "a1").get(5, TimeUnit.SECONDS).size());
+	}
+	
+	private SnakerEngine newEngine() {
+		final IQueryService query = Stubs.stub(IQueryService.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(!method.getName().equals("getTask")) return null;
+				String taskId = (String)args[0];
+				Task task = new Task();
+				task.setId(taskId);
+				task.setOrderId(taskId.substring(0, taskId.indexOf('-')));
+				return task;
+			}
+		});
+		return Stubs.stub(SnakerEngine.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getName().equals("query")) return query;
+				String id = (String)args[0];
+				if(id.endsWith("error")) throw new IllegalStateException(id);
+				if(id.startsWith("barrier")) barrier.await(5, TimeUnit.SECONDS);
+				//同一流程实例的调用若并发执行，休眠期间后提交的调用会先完成
+				Thread.sleep(20 - calls.size() * 4);
+				calls.add(id);
+				if(method.getName().equals("executeTask")) {
+					return Collections.singletonList(new Task());
+				}
+				return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,110 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.concurrency.forkjoin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.model.DecisionModel;
+import org.snaker.engine.model.EndModel;
+import org.snaker.engine.model.ForkModel;
+import org.snaker.engine.model.JoinModel;
+import org.snaker.engine.model.NodeModel;
+import org.snaker.engine.model.ProcessModel;
+import org.snaker.engine.model.StartModel;
+import org.snaker.engine.model.TaskModel;
+import org.snaker.engine.model.TransitionModel;
+
+/**
+ * 测试编译时确定由fork计数器控制合并的join节点
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestForkJoinCounter {
+	private List<NodeModel> nodes = new ArrayList<NodeModel>();
+	
+	/**
+	 * 与process.snaker相同的结构：task2、task3先合并至join2，再与task1合并至join1
+	 */
+	@Test
+	public void test() {
+		StartModel start = node(new StartModel(), "start1");
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task1 = node(new TaskModel(), "task1");
+		TaskModel task2 = node(new TaskModel(), "task2");
+		TaskModel task3 = node(new TaskModel(), "task3");
+		JoinModel join1 = node(new JoinModel(), "join1");
+		JoinModel join2 = node(new JoinModel(), "join2");
+		EndModel end = node(new EndModel(), "end1");
+		link(start, fork);
+		link(fork, task1);
+		link(fork, task2);
+		link(fork, task3);
+		link(task1, join1);
+		link(task2, join2);
+		link(task3, join2);
+		link(join2, join1);
+		link(join1, end);
+		compile();
+		Assert.assertTrue(join1.isCounted());
+		Assert.assertTrue(join2.isCounted());
+	}
+	
+	/**
+	 * 分支中存在决策节点时无法确定到达join的分支数，使用查询方式合并
+	 */
+	@Test
+	public void testDecision() {
+		StartModel start = node(new StartModel(), "start1");
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task1 = node(new TaskModel(), "task1");
+		DecisionModel decision = node(new DecisionModel(), "decision1");
+		JoinModel join1 = node(new JoinModel(), "join1");
+		EndModel end = node(new EndModel(), "end1");
+		link(start, fork);
+		link(fork, task1);
+		link(fork, decision);
+		link(task1, join1);
+		link(decision, join1);
+		link(decision, end);
+		link(join1, end);
+		compile();
+		Assert.assertFalse(join1.isCounted());
+	}
+	
+	private <T extends NodeModel> T node(T node, String name) {
+		node.setName(name);
+		nodes.add(node);
+		return node;
+	}
+	
+	private void link(NodeModel source, NodeModel target) {
+		TransitionModel tm = new TransitionModel();
+		tm.setName(source.getName() + "_" + target.getName());
+		tm.setSource(source);
+		tm.setTarget(target);
+		source.getOutputs().add(tm);
+		target.getInputs().add(tm);
+	}
+	
+	private void compile() {
+		ProcessModel model = new ProcessModel();
+		model.setName("forkjoin");
+		model.setNodes(nodes);
+		model.compile();
+	}
+}
@@ -0,0 +1,270 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.concurrency.forkjoin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.snaker.engine.SnakerEngine;
+import org.snaker.engine.access.UnitOfWork;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+import org.snaker.engine.core.Execution;
+import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Process;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.model.DecisionModel;
+import org.snaker.engine.model.ForkModel;
+import org.snaker.engine.model.NodeModel;
+import org.snaker.engine.model.ProcessModel;
+import org.snaker.engine.model.TaskModel;
+import org.snaker.engine.model.TransitionModel;
+import org.snaker.engine.model.WorkModel;
+import org.snaker.engine.scheduler.ParallelExecutor;
+
+import test.access.RecordingAccess;
+import test.access.Stubs;
+
+/**
+ * 测试并行模式的fork节点：分支并发执行，任务写操作合并为一次批量写入
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestParallelFork {
+	private static final String EXECUTOR = "testParallelForkExecutor";
+	private List<NodeModel> nodes = new ArrayList<NodeModel>();
+	private ParallelExecutor executor = new ParallelExecutor(3, 10, false);
+	private RecordAccess access = new RecordAccess();
+	private List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+	private List<Order> orders = Collections.synchronizedList(new ArrayList<Order>());
+	
+	@Before
+	public void before() {
+		ServiceContext.getContext().put(EXECUTOR, executor);
+		TransactionObjectHolder.bind(Stubs.connection());
+	}
+	
+	@After
+	public void after() {
+		ServiceContext.getContext().put(EXECUTOR, null);
+		TransactionObjectHolder.unbind();
+		executor.shutdown();
+	}
+	
+	@Test
+	public void testParallel() {
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task1 = node(new TaskModel(), "task1");
+		TaskModel task2 = node(new TaskModel(), "task2");
+		DecisionModel decision = node(new DecisionModel(), "decision1");
+		TaskModel task3 = node(new TaskModel(), "task3");
+		TaskModel task4 = node(new TaskModel(), "task4");
+		link(fork, task1);
+		link(fork, task2);
+		link(fork, decision);
+		link(decision, task3);
+		link(decision, task4);
+		decision.setExpr("'decision1_task3'");
+		fork.setParallel(true);
+		ProcessModel model = new ProcessModel();
+		model.setName("parallelfork");
+		model.setNodes(nodes);
+		model.compile();
+		
+		//三个分支同时到达屏障才能创建任务，说明并发执行
+		Execution execution = newExecution(model, new CyclicBarrier(3));
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			fork.execute(execution);
+			Assert.assertTrue(access.executed.isEmpty());
+			uow.commit();
+		} finally {
+			uow.end();
+		}
+		List<String> names = new ArrayList<String>();
+		for(Task task : execution.getTasks()) {
+			names.add(task.getTaskName());
+		}
+		Assert.assertEquals("[task1, task2, task3]", names.toString());
+		Assert.assertEquals(1, access.executed.size());
+		Assert.assertEquals("batch:3:insert into wf_task ", access.executed.get(0).substring(0, 28));
+	}
+	
+	@Test
+	public void testFallbackInOrder() {
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task1 = node(new TaskModel(), "query1");
+		TaskModel task2 = node(new TaskModel(), "task2");
+		ForkModel inner = node(new ForkModel(), "fork2");
+		TaskModel task3 = node(new TaskModel(), "task3");
+		link(fork, task1);
+		link(fork, task2);
+		link(fork, inner);
+		link(inner, task3);
+		fork.setParallel(true);
+		ProcessModel model = new ProcessModel();
+		model.setName("parallelfork");
+		model.setNodes(nodes);
+		model.compile();
+		
+		//query1在工作线程中查询数据库，放弃计算结果后在当前线程重新执行；嵌套fork不可并行，在当前线程执行
+		Execution execution = newExecution(model, null);
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			fork.execute(execution);
+			uow.commit();
+		} finally {
+			uow.end();
+		}
+		List<String> names = new ArrayList<String>();
+		for(Task task : execution.getTasks()) {
+			names.add(task.getTaskName());
+		}
+		Assert.assertEquals("[query1, task2, task3]", names.toString());
+		Assert.assertEquals(2, access.queries.size());
+		//写入顺序与输出变迁顺序一致
+		Assert.assertEquals("[query1-o1, task2-o1, task3-o1]", access.insertedTaskIds.toString());
+	}
+	
+	@Test
+	public void testErrorNotRetried() {
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task1 = node(new TaskModel(), "task1");
+		TaskModel task2 = node(new TaskModel(), "error2");
+		link(fork, task1);
+		link(fork, task2);
+		fork.setParallel(true);
+		ProcessModel model = new ProcessModel();
+		model.setName("parallelfork");
+		model.setNodes(nodes);
+		model.compile();
+		
+		Execution execution = newExecution(model, null);
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			fork.execute(execution);
+			Assert.fail();
+		} catch(IllegalStateException e) {
+			//处理类的异常原样抛出，不在当前线程重新执行
+			Assert.assertEquals("handler failed", e.getMessage());
+		} finally {
+			uow.end();
+		}
+		Assert.assertEquals(2, calls.size());
+		Assert.assertTrue(access.executed.isEmpty());
+	}
+	
+	@Test
+	public void testOrderCopied() {
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task1 = node(new TaskModel(), "task1");
+		TaskModel task2 = node(new TaskModel(), "task2");
+		link(fork, task1);
+		link(fork, task2);
+		fork.setParallel(true);
+		ProcessModel model = new ProcessModel();
+		model.setName("parallelfork");
+		model.setNodes(nodes);
+		model.compile();
+		
+		Execution execution = newExecution(model, null);
+		UnitOfWork uow = UnitOfWork.begin();
+		try {
+			fork.execute(execution);
+			uow.commit();
+		} finally {
+			uow.end();
+		}
+		//各分支使用流程实例的副本
+		Assert.assertEquals(2, orders.size());
+		Assert.assertNotSame(orders.get(0), orders.get(1));
+		Assert.assertFalse(orders.contains(execution.getOrder()));
+		Assert.assertEquals("o1", orders.get(0).getId());
+	}
+	
+	private Execution newExecution(ProcessModel model, final CyclicBarrier barrier) {
+		SnakerEngine engine = Stubs.stub(SnakerEngine.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(!method.getName().equals("createTask")) return null;
+				if(barrier != null) barrier.await(5, TimeUnit.SECONDS);
+				Execution execution = (Execution)args[1];
+				calls.add(((WorkModel)args[0]).getName());
+				orders.add(execution.getOrder());
+				if(((WorkModel)args[0]).getName().startsWith("query")) {
+					access.getTask("t1");
+				}
+				if(((WorkModel)args[0]).getName().startsWith("error")) {
+					throw new IllegalStateException("handler failed");
+				}
+				Task task = new Task();
+				task.setId(((WorkModel)args[0]).getName() + "-" + execution.getOrder().getId());
+				task.setOrderId(execution.getOrder().getId());
+				task.setTaskName(((WorkModel)args[0]).getName());
+				access.saveTask(task);
+				return Collections.singletonList(task);
+			}
+		});
+		Process process = new Process();
+		process.setId("p1");
+		process.setModel(model);
+		Order order = new Order();
+		order.setId("o1");
+		Map<String, Object> args = new HashMap<String, Object>();
+		return new Execution(engine, process, order, args);
+	}
+	
+	private <T extends NodeModel> T node(T node, String name) {
+		node.setName(name);
+		nodes.add(node);
+		return node;
+	}
+	
+	private void link(NodeModel source, NodeModel target) {
+		TransitionModel tm = new TransitionModel();
+		tm.setName(source.getName() + "_" + target.getName());
+		tm.setSource(source);
+		tm.setTarget(target);
+		source.getOutputs().add(tm);
+		target.getInputs().add(tm);
+	}
+	
+	/**
+	 * 记录批量插入任务id的access
+	 */
+	static class RecordAccess extends RecordingAccess {
+		List<Object> insertedTaskIds = Collections.synchronizedList(new ArrayList<Object>());
+
+		@Override
+		protected void saveOrUpdateBatch(String sql, List<Object[]> argsList, int[] type) {
+			super.saveOrUpdateBatch(sql, argsList, type);
+			if(sql.equals(TASK_INSERT)) {
+				for(Object[] args : argsList) {
+					insertedTaskIds.add(args[0]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.container;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.SnakerException;
+import org.snaker.engine.core.ModelContainer;
+import org.snaker.engine.entity.Process;
+import org.snaker.engine.model.ProcessModel;
+
+/**
+ * 测试流程定义容器的id、名称查找及替换
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestModelContainer {
+	@After
+	public void after() {
+		ModelContainer.popEntity("c1");
+		ModelContainer.popEntity("c2");
+	}
+
+	@Test
+	public void testLookup() {
+		Process v1 = newProcess("c1", "containerLeave");
+		ModelContainer.pushEntity("c1", v1);
+		Assert.assertSame(v1, ModelContainer.getEntity("c1"));
+		Assert.assertSame(v1, ModelContainer.getEntity("CONTAINERleave"));
+
+		//同名的新版本替换名称索引，卸载后名称索引指向剩余的版本
+		Process v2 = newProcess("c2", "containerLeave");
+		ModelContainer.pushEntity("c2", v2);
+		Assert.assertSame(v2, ModelContainer.getEntity("containerleave"));
+		Assert.assertSame(v1, ModelContainer.getEntity("c1"));
+		ModelContainer.popEntity("c2");
+		Assert.assertSame(v1, ModelContainer.getEntity("containerLeave"));
+		ModelContainer.popEntity("c1");
+		try {
+			ModelContainer.getEntity("containerLeave");
+			Assert.fail();
+		} catch(SnakerException e) {
+		}
+	}
+
+	@Test
+	public void testRename() {
+		ModelContainer.pushEntity("c1", newProcess("c1", "containerA"));
+		Process renamed = newProcess("c1", "containerB");
+		ModelContainer.pushEntity("c1", renamed);
+		Assert.assertSame(renamed, ModelContainer.getEntity("containerB"));
+		try {
+			ModelContainer.getEntity("containerA");
+			Assert.fail();
+		} catch(SnakerException e) {
+		}
+	}
+
+	private Process newProcess(String id, String name) {
+		ProcessModel model = new ProcessModel();
+		model.setName(name);
+		Process process = new Process();
+		process.setId(id);
+		process.setName(name);
+		process.setModel(model);
+		return process;
+	}
+}
@@ -0,0 +1,99 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.expr;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.snaker.engine.Expression;
+import org.snaker.engine.impl.BshExpression;
+import org.snaker.engine.impl.NativeExpressionEvaluator;
+
+import bsh.Interpreter;
+
+/**
+ * 表达式引擎性能对比（JMH）：每次创建bsh解释器、编译缓存的bsh表达式、内置表达式引擎
+ * 运行方式：执行main方法，或mvn test-compile后通过org.openjdk.jmh.Main运行
+ * @author yuqs
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+	@Param({"day > 2 ? 'transition5' : 'transition4'",
+		"content == 200 || (amount >= 1000 && dept.equals('sales'))"})
+	private String expr;
+	private Map<String, Object> args;
+	private Expression bsh;
+	private Expression nativeExpr;
+	
+	@Setup
+	public void setup() {
+		args = new HashMap<String, Object>();
+		args.put("day", 3);
+		args.put("content", 100);
+		args.put("amount", 1500);
+		args.put("dept", "sales");
+		args.put("task1.operator", new String[]{"1"});
+		bsh = new BshExpression(expr, expr.replace('\'', '"'));
+		nativeExpr = new NativeExpressionEvaluator().compile(expr);
+	}
+	
+	@Benchmark
+	public Object interpreter() throws Exception {
+		Interpreter interpreter = new Interpreter();
+		for(Map.Entry<String, Object> entry : args.entrySet()) {
+			interpreter.set(entry.getKey(), entry.getValue());
+		}
+		return interpreter.eval(expr.replace('\'', '"'));
+	}
+	
+	@Benchmark
+	public Object compiledBsh() {
+		return bsh.eval(Object.class, args);
+	}
+	
+	@Benchmark
+	public Object nativeEngine() {
+		return nativeExpr.eval(Object.class, args);
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(ExpressionBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
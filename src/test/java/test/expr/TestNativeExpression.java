@@ -0,0 +1,85 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.expr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.Expression;
+import org.snaker.engine.SnakerException;
+import org.snaker.engine.impl.NativeExpressionEvaluator;
+
+/**
+ * 测试内置表达式引擎
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestNativeExpression {
+	private NativeExpressionEvaluator evaluator = new NativeExpressionEvaluator();
+	
+	@Test
+	public void test() {
+		Map<String, Object> user = new HashMap<String, Object>();
+		user.put("dept", "sales");
+		List<String> roles = new ArrayList<String>();
+		roles.add("manager");
+		Map<String, Object> args = new HashMap<String, Object>();
+		args.put("day", 3);
+		args.put("amount", 1500.5d);
+		args.put("content", "toTask2");
+		args.put("user", user);
+		args.put("roles", roles);
+		args.put("task1.operator", "admin");
+		args.put("empty", null);
+		
+		Assert.assertEquals("transition5", eval(String.class, "day > 2 ? 'transition5' : 'transition4'", args));
+		Assert.assertEquals("toTask2", eval(String.class, "content", args));
+		Assert.assertEquals(Boolean.TRUE, eval(Boolean.class, "content == \"toTask2\"", args));
+		Assert.assertEquals(Boolean.TRUE, eval(Boolean.class, "content.equals('toTask2') && day >= 3;", args));
+		Assert.assertEquals(Boolean.TRUE, eval(Boolean.class, "amount > 1000 || day < 0", args));
+		Assert.assertEquals(Boolean.FALSE, eval(Boolean.class, "!(day * 2 + 1 == 7) ", args));
+		Assert.assertEquals(Boolean.TRUE, eval(Boolean.class, "user.dept == 'sales' && user['dept'] != 'hr'", args));
+		Assert.assertEquals(Boolean.TRUE, eval(Boolean.class, "roles[0] == 'manager' && roles.size() == 1", args));
+		Assert.assertEquals(Boolean.TRUE, eval(Boolean.class, "task1.operator == 'admin'", args));
+		Assert.assertEquals(Boolean.TRUE, eval(Boolean.class, "empty == null", args));
+		Assert.assertEquals(Integer.valueOf(1), eval(Integer.class, "day % 2", args));
+		Assert.assertEquals("day:3", eval(String.class, "'day:' + day", args));
+	}
+	
+	@Test
+	public void testUnsupported() {
+		Assert.assertNull(evaluator.compile("a = 1; a > 0"));
+		Assert.assertNull(evaluator.compile("new java.util.Date()"));
+		Assert.assertNull(evaluator.compile("Integer.parseInt(day) > 2"));
+		Assert.assertNull(evaluator.compile("max(a, b)"));
+		Assert.assertNull(evaluator.compile("day++ > 2"));
+		Assert.assertNull(evaluator.compile("day > "));
+	}
+	
+	@Test(expected = SnakerException.class)
+	public void testUndefined() {
+		eval(Boolean.class, "undefined > 2", new HashMap<String, Object>());
+	}
+	
+	private <T> T eval(Class<T> T, String expr, Map<String, Object> args) {
+		Expression expression = evaluator.compile(expr);
+		Assert.assertNotNull(expression);
+		return expression.eval(T, args);
+	}
+}
@@ -0,0 +1,89 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.model.EndModel;
+import org.snaker.engine.model.ForkModel;
+import org.snaker.engine.model.JoinModel;
+import org.snaker.engine.model.NodeModel;
+import org.snaker.engine.model.ProcessModel;
+import org.snaker.engine.model.StartModel;
+import org.snaker.engine.model.SubProcessModel;
+import org.snaker.engine.model.TaskModel;
+import org.snaker.engine.model.TransitionModel;
+
+/**
+ * 测试编译时构造的节点索引及join的中间任务名称
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestModelIndex {
+	private List<NodeModel> nodes = new ArrayList<NodeModel>();
+
+	@Test
+	public void test() {
+		StartModel start = node(new StartModel(), "start1");
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task1 = node(new TaskModel(), "task1");
+		TaskModel task2 = node(new TaskModel(), "task2");
+		SubProcessModel sub = node(new SubProcessModel(), "sub1");
+		JoinModel join1 = node(new JoinModel(), "join1");
+		JoinModel join2 = node(new JoinModel(), "join2");
+		EndModel end = node(new EndModel(), "end1");
+		link(start, fork);
+		link(fork, task1);
+		link(fork, task2);
+		link(fork, sub);
+		link(task1, join1);
+		link(task2, join2);
+		link(sub, join2);
+		link(join2, join1);
+		link(join1, end);
+		ProcessModel model = new ProcessModel();
+		model.setName("index");
+		model.setNodes(nodes);
+		model.compile();
+
+		Assert.assertSame(start, model.getStart());
+		Assert.assertSame(task2, model.getNode("task2"));
+		Assert.assertNull(model.getNode("none"));
+		Assert.assertEquals(3, model.getWorkModels().size());
+		Assert.assertTrue(model.containsNodeNames(SubProcessModel.class, "task1", "sub1"));
+		Assert.assertFalse(model.containsNodeNames(SubProcessModel.class, "task1", "none"));
+		Assert.assertArrayEquals(new String[]{"task2", "sub1"}, join2.getForkTaskNames());
+		Assert.assertArrayEquals(new String[]{"task1", "task2", "sub1"}, join1.getForkTaskNames());
+		Assert.assertSame(join1.getForkTaskNames(), join1.getForkTaskNames());
+	}
+
+	private <T extends NodeModel> T node(T node, String name) {
+		node.setName(name);
+		nodes.add(node);
+		return node;
+	}
+
+	private void link(NodeModel source, NodeModel target) {
+		TransitionModel tm = new TransitionModel();
+		tm.setName(source.getName() + "_" + target.getName());
+		tm.setSource(source);
+		tm.setTarget(target);
+		source.getOutputs().add(tm);
+		target.getInputs().add(tm);
+	}
+}
@@ -0,0 +1,103 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.model.DecisionModel;
+import org.snaker.engine.model.EndModel;
+import org.snaker.engine.model.ForkModel;
+import org.snaker.engine.model.JoinModel;
+import org.snaker.engine.model.NodeModel;
+import org.snaker.engine.model.ProcessModel;
+import org.snaker.engine.model.StartModel;
+import org.snaker.engine.model.TaskModel;
+import org.snaker.engine.model.TransitionModel;
+
+/**
+ * 测试编译时预先计算的驳回、撤回可达节点集合
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestReachable {
+	private List<NodeModel> nodes = new ArrayList<NodeModel>();
+
+	@Test
+	public void test() {
+		StartModel start = node(new StartModel(), "start1");
+		TaskModel task1 = task("task1", TaskModel.TYPE_ANY);
+		DecisionModel decision = node(new DecisionModel(), "decision1");
+		TaskModel task2 = task("task2", TaskModel.TYPE_ALL);
+		TaskModel task3 = task("task3", TaskModel.TYPE_ANY);
+		ForkModel fork = node(new ForkModel(), "fork1");
+		TaskModel task4 = task("task4", TaskModel.TYPE_ANY);
+		JoinModel join = node(new JoinModel(), "join1");
+		EndModel end = node(new EndModel(), "end1");
+		link(start, task1);
+		link(task1, decision);
+		link(decision, task2);
+		link(decision, task3);
+		link(task2, task3);
+		link(task3, fork);
+		link(fork, task4);
+		link(task4, join);
+		link(join, task1);
+		link(join, end);
+		ProcessModel model = new ProcessModel();
+		model.setName("reachable");
+		model.setNodes(nodes);
+		//未编译时即时计算，结果与编译后一致
+		Assert.assertTrue(task2.canRejected(task1));
+		model.compile();
+
+		Assert.assertTrue(decision.canRejected(task1));
+		Assert.assertTrue(task2.canRejected(task1));
+		Assert.assertFalse(task3.canRejected(task1));
+		Assert.assertFalse(task3.canRejected(task2));
+		Assert.assertTrue(fork.canRejected(task3));
+		Assert.assertFalse(task4.canRejected(task3));
+		Assert.assertFalse(task1.canRejected(task4));
+		Assert.assertSame(task1.getRejectNames(), task1.getRejectNames());
+
+		Assert.assertArrayEquals(new String[]{"task2", "task3"}, task1.getNextTaskNames().toArray());
+		Assert.assertArrayEquals(new String[]{"task3"}, task2.getNextTaskNames().toArray());
+		Assert.assertTrue(task3.getNextTaskNames().isEmpty());
+		Assert.assertTrue(task4.getNextTaskNames().isEmpty());
+	}
+
+	private TaskModel task(String name, String performType) {
+		TaskModel task = node(new TaskModel(), name);
+		task.setPerformType(performType);
+		return task;
+	}
+
+	private <T extends NodeModel> T node(T node, String name) {
+		node.setName(name);
+		nodes.add(node);
+		return node;
+	}
+
+	private void link(NodeModel source, NodeModel target) {
+		TransitionModel tm = new TransitionModel();
+		tm.setName(source.getName() + "_" + target.getName());
+		tm.setSource(source);
+		tm.setTarget(target);
+		source.getOutputs().add(tm);
+		target.getInputs().add(tm);
+	}
+}
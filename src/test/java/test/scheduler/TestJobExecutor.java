@@ -0,0 +1,305 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.scheduler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.snaker.engine.IQueryService;
+import org.snaker.engine.SnakerException;
+import org.snaker.engine.core.Execution;
+import org.snaker.engine.core.ModelContainer;
+import org.snaker.engine.core.OrderService;
+import org.snaker.engine.core.ServiceContext;
+import org.snaker.engine.core.SnakerEngineImpl;
+import org.snaker.engine.core.TaskService;
+import org.snaker.engine.entity.Job;
+import org.snaker.engine.entity.Order;
+import org.snaker.engine.entity.Process;
+import org.snaker.engine.entity.Task;
+import org.snaker.engine.model.NodeModel;
+import org.snaker.engine.model.ProcessModel;
+import org.snaker.engine.model.SubProcessModel;
+import org.snaker.engine.model.TaskModel;
+import org.snaker.engine.scheduler.JobExecutor;
+
+import test.access.RecordingAccess;
+import test.access.Stubs;
+
+/**
+ * 测试异步作业的执行：按领取标识删除后继续执行自定义任务或启动子流程，失败时按指数退避重试
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestJobExecutor {
+	private static final String SERVICE = "testJobExecutorOrderService";
+	private JobAccess access = new JobAccess();
+	private OrderService orderService = new OrderService();
+	private List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+	private TestEngine engine;
+	
+	@Before
+	public void before() {
+		orderService.setAccess(access);
+		ServiceContext.getContext().put(SERVICE, orderService);
+		engine = new TestEngine();
+	}
+	
+	@After
+	public void after() {
+		ServiceContext.getContext().put(SERVICE, null);
+		ModelContainer.popEntity("jobParent");
+		ModelContainer.popEntity("jobChild");
+	}
+	
+	@Test
+	public void testCustomTask() {
+		Task task = new Task();
+		task.setId("t1");
+		access.task = task;
+		Job job = newJob("j1", "t1", "custom1");
+		job.setVariable("{\"day\":3}");
+		Assert.assertTrue(engine.executeJob(job).isEmpty());
+		//先按领取标识删除作业，再以创建作业时的操作人及参数执行自定义任务
+		Assert.assertEquals(JobAccess.DELETE_SQL, access.executed.get(0));
+		Assert.assertArrayEquals(new Object[]{"j1", "owner1"}, access.updateArgs.get(0));
+		Assert.assertEquals("[task:t1:admin:{day=3}]", calls.toString());
+	}
+	
+	@Test
+	public void testLostClaim() {
+		access.deleted = 0;
+		Assert.assertTrue(engine.executeJob(newJob("j1", "t1", "custom1")).isEmpty());
+		//领取已超时并被其它执行器重新领取，放弃执行
+		Assert.assertEquals(1, access.executed.size());
+		Assert.assertTrue(access.queries.isEmpty());
+		Assert.assertTrue(calls.isEmpty());
+	}
+	
+	@Test
+	public void testCustomTaskDone() {
+		Assert.assertTrue(engine.executeJob(newJob("j1", "t1", "custom1")).isEmpty());
+		//自定义任务已执行，只删除作业
+		Assert.assertEquals(1, access.executed.size());
+		Assert.assertTrue(calls.isEmpty());
+	}
+	
+	@Test
+	public void testSubProcess() {
+		ProcessModel child = newModel("jobChild");
+		SubProcessModel sub = new SubProcessModel();
+		sub.setName("sub1");
+		sub.setProcessName("jobChild");
+		sub.setSubProcess(child);
+		pushProcess("jobChild", child);
+		pushProcess("jobParent", newModel("jobParent", sub));
+		Order order = new Order();
+		order.setId("o1");
+		order.setProcessId("jobParent");
+		access.order = order;
+		engine.executeJob(newJob("j1", null, "sub1"));
+		//在父流程实例上以创建作业时的操作人启动子流程
+		Assert.assertEquals(JobAccess.DELETE_SQL, access.executed.get(0));
+		Assert.assertEquals("[start:jobChild:o1:sub1:admin]", calls.toString());
+	}
+	
+	@Test
+	public void testNotSubProcess() {
+		TaskModel task = new TaskModel();
+		task.setName("task1");
+		pushProcess("jobParent", newModel("jobParent", task));
+		Order order = new Order();
+		order.setId("o1");
+		order.setProcessId("jobParent");
+		access.order = order;
+		try {
+			engine.executeJob(newJob("j1", null, "task1"));
+			Assert.fail();
+		} catch(SnakerException e) {
+		}
+		Assert.assertTrue(calls.isEmpty());
+	}
+	
+	@Test
+	public void testFail() throws Exception {
+		engine.error = new IllegalStateException("failed");
+		Job retry = newJob("j1", "t1", "custom1");
+		retry.setRetries(0);
+		Job last = newJob("j2", "t2", "custom1");
+		last.setRetries(5);
+		access.candidates.add(retry);
+		access.candidates.add(last);
+		access.updates = new CountDownLatch(2);
+		JobExecutor executor = new JobExecutor();
+		long before = System.currentTimeMillis();
+		executor.start(engine);
+		try {
+			Assert.assertTrue(access.updates.await(5, TimeUnit.SECONDS));
+		} finally {
+			executor.stop();
+		}
+		long after = System.currentTimeMillis();
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		//认领时锁定超时的判断时间为当前时间减去锁定时长(300秒)
+		Object[] args = access.queryArgs.get(0);
+		Assert.assertEquals(300000L, format.parse((String)args[0]).getTime() - format.parse((String)args[1]).getTime());
+		
+		//首次失败：释放领取标识，等待首次重试时间(10秒)后重新认领
+		Assert.assertEquals(1, retry.getRetries().intValue());
+		Assert.assertEquals(Job.STATE_WAITING, retry.getJobState().intValue());
+		Assert.assertNull(retry.getOwner());
+		Assert.assertEquals("failed", retry.getErrorMsg());
+		long next = format.parse(retry.getNextTime()).getTime();
+		Assert.assertTrue(next >= before + 9000 && next <= after + 10000);
+		
+		//超过最大重试次数(5次)：标记为失败，不再认领
+		Assert.assertEquals(6, last.getRetries().intValue());
+		Assert.assertEquals(Job.STATE_FAILED, last.getJobState().intValue());
+		Assert.assertNull(last.getOwner());
+		//一次认领更新，两次失败更新
+		Assert.assertEquals(3, access.executed.size());
+		Assert.assertEquals(JobAccess.UPDATE_SQL, access.executed.get(1));
+		Assert.assertEquals(JobAccess.UPDATE_SQL, access.executed.get(2));
+	}
+	
+	private Job newJob(String id, String taskId, String nodeName) {
+		Job job = new Job();
+		job.setId(id);
+		job.setOrderId("o1");
+		job.setTaskId(taskId);
+		job.setNodeName(nodeName);
+		job.setOperator("admin");
+		job.setOwner("owner1");
+		job.setJobState(Job.STATE_RUNNING);
+		return job;
+	}
+	
+	private ProcessModel newModel(String name, NodeModel... nodes) {
+		ProcessModel model = new ProcessModel();
+		model.setName(name);
+		for(NodeModel node : nodes) {
+			model.getNodes().add(node);
+		}
+		return model;
+	}
+	
+	private void pushProcess(String name, ProcessModel model) {
+		Process process = new Process();
+		process.setId(name);
+		process.setName(name);
+		process.setModel(model);
+		ModelContainer.pushEntity(name, process);
+	}
+	
+	/**
+	 * 记录自定义任务执行及子流程启动的引擎，执行作业的异常可指定
+	 */
+	class TestEngine extends SnakerEngineImpl {
+		RuntimeException error;
+		
+		TestEngine() {
+			TaskService taskService = new TaskService();
+			taskService.setAccess(access);
+			this.context = ServiceContext.getContext();
+			this.orderService = TestJobExecutor.this.orderService;
+			this.taskService = taskService;
+			this.queryService = Stubs.stub(IQueryService.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					return method.getReturnType() == List.class ? Collections.emptyList() : null;
+				}
+			});
+		}
+		
+		@Override
+		public List<Task> executeJob(Job job) {
+			if(error != null) throw error;
+			return super.executeJob(job);
+		}
+		
+		@Override
+		public List<Task> executeTask(String taskId, String operator, Map<String, Object> args) {
+			calls.add("task:" + taskId + ":" + operator + ":" + args);
+			return Collections.emptyList();
+		}
+		
+		@Override
+		public Order startInstanceByExecution(Execution execution) {
+			calls.add("start:" + execution.getProcess().getName() + ":" + execution.getParentOrder().getId() 
+					+ ":" + execution.getParentNodeName() + ":" + execution.getOperator());
+			Order order = new Order();
+			order.setId("o2");
+			return order;
+		}
+	}
+	
+	/**
+	 * 返回指定的任务、流程实例及候选作业，条件删除返回指定的影响行数
+	 */
+	static class JobAccess extends RecordingAccess {
+		static final String DELETE_SQL = JOB_DELETE;
+		static final String UPDATE_SQL = JOB_UPDATE;
+		List<Job> candidates = new ArrayList<Job>();
+		List<Object[]> updateArgs = Collections.synchronizedList(new ArrayList<Object[]>());
+		CountDownLatch updates = new CountDownLatch(0);
+		Task task;
+		Order order;
+		int deleted = 1;
+		
+		@Override
+		protected void saveOrUpdate(String sql, Object[] args, int[] type) {
+			updateArgs.add(args);
+			super.saveOrUpdate(sql, args, type);
+			if(sql.equals(JOB_UPDATE)) updates.countDown();
+		}
+		
+		@Override
+		protected int updateCount(String sql, Object[] args, int[] type) {
+			super.updateCount(sql, args, type);
+			return deleted;
+		}
+		
+		@Override
+		protected Object findObject(Class<?> clazz, String sql, Object[] args) {
+			if(clazz == Task.class) return task;
+			if(clazz == Order.class) return order;
+			return null;
+		}
+		
+		/**
+		 * 候选作业只返回一次，全部视为本次领取成功
+		 */
+		@Override
+		protected synchronized List<?> findList(Class<?> clazz, String sql, Object[] args) {
+			if(clazz != Job.class) return Collections.emptyList();
+			if(sql.startsWith(QUERY_JOB + JOB_RUNNABLE)) {
+				return candidates;
+			}
+			List<Job> claimed = candidates;
+			candidates = new ArrayList<Job>();
+			return claimed;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.access.transaction.TransactionObjectHolder;
+import org.snaker.engine.scheduler.ParallelExecutor;
+
+/**
+ * 测试并行执行器的并发执行、嵌套调用及异常处理
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestParallelExecutor {
+	private ParallelExecutor executor = new ParallelExecutor(3, 10, false);
+	
+	@After
+	public void after() {
+		TransactionObjectHolder.unbind();
+		executor.shutdown();
+	}
+	
+	@Test
+	public void testConcurrent() {
+		TransactionObjectHolder.bind(new Object());
+		final CyclicBarrier barrier = new CyclicBarrier(3);
+		List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+		for(int i = 0; i < 3; i++) {
+			final String name = "c" + i;
+			tasks.add(new Callable<String>() {
+				public String call() throws Exception {
+					//三个任务同时到达屏障，说明并发执行
+					barrier.await(5, TimeUnit.SECONDS);
+					//工作线程不加入调用线程的事务
+					Assert.assertFalse(TransactionObjectHolder.isExistingTransaction());
+					return name;
+				}
+			});
+		}
+		Assert.assertEquals(Arrays.asList("c0", "c1", "c2"), executor.invokeAll(tasks));
+		Assert.assertTrue(TransactionObjectHolder.isExistingTransaction());
+	}
+	
+	@Test
+	public void testNested() {
+		//单线程的执行器中嵌套调用，工作线程直接依次执行，不等待线程池
+		final ParallelExecutor single = new ParallelExecutor(1, 1, false);
+		try {
+			List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+			for(int i = 0; i < 2; i++) {
+				tasks.add(new Callable<Boolean>() {
+					public Boolean call() {
+						final Thread outer = Thread.currentThread();
+						List<Callable<Thread>> inner = new ArrayList<Callable<Thread>>();
+						for(int j = 0; j < 2; j++) {
+							inner.add(new Callable<Thread>() {
+								public Thread call() {
+									return Thread.currentThread();
+								}
+							});
+						}
+						for(Thread thread : single.invokeAll(inner)) {
+							if(thread != outer) return false;
+						}
+						return true;
+					}
+				});
+			}
+			Assert.assertEquals(Arrays.asList(true, true), single.invokeAll(tasks));
+		} finally {
+			single.shutdown();
+		}
+	}
+	
+	@Test
+	public void testError() {
+		List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+		tasks.add(new Callable<String>() {
+			public String call() {
+				return "ok";
+			}
+		});
+		tasks.add(new Callable<String>() {
+			public String call() {
+				throw new IllegalStateException("failed");
+			}
+		});
+		try {
+			executor.invokeAll(tasks);
+			Assert.fail();
+		} catch(IllegalStateException e) {
+			Assert.assertEquals("failed", e.getMessage());
+		}
+	}
+}
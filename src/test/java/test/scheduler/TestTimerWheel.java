@@ -0,0 +1,75 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.scheduler;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.scheduler.HashedTimerWheel;
+import org.snaker.engine.scheduler.Timeout;
+
+/**
+ * 测试哈希时间轮的插入、取消及推进
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestTimerWheel {
+	@Test
+	public void testAdvance() {
+		HashedTimerWheel wheel = new HashedTimerWheel(100, 6, 0);
+		wheel.add(new Timeout(Timeout.TYPE_TASK, "t1", 250));
+		wheel.add(new Timeout(Timeout.TYPE_TASK, "t2", 1000));
+		//超过一圈(8个槽位)的定时器
+		wheel.add(new Timeout(Timeout.TYPE_ORDER, "o1", 2050));
+		//已过期的定时器在下一刻度到期
+		wheel.add(new Timeout(Timeout.TYPE_ORDER, "o2", -500));
+		Assert.assertEquals(4, wheel.size());
+
+		List<Timeout> expired = wheel.advance(199);
+		Assert.assertEquals(1, expired.size());
+		Assert.assertEquals("o2", expired.get(0).getId());
+		expired = wheel.advance(300);
+		Assert.assertEquals(1, expired.size());
+		Assert.assertEquals("t1", expired.get(0).getId());
+		Assert.assertTrue(wheel.advance(999).isEmpty());
+		Assert.assertEquals(1, wheel.advance(1000).size());
+		Assert.assertTrue(wheel.advance(2000).isEmpty());
+		expired = wheel.advance(2100);
+		Assert.assertEquals(1, expired.size());
+		Assert.assertEquals("o1", expired.get(0).getId());
+		Assert.assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testCancel() {
+		HashedTimerWheel wheel = new HashedTimerWheel(100, 8, 0);
+		wheel.add(new Timeout(Timeout.TYPE_TASK, "t1", 300));
+		wheel.add(new Timeout(Timeout.TYPE_TASK, "t2", 300));
+		wheel.add(new Timeout(Timeout.TYPE_TASK, "t3", 300));
+		Assert.assertTrue(wheel.cancel(Timeout.TYPE_TASK, "t2"));
+		Assert.assertFalse(wheel.cancel(Timeout.TYPE_TASK, "t2"));
+		Assert.assertFalse(wheel.cancel(Timeout.TYPE_ORDER, "t1"));
+		//同一键重复插入时以最后一次为准
+		wheel.add(new Timeout(Timeout.TYPE_TASK, "t3", 500));
+		Assert.assertEquals(2, wheel.size());
+		List<Timeout> expired = wheel.advance(300);
+		Assert.assertEquals(1, expired.size());
+		Assert.assertEquals("t1", expired.get(0).getId());
+		Assert.assertTrue(wheel.contains(Timeout.TYPE_TASK, "t3"));
+		Assert.assertEquals(1, wheel.advance(500).size());
+		Assert.assertEquals(0, wheel.size());
+	}
+}
@@ -0,0 +1,63 @@
+/* Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.scheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snaker.engine.scheduler.WorkStealingPool;
+
+/**
+ * 测试工作窃取线程池
+ * @author yuqs
+ * @version 1.0
+ */
+public class TestWorkStealingPool {
+	@Test
+	public void testSteal() throws Exception {
+		WorkStealingPool pool = new WorkStealingPool("test", 2);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(2);
+		try {
+			//第一个任务阻塞第0个工作线程
+			pool.submit(new Runnable() {
+				public void run() {
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+					}
+				}
+			});
+			Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+			Runnable task = new Runnable() {
+				public void run() {
+					done.countDown();
+				}
+			};
+			//分别进入第1、第0个工作线程的队列，后者由空闲的第1个线程窃取执行
+			pool.submit(task);
+			pool.submit(task);
+			Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals(0, pool.getPendingCount());
+		} finally {
+			release.countDown();
+			pool.shutdown();
+		}
+	}
+}